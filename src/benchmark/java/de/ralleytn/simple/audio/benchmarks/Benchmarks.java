@@ -0,0 +1,48 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+final class Benchmarks {
+
+	private static final String RESOURCE_LOCATION = "de/ralleytn/simple/audio/tests/";
+	
+	private Benchmarks() {}
+	
+	// the benchmarks use the same files as the tests
+	static final byte[] readResource(String name) throws IOException {
+		
+		try(InputStream input = Benchmarks.class.getClassLoader().getResourceAsStream(RESOURCE_LOCATION + name)) {
+			
+			if(input == null) {
+				
+				throw new IOException("Missing test resource " + name);
+			}
+			
+			return input.readAllBytes();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.ralleytn.simple.audio.internal.ConvertingInputStream;
+import de.ralleytn.simple.audio.internal.PcmConverter;
+
+/**
+ * Compares the conversion stage of this library with the converters of the {@linkplain AudioSystem}.
+ * Each operation converts ten seconds of stereo audio at 44100 Hz.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PcmConverterBenchmark {
+
+	private static final int FRAMES = 441000;
+	
+	/**
+	 * {@code endian}: 16 bit big endian to little endian; {@code depth}: 24 bit to 16 bit; {@code unsigned}: 8 bit unsigned to 16 bit signed
+	 */
+	@Param({"endian", "depth", "unsigned"})
+	public String conversion;
+	
+	private AudioFormat source;
+	private AudioFormat target;
+	private byte[] data;
+	private final byte[] buffer = new byte[65536];
+	
+	@Setup
+	public void setup() {
+		
+		switch(this.conversion) {
+			case "endian":
+				this.source = new AudioFormat(44100.0F, 16, 2, true, true);
+				break;
+				
+			case "depth":
+				this.source = new AudioFormat(44100.0F, 24, 2, true, false);
+				break;
+				
+			default:
+				this.source = new AudioFormat(44100.0F, 8, 2, false, false);
+				break;
+		}
+		
+		this.target = new AudioFormat(44100.0F, 16, 2, true, false);
+		this.data = new byte[FRAMES * this.source.getFrameSize()];
+		new Random(0).nextBytes(this.data);
+	}
+	
+	@Benchmark
+	public long pcmConverter() throws IOException {
+		
+		return this.readAll(new ConvertingInputStream(new ByteArrayInputStream(this.data), new PcmConverter(this.source, this.target)));
+	}
+	
+	@Benchmark
+	public long audioSystem() throws IOException {
+		
+		return this.readAll(AudioSystem.getAudioInputStream(this.target, new AudioInputStream(new ByteArrayInputStream(this.data), this.source, FRAMES)));
+	}
+	
+	private long readAll(InputStream input) throws IOException {
+		
+		long bytes = 0;
+		int read = 0;
+		
+		try(InputStream stream = input) {
+			
+			while((read = stream.read(this.buffer)) != -1) {
+				
+				bytes += read;
+			}
+		}
+		
+		return bytes;
+	}
+}
@@ -23,21 +23,31 @@
  */
 package de.ralleytn.simple.audio;
 
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.JarURLConnection;
 import java.net.URI;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
@@ -50,17 +60,17 @@ import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.Mixer;
 import javax.sound.sampled.SourceDataLine;
 
-import org.tritonus.share.sampled.file.TAudioFileFormat;
-
 import de.jarnbjo.ogg.LogicalOggStream;
-import de.jarnbjo.ogg.OnDemandUrlStream;
-import de.jarnbjo.vorbis.VorbisStream;
-import de.ralleytn.simple.audio.internal.VorbisInputStream;
+import de.ralleytn.simple.audio.internal.HttpStreamHandler;
+import de.ralleytn.simple.audio.internal.MemoryStreamHandler;
+import de.ralleytn.simple.audio.internal.OggFile;
+import de.ralleytn.simple.audio.internal.PcmFile;
+import de.ralleytn.simple.audio.internal.ZipStreamHandler;
 
 /**
  * Implements the {@linkplain Audio} and should be extended by all classes representing a form of playable audio.
  * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
- * @version 2.0.1
+ * @version 2.1.0
  * @since 1.0.0
  */
 public abstract class AbstractAudio implements Audio {
@@ -74,6 +84,9 @@ public abstract class AbstractAudio implements Audio {
 	 */
 	public static final int LOOP_ENDLESS = -1;
 	
+	private static ExecutorService decodeExecutor;
+	private static volatile HeaderCache headerCache;
+	
 	protected URL resource;
 	protected FileFormat fileFormat;
 	protected AudioInputStream audioInputStream;
@@ -81,6 +94,9 @@ public abstract class AbstractAudio implements Audio {
 	protected boolean open;
 	protected boolean paused;
 	protected List<AudioListener> listeners = new ArrayList<>();
+	private volatile CompletableFuture<Audio> pendingOpen;
+	private volatile HeaderCache.Entry headers;
+	private InputStream signatureSource;
 	
 	/**
 	 * @param file name of the resource file
@@ -92,12 +108,6 @@ public abstract class AbstractAudio implements Audio {
 		try {
 			
 			this.resource = new File(file).toURI().toURL();
-			this.fileFormat = FileFormat.getFormatByName(this.resource.toExternalForm());
-			
-			if(this.fileFormat == null) {
-				
-				throw new AudioException("Unsupported file format!");
-			}
 			
 		} catch(Exception exception) {
 			
@@ -115,12 +125,6 @@ public abstract class AbstractAudio implements Audio {
 		try {
 			
 			this.resource = file.toURI().toURL();
-			this.fileFormat = FileFormat.getFormatByName(this.resource.toExternalForm());
-			
-			if(this.fileFormat == null) {
-				
-				throw new AudioException("Unsupported file format!");
-			}
 			
 		} catch(Exception exception) {
 			
@@ -138,12 +142,6 @@ public abstract class AbstractAudio implements Audio {
 		try {
 			
 			this.resource = file.toUri().toURL();
-			this.fileFormat = FileFormat.getFormatByName(this.resource.toExternalForm());
-			
-			if(this.fileFormat == null) {
-				
-				throw new AudioException("Unsupported file format!");
-			}
 			
 		} catch(Exception exception) {
 			
@@ -159,15 +157,9 @@ public abstract class AbstractAudio implements Audio {
 	 */
 	public AbstractAudio(String zip, String entry) throws AudioException {
 		
-		try(ZipFile zipFile = new ZipFile(zip)) {
-			
-			this.resource = AbstractAudio.extractZipEntry(zipFile, entry);
-			this.fileFormat = FileFormat.getFormatByName(this.resource.toExternalForm());
+		try {
 			
-			if(this.fileFormat == null) {
-				
-				throw new AudioException("Unsupported file format!");
-			}
+			this.resource = ZipStreamHandler.createURL(Paths.get(zip), entry);
 			
 		} catch(Exception exception) {
 			
@@ -183,15 +175,9 @@ public abstract class AbstractAudio implements Audio {
 	 */
 	public AbstractAudio(File zip, String entry) throws AudioException {
 		
-		try(ZipFile zipFile = new ZipFile(zip)) {
-			
-			this.resource = AbstractAudio.extractZipEntry(zipFile, entry);
-			this.fileFormat = FileFormat.getFormatByName(this.resource.toExternalForm());
+		try {
 			
-			if(this.fileFormat == null) {
-				
-				throw new AudioException("Unsupported file format!");
-			}
+			this.resource = ZipStreamHandler.createURL(zip.toPath(), entry);
 			
 		} catch(Exception exception) {
 			
@@ -207,15 +193,9 @@ public abstract class AbstractAudio implements Audio {
 	 */
 	public AbstractAudio(Path zip, String entry) throws AudioException {
 		
-		try(ZipFile zipFile = new ZipFile(zip.toFile())) {
-			
-			this.resource = AbstractAudio.extractZipEntry(zipFile, entry);
-			this.fileFormat = FileFormat.getFormatByName(this.resource.toExternalForm());
+		try {
 			
-			if(this.fileFormat == null) {
-				
-				throw new AudioException("Unsupported file format!");
-			}
+			this.resource = ZipStreamHandler.createURL(zip, entry);
 			
 		} catch(Exception exception) {
 			
@@ -224,18 +204,21 @@ public abstract class AbstractAudio implements Audio {
 	}
 	
 	/**
+	 * HTTP and HTTPS resources are streamed progressively; the downloaded data is cached while the audio exists.
 	 * @param url the resource
 	 * @throws AudioException if something is wrong with the resource
 	 * @since 1.0.0
 	 */
 	public AbstractAudio(URL url) throws AudioException {
 		
-		this.resource = url;
-		this.fileFormat = FileFormat.getFormatByName(this.resource.toExternalForm());
-		
-		if(this.fileFormat == null) {
+		try {
 			
-			throw new AudioException("Unsupported file format!");
+			// remote resources are downloaded only once, no matter how often the audio starts over
+			this.resource = HttpStreamHandler.wrap(url);
+			
+		} catch(Exception exception) {
+			
+			throw new AudioException(exception);
 		}
 	}
 	
@@ -248,8 +231,40 @@ public abstract class AbstractAudio implements Audio {
 		
 		try {
 			
-			this.resource = uri.toURL();
-			this.fileFormat = FileFormat.getFormatByName(this.resource.toExternalForm());
+			this.resource = HttpStreamHandler.wrap(uri.toURL());
+			
+		} catch(Exception exception) {
+			
+			throw new AudioException(exception);
+		}
+	}
+	
+	/**
+	 * Plays encoded audio data that already lies in the memory. The array is not copied and should not be changed while the audio is in use.
+	 * @param data the encoded audio data
+	 * @param fileFormat the format of the data or {@code null} to detect it from the content
+	 * @throws AudioException if the format is unknown
+	 * @since 2.1.0
+	 */
+	public AbstractAudio(byte[] data, FileFormat fileFormat) throws AudioException {
+		
+		this(ByteBuffer.wrap(data), fileFormat);
+	}
+	
+	/**
+	 * Plays the encoded audio data between the position and the limit of a buffer.
+	 * Heap, direct and memory-mapped buffers are read without copying them; the position of the buffer is not changed.
+	 * @param data the encoded audio data
+	 * @param fileFormat the format of the data or {@code null} to detect it from the content
+	 * @throws AudioException if the format is unknown
+	 * @since 2.1.0
+	 */
+	public AbstractAudio(ByteBuffer data, FileFormat fileFormat) throws AudioException {
+		
+		try {
+			
+			this.resource = MemoryStreamHandler.createURL(data);
+			this.fileFormat = fileFormat != null ? fileFormat : AbstractAudio.detectFileFormat(this.resource);
 			
 			if(this.fileFormat == null) {
 				
@@ -262,6 +277,49 @@ public abstract class AbstractAudio implements Audio {
 		}
 	}
 	
+	/**
+	 * Plays encoded audio data from a stream. A stream can only be read once, so audios that have to read their resource again,
+	 * like a {@linkplain StreamedAudio} that starts over, fail after the first run; a {@linkplain CompressedAudio} keeps the data and can be played any number of times.
+	 * @param data the stream with the encoded audio data; is closed by the audio after it was read
+	 * @param fileFormat the format of the data or {@code null} to detect it from the content when the audio is opened
+	 * @throws AudioException if the stream can not be used
+	 * @since 2.1.0
+	 */
+	public AbstractAudio(InputStream data, FileFormat fileFormat) throws AudioException {
+		
+		try {
+			
+			// the stream can not be opened a second time, so it is kept to read its signature when the format is needed
+			InputStream inputStream = data.markSupported() ? data : new BufferedInputStream(data);
+			this.resource = MemoryStreamHandler.createURL(inputStream);
+			this.fileFormat = fileFormat;
+			this.signatureSource = fileFormat == null ? inputStream : null;
+			
+		} catch(Exception exception) {
+			
+			throw new AudioException(exception);
+		}
+	}
+	
+	/**
+	 * Uses the resource as it is, without caching or reading it to find out its format.
+	 * Meant for resources that can only be read once or never end, like a live stream.
+	 * @param url the resource
+	 * @param fileFormat the format of the resource
+	 * @throws AudioException if the format is {@code null}
+	 * @since 2.1.0
+	 */
+	protected AbstractAudio(URL url, FileFormat fileFormat) throws AudioException {
+		
+		if(fileFormat == null) {
+			
+			throw new AudioException("Unsupported file format!");
+		}
+		
+		this.resource = url;
+		this.fileFormat = fileFormat;
+	}
+	
 	/**
 	 * Obtains an array of mixer info objects that represents the set of audio mixers that are
 	 * currently installed on the system.
@@ -278,6 +336,123 @@ public abstract class AbstractAudio implements Audio {
 		return AudioSystem.getMixerInfo();
 	}
 	
+	/**
+	 * Sets the executor on which {@link Audio#openAsync()} opens the audio.
+	 * The executor that was set before is not shut down.
+	 * @param executor the new executor or {@code null} to use the default executor
+	 * @since 2.1.0
+	 */
+	public static synchronized void setDecodeExecutor(ExecutorService executor) {
+		
+		AbstractAudio.decodeExecutor = executor;
+	}
+	
+	/**
+	 * The default executor has one daemon thread per available processor, so no more files are decoded at the same time than there are cores.
+	 * @return the executor on which {@link Audio#openAsync()} opens the audio
+	 * @since 2.1.0
+	 */
+	public static synchronized ExecutorService getDecodeExecutor() {
+		
+		if(AbstractAudio.decodeExecutor == null) {
+			
+			int threads = Runtime.getRuntime().availableProcessors();
+			AtomicInteger counter = new AtomicInteger();
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+				
+				Thread thread = new Thread(runnable, "SimpleAudio-Decoder-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+			
+			// idle threads should not stay around for the whole lifetime of the application
+			executor.allowCoreThreadTimeOut(true);
+			AbstractAudio.decodeExecutor = executor;
+		}
+		
+		return AbstractAudio.decodeExecutor;
+	}
+	
+	/**
+	 * Sets how many bytes of a remote resource are downloaded ahead of the position that is currently decoded.
+	 * A bigger read-ahead makes playback more robust against a slow network.
+	 * @param bytes the read-ahead in bytes; the default is 256 KiB
+	 * @since 2.1.0
+	 */
+	public static void setReadAhead(int bytes) {
+		
+		HttpStreamHandler.setReadAhead(bytes);
+	}
+	
+	/**
+	 * @return how many bytes of a remote resource are downloaded ahead of the position that is currently decoded
+	 * @since 2.1.0
+	 */
+	public static int getReadAhead() {
+		
+		return HttpStreamHandler.getReadAhead();
+	}
+	
+	/**
+	 * Sets whether the checksums of the pages of local Ogg/Vorbis files are checked while the files are indexed.
+	 * Checking them reads every byte of a file once. Turned on by default.
+	 * @param check {@code true} to skip pages with a wrong checksum, {@code false} to trust every page
+	 * @since 2.1.0
+	 */
+	public static void setOggCrcCheck(boolean check) {
+		
+		OggFile.setCrcCheck(check);
+	}
+	
+	/**
+	 * @return {@code true} if pages of local Ogg/Vorbis files with a wrong checksum are skipped, else {@code false}
+	 * @since 2.1.0
+	 */
+	public static boolean isOggCrcCheck() {
+		
+		return OggFile.isCrcCheck();
+	}
+	
+	/**
+	 * Sets the number of bytes that entries of zip files, which are extracted for decoders that need random access, may use in {@code java.io.tmpdir}.
+	 * The oldest files are deleted when the cache grows beyond this size.
+	 * @param size the maximum size of the extraction cache in bytes; the default is 256 MiB
+	 * @since 2.1.0
+	 */
+	public static void setZipExtractionCacheSize(long size) {
+		
+		ZipStreamHandler.setExtractionCacheSize(size);
+	}
+	
+	/**
+	 * @return the maximum size of the cache for extracted entries of zip files in bytes
+	 * @since 2.1.0
+	 */
+	public static long getZipExtractionCacheSize() {
+		
+		return ZipStreamHandler.getExtractionCacheSize();
+	}
+	
+	/**
+	 * Sets the cache in which the headers of all audios are kept. Audios that are created for a resource whose headers are in the cache
+	 * do not parse the resource again if it did not change.
+	 * @param cache the cache or {@code null} to disable caching; every audio still keeps the headers it parsed on its own
+	 * @since 2.1.0
+	 */
+	public static void setHeaderCache(HeaderCache cache) {
+		
+		AbstractAudio.headerCache = cache;
+	}
+	
+	/**
+	 * @return the cache in which the headers of all audios are kept or {@code null} if caching is disabled
+	 * @since 2.1.0
+	 */
+	public static HeaderCache getHeaderCache() {
+		
+		return AbstractAudio.headerCache;
+	}
+	
 	/**
 	 * @return The default audio format used in the Java Sound API
 	 * @since 1.2.2
@@ -288,6 +463,7 @@ public abstract class AbstractAudio implements Audio {
 	}
 	
 	/**
+	 * The decoder is chosen by the first bytes of the resource; the file extension is only used if the content is unknown.
 	 * @param resource the resource from which you want the {@linkplain AudioInputStream} from
 	 * @return the {@linkplain AudioInputStream} from the resource
 	 * @throws AudioException if something went wrong while retrieving the {@linkplain AudioInputStream}
@@ -295,42 +471,170 @@ public abstract class AbstractAudio implements Audio {
 	 */
 	public static AudioInputStream getAudioInputStream(URL resource) throws AudioException {
 		
-		AudioInputStream audioInputStream = null;
-		FileFormat fileFormat = FileFormat.getFormatByName(resource.toExternalForm());
+		return AbstractAudio.getAudioInputStream(resource, FileFormat.getFormatByName(resource.toExternalForm()));
+	}
+	
+	// the format is only used if the content is unknown
+	static final AudioInputStream getAudioInputStream(URL resource, FileFormat fileFormat) throws AudioException {
+		
+		InputStream inputStream = null;
 		
 		try {
 			
-			switch(fileFormat) {
-				case MP3:
-					audioInputStream = AudioSystem.getAudioInputStream(resource);
-					AudioFormat baseFormat = audioInputStream.getFormat();
-					AudioFormat decodedFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, baseFormat.getSampleRate(), 16,baseFormat.getChannels(), baseFormat.getChannels() * 2, baseFormat.getSampleRate(), false);
-					audioInputStream = AudioSystem.getAudioInputStream(decodedFormat, audioInputStream);
-					break;
+			PcmFile pcmFile = AbstractAudio.getPcmFile(resource, fileFormat);
+			
+			if(pcmFile != null) {
+				
+				return pcmFile.openStream();
+			}
+			
+			OggFile oggFile = AbstractAudio.getOggFile(resource, fileFormat);
+			
+			if(oggFile != null) {
+				
+				return oggFile.openStream();
+			}
+			
+			inputStream = AbstractAudio.openStream(resource, fileFormat);
+			return AbstractAudio.getAudioInputStream(inputStream, fileFormat);
+			
+		} catch(Exception exception) {
+			
+			if(inputStream != null) {
+				
+				try {
+					
+					inputStream.close();
+					
+				} catch(IOException closeException) {}
+			}
+			
+			throw exception instanceof AudioException ? (AudioException)exception : new AudioException(exception);
+		}
+	}
+	
+	// local files are read with the fast paths unless another decoder was registered for their format
+	private static final boolean isDefaultLocalFile(URL resource, FileFormat fileFormat) {
+		
+		return "file".equals(resource.getProtocol()) && fileFormat != null && DecoderRegistry.getDecoder(fileFormat) == DecoderRegistry.getDefaultDecoder(fileFormat);
+	}
 	
-				case OGG:
-					LogicalOggStream loggs = (LogicalOggStream)new OnDemandUrlStream(resource).getLogicalStreams().iterator().next();
+	// uncompressed local files are read straight from the file
+	static final PcmFile getPcmFile(URL resource, FileFormat fileFormat) {
+		
+		if(!AbstractAudio.isDefaultLocalFile(resource, fileFormat)) {
+			
+			return null;
+		}
+		
+		switch(fileFormat) {
+			case AIFC:
+			case AIFF:
+			case AU:
+			case SND:
+			case WAV:
+				try {
 					
-					if(!loggs.getFormat().equals(LogicalOggStream.FORMAT_VORBIS)) {
-						
-						throw new AudioException("Not a plain Ogg/Vorbis audio file!");
-					}
+					return PcmFile.get(Paths.get(resource.toURI()));
 					
-					VorbisInputStream vis = new VorbisInputStream(new VorbisStream(loggs));
-					audioInputStream = new AudioInputStream(vis, vis.getAudioFormat(), -1L);
-					break;
-	
-				case AU:
-				case AIFC:
-				case SND:
-				case AIFF:
-				case WAV:
-					audioInputStream = AudioSystem.getAudioInputStream(resource);
-					break;
+				} catch(Exception exception) {
+					
+					// the readers of the AudioSystem report the problem
+					return null;
+				}
+				
+			default:
+				return null;
+		}
+	}
+	
+	// local Ogg/Vorbis files are decoded from an index of their pages, so that their length is known and seeking jumps to the right page
+	static final OggFile getOggFile(URL resource, FileFormat fileFormat) {
+		
+		if(fileFormat != FileFormat.OGG || !AbstractAudio.isDefaultLocalFile(resource, fileFormat)) {
+			
+			return null;
+		}
+		
+		try {
+			
+			OggFile oggFile = OggFile.get(Paths.get(resource.toURI()));
+			return oggFile != null && LogicalOggStream.FORMAT_VORBIS.equals(oggFile.getFormat()) ? oggFile : null;
+			
+		} catch(Exception exception) {
+			
+			// the sequential decoder reports the problem
+			return null;
+		}
+	}
+	
+	// returns a stream that supports mark/reset; zip entries are extracted first if their decoder needs random access
+	static final InputStream openStream(URL resource, FileFormat fileFormat) throws IOException {
+		
+		InputStream inputStream = resource.openStream();
+		
+		// resources in the memory can be marked without an extra buffer
+		inputStream = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream);
+		
+		if(ZipStreamHandler.isZipURL(resource)) {
+			
+			try {
+				
+				FileFormat detectedFormat = FileFormat.getFormatByContent(inputStream);
+				AudioDecoder decoder = DecoderRegistry.getDecoder(detectedFormat != null ? detectedFormat : fileFormat);
+				
+				if(decoder != null && decoder.needsRandomAccess()) {
 					
-				default:
-					throw new AudioException("Unsupported file format!");
+					inputStream.close();
+					inputStream = new BufferedInputStream(Files.newInputStream(ZipStreamHandler.extract(resource)));
+				}
+				
+			} catch(IOException | RuntimeException exception) {
+				
+				inputStream.close();
+				throw exception;
 			}
+		}
+		
+		return inputStream;
+	}
+	
+	/**
+	 * Decodes an audio stream that is not backed by a {@linkplain URL}, for example data that already lies in the memory.
+	 * If the first bytes of the stream reveal a different format than the given one, the detected format is used.
+	 * @param inputStream the {@linkplain InputStream} containing the encoded audio data
+	 * @param fileFormat the format of the encoded audio data or {@code null} if it is unknown
+	 * @return the {@linkplain AudioInputStream} from the given {@linkplain InputStream}
+	 * @throws AudioException if something went wrong while retrieving the {@linkplain AudioInputStream}
+	 * @since 2.1.0
+	 */
+	public static AudioInputStream getAudioInputStream(InputStream inputStream, FileFormat fileFormat) throws AudioException {
+		
+		AudioInputStream audioInputStream = null;
+		
+		// the decoders need mark/reset to read the header
+		InputStream source = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream);
+		
+		try {
+			
+			FileFormat detectedFormat = FileFormat.getFormatByContent(source);
+			
+			if(detectedFormat != null) {
+				
+				// AU and SND share the same signature
+				fileFormat = detectedFormat == FileFormat.AU && fileFormat == FileFormat.SND ? fileFormat : detectedFormat;
+			}
+			
+			if(fileFormat == null) {
+				
+				throw new AudioException("Unsupported file format!");
+			}
+			
+			audioInputStream = DecoderRegistry.getDecoder(fileFormat).decode(source);
+			
+		} catch(AudioException exception) {
+			
+			throw exception;
 			
 		} catch(Exception exception) {
 			
@@ -454,6 +758,43 @@ public abstract class AbstractAudio implements Audio {
 	@Override
 	public FileFormat getFileFormat() {
 		
+		try {
+			
+			return this.resolveFileFormat();
+			
+		} catch(AudioException exception) {
+			
+			return null;
+		}
+	}
+	
+	/**
+	 * The constructors do not read the resource, so the format of resources with an unknown name and of local files, whose content is preferred over their name,
+	 * is detected when it is needed for the first time. The result is kept.
+	 * @return the format of the resource
+	 * @throws AudioException if the format is not supported
+	 * @since 2.1.0
+	 */
+	protected final synchronized FileFormat resolveFileFormat() throws AudioException {
+		
+		if(this.fileFormat == null) {
+			
+			try {
+				
+				this.fileFormat = this.signatureSource != null ? FileFormat.getFormatByContent(this.signatureSource) : AbstractAudio.detectFileFormat(this.resource);
+				this.signatureSource = null;
+				
+			} catch(IOException exception) {
+				
+				throw new AudioException(exception);
+			}
+			
+			if(this.fileFormat == null) {
+				
+				throw new AudioException("Unsupported file format!");
+			}
+		}
+		
 		return this.fileFormat;
 	}
 
@@ -510,12 +851,104 @@ public abstract class AbstractAudio implements Audio {
 		return this.paused;
 	}
 	
+	/**
+	 * The headers are parsed on the first call and kept until the size or the modification time of the resource changes.
+	 * @return the audio file's headers; can not be modified
+	 */
 	@Override
 	public Map<?, ?> getHeaders() {
 		
+		long[] stat = AbstractAudio.stat(this.resource);
+		HeaderCache.Entry entry = this.headers;
+		
+		if(entry != null && entry.matches(stat[0], stat[1])) {
+			
+			return entry.headers;
+		}
+		
+		// data from the memory has no name under which it could be found again
+		HeaderCache cache = MemoryStreamHandler.isMemoryURL(this.resource) ? null : AbstractAudio.headerCache;
+		String key = this.resource.toExternalForm();
+		entry = cache != null ? cache.get(key, stat[0], stat[1]) : null;
+		
+		if(entry == null) {
+			
+			Map<?, ?> headers = this.readHeaders();
+			
+			if(headers == null) {
+				
+				return null;
+			}
+			
+			entry = new HeaderCache.Entry(headers, stat[0], stat[1]);
+			
+			if(cache != null) {
+				
+				cache.put(key, entry);
+			}
+		}
+		
+		this.headers = entry;
+		return entry.headers;
+	}
+	
+	// the size and the modification time tell whether the headers of a resource are still valid
+	static final long[] stat(URL resource) {
+		
+		try {
+			
+			// the connection of a file would open the file
+			if("file".equals(resource.getProtocol())) {
+				
+				Path path = Paths.get(resource.toURI());
+				return new long[] {Files.size(path), Files.getLastModifiedTime(path).toMillis()};
+			}
+			
+			URLConnection connection = resource.openConnection();
+			
+			try {
+				
+				return new long[] {connection.getContentLengthLong(), connection.getLastModified()};
+				
+			} finally {
+				
+				AbstractAudio.release(connection);
+			}
+			
+		} catch(Exception exception) {
+			
+			return new long[] {-1, 0};
+		}
+	}
+	
+	// some connections open the content to find out its length, it has to be closed again
+	private static final void release(URLConnection connection) {
+		
+		if(connection instanceof HttpURLConnection) {
+			
+			((HttpURLConnection)connection).disconnect();
+			
+		} else if(connection instanceof JarURLConnection && !connection.getUseCaches()) {
+			
+			try {
+				
+				connection.getInputStream().close();
+				
+			} catch(IOException exception) {}
+		}
+	}
+	
+	private Map<?, ?> readHeaders() {
+		
 		Map<?, ?> headers = null;
+		FileFormat fileFormat = this.getFileFormat();
+		
+		if(fileFormat == null) {
+			
+			return null;
+		}
 		
-		switch(this.fileFormat) {
+		switch(fileFormat) {
 			case AIFC:
 			case AIFF:
 			case AU:
@@ -535,14 +968,9 @@ public abstract class AbstractAudio implements Audio {
 			case MP3:
 				try {
 					
-					AudioFileFormat audioFileFormat = AudioSystem.getAudioFileFormat(this.resource);
-					
-					if(audioFileFormat instanceof TAudioFileFormat) {
-						
-						headers = ((TAudioFileFormat)audioFileFormat).properties();
-					}
+					headers = new Mp3HeadReader().read(this.resource);
 					
-				} catch(Exception exception) {
+				} catch(IOException exception) {
 					
 					exception.printStackTrace();
 				}
@@ -554,6 +982,16 @@ public abstract class AbstractAudio implements Audio {
 					
 					headers = new OggHeadReader().read(this.resource);
 					
+				} catch(IOException exception) {
+					
+					exception.printStackTrace();
+				}
+				break;
+			case FLAC:
+				try {
+					
+					headers = new FlacHeadReader().read(this.resource);
+					
 				} catch(IOException exception) {
 					
 					exception.printStackTrace();
@@ -565,6 +1003,70 @@ public abstract class AbstractAudio implements Audio {
 		return headers;
 	}
 	
+	/**
+	 * Opens the audio on the executor returned by {@link #getDecodeExecutor()}.
+	 * If the returned {@linkplain CompletableFuture} is cancelled or completed by a timeout before the audio is open,
+	 * the decoding is aborted and the audio stays closed.
+	 * @since 2.1.0
+	 */
+	@Override
+	public CompletableFuture<Audio> openAsync() {
+		
+		CompletableFuture<Audio> future = new CompletableFuture<>();
+		Future<?> task = AbstractAudio.getDecodeExecutor().submit(() -> {
+			
+			if(!future.isDone()) {
+				
+				this.pendingOpen = future;
+				
+				try {
+					
+					this.open();
+					
+					if(!future.complete(this)) {
+						
+						// cancelled after the last check
+						this.close();
+					}
+					
+				} catch(Exception exception) {
+					
+					future.completeExceptionally(exception);
+					
+				} finally {
+					
+					this.pendingOpen = null;
+				}
+			}
+		});
+		
+		future.whenComplete((audio, throwable) -> {
+			
+			if(future.isCancelled()) {
+				
+				// removes the task from the queue if it has not started yet
+				task.cancel(false);
+			}
+		});
+		
+		return future;
+	}
+	
+	/**
+	 * Should be called regularly by long running decode loops in {@link #open()}.
+	 * @throws AudioException if the opening was started with {@link #openAsync()} and cancelled or timed out in the meantime
+	 * @since 2.1.0
+	 */
+	protected void checkCancelled() throws AudioException {
+		
+		CompletableFuture<Audio> future = this.pendingOpen;
+		
+		if(future != null && future.isDone()) {
+			
+			throw new AudioException("Opening was cancelled!");
+		}
+	}
+	
 	/**
 	 * Triggers a new {@linkplain AudioEvent}.
 	 * @param type the event type
@@ -598,9 +1100,21 @@ public abstract class AbstractAudio implements Audio {
 	 */
 	protected static final HashMap<String, Control> extractControls(Line line, Map<String, Control> old) {
 		
+		return AbstractAudio.extractControls(line.getControls(), old);
+	}
+	
+	/**
+	 * Puts the given controls in a new control map and gives them the values from an old control map.
+	 * @param newControls the controls
+	 * @param old the old control map
+	 * @return a new control map based on an old one
+	 * @since 2.1.0
+	 */
+	protected static final HashMap<String, Control> extractControls(Control[] newControls, Map<String, Control> old) {
+		
 		HashMap<String, Control> controls = new HashMap<>();
 		
-		for(Control control : line.getControls()) {
+		for(Control control : newControls) {
 			
 			String key = control.getType().toString();
 			
@@ -628,26 +1142,35 @@ public abstract class AbstractAudio implements Audio {
 		return controls;
 	}
 	
-	private static final URL extractZipEntry(ZipFile zip, String entry) throws IOException {
+	static final FileFormat detectFileFormat(URL resource) {
 		
-		ZipEntry zipEntry = zip.getEntry(entry);
-		byte[] buffer = new byte[1024];
-		String extension = entry.substring(entry.lastIndexOf('.')).toLowerCase();
-		File tempDir = new File(System.getProperty("java.io.tmpdir"));
-		File extracted = new File(tempDir, "simple-audio_buffered-" + System.nanoTime() + extension);
+		FileFormat fileFormat = null;
 		
-		try(InputStream input = zip.getInputStream(zipEntry);
-			FileOutputStream output = new FileOutputStream(extracted)) {
+		// reading the signature of a local file is cheap, other resources are only read if the extension is unknown
+		boolean local = "file".equals(resource.getProtocol());
+		
+		if(!local) {
 			
-			int readBytes = 0;
+			fileFormat = FileFormat.getFormatByName(resource.toExternalForm());
+		}
+		
+		if(fileFormat == null) {
 			
-			while((readBytes = input.read(buffer)) > -1) {
+			try {
 				
-				output.write(buffer, 0, readBytes);
+				fileFormat = FileFormat.getFormatByContent(resource);
+				
+			} catch(IOException exception) {
+				
+				// the error will show up again when the audio is opened
 			}
 		}
 		
-		extracted.deleteOnExit();
-		return extracted.toURI().toURL();
+		if(fileFormat == FileFormat.AU && FileFormat.getFormatByName(resource.toExternalForm()) == FileFormat.SND) {
+			
+			fileFormat = FileFormat.SND;
+		}
+		
+		return fileFormat != null || !local ? fileFormat : FileFormat.getFormatByName(resource.toExternalForm());
 	}
 }
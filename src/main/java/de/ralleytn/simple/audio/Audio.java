@@ -27,6 +27,8 @@ package de.ralleytn.simple.audio;
 import java.net.URL;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.Control;
@@ -38,7 +40,7 @@ import javax.sound.sampled.Control;
 /**
  * Interface containing all the methods a good audio implementation should have.
  * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
- * @version 2.0.1
+ * @version 2.1.0
  * @since 1.0.0
  */
 public interface Audio extends Playable {
@@ -78,6 +80,30 @@ public interface Audio extends Playable {
 	 */
 	public void open() throws AudioException;
 	
+	/**
+	 * Opens the audio on the decode executor of {@linkplain AbstractAudio}.
+	 * Use {@link CompletableFuture#orTimeout(long, java.util.concurrent.TimeUnit)} for a timeout
+	 * and {@link CompletableFuture#cancel(boolean)} to abort the opening.
+	 * @return a {@linkplain CompletableFuture} that completes with this audio once it is open
+	 * @since 2.1.0
+	 */
+	default public CompletableFuture<Audio> openAsync() {
+		
+		return CompletableFuture.supplyAsync(() -> {
+			
+			try {
+				
+				this.open();
+				return this;
+				
+			} catch(AudioException exception) {
+				
+				throw new CompletionException(exception);
+			}
+			
+		}, AbstractAudio.getDecodeExecutor());
+	}
+	
 	/**
 	 * Closes the audio.
 	 * @since 1.0.0
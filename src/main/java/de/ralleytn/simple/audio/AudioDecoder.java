@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.io.InputStream;
+
+import javax.sound.sampled.AudioInputStream;
+
+/**
+ * Turns the encoded data of a file into PCM data.
+ * Decoders are registered for a {@linkplain FileFormat} in the {@linkplain DecoderRegistry}.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+@FunctionalInterface
+public interface AudioDecoder {
+
+	/**
+	 * Reads the header of the encoded data and returns a stream of the decoded data.
+	 * @param inputStream the encoded data; supports {@link InputStream#mark(int)} and is positioned at the beginning of the file
+	 * @return the decoded data; should be PCM in a format that {@linkplain SampleReader} and the lines of the system can handle
+	 * @throws Exception if the data could not be decoded
+	 * @since 2.1.0
+	 */
+	public AudioInputStream decode(InputStream inputStream) throws Exception;
+	
+	/**
+	 * Decoders that seek in their input with {@link InputStream#skip(long)} should return {@code true}.
+	 * Compressed zip entries can not be skipped without inflating them, so these decoders are given a stream of a local file instead;
+	 * the entry is extracted once into a cache in {@code java.io.tmpdir} which is shared by all audios of the same entry.
+	 * @return {@code true} if this decoder needs fast random access to its input, else {@code false}
+	 * @since 2.1.0
+	 */
+	public default boolean needsRandomAccess() {
+		
+		return false;
+	}
+}
@@ -27,7 +27,7 @@ package de.ralleytn.simple.audio;
 /**
  * Represents an audio event.
  * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
- * @version 2.0.0
+ * @version 2.1.0
  * @since 1.1.0
  */
 public class AudioEvent {
@@ -102,7 +102,7 @@ public class AudioEvent {
 	/**
 	 * Represents a type that an audio event can be.
 	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
-	 * @version 2.0.0
+	 * @version 2.1.0
 	 * @since 1.1.0
 	 */
 	public static enum Type {
@@ -165,6 +165,28 @@ public class AudioEvent {
 		 * When the method {@link Audio#setMute(boolean)} was called
 		 * @since 1.2.0
 		 */
-		MUTE_CHANGED;
+		MUTE_CHANGED,
+		
+		/**
+		 * When another part of the audio was decoded while it is being opened.
+		 * The old and new value are the progress between {@code 0.0F} and {@code 1.0F}.
+		 * @since 2.1.0
+		 */
+		DECODING_PROGRESS,
+		
+		/**
+		 * When a live stream sent new metadata, like the title of the current song.
+		 * The old and new value are a {@code Map<String, String>} with the entries.
+		 * @since 2.1.0
+		 */
+		METADATA,
+		
+		/**
+		 * When the playback of a progressively opened audio caught up with the decoding and has to wait, or when it can continue again.
+		 * The audio stays silent and its position does not move while it waits.
+		 * The new value is {@code true} when the audio starts to wait and {@code false} when it continues.
+		 * @since 2.1.0
+		 */
+		BUFFERING;
 	}
 }
@@ -0,0 +1,288 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+
+import de.ralleytn.simple.audio.internal.PcmFile;
+
+/**
+ * Tells the format and the length of an audio resource without opening a line and without decoding it.
+ * Only the headers and the metadata of the container are read: the chunks of WAV, AIFF and AU files, the first frame and the Xing/VBRI header of MP3 files,
+ * the identification header and the last page of Ogg Vorbis files and the STREAMINFO block of FLAC files.
+ * <p>The results are cached until the size or the modification time of the resource changes, and {@link #probe(URL)} can be called by multiple threads at the same time.</p>
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class AudioProbe {
+
+	private static final int CACHE_SIZE = 4096;
+	private static final Map<String, AudioProbe> CACHE = new LinkedHashMap<>(16, 0.75F, true);
+	private static final ThreadLocal<OggHeadReader> OGG_HEAD_READER = ThreadLocal.withInitial(OggHeadReader::new);
+	
+	private final FileFormat fileFormat;
+	private final AudioFormat audioFormat;
+	private final long frameLength;
+	private final long duration;
+	private final Map<String, ?> headers;
+	private final long size;
+	private final long lastModified;
+	
+	private AudioProbe(FileFormat fileFormat, AudioFormat audioFormat, long frameLength, Map<String, ?> headers, long size, long lastModified) {
+		
+		this.fileFormat = fileFormat;
+		this.audioFormat = audioFormat;
+		this.frameLength = frameLength;
+		this.duration = frameLength >= 0 && audioFormat.getFrameRate() > 0 ? (long)(frameLength * 1000000.0 / audioFormat.getFrameRate()) : AudioSystem.NOT_SPECIFIED;
+		this.headers = Collections.unmodifiableMap(headers);
+		this.size = size;
+		this.lastModified = lastModified;
+	}
+	
+	/**
+	 * Probes a file.
+	 * @param file the file
+	 * @return the result
+	 * @throws AudioException if the file could not be read or its format is not supported
+	 * @since 2.1.0
+	 */
+	public static AudioProbe probe(Path file) throws AudioException {
+		
+		try {
+			
+			return AudioProbe.probe(file.toUri().toURL());
+			
+		} catch(MalformedURLException exception) {
+			
+			throw new AudioException(exception);
+		}
+	}
+	
+	/**
+	 * Probes a file.
+	 * @param file the file
+	 * @return the result
+	 * @throws AudioException if the file could not be read or its format is not supported
+	 * @since 2.1.0
+	 */
+	public static AudioProbe probe(File file) throws AudioException {
+		
+		return AudioProbe.probe(file.toPath());
+	}
+	
+	/**
+	 * Probes a resource.
+	 * @param resource the resource
+	 * @return the result
+	 * @throws AudioException if the resource could not be read or its format is not supported
+	 * @since 2.1.0
+	 */
+	public static AudioProbe probe(URL resource) throws AudioException {
+		
+		String key = resource.toExternalForm();
+		long[] stat = AbstractAudio.stat(resource);
+		
+		// resources without a size or a modification time can not be validated
+		boolean cacheable = stat[0] >= 0 && stat[1] > 0;
+		
+		if(cacheable) {
+			
+			synchronized(AudioProbe.CACHE) {
+				
+				AudioProbe probe = AudioProbe.CACHE.get(key);
+				
+				if(probe != null && probe.size == stat[0] && probe.lastModified == stat[1]) {
+					
+					return probe;
+				}
+			}
+		}
+		
+		AudioProbe probe = AudioProbe.read(resource, stat[0], stat[1]);
+		
+		if(cacheable) {
+			
+			synchronized(AudioProbe.CACHE) {
+				
+				AudioProbe.CACHE.put(key, probe);
+				
+				for(Iterator<AudioProbe> iterator = AudioProbe.CACHE.values().iterator(); AudioProbe.CACHE.size() > AudioProbe.CACHE_SIZE; iterator.remove()) {
+					
+					iterator.next();
+				}
+			}
+		}
+		
+		return probe;
+	}
+	
+	/**
+	 * Removes all results from the cache.
+	 * @since 2.1.0
+	 */
+	public static void clearCache() {
+		
+		synchronized(AudioProbe.CACHE) {
+			
+			AudioProbe.CACHE.clear();
+		}
+	}
+	
+	/**
+	 * @return the format of the resource
+	 * @since 2.1.0
+	 */
+	public FileFormat getFileFormat() {
+		
+		return this.fileFormat;
+	}
+	
+	/**
+	 * @return the format of the samples as the default decoder of the {@linkplain FileFormat} delivers them
+	 * @since 2.1.0
+	 */
+	public AudioFormat getAudioFormat() {
+		
+		return this.audioFormat;
+	}
+	
+	/**
+	 * @return the length in sample frames or {@link AudioSystem#NOT_SPECIFIED} if it is not known without decoding
+	 * @since 2.1.0
+	 */
+	public long getFrameLength() {
+		
+		return this.frameLength;
+	}
+	
+	/**
+	 * @return the length in microseconds or {@link AudioSystem#NOT_SPECIFIED} if it is not known without decoding
+	 * @since 2.1.0
+	 */
+	public long getDuration() {
+		
+		return this.duration;
+	}
+	
+	/**
+	 * @return the headers that were read; for WAV, AIFF and AU files they are empty
+	 * @since 2.1.0
+	 */
+	public Map<String, ?> getHeaders() {
+		
+		return this.headers;
+	}
+	
+	@Override
+	public String toString() {
+		
+		return "AudioProbe[" + this.fileFormat + ", " + this.audioFormat + ", frameLength=" + this.frameLength + ", duration=" + this.duration + "]";
+	}
+	
+	private static final AudioProbe read(URL resource, long size, long lastModified) throws AudioException {
+		
+		FileFormat fileFormat = AbstractAudio.detectFileFormat(resource);
+		
+		if(fileFormat == null) {
+			
+			throw new AudioException("Unsupported file format!");
+		}
+		
+		try {
+			
+			switch(fileFormat) {
+				case MP3:
+					return AudioProbe.readMp3(new Mp3HeadReader().read(resource), size, lastModified);
+					
+				case OGG:
+					return AudioProbe.readOgg(AudioProbe.OGG_HEAD_READER.get().read(resource), size, lastModified);
+					
+				case FLAC:
+					return AudioProbe.readFlac(new FlacHeadReader().read(resource), size, lastModified);
+					
+				default:
+					PcmFile pcmFile = "file".equals(resource.getProtocol()) ? PcmFile.get(Paths.get(resource.toURI())) : null;
+					
+					if(pcmFile != null) {
+						
+						return new AudioProbe(fileFormat, pcmFile.getFormat(), pcmFile.getFrameLength(), Collections.emptyMap(), size, lastModified);
+					}
+					
+					// compressed samples or not a local file
+					AudioFileFormat audioFileFormat = AudioSystem.getAudioFileFormat(resource);
+					return new AudioProbe(fileFormat, audioFileFormat.getFormat(), audioFileFormat.getFrameLength(), Collections.emptyMap(), size, lastModified);
+			}
+			
+		} catch(Exception exception) {
+			
+			throw new AudioException(exception);
+		}
+	}
+	
+	private static final AudioProbe readMp3(Map<String, ?> headers, long size, long lastModified) {
+		
+		int sampleRate = (Integer)headers.get("mp3.frequency.hz");
+		int channels = (Integer)headers.get("mp3.channels");
+		Object frames = headers.get("mp3.length.frames");
+		
+		// the number of samples per frame depends on the layer and for layer III also on the version
+		String layer = (String)headers.get("mp3.version.layer");
+		int samples = "1".equals(layer) ? 384 : "3".equals(layer) && !"1".equals(headers.get("mp3.version.mpeg")) ? 576 : 1152;
+		long frameLength = frames instanceof Integer ? (Integer)frames * (long)samples : AudioSystem.NOT_SPECIFIED;
+		return new AudioProbe(FileFormat.MP3, new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sampleRate, 16, channels, channels * 2, sampleRate, false), frameLength, headers, size, lastModified);
+	}
+	
+	private static final AudioProbe readOgg(Map<String, ?> headers, long size, long lastModified) {
+		
+		float sampleRate = (Long)headers.get("ogg.audio_sample_rate");
+		int channels = (Integer)headers.get("ogg.audio_channels");
+		Object samples = headers.get("ogg.total_samples");
+		long frameLength = samples instanceof Long ? (Long)samples : AudioSystem.NOT_SPECIFIED;
+		return new AudioProbe(FileFormat.OGG, new AudioFormat(sampleRate, 16, channels, true, false), frameLength, headers, size, lastModified);
+	}
+	
+	private static final AudioProbe readFlac(Map<String, ?> headers, long size, long lastModified) {
+		
+		int sampleRate = (Integer)headers.get("flac.sample_rate");
+		int channels = (Integer)headers.get("flac.channels");
+		int bytesPerSample = ((Integer)headers.get("flac.bits_per_sample") + 7) / 8;
+		long samples = (Long)headers.get("flac.total_samples");
+		
+		// a stream encoder may not know the number of samples
+		return new AudioProbe(FileFormat.FLAC, new AudioFormat(sampleRate, bytesPerSample * 8, channels, true, false), samples > 0 ? samples : AudioSystem.NOT_SPECIFIED, headers, size, lastModified);
+	}
+}
@@ -26,19 +26,29 @@ package de.ralleytn.simple.audio;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 
 import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.LineEvent;
+import javax.sound.sampled.AudioInputStream;
+
+import de.ralleytn.simple.audio.internal.CountingInputStream;
+import de.ralleytn.simple.audio.internal.MemoryStreamHandler;
+import de.ralleytn.simple.audio.internal.PcmBuffer;
+import de.ralleytn.simple.audio.internal.PcmFile;
+import de.ralleytn.simple.audio.internal.Samples;
+import de.ralleytn.simple.audio.internal.SoftwareMixer;
+import de.ralleytn.simple.audio.internal.Voice;
 
 /**
  * Reads the entire audio data into the RAM. Good for small sound effects.
+ * The data is played through a mixer that is shared by all instances with the same sample rate and number of channels,
+ * so opening does not take a line and the length is not limited like it is with a {@linkplain javax.sound.sampled.Clip}.
  * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
- * @version 2.0.1
+ * @version 2.1.0
  * @since 1.0.0
  */
 public class BufferedAudio extends AbstractAudio {
@@ -47,8 +57,15 @@ public class BufferedAudio extends AbstractAudio {
 	// -	Fixed a bug that caused isPlaying() to return a wrong result
 	// ====
 	
-	private Clip clip;
+	private static volatile DiskCache diskCache;
+	
+	private static final int PROGRESSIVE_START = 300;
+	
+	private volatile PcmBuffer buffer;
+	private Voice voice;
+	private SoftwareMixer mixer;
 	private boolean playing;
+	private boolean progressive;
 	
 	/**
 	 * @param file name of the resource file
@@ -133,11 +150,99 @@ public class BufferedAudio extends AbstractAudio {
 		super(uri);
 	}
 	
+	/**
+	 * @param data the encoded audio data; is not copied
+	 * @param fileFormat the format of the data or {@code null} to detect it from the content
+	 * @throws AudioException if the format is unknown
+	 * @since 2.1.0
+	 */
+	public BufferedAudio(byte[] data, FileFormat fileFormat) throws AudioException {
+		
+		super(data, fileFormat);
+	}
+	
+	/**
+	 * @param data the encoded audio data between the position and the limit of the buffer; is not copied
+	 * @param fileFormat the format of the data or {@code null} to detect it from the content
+	 * @throws AudioException if the format is unknown
+	 * @since 2.1.0
+	 */
+	public BufferedAudio(ByteBuffer data, FileFormat fileFormat) throws AudioException {
+		
+		super(data, fileFormat);
+	}
+	
+	/**
+	 * @param data the stream with the encoded audio data; can only be read once
+	 * @param fileFormat the format of the data or {@code null} to detect it from the content when the audio is opened
+	 * @throws AudioException if the stream can not be used
+	 * @since 2.1.0
+	 */
+	public BufferedAudio(InputStream data, FileFormat fileFormat) throws AudioException {
+		
+		super(data, fileFormat);
+	}
+	
+	/**
+	 * Sets the cache in which the decoded data of all {@linkplain BufferedAudio}s is stored.
+	 * Audios that are opened while a cache is set use the data from the cache instead of decoding their resource if it did not change.
+	 * @param cache the cache or {@code null} to disable caching
+	 * @since 2.1.0
+	 */
+	public static void setDiskCache(DiskCache cache) {
+		
+		BufferedAudio.diskCache = cache;
+	}
+	
+	/**
+	 * @return the cache in which the decoded data is stored or {@code null} if caching is disabled
+	 * @since 2.1.0
+	 */
+	public static DiskCache getDiskCache() {
+		
+		return BufferedAudio.diskCache;
+	}
+	
+	/**
+	 * In progressive mode {@link #open()} only decodes the first few hundred milliseconds of the resource
+	 * and the rest is decoded in the background, so that the audio can be played earlier.
+	 * While the audio is being decoded, the frame length and the length only cover the part that was already decoded
+	 * and positions behind that part can not be set. Once the decoding is done, the audio behaves as if it was not opened in progressive mode.
+	 * The {@link AudioEvent.Type#DECODING_PROGRESS} events of the remainder are triggered by the decoding thread after the {@link AudioEvent.Type#OPENED} event.
+	 * If the playback catches up with the decoding, the audio waits silently and triggers {@link AudioEvent.Type#BUFFERING} events.
+	 * Has to be set before the audio is opened.
+	 * @param progressive {@code true} to enable progressive mode, else {@code false}
+	 * @since 2.1.0
+	 */
+	public void setProgressive(boolean progressive) {
+		
+		this.progressive = progressive;
+	}
+	
+	/**
+	 * @return {@code true} if progressive mode is enabled, else {@code false}
+	 * @since 2.1.0
+	 */
+	public boolean isProgressive() {
+		
+		return this.progressive;
+	}
+	
+	/**
+	 * @return {@code true} if the audio is open and the whole resource has been decoded, else {@code false}
+	 * @since 2.1.0
+	 */
+	public boolean isDecoded() {
+		
+		PcmBuffer buffer = this.buffer;
+		return buffer != null && buffer.isComplete();
+	}
+	
 	@Override
 	public void setFramePosition(long frame) {
 		
-		long oldVal = this.clip.getLongFramePosition();
-		this.clip.setFramePosition((int)frame);
+		long oldVal = this.voice.getFramePosition();
+		this.voice.setFramePosition(frame);
 		this.trigger(AudioEvent.Type.POSITION_CHANGED, oldVal, frame);
 	}
 	
@@ -149,7 +254,8 @@ public class BufferedAudio extends AbstractAudio {
 			this.stop();
 		}
 		
-		this.clip.start();
+		this.voice.setLoops(0);
+		this.mixer.add(this.voice);
 		this.paused = false;
 		this.playing = true;
 		this.trigger(AudioEvent.Type.STARTED);
@@ -160,7 +266,7 @@ public class BufferedAudio extends AbstractAudio {
 		
 		if(this.isPlaying()) {
 			
-			this.clip.stop();
+			this.mixer.remove(this.voice);
 			this.paused = true;
 			this.playing = false;
 			this.trigger(AudioEvent.Type.PAUSED);
@@ -172,7 +278,7 @@ public class BufferedAudio extends AbstractAudio {
 		
 		if(this.paused) {
 			
-			this.clip.start();
+			this.mixer.add(this.voice);
 			this.paused = false;
 			this.playing = true;
 			this.trigger(AudioEvent.Type.RESUMED);
@@ -186,8 +292,8 @@ public class BufferedAudio extends AbstractAudio {
 	@Override
 	public void stop() {
 		
-		this.clip.stop();
-		this.clip.setMicrosecondPosition(0);
+		this.mixer.remove(this.voice);
+		this.voice.setFramePosition(0);
 		this.paused = false;
 		this.playing = false;
 		this.trigger(AudioEvent.Type.STOPPED);
@@ -202,18 +308,16 @@ public class BufferedAudio extends AbstractAudio {
 		}
 		
 		this.paused = false;
-		this.clip.loop(repetitions);
+		this.voice.setLoops(repetitions);
+		this.mixer.add(this.voice);
 		this.playing = true;
 	}
 
 	@Override
 	public void setPosition(long millisecond) {
 		
-		float frameRate = this.audioInputStream.getFormat().getFrameRate() / 1000.0F;
-		long newVal = (long)(frameRate * millisecond);
-		long oldVal = this.clip.getLongFramePosition();
-		this.clip.setMicrosecondPosition(millisecond * 1000);
-		this.trigger(AudioEvent.Type.POSITION_CHANGED, oldVal, newVal);
+		float frameRate = this.buffer.getFormat().getFrameRate() / 1000.0F;
+		this.setFramePosition((long)(frameRate * millisecond));
 	}
 
 	@Override
@@ -221,25 +325,158 @@ public class BufferedAudio extends AbstractAudio {
 
 		try {
 			
-			this.audioInputStream = AbstractAudio.getAudioInputStream(this.resource);
-			this.clip = AudioSystem.getClip();
-			this.clip.open(this.audioInputStream);
-			this.clip.addLineListener(event -> {
+			// the mixer reads the samples of uncompressed local files straight from the mapped file, they are neither decoded nor cached
+			FileFormat fileFormat = this.resolveFileFormat();
+			PcmFile pcmFile = AbstractAudio.getPcmFile(this.resource, fileFormat);
+			boolean mapped = pcmFile != null && Samples.isSupported(pcmFile.getFormat());
+			long[] stat = AbstractAudio.stat(this.resource);
+			long size = stat[0];
+			long lastModified = stat[1];
+			
+			// data from the memory has no name under which it could be found again
+			DiskCache cache = MemoryStreamHandler.isMemoryURL(this.resource) || mapped ? null : BufferedAudio.diskCache;
+			Runnable remainder = null;
+			this.buffer = mapped ? pcmFile.map() : cache != null ? cache.load(this.resource, size, lastModified) : null;
+			
+			if(this.buffer != null) {
+				
+				this.audioInputStream = null;
+				
+			} else {
 				
-				if(event.getType().equals(LineEvent.Type.STOP) && this.clip.getMicrosecondPosition() >= this.clip.getMicrosecondLength()) {
+				CountingInputStream input = new CountingInputStream(AbstractAudio.openStream(this.resource, fileFormat));
+				AudioInputStream stream;
+				
+				try {
+					
+					stream = Samples.toSupportedFormat(AbstractAudio.getAudioInputStream(input, fileFormat));
+					
+				} catch(Exception exception) {
 					
-					this.trigger(AudioEvent.Type.REACHED_END);
+					// nothing else would close the file if no decoder accepted it
+					input.close();
+					throw exception;
 				}
-			});
-			this.controls = AbstractAudio.extractControls(this.clip, this.controls);
+				
+				PcmBuffer buffer = new PcmBuffer(stream.getFormat());
+				long frames = this.progressive ? (long)(stream.getFormat().getFrameRate() * PROGRESSIVE_START / 1000) : Long.MAX_VALUE;
+				this.audioInputStream = stream;
+				this.buffer = buffer;
+				float progress = this.decode(stream, input, size, buffer, frames, 0.0F, true);
+				
+				if(buffer.isComplete()) {
+					
+					stream.close();
+					
+					if(cache != null) {
+						
+						cache.store(this.resource, size, lastModified, buffer);
+					}
+					
+				} else {
+					
+					remainder = () -> {
+						
+						try {
+							
+							this.decode(stream, input, size, buffer, Long.MAX_VALUE, progress, false);
+							
+							if(buffer.isComplete() && cache != null) {
+								
+								cache.store(this.resource, size, lastModified, buffer);
+							}
+							
+						} catch(Exception exception) {
+							
+							// nobody cares anymore if the audio was closed in the meantime
+							if(this.buffer == buffer) {
+								
+								exception.printStackTrace();
+							}
+							
+						} finally {
+							
+							// lets the audio end where the decoding ended
+							buffer.complete();
+							
+							try {
+								
+								stream.close();
+								
+							} catch(IOException exception) {}
+						}
+					};
+				}
+			}
+			
+			AudioFormat format = this.buffer.getFormat();
+			this.voice = new Voice(this.buffer, this::reachedEnd, starving -> this.trigger(AudioEvent.Type.BUFFERING, !starving, starving));
+			this.mixer = SoftwareMixer.get(format);
+			this.controls = AbstractAudio.extractControls(this.voice.getControls(), this.controls);
 			this.open = true;
 			this.trigger(AudioEvent.Type.OPENED);
 			
+			// started after the event, so the listeners get the progress of the remainder after they learned that the audio is open
+			if(remainder != null) {
+				
+				AbstractAudio.getDecodeExecutor().execute(remainder);
+			}
+			
 		} catch(Exception exception) {
 			
-			throw new AudioException(exception);
+			this.buffer = null;
+			
+			if(this.audioInputStream != null) {
+				
+				try {
+					
+					this.audioInputStream.close();
+					
+				} catch(IOException closeException) {}
+			}
+			
+			throw exception instanceof AudioException ? (AudioException)exception : new AudioException(exception);
 		}
 	}
+	
+	private float decode(AudioInputStream stream, CountingInputStream input, long size, PcmBuffer buffer, long frames, float progress, boolean cancellable) throws IOException, AudioException {
+		
+		int frameSize = buffer.getFormat().getFrameSize();
+		byte[] data = new byte[65536 - 65536 % frameSize];
+		
+		// stops early if the audio was closed in the meantime
+		while(buffer.getFrameLength() < frames && this.buffer == buffer) {
+			
+			int read = stream.read(data);
+			
+			if(read == -1) {
+				
+				buffer.complete();
+				break;
+			}
+			
+			buffer.append(data, 0, read);
+			
+			if(cancellable) {
+				
+				this.checkCancelled();
+			}
+			
+			if(size > 0) {
+				
+				float newProgress = Math.min(1.0F, (float)input.getCount() / size);
+				
+				// one event per percent is enough
+				if(newProgress - progress >= 0.01F) {
+					
+					this.trigger(AudioEvent.Type.DECODING_PROGRESS, progress, newProgress);
+					progress = newProgress;
+				}
+			}
+		}
+		
+		return progress;
+	}
 
 	@Override
 	public void close() {
@@ -255,16 +492,22 @@ public class BufferedAudio extends AbstractAudio {
 				this.stop();
 			}
 			
-			this.clip.flush();
-			this.clip.close();
+			this.mixer.remove(this.voice);
 			this.controls.clear();
 			
-			try {
-				
-				this.audioInputStream.close();
+			// there is no stream if the data came from the disk cache
+			// and a stream that is still being decoded is closed by the decoding thread
+			if(this.audioInputStream != null && this.buffer.isComplete()) {
 				
-			} catch(IOException exception) {}
+				try {
+					
+					this.audioInputStream.close();
+					
+				} catch(IOException exception) {}
+			}
 			
+			this.buffer = null;
+			this.voice = null;
 			this.open = false;
 		}
 		
@@ -274,19 +517,19 @@ public class BufferedAudio extends AbstractAudio {
 	@Override
 	public long getFrameLength() {
 		
-		return this.clip.getFrameLength();
+		return this.buffer.getFrameLength();
 	}
 	
 	@Override
 	public long getLength() {
 		
-		return this.clip.getMicrosecondLength() / 1000;
+		return (long)(this.buffer.getFrameLength() * 1000 / this.buffer.getFormat().getFrameRate());
 	}
 
 	@Override
 	public long getPosition() {
 		
-		return this.clip.getMicrosecondPosition() / 1000;
+		return (long)(this.voice.getFramePosition() * 1000 / this.buffer.getFormat().getFrameRate());
 	}
 
 	@Override
@@ -298,24 +541,36 @@ public class BufferedAudio extends AbstractAudio {
 	@Override
 	public float getLevel() {
 	
-		return this.clip.getLevel();
+		return this.voice.getLevel();
 	}
 	
 	@Override
 	public int getBufferSize() {
 		
-		return this.clip.getBufferSize();
+		return (int)Math.min(this.buffer.getByteLength(), Integer.MAX_VALUE);
 	}
 	
 	@Override
 	public AudioFormat getAudioFormat() {
 		
-		return this.clip.getFormat();
+		return this.buffer.getFormat();
 	}
 	
 	@Override
 	public long getFramePosition() {
 		
-		return this.clip.getFramePosition();
+		return this.voice.getFramePosition();
+	}
+	
+	private void reachedEnd() {
+		
+		this.trigger(AudioEvent.Type.REACHED_END);
+		
+		// a listener may have closed the audio or started it again
+		if(this.open && !this.mixer.contains(this.voice)) {
+			
+			this.playing = false;
+			this.voice.setFramePosition(0);
+		}
 	}
 }
@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ralleytn.simple.audio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import javax.sound.sampled.AudioInputStream;
+
+import de.ralleytn.simple.audio.internal.ByteBufferInputStream;
+import de.ralleytn.simple.audio.internal.MemoryStreamHandler;
+
+/**
+ * Keeps the encoded audio data in the RAM and decodes it while playing.
+ * Needs a lot less memory than {@linkplain BufferedAudio} and does not touch the resource again after it was loaded.
+ * Good for music stingers and other audio of medium length.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class CompressedAudio extends StreamedAudio {
+
+	private ByteBuffer data;
+	
+	/**
+	 * @param file name of the resource file
+	 * @throws AudioException if something is wrong with the resource
+	 * @since 2.1.0
+	 */
+	public CompressedAudio(String file) throws AudioException {
+		
+		super(file);
+	}
+	
+	/**
+	 * @param file the resource as {@linkplain File}
+	 * @throws AudioException if something is wrong with the resource
+	 * @since 2.1.0
+	 */
+	public CompressedAudio(File file) throws AudioException {
+		
+		super(file);
+	}
+	
+	/**
+	 * @param file the resource as {@linkplain Path}
+	 * @throws AudioException if something is wrong with the resource
+	 * @since 2.1.0
+	 */
+	public CompressedAudio(Path file) throws AudioException {
+		
+		super(file);
+	}
+	
+	/**
+	 * @param zip zip file containing the resource
+	 * @param entry name of the resource entry
+	 * @throws AudioException if something is wrong with the resource
+	 * @since 2.1.0
+	 */
+	public CompressedAudio(String zip, String entry) throws AudioException {
+		
+		super(zip, entry);
+	}
+	
+	/**
+	 * @param zip zip file containing the resource
+	 * @param entry name of the resource entry
+	 * @throws AudioException if something is wrong with the resource
+	 * @since 2.1.0
+	 */
+	public CompressedAudio(File zip, String entry) throws AudioException {
+		
+		super(zip, entry);
+	}
+	
+	/**
+	 * @param zip zip file containing the resource
+	 * @param entry name of the resource entry
+	 * @throws AudioException if something is wrong with the resource
+	 * @since 2.1.0
+	 */
+	public CompressedAudio(Path zip, String entry) throws AudioException {
+		
+		super(zip, entry);
+	}
+	
+	/**
+	 * @param url the resource
+	 * @throws AudioException if something is wrong with the resource
+	 * @since 2.1.0
+	 */
+	public CompressedAudio(URL url) throws AudioException {
+		
+		super(url);
+	}
+	
+	/**
+	 * @param uri the resource as {@linkplain URI}
+	 * @throws AudioException if something is wrong with the resource
+	 * @since 2.1.0
+	 */
+	public CompressedAudio(URI uri) throws AudioException {
+		
+		super(uri);
+	}
+	
+	/**
+	 * @param data the encoded audio data; is not copied
+	 * @param fileFormat the format of the data or {@code null} to detect it from the content
+	 * @throws AudioException if the format is unknown
+	 * @since 2.1.0
+	 */
+	public CompressedAudio(byte[] data, FileFormat fileFormat) throws AudioException {
+		
+		super(data, fileFormat);
+	}
+	
+	/**
+	 * @param data the encoded audio data between the position and the limit of the buffer; is not copied
+	 * @param fileFormat the format of the data or {@code null} to detect it from the content
+	 * @throws AudioException if the format is unknown
+	 * @since 2.1.0
+	 */
+	public CompressedAudio(ByteBuffer data, FileFormat fileFormat) throws AudioException {
+		
+		super(data, fileFormat);
+	}
+	
+	/**
+	 * @param data the stream with the encoded audio data; can only be read once
+	 * @param fileFormat the format of the data or {@code null} to detect it from the content when the audio is opened
+	 * @throws AudioException if the stream can not be used
+	 * @since 2.1.0
+	 */
+	public CompressedAudio(InputStream data, FileFormat fileFormat) throws AudioException {
+		
+		super(data, fileFormat);
+	}
+	
+	@Override
+	protected AudioInputStream createAudioInputStream() throws AudioException {
+		
+		// the format has to be known before a stream from the memory is read
+		FileFormat fileFormat = this.resolveFileFormat();
+		
+		// the encoded data is only read once, every restart after that decodes from the RAM
+		if(this.data == null) {
+			
+			try {
+				
+				if(MemoryStreamHandler.isMemoryURL(this.resource)) {
+					
+					// data that already lies in the memory is used as it is
+					this.data = MemoryStreamHandler.getBuffer(this.resource);
+				}
+				
+				if(this.data == null) {
+					
+					try(InputStream inputStream = this.resource.openStream()) {
+						
+						this.data = ByteBuffer.wrap(inputStream.readAllBytes());
+					}
+				}
+				
+			} catch(IOException exception) {
+				
+				throw new AudioException(exception);
+			}
+		}
+		
+		return AbstractAudio.getAudioInputStream(new ByteBufferInputStream(this.data), fileFormat);
+	}
+	
+	/**
+	 * @return the size of the encoded audio data in the RAM in bytes or {@code 0} if it was not loaded yet
+	 * @since 2.1.0
+	 */
+	public int getEncodedSize() {
+		
+		return this.data != null ? this.data.remaining() : 0;
+	}
+}
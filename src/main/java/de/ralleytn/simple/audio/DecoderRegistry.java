@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.io.InputStream;
+import java.util.EnumMap;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import de.jarnbjo.ogg.LogicalOggStream;
+import de.jarnbjo.vorbis.VorbisStream;
+import de.ralleytn.simple.audio.internal.FlacInputStream;
+import de.ralleytn.simple.audio.internal.ProviderCache;
+import de.ralleytn.simple.audio.internal.SequentialOggStream;
+import de.ralleytn.simple.audio.internal.VorbisInputStream;
+
+/**
+ * Maps each {@linkplain FileFormat} to the {@linkplain AudioDecoder} that is used when an audio is opened.
+ * All formats have a built-in decoder which can be replaced with your own one.
+ * Looking up a decoder does not lock and does not ask the service providers of the {@linkplain javax.sound.sampled.AudioSystem}.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class DecoderRegistry {
+
+	private static final EnumMap<FileFormat, AudioDecoder> DEFAULTS = new EnumMap<>(FileFormat.class);
+	private static volatile EnumMap<FileFormat, AudioDecoder> decoders;
+	
+	static {
+		
+		// the readers of the AudioSystem are cached per format, AU and SND share the same reader
+		DEFAULTS.put(FileFormat.WAV, inputStream -> ProviderCache.getAudioInputStream(inputStream, FileFormat.WAV));
+		DEFAULTS.put(FileFormat.AIFF, inputStream -> ProviderCache.getAudioInputStream(inputStream, FileFormat.AIFF));
+		DEFAULTS.put(FileFormat.AIFC, inputStream -> ProviderCache.getAudioInputStream(inputStream, FileFormat.AIFC));
+		DEFAULTS.put(FileFormat.AU, inputStream -> ProviderCache.getAudioInputStream(inputStream, FileFormat.AU));
+		DEFAULTS.put(FileFormat.SND, inputStream -> ProviderCache.getAudioInputStream(inputStream, FileFormat.AU));
+		DEFAULTS.put(FileFormat.MP3, DecoderRegistry::decodeMP3);
+		DEFAULTS.put(FileFormat.OGG, DecoderRegistry::decodeOGG);
+		DEFAULTS.put(FileFormat.FLAC, DecoderRegistry::decodeFLAC);
+		DecoderRegistry.decoders = new EnumMap<>(DEFAULTS);
+	}
+	
+	private DecoderRegistry() {}
+	
+	/**
+	 * Registers a decoder for a file format. The decoder replaces the one that was registered before and is used by all audios that are opened afterwards.
+	 * @param fileFormat the file format
+	 * @param decoder the decoder
+	 * @since 2.1.0
+	 */
+	public static synchronized void register(FileFormat fileFormat, AudioDecoder decoder) {
+		
+		if(fileFormat == null || decoder == null) {
+			
+			throw new NullPointerException();
+		}
+		
+		// copy on write, so that lookups never see a map that is being modified
+		EnumMap<FileFormat, AudioDecoder> decoders = new EnumMap<>(DecoderRegistry.decoders);
+		decoders.put(fileFormat, decoder);
+		DecoderRegistry.decoders = decoders;
+	}
+	
+	/**
+	 * Restores the built-in decoder of a file format.
+	 * @param fileFormat the file format
+	 * @since 2.1.0
+	 */
+	public static synchronized void reset(FileFormat fileFormat) {
+		
+		DecoderRegistry.register(fileFormat, DEFAULTS.get(fileFormat));
+	}
+	
+	/**
+	 * @param fileFormat the file format
+	 * @return the decoder that is currently registered for the file format
+	 * @since 2.1.0
+	 */
+	public static AudioDecoder getDecoder(FileFormat fileFormat) {
+		
+		return DecoderRegistry.decoders.get(fileFormat);
+	}
+	
+	/**
+	 * @param fileFormat the file format
+	 * @return the decoder that comes with this library
+	 * @since 2.1.0
+	 */
+	public static AudioDecoder getDefaultDecoder(FileFormat fileFormat) {
+		
+		return DEFAULTS.get(fileFormat);
+	}
+	
+	private static final AudioInputStream decodeMP3(InputStream inputStream) throws Exception {
+		
+		AudioInputStream audioInputStream = ProviderCache.getAudioInputStream(inputStream, FileFormat.MP3);
+		AudioFormat baseFormat = audioInputStream.getFormat();
+		AudioFormat decodedFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, baseFormat.getSampleRate(), 16,baseFormat.getChannels(), baseFormat.getChannels() * 2, baseFormat.getSampleRate(), false);
+		return ProviderCache.convert(decodedFormat, audioInputStream);
+	}
+	
+	private static final AudioInputStream decodeOGG(InputStream inputStream) throws Exception {
+		
+		LogicalOggStream loggs = new SequentialOggStream(inputStream).getLogicalStream();
+		
+		if(!loggs.getFormat().equals(LogicalOggStream.FORMAT_VORBIS)) {
+			
+			throw new AudioException("Not a plain Ogg/Vorbis audio file!");
+		}
+		
+		VorbisInputStream vis = new VorbisInputStream(new VorbisStream(loggs), false);
+		return new AudioInputStream(vis, vis.getAudioFormat(), -1L);
+	}
+	
+	private static final AudioInputStream decodeFLAC(InputStream inputStream) throws Exception {
+		
+		FlacInputStream fis = new FlacInputStream(inputStream);
+		return new AudioInputStream(fis, fis.getAudioFormat(), fis.getFrameLength());
+	}
+}
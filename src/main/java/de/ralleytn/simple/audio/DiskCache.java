@@ -0,0 +1,370 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.sampled.AudioFormat;
+
+import de.ralleytn.simple.audio.internal.PcmBuffer;
+
+/**
+ * Stores decoded PCM data on the disk, so that a {@linkplain BufferedAudio} does not have to decode its resource again
+ * when it is opened in a later run of the application. Each resource is stored in its own file named after a hash of the resource URL
+ * and is only used if the size and the modification time of the resource did not change.
+ * Cached data is memory-mapped instead of being read into the heap.
+ * If the cache grows bigger than its maximum size, the least recently used files are deleted.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ * @see BufferedAudio#setDiskCache(DiskCache)
+ */
+public class DiskCache {
+
+	private static final int MAGIC = 0x53415043; // SAPC
+	private static final int VERSION = 1;
+	private static final String EXTENSION = ".pcm";
+	
+	private final Path directory;
+	private final long maxSize;
+	
+	/**
+	 * @param directory the directory in which the data is stored; will be created if it does not exist
+	 * @param maxSize the maximum number of bytes the cache may use on the disk
+	 * @throws AudioException if the directory could not be created
+	 * @since 2.1.0
+	 */
+	public DiskCache(Path directory, long maxSize) throws AudioException {
+		
+		try {
+			
+			Files.createDirectories(directory);
+			
+		} catch(IOException exception) {
+			
+			throw new AudioException(exception);
+		}
+		
+		this.directory = directory;
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Deletes all the files of this cache.
+	 * @throws AudioException if a file could not be deleted
+	 * @since 2.1.0
+	 */
+	public synchronized void clear() throws AudioException {
+		
+		try {
+			
+			for(Path file : this.getFiles()) {
+				
+				Files.deleteIfExists(file);
+			}
+			
+		} catch(IOException exception) {
+			
+			throw new AudioException(exception);
+		}
+	}
+	
+	/**
+	 * @return the number of bytes this cache currently uses on the disk
+	 * @since 2.1.0
+	 */
+	public long getSize() {
+		
+		long size = 0;
+		
+		try {
+			
+			for(Path file : this.getFiles()) {
+				
+				size += Files.size(file);
+			}
+			
+		} catch(IOException exception) {}
+		
+		return size;
+	}
+	
+	/**
+	 * @return the directory in which the data is stored
+	 * @since 2.1.0
+	 */
+	public Path getDirectory() {
+		
+		return this.directory;
+	}
+	
+	/**
+	 * @return the maximum number of bytes the cache may use on the disk
+	 * @since 2.1.0
+	 */
+	public long getMaxSize() {
+		
+		return this.maxSize;
+	}
+	
+	/**
+	 * @param resource the resource
+	 * @param size size of the resource in bytes
+	 * @param lastModified modification time of the resource
+	 * @return the cached PCM data of the resource or {@code null} if there is no valid data in the cache
+	 */
+	PcmBuffer load(URL resource, long size, long lastModified) {
+		
+		Path file = this.getFile(resource);
+		
+		if(size > 0 && lastModified > 0 && Files.isRegularFile(file)) {
+			
+			try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				
+				ByteBuffer headerLength = ByteBuffer.allocate(4);
+				DiskCache.readFully(channel, headerLength);
+				int length = headerLength.getInt(0);
+				
+				// the length comes from a file that may be corrupt
+				if(length <= 0 || length > channel.size() - 4) {
+					
+					return null;
+				}
+				
+				byte[] header = new byte[length];
+				DiskCache.readFully(channel, ByteBuffer.wrap(header));
+				DataInputStream input = new DataInputStream(new ByteArrayInputStream(header));
+				
+				if(input.readInt() == MAGIC && input.readInt() == VERSION && input.readUTF().equals(resource.toExternalForm()) &&
+				   input.readLong() == size && input.readLong() == lastModified) {
+					
+					AudioFormat format = new AudioFormat(new AudioFormat.Encoding(input.readUTF()), input.readFloat(), input.readInt(), input.readInt(), input.readInt(), input.readFloat(), input.readBoolean());
+					long dataLength = input.readLong();
+					long start = 4 + header.length;
+					
+					// a file that was not written completely is ignored
+					if(channel.size() == start + dataLength) {
+						
+						PcmBuffer buffer = PcmBuffer.map(channel, start, dataLength, format);
+						Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+						return buffer;
+					}
+				}
+				
+			} catch(Exception exception) {
+				
+				// anything that can not be parsed is a miss, the data is decoded again
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Stores the PCM data of a resource and deletes the least recently used files if the cache got too big.
+	 * @param resource the resource
+	 * @param size size of the resource in bytes
+	 * @param lastModified modification time of the resource
+	 * @param buffer the decoded PCM data
+	 */
+	void store(URL resource, long size, long lastModified, PcmBuffer buffer) {
+		
+		long fileSize = buffer.getByteLength() + 1024;
+		
+		if(size > 0 && lastModified > 0 && fileSize <= this.maxSize) {
+			
+			Path file = this.getFile(resource);
+			Path temp = this.directory.resolve(file.getFileName() + "." + Thread.currentThread().getId() + ".tmp");
+			
+			try {
+				
+				AudioFormat format = buffer.getFormat();
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				DataOutputStream output = new DataOutputStream(bytes);
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeUTF(resource.toExternalForm());
+				output.writeLong(size);
+				output.writeLong(lastModified);
+				output.writeUTF(format.getEncoding().toString());
+				output.writeFloat(format.getSampleRate());
+				output.writeInt(format.getSampleSizeInBits());
+				output.writeInt(format.getChannels());
+				output.writeInt(format.getFrameSize());
+				output.writeFloat(format.getFrameRate());
+				output.writeBoolean(format.isBigEndian());
+				output.writeLong(buffer.getByteLength());
+				output.flush();
+				
+				ByteBuffer header = ByteBuffer.allocate(4 + bytes.size());
+				header.putInt(bytes.size());
+				header.put(bytes.toByteArray());
+				header.flip();
+				
+				try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+					
+					while(header.hasRemaining()) {
+						
+						channel.write(header);
+					}
+					
+					buffer.writeTo(channel);
+				}
+				
+				synchronized(this) {
+					
+					this.evict(Files.size(temp));
+					
+					try {
+						
+						Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+						
+					} catch(AtomicMoveNotSupportedException exception) {
+						
+						Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+					}
+				}
+				
+			} catch(IOException exception) {
+				
+				// the cache is only an optimization
+				try {
+					
+					Files.deleteIfExists(temp);
+					
+				} catch(IOException deleteException) {}
+			}
+		}
+	}
+	
+	private void evict(long required) throws IOException {
+		
+		List<Path> files = this.getFiles();
+		long size = required;
+		
+		for(Path file : files) {
+			
+			size += Files.size(file);
+		}
+		
+		if(size > this.maxSize) {
+			
+			files.sort((file1, file2) -> {
+				
+				try {
+					
+					return Files.getLastModifiedTime(file1).compareTo(Files.getLastModifiedTime(file2));
+					
+				} catch(IOException exception) {
+					
+					return 0;
+				}
+			});
+			
+			for(Path file : files) {
+				
+				if(size <= this.maxSize) {
+					
+					break;
+				}
+				
+				long fileSize = Files.size(file);
+				
+				try {
+					
+					Files.delete(file);
+					size -= fileSize;
+					
+				} catch(IOException exception) {
+					
+					// may still be mapped by another audio on some systems
+				}
+			}
+		}
+	}
+	
+	private List<Path> getFiles() throws IOException {
+		
+		List<Path> files = new ArrayList<>();
+		
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + EXTENSION)) {
+			
+			stream.forEach(files::add);
+		}
+		
+		return files;
+	}
+	
+	private Path getFile(URL resource) {
+		
+		try {
+			
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(resource.toExternalForm().getBytes(StandardCharsets.UTF_8));
+			StringBuilder name = new StringBuilder(hash.length * 2 + EXTENSION.length());
+			
+			for(byte value : hash) {
+				
+				name.append(Character.forDigit((value >> 4) & 0xF, 16));
+				name.append(Character.forDigit(value & 0xF, 16));
+			}
+			
+			return this.directory.resolve(name.append(EXTENSION).toString());
+			
+		} catch(NoSuchAlgorithmException exception) {
+			
+			// every Java platform has to support SHA-256
+			throw new IllegalStateException(exception);
+		}
+	}
+	
+	private static final void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		
+		while(buffer.hasRemaining()) {
+			
+			if(channel.read(buffer) == -1) {
+				
+				throw new IOException("Unexpected end of file!");
+			}
+		}
+	}
+}
@@ -0,0 +1,242 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A picture that is embedded in the tags of an audio file, like the cover of an album.
+ * Only the description of the picture is read with the headers; the image data is read from the resource on the first call of {@link #getData()}.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class EmbeddedPicture {
+
+	/**
+	 * The picture type of the front cover.
+	 * @since 2.1.0
+	 */
+	public static final int TYPE_FRONT_COVER = 3;
+	
+	/**
+	 * The picture type of the back cover.
+	 * @since 2.1.0
+	 */
+	public static final int TYPE_BACK_COVER = 4;
+	
+	private final URL resource;
+	private final long size;
+	private final long lastModified;
+	private final long position;
+	private final int length;
+	private final boolean unsynchronized;
+	private final int offset;
+	private final int dataLength;
+	private final String mimeType;
+	private final int type;
+	private final String description;
+	private volatile SoftReference<byte[]> data;
+	
+	// the stored bytes are read from the position, unsynchronization is removed and the image starts at the offset of the result; a data length of -1 means up to the end
+	EmbeddedPicture(URL resource, long[] stat, long position, int length, boolean unsynchronized, int offset, int dataLength, String mimeType, int type, String description) {
+		
+		this.resource = resource;
+		this.size = stat[0];
+		this.lastModified = stat[1];
+		this.position = position;
+		this.length = length;
+		this.unsynchronized = unsynchronized;
+		this.offset = offset;
+		this.dataLength = dataLength;
+		this.mimeType = mimeType;
+		this.type = type;
+		this.description = description;
+	}
+	
+	/**
+	 * Reads the image data. The data is kept in the memory until the garbage collector needs the space.
+	 * @return the encoded image, as it is stored in the file
+	 * @throws IOException if the resource could not be read or has changed
+	 * @since 2.1.0
+	 */
+	public byte[] getData() throws IOException {
+		
+		SoftReference<byte[]> reference = this.data;
+		byte[] data = reference != null ? reference.get() : null;
+		
+		if(data == null) {
+			
+			data = this.read();
+			
+			if(this.unsynchronized) {
+				
+				data = EmbeddedPicture.removeUnsynchronization(data);
+			}
+			
+			int end = this.dataLength < 0 ? data.length : (int)Math.min(data.length, (long)this.offset + this.dataLength);
+			data = Arrays.copyOfRange(data, Math.min(this.offset, end), end);
+			this.data = new SoftReference<>(data);
+		}
+		
+		return data.clone();
+	}
+	
+	/**
+	 * @return the MIME type of the image, like {@code image/jpeg}, or {@code null} if it is unknown
+	 * @since 2.1.0
+	 */
+	public String getMimeType() {
+		
+		return this.mimeType;
+	}
+	
+	/**
+	 * @return the ID3v2 picture type, like {@link #TYPE_FRONT_COVER}; {@code 0} if the picture has no type
+	 * @since 2.1.0
+	 */
+	public int getType() {
+		
+		return this.type;
+	}
+	
+	/**
+	 * @return the description of the picture; may be empty
+	 * @since 2.1.0
+	 */
+	public String getDescription() {
+		
+		return this.description;
+	}
+	
+	@Override
+	public String toString() {
+		
+		return "EmbeddedPicture[type=" + this.type + ", mimeType=" + this.mimeType + ", description=" + this.description + "]";
+	}
+	
+	private final byte[] read() throws IOException {
+		
+		long[] stat = AbstractAudio.stat(this.resource);
+		
+		// the position of the picture is only valid for the version of the resource whose headers were read
+		if(stat[0] != this.size || stat[1] != this.lastModified) {
+			
+			throw new IOException("The resource has changed since its headers were read: " + this.resource);
+		}
+		
+		byte[] data = new byte[this.length];
+		
+		Path path = null;
+		
+		if("file".equals(this.resource.getProtocol())) {
+			
+			try {
+				
+				path = Paths.get(this.resource.toURI());
+				
+			} catch(URISyntaxException | IllegalArgumentException exception) {
+				
+				// not a valid path, the URL handler may still know what to do
+			}
+		}
+		
+		if(path != null) {
+			
+			try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				
+				ByteBuffer buffer = ByteBuffer.wrap(data);
+				
+				while(buffer.hasRemaining()) {
+					
+					if(channel.read(buffer, this.position + buffer.position()) == -1) {
+						
+						throw new EOFException();
+					}
+				}
+				
+				return data;
+			}
+		}
+		
+		try(InputStream inputStream = this.resource.openStream()) {
+			
+			long skipped = 0;
+			
+			while(skipped < this.position) {
+				
+				long count = inputStream.skip(this.position - skipped);
+				
+				if(count <= 0) {
+					
+					if(inputStream.read() == -1) {
+						
+						throw new EOFException();
+					}
+					
+					count = 1;
+				}
+				
+				skipped += count;
+			}
+			
+			if(inputStream.readNBytes(data, 0, data.length) < data.length) {
+				
+				throw new EOFException();
+			}
+		}
+		
+		return data;
+	}
+	
+	// ID3v2 inserts a zero after every 0xFF that could be mistaken for the start of a frame
+	static final byte[] removeUnsynchronization(byte[] data) {
+		
+		byte[] result = new byte[data.length];
+		int length = 0;
+		
+		for(int index = 0; index < data.length; index++) {
+			
+			result[length++] = data[index];
+			
+			if(data[index] == (byte)0xFF && index + 1 < data.length && data[index + 1] == 0) {
+				
+				index++;
+			}
+		}
+		
+		return length == data.length ? result : Arrays.copyOf(result, length);
+	}
+}
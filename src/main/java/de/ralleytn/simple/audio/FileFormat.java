@@ -24,6 +24,10 @@
 
 package de.ralleytn.simple.audio;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -32,7 +36,7 @@ import javax.sound.sampled.AudioFileFormat;
 /**
  * Represents a file format for audio files.
  * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
- * @version 2.0.0
+ * @version 2.1.0
  * @since 1.0.0
  */
 public enum FileFormat {
@@ -79,7 +83,19 @@ public enum FileFormat {
 	 * <i>WARNING:</i> The format is not supported on all systems!
 	 * @since 1.1.0
 	 */
-	SND(true, AudioFileFormat.Type.SND, "snd");
+	SND(true, AudioFileFormat.Type.SND, "snd"),
+	
+	/**
+	 * Free Lossless Audio Codec(.flac)
+	 * @since 2.1.0
+	 */
+	FLAC(false, null, "flac");
+	
+	/**
+	 * Number of bytes {@link #getFormatByContent(byte[], int)} needs to detect every format.
+	 * @since 2.1.0
+	 */
+	public static final int SIGNATURE_LENGTH = 12;
 	
 	private List<String> associatedFileExtensions;
 	private boolean writingSupported;
@@ -149,4 +165,122 @@ public enum FileFormat {
 		
 		return returnValue;
 	}
+	
+	/**
+	 * Detects the file format from the first bytes of a file.
+	 * The detection knows the signatures of RIFF WAVE, AIFF, AIFC, AU/SND, Ogg, MP3 (with an ID3v2 tag or a frame sync) and FLAC.
+	 * Because AU and SND files have the same signature, both are detected as {@link #AU}.
+	 * @param header the first bytes of the file; {@value #SIGNATURE_LENGTH} bytes are enough for all formats
+	 * @param length number of valid bytes in the array
+	 * @return the {@linkplain FileFormat} or {@code null} if the signature is unknown
+	 * @since 2.1.0
+	 */
+	public static FileFormat getFormatByContent(byte[] header, int length) {
+		
+		if(length >= 12 && FileFormat.startsWith(header, 0, "RIFF") && FileFormat.startsWith(header, 8, "WAVE")) {
+			
+			return WAV;
+		}
+		
+		if(length >= 12 && FileFormat.startsWith(header, 0, "FORM")) {
+			
+			if(FileFormat.startsWith(header, 8, "AIFF")) {
+				
+				return AIFF;
+			}
+			
+			if(FileFormat.startsWith(header, 8, "AIFC")) {
+				
+				return AIFC;
+			}
+		}
+		
+		if(length >= 4) {
+			
+			if(FileFormat.startsWith(header, 0, ".snd")) {
+				
+				return AU;
+			}
+			
+			if(FileFormat.startsWith(header, 0, "OggS")) {
+				
+				return OGG;
+			}
+			
+			if(FileFormat.startsWith(header, 0, "fLaC")) {
+				
+				return FLAC;
+			}
+		}
+		
+		if(length >= 3 && FileFormat.startsWith(header, 0, "ID3")) {
+			
+			return MP3;
+		}
+		
+		// MPEG audio frame sync with a valid layer; AAC uses the same sync, but always has layer 0
+		if(length >= 2 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xE0) == 0xE0 && (header[1] & 0x06) != 0) {
+			
+			return MP3;
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Detects the file format from the first bytes of a stream. The position of the stream does not change.
+	 * @param inputStream the stream; has to support {@link InputStream#mark(int)}
+	 * @return the {@linkplain FileFormat} or {@code null} if the signature is unknown
+	 * @throws IOException if an I/O error occurs
+	 * @since 2.1.0
+	 */
+	public static FileFormat getFormatByContent(InputStream inputStream) throws IOException {
+		
+		byte[] header = new byte[SIGNATURE_LENGTH];
+		int length = 0;
+		int read = 0;
+		inputStream.mark(SIGNATURE_LENGTH);
+		
+		try {
+			
+			while(length < header.length && (read = inputStream.read(header, length, header.length - length)) != -1) {
+				
+				length += read;
+			}
+			
+		} finally {
+			
+			inputStream.reset();
+		}
+		
+		return FileFormat.getFormatByContent(header, length);
+	}
+	
+	/**
+	 * Detects the file format from the first bytes of a resource.
+	 * @param resource the resource
+	 * @return the {@linkplain FileFormat} or {@code null} if the signature is unknown
+	 * @throws IOException if an I/O error occurs
+	 * @since 2.1.0
+	 */
+	public static FileFormat getFormatByContent(URL resource) throws IOException {
+		
+		try(InputStream inputStream = new BufferedInputStream(resource.openStream(), SIGNATURE_LENGTH)) {
+			
+			return FileFormat.getFormatByContent(inputStream);
+		}
+	}
+	
+	private static final boolean startsWith(byte[] header, int offset, String signature) {
+		
+		for(int index = 0; index < signature.length(); index++) {
+			
+			if(header[offset + index] != signature.charAt(index)) {
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
 }
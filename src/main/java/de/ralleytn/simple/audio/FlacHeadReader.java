@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.ralleytn.simple.audio.internal.FlacInputStream;
+
+/**
+ * Reads the head informations from a FLAC file as described <a href="https://xiph.org/flac/format.html">here</a>.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class FlacHeadReader implements HeadReader {
+
+	@Override
+	public Map<String, ?> read(URL resource) throws IOException {
+		
+		Map<String, Object> headers = new HashMap<>();
+		
+		// only the metadata blocks are read, no frame is decoded
+		try(FlacInputStream inputStream = new FlacInputStream(resource.openStream())) {
+			
+			StringBuilder md5 = new StringBuilder(32);
+			
+			for(byte value : inputStream.getMD5()) {
+				
+				md5.append(Character.forDigit((value >> 4) & 0xF, 16));
+				md5.append(Character.forDigit(value & 0xF, 16));
+			}
+			
+			headers.put("flac.min_blocksize", inputStream.getMinBlockSize());
+			headers.put("flac.max_blocksize", inputStream.getMaxBlockSize());
+			headers.put("flac.min_framesize", inputStream.getMinFrameSize());
+			headers.put("flac.max_framesize", inputStream.getMaxFrameSize());
+			headers.put("flac.sample_rate", inputStream.getSampleRate());
+			headers.put("flac.channels", inputStream.getChannels());
+			headers.put("flac.bits_per_sample", inputStream.getBitsPerSample());
+			headers.put("flac.total_samples", inputStream.getFrameLength());
+			headers.put("flac.md5", md5.toString());
+			headers.put("flac.seekpoints", inputStream.getSeekPointCount());
+			
+			if(inputStream.getFrameLength() > 0 && inputStream.getSampleRate() > 0) {
+				
+				headers.put("duration", inputStream.getFrameLength() * 1000000L / inputStream.getSampleRate());
+			}
+			
+			if(inputStream.getVendor() != null) {
+				
+				headers.put("flac.vendor", inputStream.getVendor());
+			}
+			
+			inputStream.getComments().forEach((key, value) -> headers.put("flac.comment." + key, value));
+		}
+		
+		return headers;
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the parsed headers of resources in the memory, so that audios that are created again for the same resource,
+ * like the rows of a track list, do not parse the resource again. An entry is only used if the size and the modification time of the resource did not change.
+ * If the estimated memory use grows bigger than the maximum size, the least recently used entries are removed.
+ * Every audio keeps the headers it parsed on its own, with or without this cache.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ * @see AbstractAudio#setHeaderCache(HeaderCache)
+ */
+public class HeaderCache {
+
+	private final long maxSize;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+	private long size;
+	
+	/**
+	 * @param maxSize the estimated maximum number of bytes the cached headers may use
+	 * @since 2.1.0
+	 */
+	public HeaderCache(long maxSize) {
+		
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Removes all entries.
+	 * @since 2.1.0
+	 */
+	public synchronized void clear() {
+		
+		this.entries.clear();
+		this.size = 0;
+	}
+	
+	/**
+	 * @return the estimated number of bytes the cached headers use
+	 * @since 2.1.0
+	 */
+	public synchronized long getSize() {
+		
+		return this.size;
+	}
+	
+	/**
+	 * @return the estimated maximum number of bytes the cached headers may use
+	 * @since 2.1.0
+	 */
+	public long getMaxSize() {
+		
+		return this.maxSize;
+	}
+	
+	/**
+	 * @return the number of resources whose headers are cached
+	 * @since 2.1.0
+	 */
+	public synchronized int getEntryCount() {
+		
+		return this.entries.size();
+	}
+	
+	synchronized Entry get(String key, long size, long lastModified) {
+		
+		Entry entry = this.entries.get(key);
+		
+		if(entry != null && !entry.matches(size, lastModified)) {
+			
+			this.entries.remove(key);
+			this.size -= entry.memory;
+			return null;
+		}
+		
+		return entry;
+	}
+	
+	synchronized void put(String key, Entry entry) {
+		
+		Entry old = this.entries.put(key, entry);
+		this.size += entry.memory - (old != null ? old.memory : 0);
+		Iterator<Entry> iterator = this.entries.values().iterator();
+		
+		// the entry that was just added may be removed too if it is bigger than the whole cache
+		while(this.size > this.maxSize && iterator.hasNext()) {
+			
+			this.size -= iterator.next().memory;
+			iterator.remove();
+		}
+	}
+	
+	static final class Entry {
+		
+		final Map<?, ?> headers;
+		final long size;
+		final long lastModified;
+		final long memory;
+		
+		Entry(Map<?, ?> headers, long size, long lastModified) {
+			
+			this.headers = Collections.unmodifiableMap(headers);
+			this.size = size;
+			this.lastModified = lastModified;
+			long memory = 96;
+			
+			for(Map.Entry<?, ?> header : headers.entrySet()) {
+				
+				memory += 48 + Entry.estimate(header.getKey()) + Entry.estimate(header.getValue());
+			}
+			
+			this.memory = memory;
+		}
+		
+		boolean matches(long size, long lastModified) {
+			
+			return this.size == size && this.lastModified == lastModified;
+		}
+		
+		// a rough guess of the size of a header value on the heap
+		private static final long estimate(Object value) {
+			
+			if(value instanceof CharSequence) {
+				
+				return 40 + 2L * ((CharSequence)value).length();
+				
+			} else if(value instanceof byte[]) {
+				
+				return 16 + ((byte[])value).length;
+			}
+			
+			return value == null ? 0 : 24;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The tracks of a {@linkplain Playlist} from a {@linkplain SearchIndex}. The {@linkplain Audio} of a track is only created when it is requested the first time.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+final class LazyTrackList extends AbstractList<Audio> implements RandomAccess {
+
+	// either a LibraryEntry or the Audio that was created for it
+	private final List<Object> tracks;
+	
+	LazyTrackList(List<LibraryEntry> entries) {
+		
+		this.tracks = new ArrayList<>(entries);
+	}
+	
+	@Override
+	public Audio get(int index) {
+		
+		Object track = this.tracks.get(index);
+		
+		if(track instanceof LibraryEntry) {
+			
+			track = LazyTrackList.create((LibraryEntry)track);
+			this.tracks.set(index, track);
+		}
+		
+		return (Audio)track;
+	}
+	
+	@Override
+	public Audio set(int index, Audio audio) {
+		
+		Audio old = this.get(index);
+		this.tracks.set(index, audio);
+		return old;
+	}
+	
+	@Override
+	public void add(int index, Audio audio) {
+		
+		this.tracks.add(index, audio);
+		this.modCount++;
+	}
+	
+	// returns null for a track whose audio was never created, so that removing it does not create it
+	@Override
+	public Audio remove(int index) {
+		
+		Object track = this.tracks.remove(index);
+		this.modCount++;
+		return track instanceof Audio ? (Audio)track : null;
+	}
+	
+	@Override
+	public int size() {
+		
+		return this.tracks.size();
+	}
+	
+	/**
+	 * @param index index of the track
+	 * @return {@code true} if the {@linkplain Audio} of the track was already created, else {@code false}
+	 */
+	boolean isCreated(int index) {
+		
+		return this.tracks.get(index) instanceof Audio;
+	}
+	
+	private static final Audio create(LibraryEntry entry) {
+		
+		try {
+			
+			return new StreamedAudio(entry.getPath().toUri().toURL(), entry.getFileFormat());
+			
+		} catch(Exception exception) {
+			
+			throw new IllegalStateException("Could not create the audio of " + entry.getPath(), exception);
+		}
+	}
+}
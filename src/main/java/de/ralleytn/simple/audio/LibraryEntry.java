@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The metadata of one audio file of a library, as it was read by a {@linkplain LibraryScanner}.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class LibraryEntry {
+
+	private final Path path;
+	private final long size;
+	private final long lastModified;
+	private final FileFormat fileFormat;
+	private final long duration;
+	private final Map<String, Object> headers;
+	
+	LibraryEntry(Path path, long size, long lastModified, FileFormat fileFormat, long duration, Map<String, Object> headers) {
+		
+		this.path = path;
+		this.size = size;
+		this.lastModified = lastModified;
+		this.fileFormat = fileFormat;
+		this.duration = duration;
+		this.headers = Collections.unmodifiableMap(headers);
+	}
+	
+	/**
+	 * @return the absolute path of the file
+	 * @since 2.1.0
+	 */
+	public Path getPath() {
+		
+		return this.path;
+	}
+	
+	/**
+	 * @return the size of the file in bytes when it was read
+	 * @since 2.1.0
+	 */
+	public long getSize() {
+		
+		return this.size;
+	}
+	
+	/**
+	 * @return the modification time of the file in milliseconds when it was read
+	 * @since 2.1.0
+	 */
+	public long getLastModified() {
+		
+		return this.lastModified;
+	}
+	
+	/**
+	 * @return the format of the file
+	 * @since 2.1.0
+	 */
+	public FileFormat getFileFormat() {
+		
+		return this.fileFormat;
+	}
+	
+	/**
+	 * @return the length of the audio in microseconds or {@code -1} if it is unknown
+	 * @since 2.1.0
+	 */
+	public long getDuration() {
+		
+		return this.duration;
+	}
+	
+	/**
+	 * Returns the headers with the same keys as {@link Audio#getHeaders()}. Only text, numbers and booleans are kept, embedded pictures are not.
+	 * The headers are empty if the file could not be read.
+	 * @return the headers
+	 * @since 2.1.0
+	 */
+	public Map<String, Object> getHeaders() {
+		
+		return this.headers;
+	}
+	
+	/**
+	 * @return the title from the tags of the file or {@code null} if it has none
+	 * @since 2.1.0
+	 */
+	public String getTitle() {
+		
+		return this.getTag("title", "title");
+	}
+	
+	/**
+	 * @return the artist from the tags of the file or {@code null} if it has none
+	 * @since 2.1.0
+	 */
+	public String getArtist() {
+		
+		return this.getTag("author", "artist");
+	}
+	
+	/**
+	 * @return the album from the tags of the file or {@code null} if it has none
+	 * @since 2.1.0
+	 */
+	public String getAlbum() {
+		
+		return this.getTag("album", "album");
+	}
+	
+	/**
+	 * @return the genre from the tags of the file or {@code null} if it has none
+	 * @since 2.1.0
+	 */
+	public String getGenre() {
+		
+		return this.getTag("mp3.id3tag.genre", "genre");
+	}
+	
+	@Override
+	public String toString() {
+		
+		return "LibraryEntry[" + this.path + "]";
+	}
+	
+	// MP3 tags have the keys of the MP3 SPI, Vorbis comments are prefixed with the name of the format
+	private final String getTag(String mp3Key, String comment) {
+		
+		Object value = null;
+		
+		if(this.fileFormat == FileFormat.MP3) {
+			
+			value = this.headers.get(mp3Key);
+			
+		} else if(this.fileFormat == FileFormat.OGG) {
+			
+			value = this.headers.get("ogg.comment." + comment);
+			
+		} else if(this.fileFormat == FileFormat.FLAC) {
+			
+			value = this.headers.get("flac.comment." + comment);
+		}
+		
+		return value instanceof String ? (String)value : null;
+	}
+}
@@ -0,0 +1,703 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import javax.sound.sampled.AudioFormat;
+
+import de.ralleytn.simple.audio.internal.PcmFile;
+
+/**
+ * Reads the metadata of all audio files in directories in parallel and keeps it in an index file, so that a later scan only reads the files
+ * whose size or modification time changed. Files are recognized by the extensions of the {@linkplain FileFormat}s and their headers are read
+ * with the {@linkplain HeadReader}s, so no decoder is started.
+ * <p>The index is a binary file with a table of the header keys, variable-length numbers, paths that only store what differs from the previous path
+ * and a checksum. An index that is broken or was written by another version is ignored and built again.</p>
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class LibraryScanner {
+
+	private static final int MAGIC = 0x53414C49; // SALI
+	private static final int VERSION = 2;
+	private static final int FILES_PER_TASK = 64;
+	private static final int MAX_KEYS = 1048576;
+	private static final int MAX_STRING_LENGTH = 16777216;
+	
+	private final Path indexFile;
+	private final int parallelism;
+	private Map<Path, LibraryEntry> entries;
+	private int readCount;
+	
+	/**
+	 * Initializes the {@linkplain LibraryScanner} with one thread per available processor.
+	 * @param indexFile the file in which the index is stored; it is created by the first scan
+	 * @since 2.1.0
+	 */
+	public LibraryScanner(Path indexFile) {
+		
+		this(indexFile, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * @param indexFile the file in which the index is stored; it is created by the first scan
+	 * @param parallelism the maximum number of files that are read at the same time
+	 * @since 2.1.0
+	 */
+	public LibraryScanner(Path indexFile, int parallelism) {
+		
+		if(parallelism < 1) {
+			
+			throw new IllegalArgumentException("The parallelism has to be at least 1!");
+		}
+		
+		this.indexFile = indexFile.toAbsolutePath();
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * Scans directories and all of their subdirectories and writes the index. Symbolic links to directories are not followed.
+	 * Entries of files in these directories that do not exist anymore are removed from the index; entries from other directories are kept.
+	 * Files that could not be read are kept with empty headers, so they are not read again until they change.
+	 * @param directories the directories
+	 * @return the entries of all audio files in the directories, sorted by their paths
+	 * @throws AudioException if one of the directories does not exist or the index could not be written
+	 * @since 2.1.0
+	 */
+	public synchronized List<LibraryEntry> scan(Path... directories) throws AudioException {
+		
+		List<Path> roots = new ArrayList<>();
+		
+		for(Path directory : directories) {
+			
+			Path root = directory.toAbsolutePath().normalize();
+			
+			if(!Files.isDirectory(root)) {
+				
+				throw new AudioException("Not a directory: " + root);
+			}
+			
+			roots.add(root);
+		}
+		
+		Scan scan = new Scan(this.getIndex());
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		
+		// the readers of the PCM formats are service providers which are looked up with the context class loader
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism, forkJoinPool -> {
+			
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+			thread.setContextClassLoader(classLoader);
+			thread.setDaemon(true);
+			return thread;
+			
+		}, null, false);
+		
+		try {
+			
+			List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			
+			for(Path root : roots) {
+				
+				tasks.add(pool.submit(new DirectoryTask(scan, root)));
+			}
+			
+			for(ForkJoinTask<?> task : tasks) {
+				
+				task.join();
+			}
+			
+		} finally {
+			
+			pool.shutdown();
+		}
+		
+		Map<Path, LibraryEntry> entries = new HashMap<>(this.entries);
+		entries.keySet().removeIf(path -> roots.stream().anyMatch(path::startsWith));
+		entries.putAll(scan.found);
+		this.entries = entries;
+		this.readCount = scan.read.get();
+		this.save();
+		
+		List<LibraryEntry> result = new ArrayList<>(scan.found.values());
+		result.sort(Comparator.comparing(LibraryEntry::getPath));
+		return result;
+	}
+	
+	/**
+	 * Returns all entries of the index without scanning. The index file is read on the first call.
+	 * @return the entries sorted by their paths
+	 * @since 2.1.0
+	 */
+	public synchronized List<LibraryEntry> getEntries() {
+		
+		List<LibraryEntry> result = new ArrayList<>(this.getIndex().values());
+		result.sort(Comparator.comparing(LibraryEntry::getPath));
+		return result;
+	}
+	
+	/**
+	 * @param file the file
+	 * @return the entry of the file or {@code null} if the file is not in the index
+	 * @since 2.1.0
+	 */
+	public synchronized LibraryEntry getEntry(Path file) {
+		
+		return this.getIndex().get(file.toAbsolutePath().normalize());
+	}
+	
+	/**
+	 * @return the number of files whose headers were read by the last scan, because they were new or had changed
+	 * @since 2.1.0
+	 */
+	public synchronized int getLastReadCount() {
+		
+		return this.readCount;
+	}
+	
+	/**
+	 * @return the file in which the index is stored
+	 * @since 2.1.0
+	 */
+	public Path getIndexFile() {
+		
+		return this.indexFile;
+	}
+	
+	/**
+	 * @return the maximum number of files that are read at the same time
+	 * @since 2.1.0
+	 */
+	public int getParallelism() {
+		
+		return this.parallelism;
+	}
+	
+	private Map<Path, LibraryEntry> getIndex() {
+		
+		if(this.entries == null) {
+			
+			try {
+				
+				this.entries = this.load();
+				
+			} catch(IOException | RuntimeException exception) {
+				
+				// the index is built again
+				this.entries = new HashMap<>();
+			}
+		}
+		
+		return this.entries;
+	}
+	
+	private Map<Path, LibraryEntry> load() throws IOException {
+		
+		Map<Path, LibraryEntry> entries = new HashMap<>();
+		
+		if(!Files.isRegularFile(this.indexFile)) {
+			
+			return entries;
+		}
+		
+		CRC32 checksum = new CRC32();
+		
+		try(DataInputStream input = new DataInputStream(new CheckedInputStream(new BufferedInputStream(Files.newInputStream(this.indexFile)), checksum))) {
+			
+			if(input.readInt() != MAGIC || input.readInt() != VERSION) {
+				
+				return entries;
+			}
+			
+			String[] keys = new String[LibraryScanner.readCount(input, MAX_KEYS)];
+			
+			for(int index = 0; index < keys.length; index++) {
+				
+				keys[index] = LibraryScanner.readString(input);
+			}
+			
+			long count = LibraryScanner.readVarLong(input);
+			String previous = "";
+			
+			for(long entry = 0; entry < count; entry++) {
+				
+				int common = LibraryScanner.readCount(input, previous.length());
+				String path = previous.substring(0, common) + LibraryScanner.readString(input);
+				long size = LibraryScanner.readVarLong(input);
+				long lastModified = LibraryScanner.decodeZigZag(LibraryScanner.readVarLong(input));
+				FileFormat fileFormat = LibraryScanner.getFileFormat(LibraryScanner.readString(input));
+				long duration = LibraryScanner.readVarLong(input) - 1;
+				int headerCount = LibraryScanner.readCount(input, keys.length);
+				Map<String, Object> headers = new HashMap<>();
+				
+				for(int header = 0; header < headerCount; header++) {
+					
+					String key = keys[LibraryScanner.readCount(input, keys.length - 1)];
+					int type = input.readUnsignedByte();
+					
+					switch(type) {
+						case 0: headers.put(key, LibraryScanner.readString(input)); break;
+						case 1: headers.put(key, (int)LibraryScanner.decodeZigZag(LibraryScanner.readVarLong(input))); break;
+						case 2: headers.put(key, LibraryScanner.decodeZigZag(LibraryScanner.readVarLong(input))); break;
+						case 3: headers.put(key, input.readFloat()); break;
+						case 4: headers.put(key, input.readDouble()); break;
+						case 5: headers.put(key, false); break;
+						case 6: headers.put(key, true); break;
+						default: throw new IOException("Unknown value type " + type);
+					}
+				}
+				
+				Path file = Paths.get(path);
+				entries.put(file, new LibraryEntry(file, size, lastModified, fileFormat, duration, headers));
+				previous = path;
+			}
+			
+			// a broken index is built again
+			long expected = checksum.getValue();
+			
+			if(input.readLong() != expected) {
+				
+				return new HashMap<>();
+			}
+		}
+		
+		return entries;
+	}
+	
+	private void save() throws AudioException {
+		
+		Path temp = this.indexFile.resolveSibling(this.indexFile.getFileName() + "." + Thread.currentThread().getId() + ".tmp");
+		
+		try {
+			
+			Files.createDirectories(this.indexFile.getParent());
+			List<LibraryEntry> entries = new ArrayList<>(this.entries.values());
+			entries.sort(Comparator.comparing(LibraryEntry::getPath));
+			Map<String, Integer> keys = new LinkedHashMap<>();
+			
+			for(LibraryEntry entry : entries) {
+				
+				for(String key : entry.getHeaders().keySet()) {
+					
+					keys.putIfAbsent(key, keys.size());
+				}
+			}
+			
+			CRC32 checksum = new CRC32();
+			
+			try(DataOutputStream output = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)), checksum))) {
+				
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				LibraryScanner.writeVarLong(output, keys.size());
+				
+				for(String key : keys.keySet()) {
+					
+					LibraryScanner.writeString(output, key);
+				}
+				
+				LibraryScanner.writeVarLong(output, entries.size());
+				String previous = "";
+				
+				for(LibraryEntry entry : entries) {
+					
+					// the entries are sorted, so most of a path is the same as the previous one
+					String path = entry.getPath().toString();
+					int common = 0;
+					
+					while(common < previous.length() && common < path.length() && previous.charAt(common) == path.charAt(common)) {
+						
+						common++;
+					}
+					
+					if(common > 0 && Character.isHighSurrogate(path.charAt(common - 1))) {
+						
+						common--;
+					}
+					
+					LibraryScanner.writeVarLong(output, common);
+					LibraryScanner.writeString(output, path.substring(common));
+					LibraryScanner.writeVarLong(output, entry.getSize());
+					LibraryScanner.writeVarLong(output, LibraryScanner.encodeZigZag(entry.getLastModified()));
+					// the name stays valid when formats are added or reordered
+					LibraryScanner.writeString(output, entry.getFileFormat() == null ? "" : entry.getFileFormat().name());
+					LibraryScanner.writeVarLong(output, entry.getDuration() + 1);
+					LibraryScanner.writeVarLong(output, entry.getHeaders().size());
+					
+					for(Map.Entry<String, Object> header : entry.getHeaders().entrySet()) {
+						
+						Object value = header.getValue();
+						LibraryScanner.writeVarLong(output, keys.get(header.getKey()));
+						
+						if(value instanceof String) {
+							
+							output.writeByte(0);
+							LibraryScanner.writeString(output, (String)value);
+							
+						} else if(value instanceof Integer) {
+							
+							output.writeByte(1);
+							LibraryScanner.writeVarLong(output, LibraryScanner.encodeZigZag((Integer)value));
+							
+						} else if(value instanceof Long) {
+							
+							output.writeByte(2);
+							LibraryScanner.writeVarLong(output, LibraryScanner.encodeZigZag((Long)value));
+							
+						} else if(value instanceof Float) {
+							
+							output.writeByte(3);
+							output.writeFloat((Float)value);
+							
+						} else if(value instanceof Double) {
+							
+							output.writeByte(4);
+							output.writeDouble((Double)value);
+							
+						} else {
+							
+							output.writeByte((Boolean)value ? 6 : 5);
+						}
+					}
+					
+					previous = path;
+				}
+				
+				output.writeLong(checksum.getValue());
+			}
+			
+			try {
+				
+				Files.move(temp, this.indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				
+			} catch(AtomicMoveNotSupportedException exception) {
+				
+				Files.move(temp, this.indexFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+			
+		} catch(IOException exception) {
+			
+			try {
+				
+				Files.deleteIfExists(temp);
+				
+			} catch(IOException deleteException) {}
+			
+			throw new AudioException(exception);
+		}
+	}
+	
+	private static final void writeVarLong(DataOutputStream output, long value) throws IOException {
+		
+		while((value & ~0x7FL) != 0) {
+			
+			output.writeByte((int)(value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		
+		output.writeByte((int)value);
+	}
+	
+	private static final long readVarLong(DataInputStream input) throws IOException {
+		
+		long value = 0;
+		
+		for(int shift = 0; shift < 64; shift += 7) {
+			
+			int part = input.readUnsignedByte();
+			value |= (long)(part & 0x7F) << shift;
+			
+			if((part & 0x80) == 0) {
+				
+				return value;
+			}
+		}
+		
+		throw new IOException("Invalid number");
+	}
+	
+	private static final int readCount(DataInputStream input, int maximum) throws IOException {
+		
+		long count = LibraryScanner.readVarLong(input);
+		
+		if(count < 0 || count > maximum) {
+			
+			throw new IOException("Invalid count " + count);
+		}
+		
+		return (int)count;
+	}
+	
+	private static final void writeString(DataOutputStream output, String text) throws IOException {
+		
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		LibraryScanner.writeVarLong(output, bytes.length);
+		output.write(bytes);
+	}
+	
+	private static final String readString(DataInputStream input) throws IOException {
+		
+		byte[] bytes = new byte[LibraryScanner.readCount(input, MAX_STRING_LENGTH)];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	// formats that were removed since the index was written are unknown
+	private static final FileFormat getFileFormat(String name) {
+		
+		try {
+			
+			return name.isEmpty() ? null : FileFormat.valueOf(name);
+			
+		} catch(IllegalArgumentException exception) {
+			
+			return null;
+		}
+	}
+	
+	private static final long encodeZigZag(long value) {
+		
+		return (value << 1) ^ (value >> 63);
+	}
+	
+	private static final long decodeZigZag(long value) {
+		
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	// the state of one scan that is shared by all tasks
+	private static final class Scan {
+		
+		private final Map<Path, LibraryEntry> index;
+		private final Map<Path, LibraryEntry> found = new ConcurrentHashMap<>();
+		private final AtomicInteger read = new AtomicInteger();
+		private final ThreadLocal<OggHeadReader> oggHeadReader = ThreadLocal.withInitial(OggHeadReader::new);
+		
+		Scan(Map<Path, LibraryEntry> index) {
+			
+			this.index = index;
+		}
+		
+		void process(Path file, FileFormat fileFormat) {
+			
+			try {
+				
+				BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+				
+				if(attributes.isRegularFile()) {
+					
+					long size = attributes.size();
+					long lastModified = attributes.lastModifiedTime().toMillis();
+					LibraryEntry entry = this.index.get(file);
+					
+					if(entry == null || entry.getSize() != size || entry.getLastModified() != lastModified) {
+						
+						entry = this.read(file, fileFormat, size, lastModified);
+						this.read.incrementAndGet();
+					}
+					
+					this.found.put(file, entry);
+				}
+				
+			} catch(IOException exception) {
+				
+				// the file was deleted while the directory was scanned
+			}
+		}
+		
+		private LibraryEntry read(Path file, FileFormat fileFormat, long size, long lastModified) {
+			
+			Map<String, Object> headers = new HashMap<>();
+			long duration = -1;
+			
+			try {
+				
+				URL resource = file.toUri().toURL();
+				Map<String, ?> read = null;
+				
+				switch(fileFormat) {
+					case MP3:
+						read = new Mp3HeadReader().read(resource);
+						break;
+						
+					case OGG:
+						read = this.oggHeadReader.get().read(resource);
+						break;
+						
+					case FLAC:
+						read = new FlacHeadReader().read(resource);
+						break;
+						
+					default:
+						PcmFile pcmFile = PcmFile.get(file);
+						
+						if(pcmFile != null) {
+							
+							AudioFormat format = pcmFile.getFormat();
+							duration = (long)(pcmFile.getFrameLength() * 1000000.0 / format.getFrameRate());
+						}
+						
+						break;
+				}
+				
+				if(read != null) {
+					
+					read.forEach((key, value) -> {
+						
+						// only what can be stored in the index
+						if(value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Float || value instanceof Double || value instanceof Boolean) {
+							
+							headers.put(key, value);
+						}
+					});
+					
+					Object length = read.get("duration");
+					duration = length instanceof Long ? (Long)length : -1;
+				}
+				
+			} catch(IOException | RuntimeException exception) {
+				
+				// broken files are kept without headers
+			}
+			
+			return new LibraryEntry(file, size, lastModified, fileFormat, duration, headers);
+		}
+	}
+	
+	private static final class DirectoryTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final transient Scan scan;
+		private final transient Path directory;
+		
+		DirectoryTask(Scan scan, Path directory) {
+			
+			this.scan = scan;
+			this.directory = directory;
+		}
+		
+		@Override
+		protected void compute() {
+			
+			List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			List<Path> files = new ArrayList<>();
+			List<FileFormat> fileFormats = new ArrayList<>();
+			
+			try(DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+				
+				for(Path path : stream) {
+					
+					FileFormat fileFormat = FileFormat.getFormatByName(path.getFileName().toString());
+					
+					if(Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+						
+						tasks.add(new DirectoryTask(this.scan, path));
+						
+					} else if(fileFormat != null) {
+						
+						files.add(path);
+						fileFormats.add(fileFormat);
+						
+						// big directories are also read in parallel
+						if(files.size() == FILES_PER_TASK) {
+							
+							tasks.add(new FileTask(this.scan, files, fileFormats));
+							files = new ArrayList<>();
+							fileFormats = new ArrayList<>();
+						}
+					}
+				}
+				
+			} catch(IOException | DirectoryIteratorException exception) {
+				
+				// directories that can not be read are skipped
+			}
+			
+			if(!files.isEmpty()) {
+				
+				tasks.add(new FileTask(this.scan, files, fileFormats));
+			}
+			
+			ForkJoinTask.invokeAll(tasks);
+		}
+	}
+	
+	private static final class FileTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final transient Scan scan;
+		private final transient List<Path> files;
+		private final transient List<FileFormat> fileFormats;
+		
+		FileTask(Scan scan, List<Path> files, List<FileFormat> fileFormats) {
+			
+			this.scan = scan;
+			this.files = files;
+			this.fileFormats = fileFormats;
+		}
+		
+		@Override
+		protected void compute() {
+			
+			for(int index = 0; index < this.files.size(); index++) {
+				
+				this.scan.process(this.files.get(index), this.fileFormats.get(index));
+			}
+		}
+	}
+}
@@ -0,0 +1,443 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import de.ralleytn.simple.audio.internal.IcyInputStream;
+import de.ralleytn.simple.audio.internal.JitterBuffer;
+import de.ralleytn.simple.audio.internal.Samples;
+
+/**
+ * Plays a live stream like an internet radio station. The stream has no length and is never cached, the memory use stays the same no matter how long it plays.
+ * A background thread receives and decodes the stream into a buffer that absorbs short stalls of the network; the buffer grows when it runs empty.
+ * If the connection breaks, it is established again and playback continues after the buffer filled up.
+ * Shoutcast/Icecast metadata, like the title of the current song, is reported with {@linkplain AudioEvent.Type#METADATA} events.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class LiveAudio extends StreamedAudio {
+
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+	private static final int TIMEOUT = 10000;
+	private static final long MINIMUM_DELAY = 500;
+	private static final long MAXIMUM_DELAY = 10000;
+	
+	private int minimumBuffer = 500;
+	private int maximumBuffer = 5000;
+	private volatile Map<String, String> metadata = Collections.emptyMap();
+	private volatile Map<String, String> headers = Collections.emptyMap();
+	private volatile int reconnects;
+	private Receiver receiver;
+	
+	/**
+	 * @param url the stream; the format is derived from the name and the content and defaults to MP3
+	 * @throws AudioException if something is wrong with the resource
+	 * @since 2.1.0
+	 */
+	public LiveAudio(URL url) throws AudioException {
+		
+		this(url, null);
+	}
+	
+	/**
+	 * @param uri the stream as {@linkplain URI}; the format is derived from the name and the content and defaults to MP3
+	 * @throws AudioException if something is wrong with the resource
+	 * @since 2.1.0
+	 */
+	public LiveAudio(URI uri) throws AudioException {
+		
+		this(LiveAudio.toURL(uri), null);
+	}
+	
+	/**
+	 * @param url the stream
+	 * @param fileFormat the format of the stream or {@code null} to derive it from the name and the content
+	 * @throws AudioException if something is wrong with the resource
+	 * @since 2.1.0
+	 */
+	public LiveAudio(URL url, FileFormat fileFormat) throws AudioException {
+		
+		super(url, fileFormat != null ? fileFormat : LiveAudio.guessFileFormat(url));
+	}
+	
+	/**
+	 * Sets how much audio is buffered. Takes effect the next time the audio is opened.
+	 * @param minimum milliseconds of audio that have to be received before playback starts; more are buffered after the buffer ran empty
+	 * @param maximum milliseconds of audio the buffer can hold at most
+	 * @since 2.1.0
+	 */
+	public synchronized void setBufferSize(int minimum, int maximum) {
+		
+		if(minimum <= 0 || maximum < minimum) {
+			
+			throw new IllegalArgumentException("Invalid buffer size: " + minimum + " - " + maximum);
+		}
+		
+		this.minimumBuffer = minimum;
+		this.maximumBuffer = maximum;
+	}
+	
+	/**
+	 * @return milliseconds of audio that have to be received before playback starts
+	 * @since 2.1.0
+	 */
+	public synchronized int getMinimumBufferSize() {
+		
+		return this.minimumBuffer;
+	}
+	
+	/**
+	 * @return milliseconds of audio the buffer can hold at most
+	 * @since 2.1.0
+	 */
+	public synchronized int getMaximumBufferSize() {
+		
+		return this.maximumBuffer;
+	}
+	
+	/**
+	 * @return the entries of the last metadata the stream sent, like {@code StreamTitle}; empty if there was none yet
+	 * @since 2.1.0
+	 */
+	public Map<String, String> getMetadata() {
+		
+		return this.metadata;
+	}
+	
+	/**
+	 * @return how often the connection was established again since the audio was opened
+	 * @since 2.1.0
+	 */
+	public int getReconnects() {
+		
+		return this.reconnects;
+	}
+	
+	/**
+	 * @return how often the buffer ran empty since the audio was opened
+	 * @since 2.1.0
+	 */
+	public synchronized int getUnderruns() {
+		
+		return this.receiver != null ? this.receiver.buffer.getUnderruns() : 0;
+	}
+	
+	/**
+	 * @return the {@code icy-*} headers of the server, like {@code icy-name} and {@code icy-br}
+	 */
+	@Override
+	public Map<?, ?> getHeaders() {
+		
+		return this.headers;
+	}
+	
+	@Override
+	public synchronized long getFrameLength() {
+		
+		return AudioSystem.NOT_SPECIFIED;
+	}
+	
+	@Override
+	public synchronized long getLength() {
+		
+		return AudioSystem.NOT_SPECIFIED;
+	}
+	
+	@Override
+	protected boolean hasLength() {
+		
+		return false;
+	}
+	
+	@Override
+	protected AudioInputStream createAudioInputStream() throws AudioException {
+		
+		if(this.receiver != null) {
+			
+			this.receiver.stop();
+			this.receiver = null;
+		}
+		
+		Receiver receiver = new Receiver();
+		
+		try {
+			
+			AudioInputStream audioInputStream = receiver.connect();
+			AudioFormat format = audioInputStream.getFormat();
+			int bytesPerSecond = (int)(format.getFrameRate() * format.getFrameSize());
+			receiver.format = format;
+			receiver.buffer = new JitterBuffer((int)((long)bytesPerSecond * this.maximumBuffer / 1000), (int)((long)bytesPerSecond * this.minimumBuffer / 1000), format.getFrameSize());
+			receiver.start(audioInputStream);
+			this.receiver = receiver;
+			this.reconnects = 0;
+			
+			return new AudioInputStream(new FilterInputStream(receiver.buffer) {
+				
+				@Override
+				public void close() {
+					
+					receiver.stop();
+				}
+				
+			}, format, AudioSystem.NOT_SPECIFIED);
+			
+		} catch(Exception exception) {
+			
+			receiver.stop();
+			throw exception instanceof AudioException ? (AudioException)exception : new AudioException(exception);
+		}
+	}
+	
+	private static final URL toURL(URI uri) throws AudioException {
+		
+		try {
+			
+			return uri.toURL();
+			
+		} catch(Exception exception) {
+			
+			throw new AudioException(exception);
+		}
+	}
+	
+	private static final FileFormat guessFileFormat(URL url) {
+		
+		// stream addresses often have no extension at all, the decoder checks the content anyway
+		FileFormat fileFormat = FileFormat.getFormatByName(url.getPath());
+		return fileFormat != null ? fileFormat : FileFormat.MP3;
+	}
+	
+	private final void updateMetadata(Map<String, String> metadata, Receiver receiver) {
+		
+		if(!receiver.stopped && !metadata.equals(this.metadata)) {
+			
+			Map<String, String> oldVal = this.metadata;
+			this.metadata = metadata;
+			this.trigger(AudioEvent.Type.METADATA, oldVal, metadata);
+		}
+	}
+	
+	private final class Receiver implements Runnable {
+		
+		private volatile boolean stopped;
+		private volatile InputStream network;
+		private JitterBuffer buffer;
+		private AudioFormat format;
+		private AudioInputStream first;
+		private Thread thread;
+		
+		private final AudioInputStream connect() throws IOException, AudioException {
+			
+			URLConnection connection = LiveAudio.this.resource.openConnection();
+			connection.setConnectTimeout(LiveAudio.TIMEOUT);
+			connection.setReadTimeout(LiveAudio.TIMEOUT);
+			
+			if(connection instanceof HttpURLConnection) {
+				
+				connection.setRequestProperty("Icy-MetaData", "1");
+			}
+			
+			InputStream inputStream = connection.getInputStream();
+			this.network = inputStream;
+			
+			if(this.stopped) {
+				
+				inputStream.close();
+				throw new IOException("Stopped");
+			}
+			
+			Map<String, String> headers = new LinkedHashMap<>();
+			
+			for(Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+				
+				if(header.getKey() != null && header.getKey().toLowerCase().startsWith("icy-") && !header.getValue().isEmpty()) {
+					
+					headers.put(header.getKey().toLowerCase(), header.getValue().get(0));
+				}
+			}
+			
+			LiveAudio.this.headers = Collections.unmodifiableMap(headers);
+			int interval = connection.getHeaderFieldInt("icy-metaint", 0);
+			
+			if(interval > 0) {
+				
+				inputStream = new IcyInputStream(inputStream, interval, metadata -> LiveAudio.this.updateMetadata(metadata, this));
+			}
+			
+			try {
+				
+				return Samples.toSupportedFormat(AbstractAudio.getAudioInputStream(inputStream, LiveAudio.this.fileFormat));
+				
+			} catch(AudioException exception) {
+				
+				inputStream.close();
+				throw exception;
+			}
+		}
+		
+		private final void start(AudioInputStream audioInputStream) {
+			
+			this.first = audioInputStream;
+			this.thread = new Thread(this, "SimpleAudio-Live-" + LiveAudio.THREAD_COUNTER.incrementAndGet());
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+		
+		private final void stop() {
+			
+			this.stopped = true;
+			
+			if(this.buffer != null) {
+				
+				this.buffer.close();
+			}
+			
+			// closing the connection is the only way to end a blocking read on a socket
+			InputStream network = this.network;
+			
+			if(network != null) {
+				
+				try {
+					
+					network.close();
+					
+				} catch(IOException exception) {}
+			}
+			
+			if(this.thread != null) {
+				
+				this.thread.interrupt();
+			}
+		}
+		
+		@Override
+		public void run() {
+			
+			AudioInputStream audioInputStream = this.first;
+			this.first = null;
+			int frameSize = this.format.getFrameSize();
+			byte[] chunk = new byte[Math.max(frameSize, 4096 - 4096 % frameSize)];
+			long delay = LiveAudio.MINIMUM_DELAY;
+			
+			while(!this.stopped) {
+				
+				boolean received = false;
+				
+				try {
+					
+					if(audioInputStream == null) {
+						
+						audioInputStream = this.connect();
+						LiveAudio.this.reconnects++;
+					}
+					
+					// a station may change its format between two connections
+					audioInputStream = Samples.convert(audioInputStream, this.format);
+					int filled = 0;
+					int read = 0;
+					
+					while(!this.stopped && (read = audioInputStream.read(chunk, filled, chunk.length - filled)) != -1) {
+						
+						filled += read;
+						int whole = filled - filled % frameSize;
+						
+						// only whole frames go into the buffer so that a broken connection can not shift the samples
+						if(whole > 0) {
+							
+							if(!this.buffer.write(chunk, 0, whole)) {
+								
+								break;
+							}
+							
+							System.arraycopy(chunk, whole, chunk, 0, filled - whole);
+							filled -= whole;
+							received = true;
+						}
+					}
+					
+				} catch(Exception exception) {
+					
+					if(!this.stopped) {
+						
+						exception.printStackTrace();
+					}
+					
+				} finally {
+					
+					if(audioInputStream != null) {
+						
+						try {
+							
+							audioInputStream.close();
+							
+						} catch(IOException exception) {}
+						
+						audioInputStream = null;
+					}
+				}
+				
+				// every attempt waits at least the minimum delay, so a server that drops each connection right after the first data is not flooded;
+				// the delay only grows while the attempts fail
+				if(received) {
+					
+					delay = LiveAudio.MINIMUM_DELAY;
+				}
+				
+				if(!this.stopped) {
+					
+					try {
+						
+						Thread.sleep(delay);
+						
+					} catch(InterruptedException exception) {
+						
+						break;
+					}
+					
+					if(!received) {
+						
+						delay = Math.min(LiveAudio.MAXIMUM_DELAY, delay * 2);
+					}
+				}
+			}
+		}
+	}
+}
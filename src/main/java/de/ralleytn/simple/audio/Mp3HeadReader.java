@@ -0,0 +1,962 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the head informations and the ID3v1, ID3v2.2, ID3v2.3, ID3v2.4 and APEv2 tags of an MP3 file without starting a decoder.
+ * Local files are read with positioned reads of the first and the last few KiB; other resources are read from the beginning and their trailing tags are ignored.
+ * The keys are the same as the ones of the MP3 SPI, so {@code mp3.*} for the first frame, {@code title}, {@code author}, {@code album}, {@code date}, {@code comment}
+ * and {@code copyright} for the most common tags and {@code mp3.id3tag.*} for the others. APE items are also available as {@code mp3.ape.<key>}.
+ * Embedded pictures are returned as a {@linkplain List} of {@linkplain EmbeddedPicture}s with the key {@code mp3.pictures} and are only read when their data is requested.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class Mp3HeadReader implements HeadReader {
+
+	private static final int[][][] BITRATES = {
+		{ // MPEG 1
+			{0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+			{0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+			{0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320}
+		},
+		{ // MPEG 2 and 2.5
+			{0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+			{0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+			{0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+		}
+	};
+	
+	private static final int[][] SAMPLE_RATES = {
+		{11025, 12000, 8000},
+		{0, 0, 0},
+		{22050, 24000, 16000},
+		{44100, 48000, 32000}
+	};
+	
+	private static final String[] GENRES = {
+		"Blues", "Classic Rock", "Country", "Dance", "Disco", "Funk", "Grunge", "Hip-Hop", "Jazz", "Metal",
+		"New Age", "Oldies", "Other", "Pop", "R&B", "Rap", "Reggae", "Rock", "Techno", "Industrial",
+		"Alternative", "Ska", "Death Metal", "Pranks", "Soundtrack", "Euro-Techno", "Ambient", "Trip-Hop", "Vocal", "Jazz+Funk",
+		"Fusion", "Trance", "Classical", "Instrumental", "Acid", "House", "Game", "Sound Clip", "Gospel", "Noise",
+		"AlternRock", "Bass", "Soul", "Punk", "Space", "Meditative", "Instrumental Pop", "Instrumental Rock", "Ethnic", "Gothic",
+		"Darkwave", "Techno-Industrial", "Electronic", "Pop-Folk", "Eurodance", "Dream", "Southern Rock", "Comedy", "Cult", "Gangsta",
+		"Top 40", "Christian Rap", "Pop/Funk", "Jungle", "Native American", "Cabaret", "New Wave", "Psychadelic", "Rave", "Showtunes",
+		"Trailer", "Lo-Fi", "Tribal", "Acid Punk", "Acid Jazz", "Polka", "Retro", "Musical", "Rock & Roll", "Hard Rock",
+		"Folk", "Folk-Rock", "National Folk", "Swing", "Fast Fusion", "Bebob", "Latin", "Revival", "Celtic", "Bluegrass",
+		"Avantgarde", "Gothic Rock", "Progressive Rock", "Psychedelic Rock", "Symphonic Rock", "Slow Rock", "Big Band", "Chorus", "Easy Listening", "Acoustic",
+		"Humour", "Speech", "Chanson", "Opera", "Chamber Music", "Sonata", "Symphony", "Booty Bass", "Primus", "Porn Groove",
+		"Satire", "Slow Jam", "Club", "Tango", "Samba", "Folklore", "Ballad", "Power Ballad", "Rhythmic Soul", "Freestyle",
+		"Duet", "Punk Rock", "Drum Solo", "A capella", "Euro-House", "Dance Hall", "Goa", "Drum & Bass", "Club-House", "Hardcore",
+		"Terror", "Indie", "BritPop", "Afro-Punk", "Polsk Punk", "Beat", "Christian Gangsta Rap", "Heavy Metal", "Black Metal", "Crossover",
+		"Contemporary Christian", "Christian Rock", "Merengue", "Salsa", "Thrash Metal", "Anime", "JPop", "Synthpop"
+	};
+	
+	private static final Map<String, String> FRAMES = new HashMap<>();
+	private static final Map<String, String> APE_ITEMS = new HashMap<>();
+	
+	static {
+		
+		Mp3HeadReader.frame("title", "TT2", "TIT2");
+		Mp3HeadReader.frame("author", "TP1", "TPE1");
+		Mp3HeadReader.frame("album", "TAL", "TALB");
+		Mp3HeadReader.frame("date", "TYE", "TYER", "TDRC");
+		Mp3HeadReader.frame("copyright", "TCR", "TCOP");
+		Mp3HeadReader.frame("mp3.id3tag.genre", "TCO", "TCON");
+		Mp3HeadReader.frame("mp3.id3tag.track", "TRK", "TRCK");
+		Mp3HeadReader.frame("mp3.id3tag.disc", "TPA", "TPOS");
+		Mp3HeadReader.frame("mp3.id3tag.composer", "TCM", "TCOM");
+		Mp3HeadReader.frame("mp3.id3tag.grouping", "TT1", "TIT1");
+		Mp3HeadReader.frame("mp3.id3tag.encoded", "TEN", "TENC");
+		Mp3HeadReader.frame("mp3.id3tag.orchestra", "TP2", "TPE2");
+		Mp3HeadReader.frame("mp3.id3tag.publisher", "TPB", "TPUB");
+		Mp3HeadReader.frame("mp3.id3tag.length", "TLE", "TLEN");
+		
+		Mp3HeadReader.APE_ITEMS.put("title", "title");
+		Mp3HeadReader.APE_ITEMS.put("artist", "author");
+		Mp3HeadReader.APE_ITEMS.put("album", "album");
+		Mp3HeadReader.APE_ITEMS.put("year", "date");
+		Mp3HeadReader.APE_ITEMS.put("comment", "comment");
+		Mp3HeadReader.APE_ITEMS.put("copyright", "copyright");
+		Mp3HeadReader.APE_ITEMS.put("genre", "mp3.id3tag.genre");
+		Mp3HeadReader.APE_ITEMS.put("track", "mp3.id3tag.track");
+		Mp3HeadReader.APE_ITEMS.put("disc", "mp3.id3tag.disc");
+		Mp3HeadReader.APE_ITEMS.put("composer", "mp3.id3tag.composer");
+		Mp3HeadReader.APE_ITEMS.put("publisher", "mp3.id3tag.publisher");
+	}
+	
+	private static final int MAX_SYNC = 65536;
+	private static final int MAX_TEXT_LENGTH = 65536;
+	private static final int MAX_PICTURE_HEADER = 2048;
+	private static final int MAX_UNSYNCHRONIZED_TAG = 16777216;
+	private static final int MAX_APE_ITEMS = 1024;
+	
+	@Override
+	public Map<String, ?> read(URL resource) throws IOException {
+		
+		Path path = null;
+		
+		if("file".equals(resource.getProtocol())) {
+			
+			try {
+				
+				path = Paths.get(resource.toURI());
+				
+			} catch(URISyntaxException | IllegalArgumentException exception) {
+				
+				// not a valid path, the URL handler may still know what to do
+			}
+		}
+		
+		// pictures are read later and have to know whether the resource was changed in the meantime
+		long[] stat = AbstractAudio.stat(resource);
+		
+		try(Source source = path != null ? new Source(FileChannel.open(path, StandardOpenOption.READ)) : new Source(resource.openStream())) {
+			
+			Map<String, Object> headers = new HashMap<>();
+			List<EmbeddedPicture> pictures = new ArrayList<>();
+			long start = this.readId3v2(source, resource, stat, headers, pictures);
+			long end = source.size;
+			
+			if(end >= 0) {
+				
+				Map<String, Object> id3v1 = new HashMap<>();
+				end = this.readId3v1(source, end, id3v1);
+				end = this.readApe(source, resource, stat, end, headers, pictures);
+				id3v1.forEach(headers::putIfAbsent);
+			}
+			
+			if(!pictures.isEmpty()) {
+				
+				headers.put("mp3.pictures", Collections.unmodifiableList(pictures));
+			}
+			
+			this.readFrameHeader(source, start, end, headers);
+			return headers;
+		}
+	}
+	
+	private final long readId3v2(Source source, URL resource, long[] stat, Map<String, Object> headers, List<EmbeddedPicture> pictures) throws IOException {
+		
+		ByteBuffer header = source.read(0, 10);
+		
+		if(header.remaining() < 10 || header.get(0) != 'I' || header.get(1) != 'D' || header.get(2) != '3') {
+			
+			return 0;
+		}
+		
+		int version = header.get(3);
+		int flags = header.get(5);
+		int size = Mp3HeadReader.getSynchsafeInteger(header, 6);
+		
+		if(size < 0) {
+			
+			return 0;
+		}
+		
+		long tagEnd = 10L + size;
+		long end = tagEnd + ((flags & 0x10) != 0 ? 10 : 0);
+		
+		// ID3v2.2 only knows a compression that was never defined
+		if(version < 2 || version > 4 || (version == 2 && (flags & 0x40) != 0)) {
+			
+			return end;
+		}
+		
+		headers.put("mp3.id3tag.v2.version", String.valueOf(version));
+		boolean unsynchronized = (flags & 0x80) != 0;
+		int headerSize = version == 2 ? 6 : 10;
+		long position = 10;
+		Source frames = source;
+		int unsynchronizedSize = -1;
+		
+		// before ID3v2.4 the whole tag is unsynchronized, frame headers included, so it is restored in the memory before the frames are walked
+		if(unsynchronized && version < 4) {
+			
+			if(size > Mp3HeadReader.MAX_UNSYNCHRONIZED_TAG) {
+				
+				return end;
+			}
+			
+			byte[] tag = EmbeddedPicture.removeUnsynchronization(source.readBytes(10, size, false));
+			byte[] data = new byte[10 + tag.length];
+			System.arraycopy(tag, 0, data, 10, tag.length);
+			frames = new Source(data);
+			tagEnd = data.length;
+			unsynchronized = false;
+			unsynchronizedSize = size;
+		}
+		
+		if(version > 2 && (flags & 0x40) != 0) {
+			
+			ByteBuffer extended = frames.read(10, 4);
+			
+			if(extended.remaining() < 4) {
+				
+				return end;
+			}
+			
+			position += version == 3 ? extended.getInt(0) + 4L : Mp3HeadReader.getSynchsafeInteger(extended, 0);
+		}
+		
+		while(position + headerSize <= tagEnd) {
+			
+			ByteBuffer frame = frames.read(position, headerSize);
+			
+			// the rest of the tag is padding
+			if(frame.remaining() < headerSize || frame.get(0) == 0) {
+				
+				break;
+			}
+			
+			String id = Mp3HeadReader.getAscii(frame, 0, version == 2 ? 3 : 4);
+			int frameSize = version == 2 ? ((frame.get(3) & 0xFF) << 16) | ((frame.get(4) & 0xFF) << 8) | (frame.get(5) & 0xFF) : version == 3 ? frame.getInt(4) : Mp3HeadReader.getSynchsafeInteger(frame, 4);
+			int frameFlags = version == 2 ? 0 : frame.getShort(8) & 0xFFFF;
+			long body = position + headerSize;
+			
+			if(frameSize < 0 || body + frameSize > tagEnd) {
+				
+				break;
+			}
+			
+			position = body + frameSize;
+			boolean frameUnsynchronized = unsynchronized;
+			int skip = 0;
+			
+			if(version == 3) {
+				
+				// compressed or encrypted frames are ignored
+				if((frameFlags & 0x00C0) != 0) {
+					
+					continue;
+				}
+				
+				skip += (frameFlags & 0x0020) != 0 ? 1 : 0;
+				
+			} else if(version == 4) {
+				
+				if((frameFlags & 0x000C) != 0) {
+					
+					continue;
+				}
+				
+				skip += (frameFlags & 0x0040) != 0 ? 1 : 0;
+				skip += (frameFlags & 0x0001) != 0 ? 4 : 0;
+				frameUnsynchronized |= (frameFlags & 0x0002) != 0;
+			}
+			
+			if(skip < frameSize) {
+				
+				this.readFrame(frames, resource, stat, unsynchronizedSize, id, body + skip, frameSize - skip, frameUnsynchronized, headers, pictures);
+			}
+		}
+		
+		return end;
+	}
+	
+	// a tag size of -1 means that the positions are those in the resource, else they are those in the restored tag that was unsynchronized as a whole
+	private final void readFrame(Source source, URL resource, long[] stat, int tagSize, String id, long position, int length, boolean unsynchronized, Map<String, Object> headers, List<EmbeddedPicture> pictures) throws IOException {
+		
+		if("APIC".equals(id) || "PIC".equals(id)) {
+			
+			byte[] data = source.readBytes(position, Math.min(length, Mp3HeadReader.MAX_PICTURE_HEADER), unsynchronized);
+			
+			if(data.length < 2) {
+				
+				return;
+			}
+			
+			int encoding = data[0];
+			String mimeType;
+			int index;
+			
+			if("PIC".equals(id)) {
+				
+				if(data.length < 5) {
+					
+					return;
+				}
+				
+				String format = new String(data, 1, 3, StandardCharsets.ISO_8859_1).trim().toLowerCase(Locale.ROOT);
+				mimeType = "jpg".equals(format) ? "image/jpeg" : "image/" + format;
+				index = 4;
+				
+			} else {
+				
+				int end = Mp3HeadReader.findTerminator(data, 1, 0);
+				
+				if(end == -1) {
+					
+					return;
+				}
+				
+				mimeType = new String(data, 1, end - 1, StandardCharsets.ISO_8859_1);
+				mimeType = mimeType.isEmpty() ? null : mimeType.indexOf('/') == -1 ? "image/" + mimeType.toLowerCase(Locale.ROOT) : mimeType;
+				index = end + 1;
+			}
+			
+			if(index >= data.length) {
+				
+				return;
+			}
+			
+			int type = data[index++] & 0xFF;
+			int end = Mp3HeadReader.findTerminator(data, index, encoding);
+			
+			// a description that long is broken
+			if(end == -1) {
+				
+				return;
+			}
+			
+			String description = Mp3HeadReader.decode(data, index, end - index, encoding);
+			int offset = end + (encoding == 1 || encoding == 2 ? 2 : 1);
+			
+			if(tagSize >= 0) {
+				
+				pictures.add(new EmbeddedPicture(resource, stat, 10, tagSize, true, (int)(position - 10) + offset, length - offset, mimeType, type, description));
+				
+			} else if(unsynchronized) {
+				
+				pictures.add(new EmbeddedPicture(resource, stat, position, length, true, offset, -1, mimeType, type, description));
+				
+			} else {
+				
+				pictures.add(new EmbeddedPicture(resource, stat, position + offset, length - offset, false, 0, length - offset, mimeType, type, description));
+			}
+			
+		} else if(length <= Mp3HeadReader.MAX_TEXT_LENGTH) {
+			
+			if("COMM".equals(id) || "COM".equals(id)) {
+				
+				byte[] data = source.readBytes(position, length, unsynchronized);
+				
+				if(data.length > 4) {
+					
+					int end = Mp3HeadReader.findTerminator(data, 4, data[0]);
+					
+					if(end != -1) {
+						
+						int start = end + (data[0] == 1 || data[0] == 2 ? 2 : 1);
+						headers.putIfAbsent("comment", Mp3HeadReader.decode(data, start, data.length - start, data[0]));
+					}
+				}
+				
+			} else {
+				
+				String key = Mp3HeadReader.FRAMES.get(id);
+				
+				if(key != null && !headers.containsKey(key)) {
+					
+					byte[] data = source.readBytes(position, length, unsynchronized);
+					
+					if(data.length > 1) {
+						
+						String text = Mp3HeadReader.decode(data, 1, data.length - 1, data[0]);
+						headers.put(key, "mp3.id3tag.genre".equals(key) ? Mp3HeadReader.getGenre(text) : text);
+					}
+				}
+			}
+		}
+	}
+	
+	private final long readId3v1(Source source, long end, Map<String, Object> headers) throws IOException {
+		
+		if(end < 128) {
+			
+			return end;
+		}
+		
+		ByteBuffer tag = source.read(end - 128, 128);
+		
+		if(tag.remaining() < 128 || tag.get(0) != 'T' || tag.get(1) != 'A' || tag.get(2) != 'G') {
+			
+			return end;
+		}
+		
+		byte[] data = new byte[128];
+		tag.get(data);
+		Mp3HeadReader.putText(headers, "title", data, 3, 30);
+		Mp3HeadReader.putText(headers, "author", data, 33, 30);
+		Mp3HeadReader.putText(headers, "album", data, 63, 30);
+		Mp3HeadReader.putText(headers, "date", data, 93, 4);
+		
+		// ID3v1.1 uses the last two bytes of the comment for the track
+		if(data[125] == 0 && data[126] != 0) {
+			
+			Mp3HeadReader.putText(headers, "comment", data, 97, 28);
+			headers.put("mp3.id3tag.track", String.valueOf(data[126] & 0xFF));
+			
+		} else {
+			
+			Mp3HeadReader.putText(headers, "comment", data, 97, 30);
+		}
+		
+		int genre = data[127] & 0xFF;
+		
+		if(genre < Mp3HeadReader.GENRES.length) {
+			
+			headers.put("mp3.id3tag.genre", Mp3HeadReader.GENRES[genre]);
+		}
+		
+		return end - 128;
+	}
+	
+	private final long readApe(Source source, URL resource, long[] stat, long end, Map<String, Object> headers, List<EmbeddedPicture> pictures) throws IOException {
+		
+		if(end < 32) {
+			
+			return end;
+		}
+		
+		ByteBuffer footer = source.read(end - 32, 32).order(ByteOrder.LITTLE_ENDIAN);
+		
+		if(footer.remaining() < 32 || !"APETAGEX".equals(Mp3HeadReader.getAscii(footer, 0, 8))) {
+			
+			return end;
+		}
+		
+		int size = footer.getInt(12);
+		int count = footer.getInt(16);
+		int flags = footer.getInt(20);
+		
+		if(size < 32 || size > end) {
+			
+			return end;
+		}
+		
+		long itemsEnd = end - 32;
+		long position = end - size;
+		
+		for(int item = 0; item < Math.min(count, Mp3HeadReader.MAX_APE_ITEMS) && position + 9 < itemsEnd; item++) {
+			
+			ByteBuffer data = source.read(position, (int)Math.min(265, itemsEnd - position)).order(ByteOrder.LITTLE_ENDIAN);
+			int valueLength = data.getInt(0);
+			int itemFlags = data.getInt(4);
+			int keyEnd = 8;
+			
+			while(keyEnd < data.remaining() && data.get(keyEnd) != 0) {
+				
+				keyEnd++;
+			}
+			
+			if(keyEnd == data.remaining()) {
+				
+				break;
+			}
+			
+			String key = Mp3HeadReader.getAscii(data, 8, keyEnd - 8).toLowerCase(Locale.ROOT);
+			long value = position + keyEnd + 1;
+			
+			if(valueLength < 0 || value + valueLength > itemsEnd) {
+				
+				break;
+			}
+			
+			position = value + valueLength;
+			int kind = (itemFlags >> 1) & 0b11;
+			
+			if(kind == 0 && valueLength <= Mp3HeadReader.MAX_TEXT_LENGTH) {
+				
+				String text = new String(source.readBytes(value, valueLength, false), StandardCharsets.UTF_8).replace("\0", "; ");
+				headers.put("mp3.ape." + key, text);
+				String standardKey = Mp3HeadReader.APE_ITEMS.get(key);
+				
+				if(standardKey != null) {
+					
+					headers.putIfAbsent(standardKey, text);
+				}
+				
+			} else if(kind == 1 && key.startsWith("cover art")) {
+				
+				// the image data follows the file name
+				byte[] name = source.readBytes(value, Math.min(valueLength, Mp3HeadReader.MAX_PICTURE_HEADER), false);
+				int nameEnd = Mp3HeadReader.findTerminator(name, 0, 0);
+				
+				if(nameEnd != -1) {
+					
+					String description = new String(name, 0, nameEnd, StandardCharsets.UTF_8);
+					String lowerCase = description.toLowerCase(Locale.ROOT);
+					String mimeType = lowerCase.endsWith(".png") ? "image/png" : lowerCase.endsWith(".jpg") || lowerCase.endsWith(".jpeg") ? "image/jpeg" : null;
+					int type = key.contains("front") ? EmbeddedPicture.TYPE_FRONT_COVER : key.contains("back") ? EmbeddedPicture.TYPE_BACK_COVER : 0;
+					pictures.add(new EmbeddedPicture(resource, stat, value + nameEnd + 1, valueLength - nameEnd - 1, false, 0, valueLength - nameEnd - 1, mimeType, type, description));
+				}
+			}
+		}
+		
+		// bit 31 says that there is also a header in front of the items
+		return end - size - (flags < 0 ? 32 : 0);
+	}
+	
+	private final void readFrameHeader(Source source, long start, long end, Map<String, Object> headers) throws IOException {
+		
+		long position = start;
+		
+		search: while(position < start + Mp3HeadReader.MAX_SYNC) {
+			
+			ByteBuffer data = source.read(position, 4096);
+			
+			if(data.remaining() < 4) {
+				
+				break;
+			}
+			
+			for(int index = 0; index + 4 <= data.remaining(); index++) {
+				
+				int header = data.getInt(index);
+				int frameLength = Mp3HeadReader.getFrameLength(header);
+				
+				if(frameLength > 0) {
+					
+					long candidate = position + index;
+					
+					// the next frame has to follow, unless the file ends
+					ByteBuffer frame = source.read(candidate, frameLength + 4);
+					
+					if(frame.remaining() < frameLength + 4 || ((frame.getInt(frameLength) & 0xFFFE0C00) == (header & 0xFFFE0C00) && Mp3HeadReader.getFrameLength(frame.getInt(frameLength)) > 0)) {
+						
+						this.putFrameHeader(frame, candidate, end, source.size, headers);
+						return;
+					}
+					
+					position = candidate + 1;
+					continue search;
+				}
+			}
+			
+			position += data.remaining() - 3;
+		}
+		
+		throw new IOException("No MPEG audio frame found");
+	}
+	
+	private final void putFrameHeader(ByteBuffer frame, long position, long end, long size, Map<String, Object> headers) {
+		
+		int header = frame.getInt(0);
+		int version = (header >> 19) & 0b11;
+		int layer = 4 - ((header >> 17) & 0b11);
+		boolean crc = ((header >> 16) & 0b1) == 0;
+		int bitrate = Mp3HeadReader.BITRATES[version == 3 ? 0 : 1][layer - 1][(header >> 12) & 0b1111] * 1000;
+		int sampleRate = Mp3HeadReader.SAMPLE_RATES[version][(header >> 10) & 0b11];
+		boolean padding = ((header >> 9) & 0b1) == 1;
+		int mode = (header >> 6) & 0b11;
+		int samples = layer == 1 ? 384 : layer == 3 && version != 3 ? 576 : 1152;
+		int frameLength = Mp3HeadReader.getFrameLength(header);
+		String mpeg = version == 3 ? "1" : version == 2 ? "2" : "2.5";
+		
+		// a Xing or Info header in the first frame tells the number of frames of VBR files
+		int xing = 4 + (layer != 3 ? 0 : version == 3 ? (mode == 3 ? 17 : 32) : (mode == 3 ? 9 : 17));
+		boolean vbr = false;
+		int vbrFrames = -1;
+		int vbrBytes = -1;
+		int vbrScale = 0;
+		
+		if(frame.remaining() >= xing + 8) {
+			
+			String tag = Mp3HeadReader.getAscii(frame, xing, 4);
+			
+			if("Xing".equals(tag) || "Info".equals(tag)) {
+				
+				vbr = true;
+				int flags = frame.getInt(xing + 4);
+				int index = xing + 8;
+				
+				if((flags & 0x1) != 0 && index + 4 <= frame.remaining()) {
+					
+					vbrFrames = frame.getInt(index);
+					index += 4;
+				}
+				
+				if((flags & 0x2) != 0 && index + 4 <= frame.remaining()) {
+					
+					vbrBytes = frame.getInt(index);
+					index += 4;
+				}
+				
+				index += (flags & 0x4) != 0 ? 100 : 0;
+				
+				if((flags & 0x8) != 0 && index + 4 <= frame.remaining()) {
+					
+					vbrScale = frame.getInt(index);
+				}
+				
+			} else if(frame.remaining() >= 36 + 18 && "VBRI".equals(Mp3HeadReader.getAscii(frame, 36, 4))) {
+				
+				vbr = true;
+				vbrScale = frame.getShort(36 + 8) & 0xFFFF;
+				vbrBytes = frame.getInt(36 + 10);
+				vbrFrames = frame.getInt(36 + 14);
+			}
+		}
+		
+		double secondsPerFrame = samples / (double)sampleRate;
+		long frames = vbr && vbrFrames > 0 ? vbrFrames : (end - position) / (frameLength - (padding ? layer == 1 ? 4 : 1 : 0));
+		
+		if(vbr && vbrFrames > 0 && vbrBytes > 0) {
+			
+			bitrate = (int)(vbrBytes * 8.0 / (secondsPerFrame * 1000 * vbrFrames)) * 1000;
+		}
+		
+		headers.put("mp3.version.mpeg", mpeg);
+		headers.put("mp3.version.layer", String.valueOf(layer));
+		headers.put("mp3.version.encoding", "MPEG" + mpeg.replace(".", "DOT") + "L" + layer);
+		headers.put("mp3.header.pos", (int)position);
+		headers.put("mp3.crc", crc);
+		headers.put("mp3.bitrate.nominal.bps", bitrate);
+		headers.put("mp3.frequency.hz", sampleRate);
+		headers.put("mp3.padding", padding);
+		headers.put("mp3.mode", mode);
+		headers.put("mp3.channels", mode == 3 ? 1 : 2);
+		headers.put("mp3.copyright", ((header >> 3) & 0b1) == 1);
+		headers.put("mp3.original", ((header >> 2) & 0b1) == 1);
+		headers.put("mp3.framesize.bytes", frameLength - 4);
+		headers.put("mp3.framerate.fps", (float)(sampleRate / (double)samples));
+		headers.put("mp3.vbr", vbr);
+		headers.put("mp3.vbr.scale", vbrScale);
+		
+		if(size >= 0) {
+			
+			headers.put("mp3.length.bytes", (int)Math.min(size, Integer.MAX_VALUE));
+			headers.put("mp3.length.frames", (int)Math.min(frames, Integer.MAX_VALUE));
+			headers.put("duration", Math.round(frames * secondsPerFrame * 1000) * 1000L);
+		}
+	}
+	
+	// returns the length of the whole frame or 0 if the header is not valid
+	private static final int getFrameLength(int header) {
+		
+		int version = (header >> 19) & 0b11;
+		int layer = 4 - ((header >> 17) & 0b11);
+		int bitrateIndex = (header >> 12) & 0b1111;
+		int sampleRateIndex = (header >> 10) & 0b11;
+		
+		if((header & 0xFFE00000) != 0xFFE00000 || version == 1 || layer == 4 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3 || (header & 0b11) == 2) {
+			
+			return 0;
+		}
+		
+		int bitrate = Mp3HeadReader.BITRATES[version == 3 ? 0 : 1][layer - 1][bitrateIndex] * 1000;
+		int sampleRate = Mp3HeadReader.SAMPLE_RATES[version][sampleRateIndex];
+		int padding = (header >> 9) & 0b1;
+		
+		if(layer == 1) {
+			
+			return (12 * bitrate / sampleRate + padding) * 4;
+		}
+		
+		return (layer == 3 && version != 3 ? 72 : 144) * bitrate / sampleRate + padding;
+	}
+	
+	private static final void frame(String key, String... ids) {
+		
+		for(String id : ids) {
+			
+			Mp3HeadReader.FRAMES.put(id, key);
+		}
+	}
+	
+	private static final String getGenre(String genre) {
+		
+		// ID3v2.3 refers to the ID3v1 genres like "(17)" or "(17)Rock", ID3v2.4 with the number alone
+		String number = genre;
+		String refinement = "";
+		
+		if(genre.startsWith("(") && genre.indexOf(')') > 1) {
+			
+			number = genre.substring(1, genre.indexOf(')'));
+			refinement = genre.substring(genre.indexOf(')') + 1);
+		}
+		
+		if(!refinement.isEmpty()) {
+			
+			return refinement;
+		}
+		
+		if("RX".equals(number)) {
+			
+			return "Remix";
+			
+		} else if("CR".equals(number)) {
+			
+			return "Cover";
+		}
+		
+		try {
+			
+			int index = Integer.parseInt(number);
+			return index >= 0 && index < Mp3HeadReader.GENRES.length ? Mp3HeadReader.GENRES[index] : genre;
+			
+		} catch(NumberFormatException exception) {
+			
+			return genre;
+		}
+	}
+	
+	private static final void putText(Map<String, Object> headers, String key, byte[] data, int offset, int length) {
+		
+		String text = new String(data, offset, length, StandardCharsets.ISO_8859_1);
+		int end = text.indexOf('\0');
+		text = (end == -1 ? text : text.substring(0, end)).trim();
+		
+		if(!text.isEmpty()) {
+			
+			headers.put(key, text);
+		}
+	}
+	
+	// finds the end of a string with the given ID3v2 text encoding
+	private static final int findTerminator(byte[] data, int offset, int encoding) {
+		
+		if(encoding == 1 || encoding == 2) {
+			
+			for(int index = offset; index + 1 < data.length; index += 2) {
+				
+				if(data[index] == 0 && data[index + 1] == 0) {
+					
+					return index;
+				}
+			}
+			
+			return -1;
+		}
+		
+		for(int index = offset; index < data.length; index++) {
+			
+			if(data[index] == 0) {
+				
+				return index;
+			}
+		}
+		
+		return -1;
+	}
+	
+	private static final String decode(byte[] data, int offset, int length, int encoding) {
+		
+		Charset charset = encoding == 1 ? StandardCharsets.UTF_16 : encoding == 2 ? StandardCharsets.UTF_16BE : encoding == 3 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+		String text = new String(data, offset, Math.max(0, length), charset).replace("\uFEFF", "");
+		int end = text.length();
+		
+		while(end > 0 && text.charAt(end - 1) == '\0') {
+			
+			end--;
+		}
+		
+		// ID3v2.4 separates multiple values with a zero
+		return text.substring(0, end).replace("\0", "; ");
+	}
+	
+	private static final String getAscii(ByteBuffer buffer, int offset, int length) {
+		
+		char[] characters = new char[length];
+		
+		for(int index = 0; index < length; index++) {
+			
+			characters[index] = (char)(buffer.get(offset + index) & 0xFF);
+		}
+		
+		return new String(characters);
+	}
+	
+	private static final int getSynchsafeInteger(ByteBuffer buffer, int offset) {
+		
+		int value = 0;
+		
+		for(int index = 0; index < 4; index++) {
+			
+			int part = buffer.get(offset + index) & 0xFF;
+			
+			if(part > 0x7F) {
+				
+				return -1;
+			}
+			
+			value = (value << 7) | part;
+		}
+		
+		return value;
+	}
+	
+	// reads blocks of a file with positioned reads or of a stream that can only go forward
+	private static final class Source implements Closeable {
+		
+		private final FileChannel channel;
+		private final InputStream inputStream;
+		private final long size;
+		private ByteBuffer block = ByteBuffer.allocate(16384);
+		private long blockPosition;
+		private long streamPosition;
+		
+		Source(FileChannel channel) throws IOException {
+			
+			this.channel = channel;
+			this.inputStream = null;
+			this.size = channel.size();
+			this.block.limit(0);
+		}
+		
+		Source(InputStream inputStream) {
+			
+			this.channel = null;
+			this.inputStream = inputStream;
+			this.size = -1;
+			this.block.limit(0);
+		}
+		
+		// the data lies completely in the block and is never read again
+		Source(byte[] data) {
+			
+			this.channel = null;
+			this.inputStream = null;
+			this.size = data.length;
+			this.block = ByteBuffer.wrap(data);
+		}
+		
+		// the returned buffer is only valid until the next read and has less than the wanted number of bytes at the end of the resource
+		ByteBuffer read(long position, int length) throws IOException {
+			
+			long blockEnd = this.blockPosition + this.block.limit();
+			
+			if((position < this.blockPosition || position + length > blockEnd) && (this.channel != null || this.inputStream != null)) {
+				
+				if(length > this.block.capacity()) {
+					
+					ByteBuffer block = ByteBuffer.allocate(length);
+					block.put(this.block);
+					block.flip();
+					this.block = block;
+				}
+				
+				// the bytes that are still needed stay, so that a stream never has to go back
+				if(position >= this.blockPosition && position <= blockEnd) {
+					
+					this.block.position((int)(position - this.blockPosition));
+					this.block.compact();
+					
+				} else {
+					
+					this.block.clear();
+				}
+				
+				this.blockPosition = position;
+				
+				try {
+					
+					while(this.block.hasRemaining() && this.fill(position + this.block.position()) != -1);
+					
+				} finally {
+					
+					this.block.flip();
+				}
+			}
+			
+			ByteBuffer slice = this.block.duplicate();
+			int offset = (int)(position - this.blockPosition);
+			slice.position(Math.min(offset, slice.limit()));
+			slice.limit(Math.min(offset + length, slice.limit()));
+			return slice.slice();
+		}
+		
+		byte[] readBytes(long position, int length, boolean unsynchronized) throws IOException {
+			
+			ByteBuffer buffer = this.read(position, length);
+			byte[] data = new byte[buffer.remaining()];
+			buffer.get(data);
+			return unsynchronized ? EmbeddedPicture.removeUnsynchronization(data) : data;
+		}
+		
+		private final int fill(long position) throws IOException {
+			
+			if(this.channel != null) {
+				
+				return this.channel.read(this.block, position);
+			}
+			
+			if(position < this.streamPosition) {
+				
+				throw new IOException("Cannot go back in a stream");
+			}
+			
+			while(this.streamPosition < position) {
+				
+				long skipped = this.inputStream.skip(position - this.streamPosition);
+				
+				if(skipped <= 0) {
+					
+					if(this.inputStream.read() == -1) {
+						
+						return -1;
+					}
+					
+					skipped = 1;
+				}
+				
+				this.streamPosition += skipped;
+			}
+			
+			int read = this.inputStream.read(this.block.array(), this.block.position(), this.block.remaining());
+			
+			if(read > 0) {
+				
+				this.block.position(this.block.position() + read);
+				this.streamPosition += read;
+			}
+			
+			return read;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			
+			if(this.channel != null) {
+				
+				this.channel.close();
+				
+			} else if(this.inputStream != null) {
+				
+				this.inputStream.close();
+			}
+		}
+	}
+}
@@ -24,53 +24,400 @@
 
 package de.ralleytn.simple.audio;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 import de.ralleytn.simple.audio.internal.Util;
 
 /**
  * Reads the head informations from an Ogg Vorbis file as described <a href="https://xiph.org/vorbis/doc/Vorbis_I_spec.html">here</a>.
+ * The pages are read in blocks into a buffer that is reused by every call on the same instance, so an instance should not be used by multiple threads at the same time.
+ * Only the identification and the comment header are read. Comments longer than 64 KiB (like embedded pictures) are skipped
+ * and nothing behind the first MiB of the comment header is read.
+ * For local files the granule position of the last page is also read, which gives the number of samples with the key {@code ogg.total_samples}
+ * and the length in microseconds with the key {@code duration}.
  * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
- * @version 2.0.0
+ * @version 2.1.0
  * @since 1.2.0
  */
 public class OggHeadReader implements HeadReader {
 
+	private static final byte[] CAPTURE_PATTERN = {'O', 'g', 'g', 'S'};
+	private static final int[] CAPTURE_PATTERN_TABLE = Util.createFailureTable(OggHeadReader.CAPTURE_PATTERN);
+	private static final byte[] VORBIS = {'v', 'o', 'r', 'b', 'i', 's'};
+	private static final int[] VORBIS_TABLE = Util.createFailureTable(OggHeadReader.VORBIS);
+	private static final int PAGE_HEADER_SIZE = 27;
+	private static final int IDENTIFICATION_SIZE = 23;
+	private static final int MAX_SYNC = 65536;
+	private static final int MAX_PACKET_SIZE = 1048576;
+	private static final int MAX_COMMENT_LENGTH = 65536;
+	private static final int MAX_COMMENTS = 4096;
+	
+	private final ByteBuffer buffer = ByteBuffer.allocate(16384).order(ByteOrder.LITTLE_ENDIAN);
+	private final byte[] lacing = new byte[255];
+	private byte[] packet = new byte[4096];
+	private ReadableByteChannel channel;
+	private int serialNumber;
+	
 	@Override
 	public Map<String, ?> read(URL resource) throws IOException {
 		
-		Map<String, Object> headers = new HashMap<>();
-		int[] sequence = {0x76, 0x6F, 0x72, 0x62, 0x69, 0x73};
+		Path path = null;
+		
+		if("file".equals(resource.getProtocol())) {
+			
+			try {
+				
+				path = Paths.get(resource.toURI());
+				
+			} catch(URISyntaxException | IllegalArgumentException exception) {
+				
+				// not a valid path, the URL handler may still know what to do
+			}
+		}
+		
+		if(path != null) {
+			
+			try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				
+				Map<String, Object> headers = this.read(channel);
+				this.readDuration(channel, headers);
+				return headers;
+			}
+		}
 		
 		try(InputStream inputStream = resource.openStream()) {
 			
-			Util.readUntil(inputStream, sequence);
-			headers.put("ogg.vorbis_version", Util.readUnsignedInt(inputStream));
-			headers.put("ogg.audio_channels", inputStream.read());
-			headers.put("ogg.audio_sample_rate", Util.readUnsignedInt(inputStream));
-			headers.put("ogg.bitrate_maximum", Util.readSignedInt(inputStream));
-			headers.put("ogg.bitrate_nominal", Util.readSignedInt(inputStream));
-			headers.put("ogg.bitrate_minimum", Util.readSignedInt(inputStream));
-			int blocksize = inputStream.read();
-			headers.put("ogg.blocksize_0", (blocksize >> 4) & 0b1111);
-			headers.put("ogg.blocksize_1", blocksize & 0b1111);
-			headers.put("ogg.framing_flag", ((inputStream.read() >> 7) & 0b1) == 1);
-			Util.readUntil(inputStream, sequence);
-			headers.put("ogg.vendor", Util.readString(inputStream, (int)Util.readUnsignedInt(inputStream), StandardCharsets.UTF_8));
-			long userCommentListLength = Util.readUnsignedInt(inputStream);
-			
-			for(long index = 0; index < userCommentListLength; index++) {
-				
-				String[] comment = Util.readString(inputStream, (int)Util.readUnsignedInt(inputStream), StandardCharsets.UTF_8).split("=");
-				headers.put("ogg.comment." + comment[0].toLowerCase(), comment[1]);
+			return this.read(inputStream);
+		}
+	}
+	
+	/**
+	 * Reads the head informations of an Ogg Vorbis stream.
+	 * The stream may be read further than the headers.
+	 * @param inputStream the stream; it is not closed by this method
+	 * @return a {@linkplain Map} instance with all the readable head informations
+	 * @throws IOException if an I/O error occurs or the stream does not contain the Vorbis headers
+	 * @since 2.1.0
+	 */
+	public Map<String, ?> read(InputStream inputStream) throws IOException {
+		
+		return this.read(Channels.newChannel(inputStream));
+	}
+	
+	private final Map<String, Object> read(ReadableByteChannel channel) throws IOException {
+		
+		Map<String, Object> headers = new HashMap<>();
+		this.channel = channel;
+		this.buffer.clear().flip();
+		
+		try {
+			
+			this.synchronize();
+			int packets = 0;
+			int length = 0;
+			
+			while(true) {
+				
+				if(!this.ensure(OggHeadReader.PAGE_HEADER_SIZE)) {
+					
+					throw new EOFException("Missing Vorbis headers");
+				}
+				
+				int position = this.buffer.position();
+				
+				if(this.buffer.get(position) != 'O' || this.buffer.get(position + 1) != 'g' || this.buffer.get(position + 2) != 'g' || this.buffer.get(position + 3) != 'S') {
+					
+					throw new IOException("Invalid Ogg page");
+				}
+				
+				int segments = this.buffer.get(position + 26) & 0xFF;
+				
+				if(packets == 0 && length == 0) {
+					
+					this.serialNumber = this.buffer.getInt(position + 14);
+				}
+				
+				if(!this.ensure(OggHeadReader.PAGE_HEADER_SIZE + segments)) {
+					
+					throw new EOFException("Missing Vorbis headers");
+				}
+				
+				this.buffer.position(this.buffer.position() + OggHeadReader.PAGE_HEADER_SIZE);
+				this.buffer.get(this.lacing, 0, segments);
+				
+				for(int segment = 0; segment < segments; segment++) {
+					
+					int size = this.lacing[segment] & 0xFF;
+					
+					if(!this.ensure(size)) {
+						
+						throw new EOFException("Missing Vorbis headers");
+					}
+					
+					// everything behind the limit is skipped
+					int copied = Math.min(size, OggHeadReader.MAX_PACKET_SIZE - length);
+					
+					if(length + copied > this.packet.length) {
+						
+						byte[] packet = new byte[Math.min(OggHeadReader.MAX_PACKET_SIZE, Math.max(length + copied, this.packet.length * 2))];
+						System.arraycopy(this.packet, 0, packet, 0, length);
+						this.packet = packet;
+					}
+					
+					this.buffer.get(this.packet, length, copied);
+					this.buffer.position(this.buffer.position() + size - copied);
+					length += size;
+					
+					// a packet that reached the limit is parsed right away instead of reading the rest of it
+					if(size < 255 || length >= OggHeadReader.MAX_PACKET_SIZE) {
+						
+						int available = Math.min(length, OggHeadReader.MAX_PACKET_SIZE);
+						
+						if(packets == 0) {
+							
+							if(size == 255) {
+								
+								throw new IOException("Invalid Vorbis identification header");
+							}
+							
+							this.readIdentification(available, headers);
+							
+						} else {
+							
+							this.readComments(available, headers);
+							return headers;
+						}
+						
+						packets++;
+						length = 0;
+					}
+				}
 			}
+			
+		} finally {
+			
+			this.channel = null;
+		}
+	}
+	
+	private final void readIdentification(int length, Map<String, Object> headers) throws IOException {
+		
+		int marker = Util.indexOf(this.packet, 0, length, OggHeadReader.VORBIS, OggHeadReader.VORBIS_TABLE);
+		
+		if(marker == -1 || length - marker - OggHeadReader.VORBIS.length < OggHeadReader.IDENTIFICATION_SIZE) {
+			
+			throw new IOException("Invalid Vorbis identification header");
+		}
+		
+		ByteBuffer data = ByteBuffer.wrap(this.packet, marker + OggHeadReader.VORBIS.length, OggHeadReader.IDENTIFICATION_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		headers.put("ogg.vorbis_version", data.getInt() & 0xFFFFFFFFL);
+		headers.put("ogg.audio_channels", data.get() & 0xFF);
+		headers.put("ogg.audio_sample_rate", data.getInt() & 0xFFFFFFFFL);
+		headers.put("ogg.bitrate_maximum", data.getInt());
+		headers.put("ogg.bitrate_nominal", data.getInt());
+		headers.put("ogg.bitrate_minimum", data.getInt());
+		int blocksize = data.get() & 0xFF;
+		headers.put("ogg.blocksize_0", (blocksize >> 4) & 0b1111);
+		headers.put("ogg.blocksize_1", blocksize & 0b1111);
+		headers.put("ogg.framing_flag", ((data.get() >> 7) & 0b1) == 1);
+	}
+	
+	private final void readComments(int length, Map<String, Object> headers) throws IOException {
+		
+		int marker = Util.indexOf(this.packet, 0, length, OggHeadReader.VORBIS, OggHeadReader.VORBIS_TABLE);
+		
+		if(marker == -1) {
+			
+			throw new IOException("Invalid Vorbis comment header");
+		}
+		
+		ByteBuffer data = ByteBuffer.wrap(this.packet, marker + OggHeadReader.VORBIS.length, length - marker - OggHeadReader.VORBIS.length).order(ByteOrder.LITTLE_ENDIAN);
+		String vendor = this.readText(data);
+		
+		if(vendor == null) {
+			
+			return;
+		}
+		
+		headers.put("ogg.vendor", vendor);
+		
+		if(data.remaining() < 4) {
+			
+			return;
+		}
+		
+		long count = Math.min(data.getInt() & 0xFFFFFFFFL, OggHeadReader.MAX_COMMENTS);
+		
+		for(long index = 0; index < count && data.remaining() >= 4; index++) {
+			
+			int commentLength = data.getInt();
+			int start = data.position();
+			
+			// the header was cut or is broken, so nothing behind this comment can be trusted
+			if(commentLength < 0 || commentLength > data.remaining()) {
+				
+				return;
+			}
+			
+			data.position(start + commentLength);
+			
+			if(commentLength <= OggHeadReader.MAX_COMMENT_LENGTH) {
+				
+				int end = start + commentLength;
+				int equals = start;
+				
+				while(equals < end && this.packet[equals] != '=') {
+					
+					equals++;
+				}
+				
+				// comments without a field name are ignored
+				if(equals > start && equals < end) {
+					
+					String key = new String(this.packet, start, equals - start, StandardCharsets.US_ASCII).toLowerCase(Locale.ROOT);
+					headers.put("ogg.comment." + key, new String(this.packet, equals + 1, end - equals - 1, StandardCharsets.UTF_8));
+				}
+			}
+		}
+	}
+	
+	private final String readText(ByteBuffer data) {
+		
+		if(data.remaining() < 4) {
+			
+			return null;
+		}
+		
+		int length = data.getInt();
+		
+		if(length < 0 || length > data.remaining()) {
+			
+			return null;
+		}
+		
+		String text = new String(this.packet, data.position(), length, StandardCharsets.UTF_8);
+		data.position(data.position() + length);
+		return text;
+	}
+	
+	private final void readDuration(FileChannel channel, Map<String, Object> headers) throws IOException {
+		
+		long sampleRate = (Long)headers.get("ogg.audio_sample_rate");
+		long end = channel.size();
+		long searched = 0;
+		
+		// the last page of the stream with a granule position is searched backwards from the end of the file, pages of other streams in the same file are ignored
+		while(end > 0 && searched < OggHeadReader.MAX_SYNC && sampleRate > 0) {
+			
+			int length = (int)Math.min(end, this.buffer.capacity());
+			long start = end - length;
+			this.buffer.clear().limit(length);
+			
+			while(this.buffer.hasRemaining() && channel.read(this.buffer, start + this.buffer.position()) != -1);
+			
+			byte[] data = this.buffer.array();
+			
+			for(int index = this.buffer.position() - OggHeadReader.PAGE_HEADER_SIZE; index >= 0; index--) {
+				
+				if(data[index] == 'O' && data[index + 1] == 'g' && data[index + 2] == 'g' && data[index + 3] == 'S' && data[index + 4] == 0) {
+					
+					long granule = this.buffer.getLong(index + 6);
+					
+					if(granule >= 0 && this.buffer.getInt(index + 14) == this.serialNumber) {
+						
+						headers.put("ogg.total_samples", granule);
+						headers.put("duration", granule * 1000000L / sampleRate);
+						return;
+					}
+				}
+			}
+			
+			if(start == 0) {
+				
+				break;
+			}
+			
+			// a page header may be cut by the start of the block
+			end = start + OggHeadReader.PAGE_HEADER_SIZE - 1;
+			searched += length - OggHeadReader.PAGE_HEADER_SIZE + 1;
+		}
+	}
+	
+	private final void synchronize() throws IOException {
+		
+		int searched = 0;
+		
+		while(true) {
+			
+			this.ensure(this.buffer.capacity());
+			
+			if(this.buffer.remaining() < OggHeadReader.CAPTURE_PATTERN.length) {
+				
+				break;
+			}
+			
+			int index = Util.indexOf(this.buffer.array(), this.buffer.position(), this.buffer.remaining(), OggHeadReader.CAPTURE_PATTERN, OggHeadReader.CAPTURE_PATTERN_TABLE);
+			
+			if(index != -1) {
+				
+				this.buffer.position(index);
+				return;
+			}
+			
+			searched += this.buffer.remaining();
+			
+			if(searched > OggHeadReader.MAX_SYNC) {
+				
+				break;
+			}
+			
+			// the pattern may start in the last bytes
+			this.buffer.position(this.buffer.limit() - OggHeadReader.CAPTURE_PATTERN.length + 1);
+		}
+		
+		throw new IOException("Not an Ogg stream");
+	}
+	
+	private final boolean ensure(int bytes) throws IOException {
+		
+		if(this.buffer.remaining() >= bytes) {
+			
+			return true;
+		}
+		
+		this.buffer.compact();
+		
+		try {
+			
+			while(this.buffer.position() < bytes && this.buffer.hasRemaining()) {
+				
+				if(this.channel.read(this.buffer) == -1) {
+					
+					break;
+				}
+			}
+			
+		} finally {
+			
+			this.buffer.flip();
 		}
 		
-		return headers;
+		return this.buffer.remaining() >= bytes;
 	}
 }
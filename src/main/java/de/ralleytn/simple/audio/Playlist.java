@@ -31,12 +31,12 @@ import java.util.List;
  * Stores multiple {@linkplain Audio}s and plays them in a batch.
  * Handy if you want to program an audio player.
  * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
- * @version 2.0.0
+ * @version 2.1.0
  * @since 1.1.0
  */
 public class Playlist implements Playable {
 
-	private List<Audio> tracks = new ArrayList<>();
+	private List<Audio> tracks;
 	private List<PlaylistListener> listeners = new ArrayList<>();
 	private int currentTrack = -1;
 	private int prefferedNextTrack = -1;
@@ -54,6 +54,24 @@ public class Playlist implements Playable {
 		}
 	};
 	
+	/**
+	 * Initializes an empty {@linkplain Playlist}.
+	 * @since 1.1.0
+	 */
+	public Playlist() {
+		
+		this(new ArrayList<>());
+	}
+	
+	/**
+	 * @param tracks the list that holds the tracks
+	 * @since 2.1.0
+	 */
+	Playlist(List<Audio> tracks) {
+		
+		this.tracks = tracks;
+	}
+	
 	/**
 	 * Adds a new track to the track list.
 	 * @param audio the audio of the track
@@ -109,7 +127,9 @@ public class Playlist implements Playable {
 	 */
 	public void remove(int index) {
 		
-		Audio audio = this.tracks.get(index);
+		// tracks of a search result that were never used have no audio yet that would have to be stopped or closed
+		boolean created = this.isCreated(index);
+		Audio audio = created ? this.tracks.get(index) : null;
 		
 		if(audio != null) {
 			
@@ -122,13 +142,13 @@ public class Playlist implements Playable {
 				
 				audio.close();
 			}
+		}
+		
+		this.tracks.remove(index);
+		
+		if(this.currentTrack == index) {
 			
-			this.tracks.remove(index);
-			
-			if(this.currentTrack == index) {
-				
-				this.next();
-			}
+			this.next();
 		}
 	}
 	
@@ -324,7 +344,19 @@ public class Playlist implements Playable {
 	 */
 	public void close() {
 		
-		this.tracks.forEach(Audio::close);
+		for(int index = 0; index < this.tracks.size(); index++) {
+			
+			// tracks of a search result that were never used have no audio yet
+			if(this.isCreated(index)) {
+				
+				this.tracks.get(index).close();
+			}
+		}
+	}
+	
+	private final boolean isCreated(int index) {
+		
+		return !(this.tracks instanceof LazyTrackList) || ((LazyTrackList)this.tracks).isCreated(index);
 	}
 	
 	/**
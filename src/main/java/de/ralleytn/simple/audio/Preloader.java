@@ -0,0 +1,268 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Opens a batch of {@linkplain Audio}s in parallel, for example all the sound effects of a level.
+ * The audios with the highest priority are opened first; audios with the same priority are opened in the order in which they were added.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class Preloader {
+
+	private final int parallelism;
+	private final int maxOpenFiles;
+	private final List<Audio> audios = new ArrayList<>();
+	private final List<Integer> priorities = new ArrayList<>();
+	private DoubleConsumer progressListener;
+	private float[] progresses;
+	private float sum;
+	private volatile float progress;
+	
+	/**
+	 * Initializes the {@linkplain Preloader} with one thread per available processor and no further limit on open files.
+	 * @since 2.1.0
+	 */
+	public Preloader() {
+		
+		this(Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * @param parallelism the number of threads that open the audios
+	 * @param maxOpenFiles the maximum number of audios that are opened at the same time, regardless of the number of threads
+	 * @since 2.1.0
+	 */
+	public Preloader(int parallelism, int maxOpenFiles) {
+		
+		if(parallelism < 1 || maxOpenFiles < 1) {
+			
+			throw new IllegalArgumentException("The parallelism and the maximum number of open files have to be at least 1!");
+		}
+		
+		this.parallelism = parallelism;
+		this.maxOpenFiles = maxOpenFiles;
+	}
+	
+	/**
+	 * Adds an audio with the priority {@code 0} to the end of the batch.
+	 * @param audio the audio
+	 * @since 2.1.0
+	 */
+	public void add(Audio audio) {
+		
+		this.add(audio, 0);
+	}
+	
+	/**
+	 * Adds an audio to the end of the batch.
+	 * @param audio the audio
+	 * @param priority audios with a higher priority are opened before audios with a lower one
+	 * @since 2.1.0
+	 */
+	public void add(Audio audio, int priority) {
+		
+		this.audios.add(audio);
+		this.priorities.add(priority);
+	}
+	
+	/**
+	 * Adds multiple audios with the priority {@code 0} to the end of the batch in the order of the collection.
+	 * @param audios the audios
+	 * @since 2.1.0
+	 */
+	public void addAll(Collection<? extends Audio> audios) {
+		
+		audios.forEach(this::add);
+	}
+	
+	/**
+	 * Sets a listener that is called with the progress of the whole batch between {@code 0.0} and {@code 1.0}.
+	 * The listener is called from the threads that open the audios.
+	 * @param listener the listener or {@code null}
+	 * @since 2.1.0
+	 */
+	public void setProgressListener(DoubleConsumer listener) {
+		
+		this.progressListener = listener;
+	}
+	
+	/**
+	 * Opens all audios of the batch that are not open yet and blocks until every one of them is open.
+	 * If an audio could not be opened, the ones that were opened by this call are closed again.
+	 * @return the audios of the batch in the order in which they were added
+	 * @throws AudioException if one of the audios could not be opened
+	 * @since 2.1.0
+	 */
+	public List<Audio> load() throws AudioException {
+		
+		int count = this.audios.size();
+		int workers = Math.min(this.parallelism, Math.max(count, 1));
+		AtomicInteger next = new AtomicInteger();
+		Semaphore openFiles = new Semaphore(this.maxOpenFiles);
+		boolean[] opened = new boolean[count];
+		AtomicReference<AudioException> error = new AtomicReference<>();
+		
+		// the sort is stable, so audios with the same priority keep the order in which they were added
+		int[] order = IntStream.range(0, count).boxed().sorted(Comparator.comparing(this.priorities::get, Comparator.reverseOrder())).mapToInt(Integer::intValue).toArray();
+		List<Future<?>> tasks = new ArrayList<>();
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		
+		// the decoders are service providers which are looked up with the context class loader of the current thread
+		ForkJoinPool pool = new ForkJoinPool(workers, forkJoinPool -> {
+			
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+			thread.setContextClassLoader(classLoader);
+			thread.setDaemon(true);
+			return thread;
+			
+		}, null, false);
+		this.progresses = new float[count];
+		this.sum = 0.0F;
+		this.progress = 0.0F;
+		
+		try {
+			
+			// every worker takes the next audio in line, so the audios are started in the order of their priorities
+			for(int worker = 0; worker < workers; worker++) {
+				
+				tasks.add(pool.submit(() -> {
+					
+					int position = 0;
+					
+					while((position = next.getAndIncrement()) < count && error.get() == null) {
+						
+						int index = order[position];
+						Audio audio = this.audios.get(index);
+						
+						if(!audio.isOpen()) {
+							
+							int track = index;
+							AudioListener listener = event -> {
+								
+								if(event.getType() == AudioEvent.Type.DECODING_PROGRESS) {
+									
+									this.update(track, (float)event.getNewValue());
+								}
+							};
+							
+							audio.addAudioListener(listener);
+							openFiles.acquireUninterruptibly();
+							
+							try {
+								
+								audio.open();
+								opened[index] = true;
+								
+							} catch(AudioException exception) {
+								
+								error.compareAndSet(null, exception);
+								
+							} finally {
+								
+								openFiles.release();
+								audio.removeAudioListener(listener);
+							}
+						}
+						
+						this.update(index, 1.0F);
+					}
+				}));
+			}
+			
+			for(Future<?> task : tasks) {
+				
+				task.get();
+			}
+			
+		} catch(Exception exception) {
+			
+			error.compareAndSet(null, new AudioException(exception));
+			
+		} finally {
+			
+			pool.shutdown();
+		}
+		
+		if(error.get() != null) {
+			
+			for(int index = 0; index < count; index++) {
+				
+				if(opened[index]) {
+					
+					this.audios.get(index).close();
+				}
+			}
+			
+			throw error.get();
+		}
+		
+		return new ArrayList<>(this.audios);
+	}
+	
+	/**
+	 * @return the progress of the last call of {@link #load()} between {@code 0.0F} and {@code 1.0F}
+	 * @since 2.1.0
+	 */
+	public float getProgress() {
+		
+		return this.progress;
+	}
+	
+	/**
+	 * @return the audios of the batch in the order in which they were added; the list can not be modified
+	 * @since 2.1.0
+	 */
+	public List<Audio> getAudios() {
+		
+		return Collections.unmodifiableList(this.audios);
+	}
+	
+	private synchronized void update(int index, float value) {
+		
+		this.sum += value - this.progresses[index];
+		this.progresses[index] = value;
+		this.progress = this.sum / this.progresses.length;
+		
+		if(this.progressListener != null) {
+			
+			this.progressListener.accept(this.progress);
+		}
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ralleytn.simple.audio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import de.ralleytn.simple.audio.internal.Samples;
+
+/**
+ * Reads the decoded samples of an audio resource as {@code float}s or {@code short}s.
+ * The samples are the same for every {@linkplain FileFormat}, regardless of the byte order or sample size the decoder produces.
+ * All read methods write into arrays given by the caller and do not allocate memory on their own,
+ * unless more frames are requested than ever before.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class SampleReader implements Closeable {
+
+	private AudioInputStream audioInputStream;
+	private AudioFormat format;
+	private int frameSize;
+	private int bytesPerSample;
+	private byte[] buffer = new byte[0];
+	
+	/**
+	 * @param resource the audio resource
+	 * @throws AudioException if something went wrong while decoding the resource
+	 * @since 2.1.0
+	 */
+	public SampleReader(URL resource) throws AudioException {
+		
+		this(AbstractAudio.getAudioInputStream(resource));
+	}
+	
+	/**
+	 * Reads the samples from the resource of the given {@linkplain Audio}. The {@linkplain Audio} itself is not touched.
+	 * The resource of an audio that was created from an {@linkplain java.io.InputStream} can only be read once, either by the audio or by this reader.
+	 * @param audio the audio
+	 * @throws AudioException if something went wrong while decoding the resource or it was a stream that has already been read
+	 * @since 2.1.0
+	 */
+	public SampleReader(Audio audio) throws AudioException {
+		
+		this(audio.getResource());
+	}
+	
+	/**
+	 * @param audioInputStream the {@linkplain AudioInputStream} from which the samples should be read
+	 * @throws AudioException if the format of the {@linkplain AudioInputStream} cannot be converted into samples
+	 * @since 2.1.0
+	 */
+	public SampleReader(AudioInputStream audioInputStream) throws AudioException {
+		
+		try {
+			
+			audioInputStream = Samples.toSupportedFormat(audioInputStream);
+			
+		} catch(IOException exception) {
+			
+			throw new AudioException(exception);
+		}
+		
+		AudioFormat format = audioInputStream.getFormat();
+		this.audioInputStream = audioInputStream;
+		this.format = format;
+		this.frameSize = format.getFrameSize();
+		this.bytesPerSample = format.getSampleSizeInBits() >> 3;
+	}
+	
+	/**
+	 * Reads interleaved {@code float} samples between {@code -1.0F} and {@code 1.0F}.
+	 * @param samples the array in which the samples will be written
+	 * @param offset index of the first sample in the array
+	 * @param frames the maximum number of frames to read; the array needs space for {@code frames * getChannels()} samples
+	 * @return the number of frames that were read or {@code -1} if the end was reached
+	 * @throws IOException if an I/O error occurs
+	 * @since 2.1.0
+	 */
+	public int read(float[] samples, int offset, int frames) throws IOException {
+		
+		int read = this.fill(frames);
+		
+		if(read > 0) {
+			
+			Samples.toFloat(this.buffer, 0, this.bytesPerSample, samples, offset, read * this.getChannels(), this.format);
+		}
+		
+		return read;
+	}
+	
+	/**
+	 * Reads planar {@code float} samples between {@code -1.0F} and {@code 1.0F}.
+	 * @param samples one array for each channel in which the samples will be written
+	 * @param offset index of the first sample in each array
+	 * @param frames the maximum number of frames to read
+	 * @return the number of frames that were read or {@code -1} if the end was reached
+	 * @throws IOException if an I/O error occurs
+	 * @since 2.1.0
+	 */
+	public int read(float[][] samples, int offset, int frames) throws IOException {
+		
+		int read = this.fill(frames);
+		
+		for(int channel = 0; channel < samples.length && read > 0; channel++) {
+			
+			Samples.toFloat(this.buffer, channel * this.bytesPerSample, this.frameSize, samples[channel], offset, read, this.format);
+		}
+		
+		return read;
+	}
+	
+	/**
+	 * Reads interleaved signed 16 bit samples.
+	 * @param samples the array in which the samples will be written
+	 * @param offset index of the first sample in the array
+	 * @param frames the maximum number of frames to read; the array needs space for {@code frames * getChannels()} samples
+	 * @return the number of frames that were read or {@code -1} if the end was reached
+	 * @throws IOException if an I/O error occurs
+	 * @since 2.1.0
+	 */
+	public int read(short[] samples, int offset, int frames) throws IOException {
+		
+		int read = this.fill(frames);
+		
+		if(read > 0) {
+			
+			Samples.toShort(this.buffer, 0, this.bytesPerSample, samples, offset, read * this.getChannels(), this.format);
+		}
+		
+		return read;
+	}
+	
+	/**
+	 * Reads planar signed 16 bit samples.
+	 * @param samples one array for each channel in which the samples will be written
+	 * @param offset index of the first sample in each array
+	 * @param frames the maximum number of frames to read
+	 * @return the number of frames that were read or {@code -1} if the end was reached
+	 * @throws IOException if an I/O error occurs
+	 * @since 2.1.0
+	 */
+	public int read(short[][] samples, int offset, int frames) throws IOException {
+		
+		int read = this.fill(frames);
+		
+		for(int channel = 0; channel < samples.length && read > 0; channel++) {
+			
+			Samples.toShort(this.buffer, channel * this.bytesPerSample, this.frameSize, samples[channel], offset, read, this.format);
+		}
+		
+		return read;
+	}
+	
+	/**
+	 * Skips frames without converting them.
+	 * @param frames the number of frames to skip
+	 * @return the number of frames that were actually skipped
+	 * @throws IOException if an I/O error occurs
+	 * @since 2.1.0
+	 */
+	public long skip(long frames) throws IOException {
+		
+		long skipped = 0;
+		
+		while(skipped < frames) {
+			
+			int read = this.fill((int)Math.min(frames - skipped, 4096));
+			
+			if(read == -1) {
+				
+				break;
+			}
+			
+			skipped += read;
+		}
+		
+		return skipped;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		
+		this.audioInputStream.close();
+	}
+	
+	/**
+	 * @return the number of channels
+	 * @since 2.1.0
+	 */
+	public int getChannels() {
+		
+		return this.format.getChannels();
+	}
+	
+	/**
+	 * @return the number of frames per second
+	 * @since 2.1.0
+	 */
+	public float getSampleRate() {
+		
+		return this.format.getSampleRate();
+	}
+	
+	/**
+	 * @return the length in frames or {@link AudioSystem#NOT_SPECIFIED} if the decoder does not know the length
+	 * @since 2.1.0
+	 */
+	public long getFrameLength() {
+		
+		return this.audioInputStream.getFrameLength();
+	}
+	
+	/**
+	 * @return the format of the raw data before it is converted into samples
+	 * @since 2.1.0
+	 */
+	public AudioFormat getSourceFormat() {
+		
+		return this.format;
+	}
+	
+	private int fill(int frames) throws IOException {
+		
+		int length = frames * this.frameSize;
+		
+		if(this.buffer.length < length) {
+			
+			this.buffer = new byte[length];
+		}
+		
+		int position = 0;
+		int read = 0;
+		
+		while(position < length && (read = this.audioInputStream.read(this.buffer, position, length - position)) != -1) {
+			
+			position += read;
+		}
+		
+		return position == 0 && read == -1 ? -1 : position / this.frameSize;
+	}
+}
@@ -0,0 +1,483 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An in-memory full-text index over the title, artist, album and genre of {@linkplain LibraryEntry}s.
+ * The words of the fields are normalized to lower case without accents and every word is stored once in a sorted dictionary,
+ * so a query word also finds all words that start with it. The postings of all words are kept in one {@code int} array.
+ * <p>A query consists of words that all have to be found. A word can be restricted to one field with the name of the field,
+ * like {@code artist:queen}. Results are ranked by the fields in which the words were found (title before artist before album before genre),
+ * by how rare the words are and whether they were found completely or only as a prefix.</p>
+ * <p>The index is immutable and can be searched by multiple threads at the same time.</p>
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class SearchIndex {
+
+	/**
+	 * The fields that are indexed.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	public static enum Field {
+		
+		/**
+		 * The title, see {@link LibraryEntry#getTitle()}.
+		 * @since 2.1.0
+		 */
+		TITLE(4.0F),
+		
+		/**
+		 * The artist, see {@link LibraryEntry#getArtist()}.
+		 * @since 2.1.0
+		 */
+		ARTIST(3.0F),
+		
+		/**
+		 * The album, see {@link LibraryEntry#getAlbum()}.
+		 * @since 2.1.0
+		 */
+		ALBUM(2.0F),
+		
+		/**
+		 * The genre, see {@link LibraryEntry#getGenre()}.
+		 * @since 2.1.0
+		 */
+		GENRE(1.0F);
+		
+		private final float weight;
+		
+		private Field(float weight) {
+			
+			this.weight = weight;
+		}
+		
+		private String getValue(LibraryEntry entry) {
+			
+			switch(this) {
+				case TITLE: return entry.getTitle();
+				case ARTIST: return entry.getArtist();
+				case ALBUM: return entry.getAlbum();
+				default: return entry.getGenre();
+			}
+		}
+	}
+	
+	private static final Field[] FIELDS = Field.values();
+	private static final float PREFIX_WEIGHT = 0.5F;
+	
+	private final LibraryEntry[] entries;
+	private final String[] terms;
+	
+	// the postings of term i are postings[offsets[i]] to postings[offsets[i + 1] - 1], each one is the entry shifted by 2 bits and the field
+	private final int[] offsets;
+	private final int[] postings;
+	private final float[] idf;
+	private final ThreadLocal<Scratch> scratch;
+	
+	/**
+	 * Builds the index.
+	 * @param entries the entries, for example from {@link LibraryScanner#getEntries()}; the order is kept for results with the same rank
+	 * @since 2.1.0
+	 */
+	public SearchIndex(Collection<LibraryEntry> entries) {
+		
+		this.entries = entries.toArray(new LibraryEntry[entries.size()]);
+		Map<String, IntList> words = new HashMap<>();
+		
+		for(int entry = 0; entry < this.entries.length; entry++) {
+			
+			for(Field field : SearchIndex.FIELDS) {
+				
+				String value = field.getValue(this.entries[entry]);
+				
+				if(value != null) {
+					
+					for(String word : SearchIndex.tokenize(value)) {
+						
+						IntList list = words.computeIfAbsent(word, key -> new IntList());
+						int posting = (entry << 2) | field.ordinal();
+						
+						// the same word twice in one field is only stored once
+						if(list.size == 0 || list.data[list.size - 1] != posting) {
+							
+							list.add(posting);
+						}
+					}
+				}
+			}
+		}
+		
+		this.terms = words.keySet().toArray(new String[words.size()]);
+		Arrays.sort(this.terms);
+		this.offsets = new int[this.terms.length + 1];
+		this.idf = new float[this.terms.length];
+		int count = 0;
+		
+		for(int term = 0; term < this.terms.length; term++) {
+			
+			this.offsets[term] = count;
+			count += words.get(this.terms[term]).size;
+		}
+		
+		this.offsets[this.terms.length] = count;
+		this.postings = new int[count];
+		
+		for(int term = 0; term < this.terms.length; term++) {
+			
+			IntList list = words.get(this.terms[term]);
+			System.arraycopy(list.data, 0, this.postings, this.offsets[term], list.size);
+			
+			// rare words say more about an entry than common ones
+			this.idf[term] = (float)Math.log(1.0 + this.entries.length / (double)list.size);
+		}
+		
+		this.scratch = ThreadLocal.withInitial(() -> new Scratch(this.entries.length));
+	}
+	
+	/**
+	 * Searches entries and returns them as a {@linkplain Playlist}. The {@linkplain Audio}s of the playlist are {@linkplain StreamedAudio}s
+	 * which are only created when a track is requested the first time.
+	 * @param query the query; an empty query finds all entries
+	 * @return the found entries, the best one first
+	 * @since 2.1.0
+	 */
+	public Playlist search(String query) {
+		
+		return this.search(query, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Searches entries and returns them as a {@linkplain Playlist}. The {@linkplain Audio}s of the playlist are {@linkplain StreamedAudio}s
+	 * which are only created when a track is requested the first time.
+	 * @param query the query; an empty query finds all entries
+	 * @param limit the maximum number of results
+	 * @return the found entries, the best one first
+	 * @since 2.1.0
+	 */
+	public Playlist search(String query, int limit) {
+		
+		return new Playlist(new LazyTrackList(this.find(query, limit)));
+	}
+	
+	/**
+	 * Returns all entries that have exactly the given words in a field, like all songs of an artist.
+	 * Unlike {@link #search(String)} the words are not searched as prefixes.
+	 * @param field the field
+	 * @param value the value of the field
+	 * @return the entries as a {@linkplain Playlist} in the order in which they were given to the index
+	 * @since 2.1.0
+	 */
+	public Playlist filter(Field field, String value) {
+		
+		List<String> words = SearchIndex.tokenize(value);
+		Field[] fields = new Field[words.size()];
+		Arrays.fill(fields, field);
+		int[] found = words.isEmpty() ? new int[0] : this.query(words, fields, true);
+		Arrays.sort(found);
+		List<LibraryEntry> entries = new ArrayList<>(found.length);
+		
+		for(int entry : found) {
+			
+			entries.add(this.entries[entry]);
+		}
+		
+		return new Playlist(new LazyTrackList(entries));
+	}
+	
+	/**
+	 * Searches entries.
+	 * @param query the query; an empty query finds all entries
+	 * @param limit the maximum number of results
+	 * @return the found entries, the best one first
+	 * @since 2.1.0
+	 */
+	public List<LibraryEntry> find(String query, int limit) {
+		
+		List<String> words = new ArrayList<>();
+		List<Field> fields = new ArrayList<>();
+		
+		for(String part : query.trim().split("\\s+")) {
+			
+			Field field = null;
+			int colon = part.indexOf(':');
+			
+			if(colon > 0) {
+				
+				String name = part.substring(0, colon).toUpperCase(Locale.ROOT);
+				
+				for(Field candidate : SearchIndex.FIELDS) {
+					
+					if(candidate.name().equals(name)) {
+						
+						field = candidate;
+						part = part.substring(colon + 1);
+					}
+				}
+			}
+			
+			for(String word : SearchIndex.tokenize(part)) {
+				
+				words.add(word);
+				fields.add(field);
+			}
+		}
+		
+		List<LibraryEntry> result = new ArrayList<>();
+		
+		if(words.isEmpty()) {
+			
+			for(int entry = 0; entry < Math.min(limit, this.entries.length); entry++) {
+				
+				result.add(this.entries[entry]);
+			}
+			
+			return result;
+		}
+		
+		Scratch scratch = this.scratch.get();
+		int[] found = this.query(words, fields.toArray(new Field[fields.size()]), false);
+		
+		// the score and the inverted entry are sorted together, so that equal scores keep the order of the entries
+		long[] ranking = new long[found.length];
+		
+		for(int index = 0; index < found.length; index++) {
+			
+			ranking[index] = ((long)Float.floatToIntBits(scratch.total[found[index]]) << 32) | (Integer.MAX_VALUE - found[index]);
+		}
+		
+		Arrays.sort(ranking);
+		
+		for(int index = ranking.length - 1; index >= 0 && result.size() < limit; index--) {
+			
+			result.add(this.entries[Integer.MAX_VALUE - (int)ranking[index]]);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * @return the number of entries in the index
+	 * @since 2.1.0
+	 */
+	public int size() {
+		
+		return this.entries.length;
+	}
+	
+	/**
+	 * @return the number of different words in the index
+	 * @since 2.1.0
+	 */
+	public int getTermCount() {
+		
+		return this.terms.length;
+	}
+	
+	// returns the entries that contain all words; their scores are left in the scratch of the thread
+	private int[] query(List<String> words, Field[] fields, boolean exact) {
+		
+		Scratch scratch = this.scratch.get();
+		int query = scratch.next();
+		IntList touched = scratch.touched;
+		
+		for(int word = 0; word < words.size(); word++) {
+			
+			String text = words.get(word);
+			int mark = scratch.next();
+			touched.size = 0;
+			int first = SearchIndex.lowerBound(this.terms, text);
+			int last = exact ? (first < this.terms.length && this.terms[first].equals(text) ? first + 1 : first) : SearchIndex.lowerBound(this.terms, text + Character.MAX_VALUE);
+			
+			for(int term = first; term < last; term++) {
+				
+				float weight = this.idf[term] * (this.terms[term].length() == text.length() ? 1.0F : SearchIndex.PREFIX_WEIGHT);
+				
+				for(int index = this.offsets[term]; index < this.offsets[term + 1]; index++) {
+					
+					int posting = this.postings[index];
+					int entry = posting >>> 2;
+					int field = posting & 0b11;
+					
+					if((fields[word] != null && fields[word].ordinal() != field) || (word > 0 && (scratch.query[entry] != query || scratch.matched[entry] != word))) {
+						
+						continue;
+					}
+					
+					float score = weight * SearchIndex.FIELDS[field].weight;
+					
+					if(scratch.mark[entry] != mark) {
+						
+						scratch.mark[entry] = mark;
+						scratch.best[entry] = score;
+						touched.add(entry);
+						
+					} else if(score > scratch.best[entry]) {
+						
+						scratch.best[entry] = score;
+					}
+				}
+			}
+			
+			for(int index = 0; index < touched.size; index++) {
+				
+				int entry = touched.data[index];
+				
+				if(word == 0) {
+					
+					scratch.query[entry] = query;
+					scratch.total[entry] = 0.0F;
+				}
+				
+				scratch.total[entry] += scratch.best[entry];
+				scratch.matched[entry] = word + 1;
+			}
+			
+			if(touched.size == 0) {
+				
+				break;
+			}
+		}
+		
+		return Arrays.copyOf(touched.data, touched.size);
+	}
+	
+	static final List<String> tokenize(String text) {
+		
+		// removes the accents, so that "Beyonce" finds "Beyoncé"
+		String normalized = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+		List<String> words = new ArrayList<>();
+		StringBuilder word = new StringBuilder();
+		
+		for(int index = 0; index < normalized.length(); index++) {
+			
+			char character = normalized.charAt(index);
+			
+			if(Character.getType(character) == Character.NON_SPACING_MARK) {
+				
+				continue;
+			}
+			
+			if(Character.isLetterOrDigit(character)) {
+				
+				word.append(character);
+				
+			} else if(word.length() > 0) {
+				
+				words.add(word.toString());
+				word.setLength(0);
+			}
+		}
+		
+		if(word.length() > 0) {
+			
+			words.add(word.toString());
+		}
+		
+		return words;
+	}
+	
+	private static final int lowerBound(String[] terms, String text) {
+		
+		int low = 0;
+		int high = terms.length;
+		
+		while(low < high) {
+			
+			int middle = (low + high) >>> 1;
+			
+			if(terms[middle].compareTo(text) < 0) {
+				
+				low = middle + 1;
+				
+			} else {
+				
+				high = middle;
+			}
+		}
+		
+		return low;
+	}
+	
+	private static final class IntList {
+		
+		private int[] data = new int[4];
+		private int size;
+		
+		void add(int value) {
+			
+			if(this.size == this.data.length) {
+				
+				this.data = Arrays.copyOf(this.data, this.size * 2);
+			}
+			
+			this.data[this.size++] = value;
+		}
+	}
+	
+	// the arrays of a thread are reused by all of its queries; the marks tell which values belong to the current query
+	private static final class Scratch {
+		
+		private final int[] query;
+		private final int[] mark;
+		private final int[] matched;
+		private final float[] best;
+		private final float[] total;
+		private final IntList touched = new IntList();
+		private int counter;
+		
+		Scratch(int size) {
+			
+			this.query = new int[size];
+			this.mark = new int[size];
+			this.matched = new int[size];
+			this.best = new float[size];
+			this.total = new float[size];
+		}
+		
+		int next() {
+			
+			if(this.counter == Integer.MAX_VALUE) {
+				
+				Arrays.fill(this.query, 0);
+				Arrays.fill(this.mark, 0);
+				this.counter = 0;
+			}
+			
+			return ++this.counter;
+		}
+	}
+}
@@ -26,21 +26,27 @@ package de.ralleytn.simple.audio;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.DataLine;
 import javax.sound.sampled.SourceDataLine;
 
+import de.ralleytn.simple.audio.internal.MemoryStreamHandler;
+import de.ralleytn.simple.audio.internal.Samples;
+
 /**
  * Never loads the entire audio data into the RAM. Good for music and long audio.
  * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
- * @version 2.0.0
+ * @version 2.1.0
  * @since 1.0.0
  */
 public class StreamedAudio extends AbstractAudio {
@@ -142,6 +148,51 @@ public class StreamedAudio extends AbstractAudio {
 		super(uri);
 	}
 	
+	/**
+	 * @param data the encoded audio data; is not copied
+	 * @param fileFormat the format of the data or {@code null} to detect it from the content
+	 * @throws AudioException if the format is unknown
+	 * @since 2.1.0
+	 */
+	public StreamedAudio(byte[] data, FileFormat fileFormat) throws AudioException {
+		
+		super(data, fileFormat);
+	}
+	
+	/**
+	 * @param data the encoded audio data between the position and the limit of the buffer; is not copied
+	 * @param fileFormat the format of the data or {@code null} to detect it from the content
+	 * @throws AudioException if the format is unknown
+	 * @since 2.1.0
+	 */
+	public StreamedAudio(ByteBuffer data, FileFormat fileFormat) throws AudioException {
+		
+		super(data, fileFormat);
+	}
+	
+	/**
+	 * @param data the stream with the encoded audio data; can only be read once
+	 * @param fileFormat the format of the data or {@code null} to detect it from the content when the audio is opened
+	 * @throws AudioException if the stream can not be used
+	 * @since 2.1.0
+	 */
+	public StreamedAudio(InputStream data, FileFormat fileFormat) throws AudioException {
+		
+		super(data, fileFormat);
+	}
+	
+	/**
+	 * Uses the resource as it is, without caching or reading it to find out its format.
+	 * @param url the resource
+	 * @param fileFormat the format of the resource
+	 * @throws AudioException if the format is {@code null}
+	 * @since 2.1.0
+	 */
+	protected StreamedAudio(URL url, FileFormat fileFormat) throws AudioException {
+		
+		super(url, fileFormat);
+	}
+	
 	@Override
 	public synchronized void play() {
 		
@@ -254,12 +305,24 @@ public class StreamedAudio extends AbstractAudio {
 			}
 			
 			byte[] buffer = new byte[this.audioInputStream.getFormat().getFrameSize()];
-			long currentFrame = 0;
+			long remaining = frame * buffer.length;
 			
-			while(currentFrame < frame) {
-
-				this.audioInputStream.read(buffer);
-				currentFrame++;
+			// skipping lets decoders like the one for FLAC jump over data they do not have to decode
+			while(remaining > 0) {
+				
+				long skipped = this.audioInputStream.skip(remaining);
+				
+				if(skipped <= 0) {
+					
+					if(this.audioInputStream.read(buffer) == -1) {
+						
+						break;
+					}
+					
+					skipped = buffer.length;
+				}
+				
+				remaining -= skipped;
 			}
 			
 			if(this.paused) {
@@ -292,27 +355,44 @@ public class StreamedAudio extends AbstractAudio {
 		
 		try {
 			
-			this.audioInputStream = AbstractAudio.getAudioInputStream(this.resource);
-			this.microsecondLength = (long)(1000000 * (this.audioInputStream.getFrameLength() / this.audioInputStream.getFormat().getFrameRate()));
-			this.frameLength = this.audioInputStream.getFrameLength();
+			this.audioInputStream = this.createAudioInputStream();
+			
+			// the length does not change, measuring it again would decode the whole file on every loop
 			
-			if(this.microsecondLength < 0) {
+			if(this.microsecondLength <= 0) {
 				
+				this.microsecondLength = (long)(1000000 * (this.audioInputStream.getFrameLength() / this.audioInputStream.getFormat().getFrameRate()));
+				this.frameLength = this.audioInputStream.getFrameLength();
+			}
+			
+			if(this.microsecondLength < 0 && this.hasLength()) {
+				
+				this.frameLength = 0;
 				byte[] buffer = new byte[4096];
 				int readBytes = 0;
 
 				while((readBytes = this.audioInputStream.read(buffer)) != -1) {
 					
 					this.frameLength += readBytes;
+					this.checkCancelled();
 				}
 
 				this.frameLength /= this.audioInputStream.getFormat().getFrameSize();
 				this.audioInputStream.close();
-				this.audioInputStream = AbstractAudio.getAudioInputStream(this.resource);
+				this.audioInputStream = this.createAudioInputStream();
 				this.microsecondLength = (long)(1000000 * (frameLength / this.audioInputStream.getFormat().getFrameRate()));
 			}
 			
-			DataLine.Info info = new DataLine.Info(SourceDataLine.class, this.audioInputStream.getFormat());
+			AudioFormat format = this.audioInputStream.getFormat();
+			DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+			
+			// formats the line can not play are converted by our own stage instead of a chain of converters from the AudioSystem
+			if(!AudioSystem.isLineSupported(info) && Samples.isSupported(format)) {
+				
+				this.audioInputStream = Samples.convert(this.audioInputStream, new AudioFormat(format.getSampleRate(), 16, Math.min(format.getChannels(), 2), true, false));
+				info = new DataLine.Info(SourceDataLine.class, this.audioInputStream.getFormat());
+			}
+			
 			this.line = (SourceDataLine)AudioSystem.getLine(info);
 			this.line.open(this.audioInputStream.getFormat());
 			this.controls = AbstractAudio.extractControls(this.line, this.controls);
@@ -356,6 +436,17 @@ public class StreamedAudio extends AbstractAudio {
 		this.trigger(AudioEvent.Type.CLOSED);
 	}
 	
+	/**
+	 * If the decoder does not know the length of the audio, it is measured by decoding the whole resource once while the audio is opened.
+	 * A stream that was given to the constructor can only be read once, so its length is not measured.
+	 * @return {@code false} if the resource has no end or can not be read twice and must not be measured, else {@code true}
+	 * @since 2.1.0
+	 */
+	protected boolean hasLength() {
+		
+		return !MemoryStreamHandler.isStreamURL(this.resource);
+	}
+	
 	@Override
 	public synchronized long getFrameLength() {
 		
@@ -365,7 +456,8 @@ public class StreamedAudio extends AbstractAudio {
 	@Override
 	public synchronized long getLength() {
 		
-		return this.microsecondLength / 1000;
+		// an unknown frame length would otherwise give a length close to zero
+		return this.frameLength < 0 ? -1 : this.microsecondLength / 1000;
 	}
 
 	@Override
@@ -404,6 +496,25 @@ public class StreamedAudio extends AbstractAudio {
 		return this.line.getLongFramePosition();
 	}
 	
+	/**
+	 * Creates a new {@linkplain AudioInputStream} positioned at the beginning of the audio data.
+	 * Is called every time the audio is opened or has to start over.
+	 * @return the new {@linkplain AudioInputStream}
+	 * @throws AudioException if something went wrong while retrieving the {@linkplain AudioInputStream}
+	 * @since 2.1.0
+	 */
+	protected AudioInputStream createAudioInputStream() throws AudioException {
+		
+		return AbstractAudio.getAudioInputStream(this.resource, this.resolveFileFormat());
+	}
+	
+	// writing whole blocks instead of single frames saves a call through the whole stream chain per frame
+	private static final byte[] createBuffer(AudioFormat format) {
+		
+		int frameSize = Math.max(1, format.getFrameSize());
+		return new byte[Math.max(frameSize, 4096 - 4096 % frameSize)];
+	}
+	
 	private synchronized void reset() throws AudioException {
 		
 		this.close();
@@ -439,7 +550,7 @@ public class StreamedAudio extends AbstractAudio {
 					// StreamedAudio.this.audioInputStream.getFormat() throws a NullPointerException due to threading.
 					// I have no idea how to fix it.
 					// ====
-					byte[] buffer = new byte[StreamedAudio.this.audioInputStream.getFormat().getFrameSize()];
+					byte[] buffer = StreamedAudio.createBuffer(StreamedAudio.this.audioInputStream.getFormat());
 					int read = 0;
 					
 					while(!StreamedAudio.this.servicePlay.isShutdown()) {
@@ -507,7 +618,7 @@ public class StreamedAudio extends AbstractAudio {
 				// StreamedAudio.this.audioInputStream.getFormat() throws a NullPointerException due to threading.
 				// I have no idea how to fix it.
 				// ====
-				byte[] buffer = new byte[StreamedAudio.this.audioInputStream.getFormat().getFrameSize()];
+				byte[] buffer = StreamedAudio.createBuffer(StreamedAudio.this.audioInputStream.getFormat());
 				int read = 0;
 				
 				while(!StreamedAudio.this.servicePlay.isShutdown()) {
@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a {@linkplain ByteBuffer} without copying it. Heap, direct and mapped buffers are supported.
+ * The position of the given buffer is not changed.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class ByteBufferInputStream extends InputStream {
+
+	private final ByteBuffer buffer;
+	private int mark;
+	
+	/**
+	 * @param buffer the data between the position and the limit of the buffer is read
+	 * @since 2.1.0
+	 */
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		
+		this.buffer = buffer.duplicate();
+		this.mark = this.buffer.position();
+	}
+	
+	@Override
+	public int read() {
+		
+		return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+	}
+	
+	@Override
+	public int read(byte[] buffer, int offset, int length) {
+		
+		if(length == 0) {
+			
+			return 0;
+		}
+		
+		int remaining = this.buffer.remaining();
+		
+		if(remaining == 0) {
+			
+			return -1;
+		}
+		
+		int read = Math.min(length, remaining);
+		this.buffer.get(buffer, offset, read);
+		return read;
+	}
+	
+	@Override
+	public long skip(long bytes) {
+		
+		int skipped = (int)Math.max(0, Math.min(bytes, this.buffer.remaining()));
+		this.buffer.position(this.buffer.position() + skipped);
+		return skipped;
+	}
+	
+	@Override
+	public int available() {
+		
+		return this.buffer.remaining();
+	}
+	
+	@Override
+	public boolean markSupported() {
+		
+		return true;
+	}
+	
+	@Override
+	public void mark(int readLimit) {
+		
+		this.mark = this.buffer.position();
+	}
+	
+	@Override
+	public void reset() {
+		
+		this.buffer.position(this.mark);
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a region of a file with positional reads. Large reads go straight into the array of the caller,
+ * small reads are served from one block that is read at once, so that reading frame by frame does not cost a system call per frame.
+ * Skipping and resetting only move the position.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class ChannelInputStream extends InputStream {
+
+	private static final int BLOCK_SIZE = 65536;
+	
+	private final FileChannel channel;
+	private final long end;
+	private long position;
+	private long mark;
+	private ByteBuffer block;
+	private long blockPosition;
+	
+	/**
+	 * @param channel the file; is closed with this stream
+	 * @param position position of the first byte of the region
+	 * @param length number of bytes in the region
+	 * @since 2.1.0
+	 */
+	public ChannelInputStream(FileChannel channel, long position, long length) {
+		
+		this.channel = channel;
+		this.position = position;
+		this.mark = position;
+		this.end = position + length;
+	}
+	
+	@Override
+	public int read() throws IOException {
+		
+		byte[] buffer = new byte[1];
+		return this.read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xFF;
+	}
+	
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		
+		if(length == 0) {
+			
+			return 0;
+		}
+		
+		if(this.position >= this.end) {
+			
+			return -1;
+		}
+		
+		length = (int)Math.min(length, this.end - this.position);
+		
+		if(this.block == null || this.position < this.blockPosition || this.position >= this.blockPosition + this.block.limit()) {
+			
+			if(length >= BLOCK_SIZE) {
+				
+				int read = this.channel.read(ByteBuffer.wrap(buffer, offset, length), this.position);
+				
+				if(read > 0) {
+					
+					this.position += read;
+				}
+				
+				return read > 0 ? read : -1;
+			}
+			
+			if(!this.fill()) {
+				
+				return -1;
+			}
+		}
+		
+		int index = (int)(this.position - this.blockPosition);
+		int count = Math.min(length, this.block.limit() - index);
+		System.arraycopy(this.block.array(), index, buffer, offset, count);
+		this.position += count;
+		return count;
+	}
+	
+	@Override
+	public long skip(long bytes) {
+		
+		long skipped = Math.max(0, Math.min(bytes, this.end - this.position));
+		this.position += skipped;
+		return skipped;
+	}
+	
+	@Override
+	public int available() {
+		
+		return (int)Math.min(Integer.MAX_VALUE, Math.max(0, this.end - this.position));
+	}
+	
+	@Override
+	public boolean markSupported() {
+		
+		return true;
+	}
+	
+	@Override
+	public void mark(int readLimit) {
+		
+		this.mark = this.position;
+	}
+	
+	@Override
+	public void reset() {
+		
+		this.position = this.mark;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		
+		this.channel.close();
+	}
+	
+	private final boolean fill() throws IOException {
+		
+		if(this.block == null) {
+			
+			this.block = ByteBuffer.allocate(BLOCK_SIZE);
+		}
+		
+		this.block.clear();
+		this.block.limit((int)Math.min(BLOCK_SIZE, this.end - this.position));
+		int read = this.channel.read(this.block, this.position);
+		this.block.flip();
+		this.blockPosition = this.position;
+		
+		// the file was truncated
+		return read > 0;
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Converts the data of another stream with a {@linkplain PcmConverter} while it is read.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class ConvertingInputStream extends InputStream {
+
+	private static final int BUFFER_FRAMES = 4096;
+	
+	private final InputStream source;
+	private final PcmConverter converter;
+	private final byte[] input;
+	private final byte[] output;
+	private final byte[] singleByte = new byte[1];
+	private int inputLength;
+	private int outputPosition;
+	private int outputLength;
+	
+	/**
+	 * @param source the stream with the unconverted data
+	 * @param converter the converter
+	 * @since 2.1.0
+	 */
+	public ConvertingInputStream(InputStream source, PcmConverter converter) {
+		
+		this.source = source;
+		this.converter = converter;
+		this.input = new byte[BUFFER_FRAMES * converter.getSourceFrameSize()];
+		this.output = new byte[BUFFER_FRAMES * converter.getTargetFrameSize()];
+	}
+	
+	@Override
+	public int read() throws IOException {
+		
+		return this.read(this.singleByte, 0, 1) == -1 ? -1 : this.singleByte[0] & 0xFF;
+	}
+	
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		
+		if(length == 0) {
+			
+			return 0;
+		}
+		
+		if(this.outputPosition == this.outputLength && !this.fill()) {
+			
+			return -1;
+		}
+		
+		int count = Math.min(length, this.outputLength - this.outputPosition);
+		System.arraycopy(this.output, this.outputPosition, buffer, offset, count);
+		this.outputPosition += count;
+		return count;
+	}
+	
+	@Override
+	public int available() throws IOException {
+		
+		return this.outputLength - this.outputPosition;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		
+		this.source.close();
+	}
+	
+	private boolean fill() throws IOException {
+		
+		int frameSize = this.converter.getSourceFrameSize();
+		
+		// reads until there is at least one whole frame
+		while(this.inputLength < frameSize) {
+			
+			int read = this.source.read(this.input, this.inputLength, this.input.length - this.inputLength);
+			
+			if(read == -1) {
+				
+				return false;
+			}
+			
+			this.inputLength += read;
+		}
+		
+		int frames = this.inputLength / frameSize;
+		int used = frames * frameSize;
+		this.converter.convert(this.input, 0, this.output, 0, frames);
+		
+		// keeps the bytes of an incomplete frame for the next call
+		System.arraycopy(this.input, used, this.input, 0, this.inputLength - used);
+		this.inputLength -= used;
+		this.outputPosition = 0;
+		this.outputLength = frames * this.converter.getTargetFrameSize();
+		return true;
+	}
+}
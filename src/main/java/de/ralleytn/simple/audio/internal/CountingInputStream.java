@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes that were read from the underlying stream, so that the progress of a decoder can be measured.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class CountingInputStream extends FilterInputStream {
+
+	private volatile long count;
+	private long mark;
+	
+	/**
+	 * @param inputStream the stream that should be counted
+	 * @since 2.1.0
+	 */
+	public CountingInputStream(InputStream inputStream) {
+		
+		super(inputStream);
+	}
+	
+	@Override
+	public int read() throws IOException {
+		
+		int read = super.read();
+		
+		if(read != -1) {
+			
+			this.count++;
+		}
+		
+		return read;
+	}
+	
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		
+		int read = super.read(buffer, offset, length);
+		
+		if(read > 0) {
+			
+			this.count += read;
+		}
+		
+		return read;
+	}
+	
+	@Override
+	public long skip(long bytes) throws IOException {
+		
+		long skipped = super.skip(bytes);
+		this.count += skipped;
+		return skipped;
+	}
+	
+	@Override
+	public synchronized void mark(int readLimit) {
+		
+		super.mark(readLimit);
+		this.mark = this.count;
+	}
+	
+	@Override
+	public synchronized void reset() throws IOException {
+		
+		super.reset();
+		this.count = this.mark;
+	}
+	
+	/**
+	 * @return number of bytes that were read so far
+	 * @since 2.1.0
+	 */
+	public long getCount() {
+		
+		return this.count;
+	}
+}
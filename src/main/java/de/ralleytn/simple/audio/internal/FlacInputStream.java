@@ -0,0 +1,997 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Decodes a native FLAC stream as described <a href="https://xiph.org/flac/format.html">here</a> into signed little endian PCM data.
+ * The metadata is read when the stream is created. Decoding a frame does not allocate any memory
+ * and {@link #skip(long)} jumps over the encoded data with the help of the SEEKTABLE if the stream has one.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class FlacInputStream extends InputStream {
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final int STREAMINFO = 0;
+	private static final int SEEKTABLE = 3;
+	private static final int VORBIS_COMMENT = 4;
+	private static final int MAX_COMMENT_LENGTH = 65536;
+	private static final int MAX_COMMENTS = 4096;
+	private static final int[] CRC8 = new int[256];
+	
+	static {
+		
+		// polynomial x^8 + x^2 + x + 1
+		for(int index = 0; index < 256; index++) {
+			
+			int crc = index;
+			
+			for(int bit = 0; bit < 8; bit++) {
+				
+				crc = (crc & 0x80) != 0 ? ((crc << 1) ^ 0x07) & 0xFF : (crc << 1) & 0xFF;
+			}
+			
+			FlacInputStream.CRC8[index] = crc;
+		}
+	}
+	
+	private final InputStream source;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int bufferPosition;
+	private int bufferLimit;
+	private long consumed;
+	private long cache;
+	private int cacheBits;
+	
+	private int minBlockSize;
+	private int maxBlockSize;
+	private int minFrameSize;
+	private int maxFrameSize;
+	private int sampleRate;
+	private int channels;
+	private int bitsPerSample;
+	private long totalSamples;
+	private final byte[] md5 = new byte[16];
+	private long[] seekSamples = new long[0];
+	private long[] seekOffsets = new long[0];
+	private String vendor;
+	private final Map<String, String> comments = new LinkedHashMap<>();
+	private final long firstFrameOffset;
+	
+	private final AudioFormat format;
+	private final int bytesPerSample;
+	private final int frameSize;
+	private final int containerShift;
+	private final int[] coefficients = new int[32];
+	private final byte[] header = new byte[16];
+	private final byte[] singleByte = new byte[1];
+	private int[][] samples;
+	private byte[] pcm;
+	private int pcmPosition;
+	private int pcmLimit;
+	private long blockStart;
+	private long nextSample;
+	private boolean ended;
+	
+	/**
+	 * Reads the metadata of a FLAC stream.
+	 * @param source the encoded FLAC data, positioned at the {@code fLaC} marker or an ID3v2 tag in front of it
+	 * @throws IOException if the data is not a valid FLAC stream or an I/O error occurs
+	 * @since 2.1.0
+	 */
+	public FlacInputStream(InputStream source) throws IOException {
+		
+		this.source = source;
+		int marker = this.readBits(32);
+		
+		// some taggers put an ID3v2 tag in front of the stream
+		if((marker >>> 8) == 0x494433) {
+			
+			this.readBits(16);
+			int size = (this.readBits(8) << 21) | (this.readBits(8) << 14) | (this.readBits(8) << 7) | this.readBits(8);
+			this.skipBytes(size);
+			marker = this.readBits(32);
+		}
+		
+		if(marker != 0x664C6143) {
+			
+			throw new IOException("Not a FLAC stream!");
+		}
+		
+		boolean last = false;
+		boolean streamInfo = false;
+		
+		while(!last) {
+			
+			last = this.readBits(1) == 1;
+			int type = this.readBits(7);
+			int length = this.readBits(24);
+			
+			if(type == STREAMINFO) {
+				
+				this.minBlockSize = this.readBits(16);
+				this.maxBlockSize = this.readBits(16);
+				this.minFrameSize = this.readBits(24);
+				this.maxFrameSize = this.readBits(24);
+				this.sampleRate = this.readBits(20);
+				this.channels = this.readBits(3) + 1;
+				this.bitsPerSample = this.readBits(5) + 1;
+				this.totalSamples = ((long)this.readBits(4) << 32) | (this.readBits(32) & 0xFFFFFFFFL);
+				
+				for(int index = 0; index < this.md5.length; index++) {
+					
+					this.md5[index] = (byte)this.readBits(8);
+				}
+				
+				this.skipBytes(length - 34);
+				streamInfo = true;
+				
+			} else if(type == SEEKTABLE) {
+				
+				int points = length / 18;
+				int count = 0;
+				this.seekSamples = new long[points];
+				this.seekOffsets = new long[points];
+				
+				for(int index = 0; index < points; index++) {
+					
+					long sample = this.readLong();
+					long offset = this.readLong();
+					this.readBits(16);
+					
+					// placeholder points have the highest possible sample number
+					if(sample != -1L) {
+						
+						this.seekSamples[count] = sample;
+						this.seekOffsets[count] = offset;
+						count++;
+					}
+				}
+				
+				this.seekSamples = Arrays.copyOf(this.seekSamples, count);
+				this.seekOffsets = Arrays.copyOf(this.seekOffsets, count);
+				this.skipBytes(length - points * 18);
+				
+			} else if(type == VORBIS_COMMENT) {
+				
+				long end = this.getBytePosition() + length;
+				String vendor = this.readComment(end);
+				
+				// the block was cut or is broken, so nothing behind the vendor string can be trusted
+				if(vendor != null && end - this.getBytePosition() >= 4) {
+					
+					this.vendor = vendor;
+					long count = Math.min(this.readLittleEndianInt() & 0xFFFFFFFFL, FlacInputStream.MAX_COMMENTS);
+					
+					for(long index = 0; index < count && end - this.getBytePosition() >= 4; index++) {
+						
+						String comment = this.readComment(end);
+						
+						if(comment == null) {
+							
+							break;
+						}
+						
+						int separator = comment.indexOf('=');
+						
+						if(separator > 0) {
+							
+							this.comments.put(comment.substring(0, separator).toLowerCase(Locale.ROOT), comment.substring(separator + 1));
+						}
+					}
+				}
+				
+				this.skipBytes(end - this.getBytePosition());
+				
+			} else {
+				
+				this.skipBytes(length);
+			}
+		}
+		
+		if(!streamInfo) {
+			
+			throw new IOException("FLAC stream without STREAMINFO!");
+		}
+		
+		if(this.bitsPerSample > 24) {
+			
+			throw new IOException("FLAC streams with more than 24 bits per sample are not supported!");
+		}
+		
+		this.firstFrameOffset = this.getBytePosition();
+		this.bytesPerSample = (this.bitsPerSample + 7) >> 3;
+		this.frameSize = this.bytesPerSample * this.channels;
+		this.containerShift = this.bytesPerSample * 8 - this.bitsPerSample;
+		this.format = new AudioFormat(this.sampleRate, this.bytesPerSample * 8, this.channels, true, false);
+		this.ensureCapacity(Math.max(this.maxBlockSize, 16));
+	}
+	
+	@Override
+	public int read() throws IOException {
+		
+		return this.read(this.singleByte, 0, 1) == -1 ? -1 : this.singleByte[0] & 0xFF;
+	}
+	
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		
+		if(length == 0) {
+			
+			return 0;
+		}
+		
+		int read = 0;
+		
+		while(read < length) {
+			
+			if(this.pcmPosition == this.pcmLimit) {
+				
+				int blockSize = this.decodeFrame();
+				
+				if(blockSize == -1) {
+					
+					break;
+				}
+				
+				this.interleave(blockSize);
+			}
+			
+			int count = Math.min(length - read, this.pcmLimit - this.pcmPosition);
+			System.arraycopy(this.pcm, this.pcmPosition, buffer, offset + read, count);
+			this.pcmPosition += count;
+			read += count;
+		}
+		
+		return read == 0 ? -1 : read;
+	}
+	
+	/**
+	 * Skips whole frames of PCM data. Frames that lie completely before the target are not decoded if a seek point can be used.
+	 */
+	@Override
+	public long skip(long bytes) throws IOException {
+		
+		long start = this.blockStart + this.pcmPosition / this.frameSize;
+		long target = start + Math.max(0, bytes) / this.frameSize;
+		
+		if(target >= this.nextSample) {
+			
+			// the current block is not needed anymore
+			this.pcmPosition = this.pcmLimit;
+			int point = -1;
+			
+			for(int index = 0; index < this.seekSamples.length && this.seekSamples[index] <= target; index++) {
+				
+				point = index;
+			}
+			
+			if(point != -1 && this.seekSamples[point] > this.nextSample) {
+				
+				this.cacheBits &= ~7;
+				this.skipBytes(this.firstFrameOffset + this.seekOffsets[point] - this.getBytePosition());
+				this.nextSample = this.seekSamples[point];
+			}
+			
+			while(this.pcmPosition == this.pcmLimit) {
+				
+				long first = this.nextSample;
+				int blockSize = this.decodeFrame();
+				
+				if(blockSize == -1) {
+					
+					break;
+				}
+				
+				if(target < first + blockSize) {
+					
+					this.interleave(blockSize);
+					this.pcmPosition = (int)(target - first) * this.frameSize;
+				}
+			}
+			
+			if(this.pcmPosition == this.pcmLimit) {
+				
+				target = this.nextSample;
+			}
+			
+		} else {
+			
+			this.pcmPosition = (int)(target - this.blockStart) * this.frameSize;
+		}
+		
+		return (target - start) * this.frameSize;
+	}
+	
+	@Override
+	public int available() throws IOException {
+		
+		return this.pcmLimit - this.pcmPosition;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		
+		this.source.close();
+	}
+	
+	/**
+	 * @return the {@linkplain AudioFormat} of the decoded data
+	 * @since 2.1.0
+	 */
+	public AudioFormat getAudioFormat() {
+		
+		return this.format;
+	}
+	
+	/**
+	 * @return the total number of samples per channel or {@code -1} if the STREAMINFO does not contain it
+	 * @since 2.1.0
+	 */
+	public long getFrameLength() {
+		
+		return this.totalSamples > 0 ? this.totalSamples : -1L;
+	}
+	
+	/**
+	 * @return the minimum block size in samples
+	 * @since 2.1.0
+	 */
+	public int getMinBlockSize() {
+		
+		return this.minBlockSize;
+	}
+	
+	/**
+	 * @return the maximum block size in samples
+	 * @since 2.1.0
+	 */
+	public int getMaxBlockSize() {
+		
+		return this.maxBlockSize;
+	}
+	
+	/**
+	 * @return the minimum frame size in bytes or {@code 0} if it is unknown
+	 * @since 2.1.0
+	 */
+	public int getMinFrameSize() {
+		
+		return this.minFrameSize;
+	}
+	
+	/**
+	 * @return the maximum frame size in bytes or {@code 0} if it is unknown
+	 * @since 2.1.0
+	 */
+	public int getMaxFrameSize() {
+		
+		return this.maxFrameSize;
+	}
+	
+	/**
+	 * @return the sample rate in Hz
+	 * @since 2.1.0
+	 */
+	public int getSampleRate() {
+		
+		return this.sampleRate;
+	}
+	
+	/**
+	 * @return the number of channels
+	 * @since 2.1.0
+	 */
+	public int getChannels() {
+		
+		return this.channels;
+	}
+	
+	/**
+	 * @return the number of bits per sample of the encoded data
+	 * @since 2.1.0
+	 */
+	public int getBitsPerSample() {
+		
+		return this.bitsPerSample;
+	}
+	
+	/**
+	 * @return the MD5 signature of the unencoded audio data or only zeros if the encoder did not compute it
+	 * @since 2.1.0
+	 */
+	public byte[] getMD5() {
+		
+		return this.md5.clone();
+	}
+	
+	/**
+	 * @return the number of usable points in the SEEKTABLE
+	 * @since 2.1.0
+	 */
+	public int getSeekPointCount() {
+		
+		return this.seekSamples.length;
+	}
+	
+	/**
+	 * @return the vendor string of the VORBIS_COMMENT block or {@code null} if there is none
+	 * @since 2.1.0
+	 */
+	public String getVendor() {
+		
+		return this.vendor;
+	}
+	
+	/**
+	 * @return the comments of the VORBIS_COMMENT block with lower case field names
+	 * @since 2.1.0
+	 */
+	public Map<String, String> getComments() {
+		
+		return Collections.unmodifiableMap(this.comments);
+	}
+	
+	private int decodeFrame() throws IOException {
+		
+		if(this.ended) {
+			
+			return -1;
+		}
+		
+		// frames start at byte boundaries
+		this.cacheBits &= ~7;
+		byte[] header = this.header;
+		int length = 0;
+		
+		// a header is only accepted if its CRC-8 matches, otherwise a sync code that appears by chance in the audio data would be decoded
+		while(true) {
+			
+			// the shortest header has 6 bytes, the length of the others is known from the first 5
+			int headerLength = length < 5 ? 0 : FlacInputStream.getHeaderLength(header);
+			
+			if(length < Math.max(6, headerLength)) {
+				
+				int value = this.readByte();
+				
+				if(value == -1) {
+					
+					this.ended = true;
+					return -1;
+				}
+				
+				header[length++] = (byte)value;
+				continue;
+			}
+			
+			if(headerLength > 0 && FlacInputStream.crc8(header, headerLength - 1) == (header[headerLength - 1] & 0xFF)) {
+				
+				break;
+			}
+			
+			// searches for the next sync code from the second byte on
+			length--;
+			System.arraycopy(header, 1, header, 0, length);
+		}
+		
+		int blockSizeCode = (header[2] >> 4) & 0xF;
+		int sampleRateCode = header[2] & 0xF;
+		int channelAssignment = (header[3] >> 4) & 0xF;
+		int sampleSizeCode = (header[3] >> 1) & 0x7;
+		
+		// the frame or sample number is coded like UTF-8 and not needed because the decoded samples are counted
+		int position = 5 + FlacInputStream.getContinuationBytes(header[4]);
+		int blockSize = 0;
+		
+		switch(blockSizeCode) {
+			case 1:  blockSize = 192; break;
+			case 2:
+			case 3:
+			case 4:
+			case 5:  blockSize = 576 << (blockSizeCode - 2); break;
+			case 6:  blockSize = (header[position] & 0xFF) + 1; break;
+			case 7:  blockSize = ((header[position] & 0xFF) << 8 | (header[position + 1] & 0xFF)) + 1; break;
+			default: blockSize = 256 << (blockSizeCode - 8); break;
+		}
+		
+		int bitsPerSample = 0;
+		
+		switch(sampleSizeCode) {
+			case 0:  bitsPerSample = this.bitsPerSample; break;
+			case 1:  bitsPerSample = 8; break;
+			case 2:  bitsPerSample = 12; break;
+			case 4:  bitsPerSample = 16; break;
+			case 5:  bitsPerSample = 20; break;
+			case 6:  bitsPerSample = 24; break;
+			default: throw new IOException("Unsupported sample size in FLAC frame!");
+		}
+		
+		int channels = channelAssignment < 8 ? channelAssignment + 1 : 2;
+		
+		if(blockSize == 0 || channelAssignment > 10 || channels != this.channels) {
+			
+			throw new IOException("Invalid FLAC frame header!");
+		}
+		
+		this.ensureCapacity(blockSize);
+		
+		for(int channel = 0; channel < channels; channel++) {
+			
+			// the side channel has one bit more
+			boolean side = (channelAssignment == 8 && channel == 1) || (channelAssignment == 9 && channel == 0) || (channelAssignment == 10 && channel == 1);
+			this.decodeSubframe(this.samples[channel], blockSize, side ? bitsPerSample + 1 : bitsPerSample);
+		}
+		
+		// padding and CRC-16 of the frame
+		this.cacheBits &= ~7;
+		this.readBits(16);
+		
+		int[] left = this.samples[0];
+		int[] right = channels > 1 ? this.samples[1] : null;
+		
+		switch(channelAssignment) {
+			case 8:
+				for(int index = 0; index < blockSize; index++) {
+					
+					right[index] = left[index] - right[index];
+				}
+				
+				break;
+				
+			case 9:
+				for(int index = 0; index < blockSize; index++) {
+					
+					left[index] += right[index];
+				}
+				
+				break;
+				
+			case 10:
+				for(int index = 0; index < blockSize; index++) {
+					
+					int side = right[index];
+					int mid = (left[index] << 1) | (side & 1);
+					left[index] = (mid + side) >> 1;
+					right[index] = (mid - side) >> 1;
+				}
+				
+				break;
+				
+			default: break;
+		}
+		
+		this.blockStart = this.nextSample;
+		this.nextSample += blockSize;
+		return blockSize;
+	}
+	
+	// the length of the frame header that starts with the given bytes or 0 if they are not the start of a valid header
+	private static final int getHeaderLength(byte[] header) {
+		
+		int blockSizeCode = (header[2] >> 4) & 0xF;
+		int sampleRateCode = header[2] & 0xF;
+		int channelAssignment = (header[3] >> 4) & 0xF;
+		int sampleSizeCode = (header[3] >> 1) & 0x7;
+		int continuationBytes = FlacInputStream.getContinuationBytes(header[4]);
+		
+		if((header[0] & 0xFF) != 0xFF || (header[1] & 0xFE) != 0xF8 || blockSizeCode == 0 || sampleRateCode == 15 || channelAssignment > 10 ||
+		   sampleSizeCode == 3 || sampleSizeCode == 7 || (header[3] & 1) != 0 || continuationBytes == -1) {
+			
+			return 0;
+		}
+		
+		return 6 + continuationBytes + (blockSizeCode == 6 ? 1 : blockSizeCode == 7 ? 2 : 0) + (sampleRateCode == 12 ? 1 : sampleRateCode == 13 || sampleRateCode == 14 ? 2 : 0);
+	}
+	
+	// the number of bytes that follow the first byte of the coded frame or sample number or -1 if the byte can not be the first
+	private static final int getContinuationBytes(byte first) {
+		
+		int ones = Integer.numberOfLeadingZeros(~(first << 24));
+		return ones == 0 ? 0 : ones == 1 || ones > 7 ? -1 : ones - 1;
+	}
+	
+	private static final int crc8(byte[] data, int length) {
+		
+		int crc = 0;
+		
+		for(int index = 0; index < length; index++) {
+			
+			crc = CRC8[(crc ^ data[index]) & 0xFF];
+		}
+		
+		return crc;
+	}
+	
+	private void decodeSubframe(int[] output, int blockSize, int bitsPerSample) throws IOException {
+		
+		this.readBits(1);
+		int type = this.readBits(6);
+		int wastedBits = 0;
+		
+		if(this.readBits(1) == 1) {
+			
+			wastedBits = this.readUnary() + 1;
+			bitsPerSample -= wastedBits;
+		}
+		
+		if(type == 0) {
+			
+			Arrays.fill(output, 0, blockSize, this.readSignedBits(bitsPerSample));
+			
+		} else if(type == 1) {
+			
+			for(int index = 0; index < blockSize; index++) {
+				
+				output[index] = this.readSignedBits(bitsPerSample);
+			}
+			
+		} else if(type >= 8 && type <= 12) {
+			
+			int order = type - 8;
+			
+			for(int index = 0; index < order; index++) {
+				
+				output[index] = this.readSignedBits(bitsPerSample);
+			}
+			
+			this.decodeResidual(output, blockSize, order);
+			
+			switch(order) {
+				case 1:
+					for(int index = 1; index < blockSize; index++) {
+						
+						output[index] += output[index - 1];
+					}
+					
+					break;
+					
+				case 2:
+					for(int index = 2; index < blockSize; index++) {
+						
+						output[index] += 2 * output[index - 1] - output[index - 2];
+					}
+					
+					break;
+					
+				case 3:
+					for(int index = 3; index < blockSize; index++) {
+						
+						output[index] += 3 * (output[index - 1] - output[index - 2]) + output[index - 3];
+					}
+					
+					break;
+					
+				case 4:
+					for(int index = 4; index < blockSize; index++) {
+						
+						output[index] += 4 * (output[index - 1] + output[index - 3]) - 6 * output[index - 2] - output[index - 4];
+					}
+					
+					break;
+					
+				default: break;
+			}
+			
+		} else if(type >= 32) {
+			
+			int order = type - 31;
+			
+			for(int index = 0; index < order; index++) {
+				
+				output[index] = this.readSignedBits(bitsPerSample);
+			}
+			
+			int precision = this.readBits(4) + 1;
+			int shift = this.readSignedBits(5);
+			
+			for(int index = 0; index < order; index++) {
+				
+				this.coefficients[index] = this.readSignedBits(precision);
+			}
+			
+			this.decodeResidual(output, blockSize, order);
+			
+			for(int index = order; index < blockSize; index++) {
+				
+				long sum = 0;
+				
+				for(int coefficient = 0; coefficient < order; coefficient++) {
+					
+					sum += (long)this.coefficients[coefficient] * output[index - 1 - coefficient];
+				}
+				
+				output[index] += (int)(shift >= 0 ? sum >> shift : sum << -shift);
+			}
+			
+		} else {
+			
+			throw new IOException("Reserved FLAC subframe type!");
+		}
+		
+		if(wastedBits > 0) {
+			
+			for(int index = 0; index < blockSize; index++) {
+				
+				output[index] <<= wastedBits;
+			}
+		}
+	}
+	
+	private void decodeResidual(int[] output, int blockSize, int order) throws IOException {
+		
+		int method = this.readBits(2);
+		
+		if(method > 1) {
+			
+			throw new IOException("Reserved FLAC residual coding method!");
+		}
+		
+		int parameterBits = method == 0 ? 4 : 5;
+		int escape = method == 0 ? 15 : 31;
+		int partitionOrder = this.readBits(4);
+		int partitions = 1 << partitionOrder;
+		int partitionSize = blockSize >> partitionOrder;
+		int index = order;
+		
+		for(int partition = 0; partition < partitions; partition++) {
+			
+			int end = (partition + 1) * partitionSize;
+			int parameter = this.readBits(parameterBits);
+			
+			if(parameter == escape) {
+				
+				int bits = this.readBits(5);
+				
+				while(index < end) {
+					
+					output[index++] = this.readSignedBits(bits);
+				}
+				
+			} else {
+				
+				while(index < end) {
+					
+					int value = (this.readUnary() << parameter) | this.readBits(parameter);
+					output[index++] = (value >>> 1) ^ -(value & 1);
+				}
+			}
+		}
+	}
+	
+	private void interleave(int blockSize) {
+		
+		int position = 0;
+		
+		for(int index = 0; index < blockSize; index++) {
+			
+			for(int channel = 0; channel < this.channels; channel++) {
+				
+				int sample = this.samples[channel][index] << this.containerShift;
+				
+				for(int shift = 0; shift < this.bytesPerSample; shift++) {
+					
+					this.pcm[position++] = (byte)(sample >> (shift << 3));
+				}
+			}
+		}
+		
+		this.pcmPosition = 0;
+		this.pcmLimit = position;
+	}
+	
+	private void ensureCapacity(int blockSize) {
+		
+		if(this.samples == null || this.samples[0].length < blockSize) {
+			
+			this.samples = new int[this.channels][blockSize];
+			this.pcm = new byte[blockSize * this.frameSize];
+		}
+	}
+	
+	private long getBytePosition() {
+		
+		return this.consumed - (this.cacheBits >> 3);
+	}
+	
+	private int readByte() throws IOException {
+		
+		if(this.cacheBits >= 8) {
+			
+			this.cacheBits -= 8;
+			return (int)(this.cache >>> this.cacheBits) & 0xFF;
+		}
+		
+		if(this.bufferPosition == this.bufferLimit && !this.fill()) {
+			
+			return -1;
+		}
+		
+		this.consumed++;
+		return this.buffer[this.bufferPosition++] & 0xFF;
+	}
+	
+	private int readBits(int bits) throws IOException {
+		
+		while(this.cacheBits < bits) {
+			
+			if(this.bufferPosition == this.bufferLimit && !this.fill()) {
+				
+				throw new EOFException("Unexpected end of FLAC stream!");
+			}
+			
+			this.cache = (this.cache << 8) | (this.buffer[this.bufferPosition++] & 0xFF);
+			this.cacheBits += 8;
+			this.consumed++;
+		}
+		
+		this.cacheBits -= bits;
+		return (int)((this.cache >>> this.cacheBits) & ((1L << bits) - 1));
+	}
+	
+	private int readSignedBits(int bits) throws IOException {
+		
+		if(bits == 0) {
+			
+			return 0;
+		}
+		
+		int shift = 32 - bits;
+		return (this.readBits(bits) << shift) >> shift;
+	}
+	
+	private int readUnary() throws IOException {
+		
+		int count = 0;
+		
+		while(true) {
+			
+			if(this.cacheBits == 0) {
+				
+				this.readBits(8);
+				this.cacheBits = 8;
+			}
+			
+			int bits = (int)(this.cache & ((1L << this.cacheBits) - 1));
+			
+			if(bits == 0) {
+				
+				count += this.cacheBits;
+				this.cacheBits = 0;
+				
+			} else {
+				
+				int zeros = Integer.numberOfLeadingZeros(bits) - (32 - this.cacheBits);
+				count += zeros;
+				this.cacheBits -= zeros + 1;
+				return count;
+			}
+		}
+	}
+	
+	private long readLong() throws IOException {
+		
+		return ((long)this.readBits(32) << 32) | (this.readBits(32) & 0xFFFFFFFFL);
+	}
+	
+	private int readLittleEndianInt() throws IOException {
+		
+		return this.readBits(8) | (this.readBits(8) << 8) | (this.readBits(8) << 16) | (this.readBits(8) << 24);
+	}
+	
+	private String readComment(long end) throws IOException {
+		
+		if(end - this.getBytePosition() < 4) {
+			
+			return null;
+		}
+		
+		int length = this.readLittleEndianInt();
+		
+		if(length < 0 || length > end - this.getBytePosition()) {
+			
+			return null;
+		}
+		
+		// long comments (like embedded pictures) are skipped
+		if(length > FlacInputStream.MAX_COMMENT_LENGTH) {
+			
+			this.skipBytes(length);
+			return "";
+		}
+		
+		return this.readString(length);
+	}
+	
+	private String readString(int length) throws IOException {
+		
+		byte[] bytes = new byte[length];
+		
+		for(int index = 0; index < length; index++) {
+			
+			bytes[index] = (byte)this.readBits(8);
+		}
+		
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private void skipBytes(long count) throws IOException {
+		
+		// the bit cache is always byte aligned when this is called
+		while(count > 0 && this.cacheBits >= 8) {
+			
+			this.cacheBits -= 8;
+			count--;
+		}
+		
+		int buffered = (int)Math.min(count, this.bufferLimit - this.bufferPosition);
+		this.bufferPosition += buffered;
+		this.consumed += buffered;
+		count -= buffered;
+		
+		while(count > 0) {
+			
+			long skipped = this.source.skip(count);
+			
+			if(skipped <= 0) {
+				
+				if(this.source.read() == -1) {
+					
+					throw new EOFException("Unexpected end of FLAC stream!");
+				}
+				
+				skipped = 1;
+			}
+			
+			count -= skipped;
+			this.consumed += skipped;
+		}
+	}
+	
+	private boolean fill() throws IOException {
+		
+		int read = this.source.read(this.buffer, 0, this.buffer.length);
+		
+		if(read <= 0) {
+			
+			return false;
+		}
+		
+		this.bufferPosition = 0;
+		this.bufferLimit = read;
+		return true;
+	}
+}
@@ -0,0 +1,582 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Cleaner;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams a remote HTTP resource progressively. Everything that was downloaded is kept in a segment cache in a temporary file,
+ * so starting over, looping and seeking backwards never download a byte again. Seeking forwards only moves the position;
+ * the data at the new position is requested with an HTTP {@code Range} header. While the data is read, the following segments
+ * are downloaded in the background up to the read-ahead size.
+ * Servers that do not support ranges send the whole file once, which is then cached in the same way.
+ * The cache lives as long as the {@linkplain URL} returned by {@link #wrap(URL)}.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class HttpStreamHandler extends URLStreamHandler {
+
+	/**
+	 * Size of a segment in the cache in bytes.
+	 * @since 2.1.0
+	 */
+	public static final int SEGMENT_SIZE = 32768;
+	
+	private static final Cleaner CLEANER = Cleaner.create();
+	private static final AtomicInteger COUNTER = new AtomicInteger();
+	private static final ExecutorService DOWNLOADER = Executors.newCachedThreadPool(runnable -> {
+		
+		Thread thread = new Thread(runnable, "SimpleAudio-Download-" + COUNTER.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private static volatile int readAhead = 262144;
+	
+	private final Object lock = new Object();
+	private final BitSet present = new BitSet();
+	private final BitSet pending = new BitSet();
+	private URL url;
+	private SegmentFile file;
+	private long length = -1L;
+	private long lastModified;
+	private boolean connected;
+	private boolean downloadingAll;
+	private int downloads;
+	private IOException error;
+	
+	private HttpStreamHandler() {}
+	
+	/**
+	 * Returns a URL with the same address that streams through a segment cache. Other URLs are returned as they are.
+	 * @param url the URL
+	 * @return the URL with the cache
+	 * @throws MalformedURLException never
+	 * @since 2.1.0
+	 */
+	public static final URL wrap(URL url) throws MalformedURLException {
+		
+		if(HttpStreamHandler.isHttpURL(url)) {
+			
+			HttpStreamHandler handler = new HttpStreamHandler();
+			handler.url = url;
+			return new URL(null, url.toExternalForm(), handler);
+		}
+		
+		return url;
+	}
+	
+	/**
+	 * @param url a URL
+	 * @return {@code true} if the URL uses HTTP or HTTPS, else {@code false}
+	 * @since 2.1.0
+	 */
+	public static final boolean isHttpURL(URL url) {
+		
+		return "http".equalsIgnoreCase(url.getProtocol()) || "https".equalsIgnoreCase(url.getProtocol());
+	}
+	
+	/**
+	 * @param bytes number of bytes that are downloaded ahead of the position that is currently read
+	 * @since 2.1.0
+	 */
+	public static final void setReadAhead(int bytes) {
+		
+		HttpStreamHandler.readAhead = Math.max(0, bytes);
+	}
+	
+	/**
+	 * @return number of bytes that are downloaded ahead of the position that is currently read
+	 * @since 2.1.0
+	 */
+	public static final int getReadAhead() {
+		
+		return HttpStreamHandler.readAhead;
+	}
+	
+	@Override
+	protected URLConnection openConnection(URL url) {
+		
+		return new CachedConnection(url);
+	}
+	
+	// downloads the first segments if nothing was requested yet, so that the length and the modification time are known
+	private final void connect() throws IOException {
+		
+		synchronized(this.lock) {
+			
+			if(!this.connected) {
+				
+				this.request(0);
+				
+				while(!this.connected && this.error == null) {
+					
+					this.await();
+				}
+				
+				this.throwError();
+			}
+		}
+	}
+	
+	private final int read(long position, byte[] buffer, int offset, int length) throws IOException {
+		
+		int segment = (int)(position / SEGMENT_SIZE);
+		
+		synchronized(this.lock) {
+			
+			while(true) {
+				
+				if(this.length >= 0 && position >= this.length) {
+					
+					return -1;
+				}
+				
+				if(this.present.get(segment)) {
+					
+					break;
+				}
+				
+				this.throwError();
+				this.request(segment);
+				this.await();
+			}
+			
+			// keeps the download ahead of the reader
+			int last = (int)((position + HttpStreamHandler.readAhead) / SEGMENT_SIZE);
+			int missing = this.present.nextClearBit(segment + 1);
+			
+			if(missing <= last && this.downloads == 0 && (this.length < 0 || (long)missing * SEGMENT_SIZE < this.length)) {
+				
+				this.request(missing);
+			}
+		}
+		
+		long end = (long)(segment + 1) * SEGMENT_SIZE;
+		
+		synchronized(this.lock) {
+			
+			if(this.length >= 0) {
+				
+				end = Math.min(end, this.length);
+			}
+		}
+		
+		int count = (int)Math.min(length, end - position);
+		return this.file.read(ByteBuffer.wrap(buffer, offset, count), position);
+	}
+	
+	// has to be called while holding the lock
+	private final void request(int segment) {
+		
+		// until the first response arrived it is unknown whether the server supports ranges
+		if(this.pending.get(segment) || this.downloadingAll || (!this.connected && this.downloads > 0)) {
+			
+			return;
+		}
+		
+		int count = Math.max(1, HttpStreamHandler.readAhead / SEGMENT_SIZE);
+		int last = Math.min(segment + count, this.present.nextSetBit(segment) == -1 ? Integer.MAX_VALUE : this.present.nextSetBit(segment)) - 1;
+		last = Math.min(last, this.pending.nextSetBit(segment) == -1 ? Integer.MAX_VALUE : this.pending.nextSetBit(segment) - 1);
+		
+		if(this.length >= 0) {
+			
+			last = (int)Math.min(last, (this.length - 1) / SEGMENT_SIZE);
+		}
+		
+		int first = segment;
+		int end = last;
+		this.pending.set(first, end + 1);
+		this.downloads++;
+		
+		DOWNLOADER.execute(() -> {
+			
+			try {
+				
+				this.download(first, end);
+				
+			} catch(IOException exception) {
+				
+				synchronized(this.lock) {
+					
+					this.error = exception;
+				}
+				
+			} finally {
+				
+				synchronized(this.lock) {
+					
+					this.pending.clear(first, end + 1);
+					this.downloads--;
+					this.lock.notifyAll();
+				}
+			}
+		});
+	}
+	
+	private final void download(int first, int last) throws IOException {
+		
+		long start = (long)first * SEGMENT_SIZE;
+		HttpURLConnection connection = (HttpURLConnection)this.url.openConnection();
+		connection.setRequestProperty("Range", "bytes=" + start + "-" + ((long)(last + 1) * SEGMENT_SIZE - 1));
+		connection.setRequestProperty("Accept-Encoding", "identity");
+		int code = connection.getResponseCode();
+		
+		if(code == 416) {
+			
+			// the requested range starts behind the end of the file
+			this.setLength(start, connection.getLastModified());
+			connection.disconnect();
+			return;
+		}
+		
+		if(code != HttpURLConnection.HTTP_PARTIAL && code != HttpURLConnection.HTTP_OK) {
+			
+			connection.disconnect();
+			throw new IOException("Server returned HTTP response code: " + code + " for URL: " + this.url);
+		}
+		
+		long total = -1L;
+		
+		if(code == HttpURLConnection.HTTP_PARTIAL) {
+			
+			String range = connection.getHeaderField("Content-Range");
+			
+			if(range != null && range.lastIndexOf('/') != -1 && !range.endsWith("*")) {
+				
+				total = Long.parseLong(range.substring(range.lastIndexOf('/') + 1).trim());
+			}
+			
+		} else {
+			
+			// the server ignored the range and sends the whole file, so everything is stored
+			start = 0;
+			total = connection.getContentLengthLong();
+			
+			synchronized(this.lock) {
+				
+				this.downloadingAll = true;
+			}
+		}
+		
+		synchronized(this.lock) {
+			
+			if(this.file == null) {
+				
+				this.file = new SegmentFile();
+				CLEANER.register(this, this.file);
+			}
+			
+			this.lastModified = connection.getLastModified();
+			
+			if(total >= 0) {
+				
+				this.length = total;
+			}
+			
+			this.connected = true;
+			this.lock.notifyAll();
+		}
+		
+		try(InputStream input = connection.getInputStream()) {
+			
+			byte[] buffer = new byte[SEGMENT_SIZE];
+			long position = start;
+			int filled = 0;
+			int read = 0;
+			
+			while((read = input.read(buffer, filled, buffer.length - filled)) != -1) {
+				
+				filled += read;
+				
+				if(filled == buffer.length) {
+					
+					this.store(position, buffer, filled);
+					position += filled;
+					filled = 0;
+				}
+			}
+			
+			if(filled > 0) {
+				
+				this.store(position, buffer, filled);
+				position += filled;
+			}
+			
+			if(code == HttpURLConnection.HTTP_OK || (total >= 0 && position >= total)) {
+				
+				this.setLength(position, this.lastModified);
+			}
+			
+		} finally {
+			
+			synchronized(this.lock) {
+				
+				this.downloadingAll = false;
+			}
+		}
+	}
+	
+	private final void store(long position, byte[] buffer, int length) throws IOException {
+		
+		this.file.write(ByteBuffer.wrap(buffer, 0, length), position);
+		
+		synchronized(this.lock) {
+			
+			// only complete segments and the last one count
+			if(length == SEGMENT_SIZE || (this.length >= 0 && position + length >= this.length)) {
+				
+				this.present.set((int)(position / SEGMENT_SIZE));
+				this.lock.notifyAll();
+			}
+		}
+	}
+	
+	private final void setLength(long length, long lastModified) {
+		
+		synchronized(this.lock) {
+			
+			if(this.length < 0 || length < this.length) {
+				
+				this.length = length;
+			}
+			
+			if(length % SEGMENT_SIZE != 0) {
+				
+				this.present.set((int)(length / SEGMENT_SIZE));
+			}
+			
+			this.lastModified = lastModified;
+			this.connected = true;
+			this.lock.notifyAll();
+		}
+	}
+	
+	private final void await() throws IOException {
+		
+		try {
+			
+			this.lock.wait();
+			
+		} catch(InterruptedException exception) {
+			
+			Thread.currentThread().interrupt();
+			throw new IOException(exception);
+		}
+	}
+	
+	private final void throwError() throws IOException {
+		
+		if(this.error != null) {
+			
+			// the next read tries again
+			IOException error = this.error;
+			this.error = null;
+			throw error;
+		}
+	}
+	
+	private final class CachedConnection extends URLConnection {
+		
+		private CachedConnection(URL url) {
+			
+			super(url);
+		}
+		
+		@Override
+		public void connect() throws IOException {
+			
+			HttpStreamHandler.this.connect();
+			this.connected = true;
+		}
+		
+		@Override
+		public InputStream getInputStream() throws IOException {
+			
+			return new CachedInputStream();
+		}
+		
+		@Override
+		public long getContentLengthLong() {
+			
+			try {
+				
+				this.connect();
+				
+				synchronized(HttpStreamHandler.this.lock) {
+					
+					return HttpStreamHandler.this.length;
+				}
+				
+			} catch(IOException exception) {
+				
+				return -1L;
+			}
+		}
+		
+		@Override
+		public int getContentLength() {
+			
+			long length = this.getContentLengthLong();
+			return length <= Integer.MAX_VALUE ? (int)length : -1;
+		}
+		
+		@Override
+		public long getLastModified() {
+			
+			try {
+				
+				this.connect();
+				
+				synchronized(HttpStreamHandler.this.lock) {
+					
+					return HttpStreamHandler.this.lastModified;
+				}
+				
+			} catch(IOException exception) {
+				
+				return 0L;
+			}
+		}
+	}
+	
+	private final class CachedInputStream extends InputStream {
+		
+		private long position;
+		
+		@Override
+		public int read() throws IOException {
+			
+			byte[] buffer = new byte[1];
+			return this.read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xFF;
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			
+			if(length == 0) {
+				
+				return 0;
+			}
+			
+			int read = HttpStreamHandler.this.read(this.position, buffer, offset, length);
+			
+			if(read > 0) {
+				
+				this.position += read;
+			}
+			
+			return read;
+		}
+		
+		@Override
+		public long skip(long bytes) throws IOException {
+			
+			// only moves the position, the data behind it is never downloaded unless it is read
+			long skipped = Math.max(0, bytes);
+			
+			synchronized(HttpStreamHandler.this.lock) {
+				
+				if(HttpStreamHandler.this.length >= 0) {
+					
+					skipped = Math.min(skipped, Math.max(0, HttpStreamHandler.this.length - this.position));
+				}
+			}
+			
+			this.position += skipped;
+			return skipped;
+		}
+	}
+	
+	// the temporary file is deleted as soon as the URL is not used anymore
+	private static final class SegmentFile implements Runnable {
+		
+		private final FileChannel channel;
+		
+		private SegmentFile() throws IOException {
+			
+			Path path = Files.createTempFile("simple-audio-http", ".cache");
+			this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+		}
+		
+		private int read(ByteBuffer buffer, long position) throws IOException {
+			
+			int read = 0;
+			
+			while(buffer.hasRemaining()) {
+				
+				int count = this.channel.read(buffer, position + read);
+				
+				if(count == -1) {
+					
+					break;
+				}
+				
+				read += count;
+			}
+			
+			return read;
+		}
+		
+		private void write(ByteBuffer buffer, long position) throws IOException {
+			
+			long written = 0;
+			
+			while(buffer.hasRemaining()) {
+				
+				written += this.channel.write(buffer, position + written);
+			}
+		}
+		
+		@Override
+		public void run() {
+			
+			try {
+				
+				this.channel.close();
+				
+			} catch(IOException exception) {
+				
+				exception.printStackTrace();
+			}
+		}
+	}
+}
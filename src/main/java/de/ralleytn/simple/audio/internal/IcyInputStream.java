@@ -0,0 +1,200 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Removes the in-band metadata of a Shoutcast/Icecast stream. The server inserts a metadata block after every {@code icy-metaint} bytes of audio data;
+ * the block starts with its length divided by 16 and contains entries like {@code StreamTitle='Artist - Title';}.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class IcyInputStream extends FilterInputStream {
+
+	private final int interval;
+	private final Consumer<Map<String, String>> listener;
+	private final byte[] metadata = new byte[255 * 16];
+	private int remaining;
+	
+	/**
+	 * @param inputStream the stream from the server
+	 * @param interval the value of the {@code icy-metaint} header
+	 * @param listener is called with the entries of each metadata block that is not empty
+	 * @since 2.1.0
+	 */
+	public IcyInputStream(InputStream inputStream, int interval, Consumer<Map<String, String>> listener) {
+		
+		super(inputStream);
+		this.interval = interval;
+		this.remaining = interval;
+		this.listener = listener;
+	}
+	
+	@Override
+	public int read() throws IOException {
+		
+		byte[] buffer = new byte[1];
+		return this.read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xFF;
+	}
+	
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		
+		if(length == 0) {
+			
+			return 0;
+		}
+		
+		if(this.remaining == 0) {
+			
+			if(!this.readMetadata()) {
+				
+				return -1;
+			}
+			
+			this.remaining = this.interval;
+		}
+		
+		int read = super.read(buffer, offset, Math.min(length, this.remaining));
+		
+		if(read > 0) {
+			
+			this.remaining -= read;
+		}
+		
+		return read;
+	}
+	
+	@Override
+	public long skip(long bytes) throws IOException {
+		
+		// the metadata has to be parsed, so skipping reads the data
+		byte[] buffer = new byte[(int)Math.min(bytes, 4096)];
+		long skipped = 0;
+		int read = 0;
+		
+		while(skipped < bytes && (read = this.read(buffer, 0, (int)Math.min(buffer.length, bytes - skipped))) != -1) {
+			
+			skipped += read;
+		}
+		
+		return skipped;
+	}
+	
+	@Override
+	public int available() throws IOException {
+		
+		return Math.min(super.available(), this.remaining);
+	}
+	
+	@Override
+	public boolean markSupported() {
+		
+		return false;
+	}
+	
+	/**
+	 * Parses the entries of a metadata block.
+	 * @param metadata the text of the block
+	 * @return the entries in the order in which they appeared
+	 * @since 2.1.0
+	 */
+	public static final Map<String, String> parse(String metadata) {
+		
+		Map<String, String> entries = new LinkedHashMap<>();
+		int position = 0;
+		
+		while(position < metadata.length()) {
+			
+			int equals = metadata.indexOf("='", position);
+			
+			if(equals == -1) {
+				
+				break;
+			}
+			
+			// values may contain quotes, so a value only ends at a quote that is followed by a semicolon or the end
+			int end = metadata.indexOf("';", equals + 2);
+			end = end == -1 ? metadata.lastIndexOf('\'') : end;
+			
+			if(end < equals + 2) {
+				
+				break;
+			}
+			
+			entries.put(metadata.substring(position, equals).trim(), metadata.substring(equals + 2, end));
+			position = end + 2;
+		}
+		
+		return Collections.unmodifiableMap(entries);
+	}
+	
+	private final boolean readMetadata() throws IOException {
+		
+		int length = this.in.read();
+		
+		if(length == -1) {
+			
+			return false;
+		}
+		
+		length *= 16;
+		int filled = 0;
+		
+		while(filled < length) {
+			
+			int read = this.in.read(this.metadata, filled, length - filled);
+			
+			if(read == -1) {
+				
+				throw new EOFException("Unexpected end of metadata");
+			}
+			
+			filled += read;
+		}
+		
+		// the block is padded with zeros
+		while(length > 0 && this.metadata[length - 1] == 0) {
+			
+			length--;
+		}
+		
+		if(length > 0 && this.listener != null) {
+			
+			this.listener.accept(IcyInputStream.parse(new String(this.metadata, 0, length, StandardCharsets.UTF_8)));
+		}
+		
+		return true;
+	}
+}
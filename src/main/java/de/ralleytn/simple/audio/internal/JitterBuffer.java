@@ -0,0 +1,258 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * A ring buffer between a network thread that writes decoded data and a player that reads it.
+ * The reader waits until the buffer is filled up to a target level before it gets any data, so that short stalls of the network are not heard.
+ * The target grows every time the buffer runs empty and slowly shrinks again while playback is stable.
+ * The memory use is fixed by the capacity; the writer waits while the buffer is full.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class JitterBuffer extends InputStream {
+
+	private final byte[] data;
+	private final int frameSize;
+	private final int minimumTarget;
+	private int target;
+	private int readPosition;
+	private int size;
+	private boolean buffering = true;
+	private boolean closed;
+	private long stableBytes;
+	private int underruns;
+	
+	/**
+	 * @param capacity the maximum number of bytes in the buffer
+	 * @param minimumTarget the number of bytes that have to be buffered before the first read returns
+	 * @param frameSize the size of a frame in bytes; the buffer only hands out whole frames
+	 * @since 2.1.0
+	 */
+	public JitterBuffer(int capacity, int minimumTarget, int frameSize) {
+		
+		this.frameSize = Math.max(1, frameSize);
+		this.data = new byte[Math.max(this.frameSize, capacity - capacity % this.frameSize)];
+		this.minimumTarget = Math.max(this.frameSize, Math.min(this.data.length, minimumTarget - minimumTarget % this.frameSize));
+		this.target = this.minimumTarget;
+	}
+	
+	/**
+	 * Writes data into the buffer. Waits while the buffer is full.
+	 * @param buffer the data
+	 * @param offset index of the first byte
+	 * @param length number of bytes
+	 * @return {@code false} if the buffer was closed, else {@code true}
+	 * @throws InterruptedIOException if the thread was interrupted while waiting
+	 * @since 2.1.0
+	 */
+	public synchronized boolean write(byte[] buffer, int offset, int length) throws InterruptedIOException {
+		
+		while(length > 0) {
+			
+			while(this.size == this.data.length && !this.closed) {
+				
+				this.await();
+			}
+			
+			if(this.closed) {
+				
+				return false;
+			}
+			
+			int writePosition = (this.readPosition + this.size) % this.data.length;
+			int count = Math.min(length, Math.min(this.data.length - this.size, this.data.length - writePosition));
+			System.arraycopy(buffer, offset, this.data, writePosition, count);
+			this.size += count;
+			offset += count;
+			length -= count;
+			
+			if(this.buffering && this.size >= this.target) {
+				
+				this.buffering = false;
+			}
+			
+			this.notifyAll();
+		}
+		
+		return true;
+	}
+	
+	@Override
+	public int read() throws IOException {
+		
+		byte[] buffer = new byte[1];
+		return this.read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xFF;
+	}
+	
+	@Override
+	public synchronized int read(byte[] buffer, int offset, int length) throws IOException {
+		
+		if(length == 0) {
+			
+			return 0;
+		}
+		
+		while((this.buffering || this.size == 0) && !this.closed) {
+			
+			if(!this.buffering) {
+				
+				// ran empty, so the network is slower than expected and the buffer has to be bigger
+				this.buffering = true;
+				this.underruns++;
+				this.stableBytes = 0;
+				this.target = Math.min(this.data.length, this.target * 2);
+				this.target -= this.target % this.frameSize;
+			}
+			
+			this.await();
+		}
+		
+		if(this.closed) {
+			
+			return -1;
+		}
+		
+		int count = Math.min(length, Math.min(this.size, this.data.length - this.readPosition));
+		
+		// whole frames only, unless the caller asked for less than a frame
+		if(count >= this.frameSize) {
+			
+			count -= count % this.frameSize;
+		}
+		
+		System.arraycopy(this.data, this.readPosition, buffer, offset, count);
+		this.readPosition = (this.readPosition + count) % this.data.length;
+		this.size -= count;
+		this.stableBytes += count;
+		
+		// after playing ten times the target without running empty the target shrinks by a quarter
+		if(this.stableBytes >= 10L * this.target && this.target > this.minimumTarget) {
+			
+			this.stableBytes = 0;
+			this.target = Math.max(this.minimumTarget, this.target * 3 / 4);
+			this.target -= this.target % this.frameSize;
+		}
+		
+		this.notifyAll();
+		return count;
+	}
+	
+	@Override
+	public synchronized int available() {
+		
+		return this.buffering ? 0 : this.size;
+	}
+	
+	/**
+	 * Throws away all buffered data and waits for the target level again.
+	 * @since 2.1.0
+	 */
+	public synchronized void clear() {
+		
+		this.readPosition = 0;
+		this.size = 0;
+		this.buffering = true;
+		this.notifyAll();
+	}
+	
+	@Override
+	public synchronized void close() {
+		
+		this.closed = true;
+		this.notifyAll();
+	}
+	
+	/**
+	 * @return {@code true} if the buffer was closed, else {@code false}
+	 * @since 2.1.0
+	 */
+	public synchronized boolean isClosed() {
+		
+		return this.closed;
+	}
+	
+	/**
+	 * @return {@code true} while the reader waits for the buffer to fill up, else {@code false}
+	 * @since 2.1.0
+	 */
+	public synchronized boolean isBuffering() {
+		
+		return this.buffering;
+	}
+	
+	/**
+	 * @return the number of bytes the buffer currently fills up to before the reader continues
+	 * @since 2.1.0
+	 */
+	public synchronized int getTarget() {
+		
+		return this.target;
+	}
+	
+	/**
+	 * @return the number of bytes in the buffer
+	 * @since 2.1.0
+	 */
+	public synchronized int size() {
+		
+		return this.size;
+	}
+	
+	/**
+	 * @return the maximum number of bytes in the buffer
+	 * @since 2.1.0
+	 */
+	public int getCapacity() {
+		
+		return this.data.length;
+	}
+	
+	/**
+	 * @return how often the buffer ran empty
+	 * @since 2.1.0
+	 */
+	public synchronized int getUnderruns() {
+		
+		return this.underruns;
+	}
+	
+	private final void await() throws InterruptedIOException {
+		
+		try {
+			
+			this.wait();
+			
+		} catch(InterruptedException exception) {
+			
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves audio data that lies in the memory under a {@code memory:} {@linkplain URL}, so that it can be used like any other resource.
+ * Each URL carries its own handler, which keeps the data alive as long as the URL is referenced.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class MemoryStreamHandler extends URLStreamHandler {
+
+	/**
+	 * @since 2.1.0
+	 */
+	public static final String PROTOCOL = "memory";
+	
+	private static final AtomicLong COUNTER = new AtomicLong();
+	
+	private final ByteBuffer buffer;
+	private InputStream inputStream;
+	
+	private MemoryStreamHandler(ByteBuffer buffer, InputStream inputStream) {
+		
+		this.buffer = buffer;
+		this.inputStream = inputStream;
+	}
+	
+	/**
+	 * Creates a URL that reads the given buffer without copying it.
+	 * @param buffer the data between the position and the limit of the buffer
+	 * @return the URL
+	 * @throws MalformedURLException never
+	 * @since 2.1.0
+	 */
+	public static final URL createURL(ByteBuffer buffer) throws MalformedURLException {
+		
+		return MemoryStreamHandler.createURL(new MemoryStreamHandler(buffer.slice(), null));
+	}
+	
+	/**
+	 * Creates a URL that hands out the given stream. Because a stream can not be rewound, the URL can only be opened once.
+	 * @param inputStream the stream
+	 * @return the URL
+	 * @throws MalformedURLException never
+	 * @since 2.1.0
+	 */
+	public static final URL createURL(InputStream inputStream) throws MalformedURLException {
+		
+		return MemoryStreamHandler.createURL(new MemoryStreamHandler(null, inputStream));
+	}
+	
+	private static final URL createURL(MemoryStreamHandler handler) throws MalformedURLException {
+		
+		return new URL(PROTOCOL, null, -1, "/" + COUNTER.incrementAndGet(), handler);
+	}
+	
+	/**
+	 * @param url a URL
+	 * @return {@code true} if the URL was created by this class, else {@code false}
+	 * @since 2.1.0
+	 */
+	public static final boolean isMemoryURL(URL url) {
+		
+		return PROTOCOL.equals(url.getProtocol());
+	}
+	
+	/**
+	 * @param url a URL
+	 * @return {@code true} if the URL was created by this class for a stream and can therefore only be opened once, else {@code false}
+	 * @since 2.1.0
+	 */
+	public static final boolean isStreamURL(URL url) {
+		
+		try {
+			
+			URLConnection connection = MemoryStreamHandler.isMemoryURL(url) ? url.openConnection() : null;
+			return connection instanceof MemoryConnection && ((MemoryConnection)connection).getBuffer() == null;
+			
+		} catch(IOException exception) {
+			
+			return false;
+		}
+	}
+	
+	/**
+	 * @param url a URL that was created by this class
+	 * @return the buffer behind the URL or {@code null} if the URL is backed by a stream
+	 * @throws IOException if the URL was not created by this class
+	 * @since 2.1.0
+	 */
+	public static final ByteBuffer getBuffer(URL url) throws IOException {
+		
+		URLConnection connection = url.openConnection();
+		
+		if(!(connection instanceof MemoryConnection)) {
+			
+			throw new IOException("Not a memory URL: " + url);
+		}
+		
+		ByteBuffer buffer = ((MemoryConnection)connection).getBuffer();
+		return buffer != null ? buffer.asReadOnlyBuffer() : null;
+	}
+	
+	@Override
+	protected URLConnection openConnection(URL url) {
+		
+		return new MemoryConnection(url);
+	}
+	
+	private final synchronized InputStream takeInputStream() throws IOException {
+		
+		if(this.inputStream == null) {
+			
+			throw new IOException("The stream has already been read; use a CompressedAudio to play a stream more than once");
+		}
+		
+		InputStream inputStream = this.inputStream;
+		this.inputStream = null;
+		return inputStream;
+	}
+	
+	private final class MemoryConnection extends URLConnection {
+		
+		private MemoryConnection(URL url) {
+			
+			super(url);
+		}
+		
+		@Override
+		public void connect() {
+			
+			this.connected = true;
+		}
+		
+		@Override
+		public InputStream getInputStream() throws IOException {
+			
+			return MemoryStreamHandler.this.buffer != null ? new ByteBufferInputStream(MemoryStreamHandler.this.buffer) : MemoryStreamHandler.this.takeInputStream();
+		}
+		
+		@Override
+		public long getContentLengthLong() {
+			
+			return MemoryStreamHandler.this.buffer != null ? MemoryStreamHandler.this.buffer.remaining() : -1L;
+		}
+		
+		@Override
+		public int getContentLength() {
+			
+			long length = this.getContentLengthLong();
+			return length <= Integer.MAX_VALUE ? (int)length : -1;
+		}
+		
+		private ByteBuffer getBuffer() {
+			
+			return MemoryStreamHandler.this.buffer;
+		}
+	}
+}
@@ -0,0 +1,683 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import de.jarnbjo.ogg.EndOfOggStreamException;
+import de.jarnbjo.ogg.LogicalOggStream;
+import de.jarnbjo.ogg.OggFormatException;
+import de.jarnbjo.ogg.OggPage;
+import de.jarnbjo.vorbis.VorbisStream;
+
+/**
+ * Demultiplexes a local Ogg file. The file is memory-mapped and its pages are indexed once, so that the length is known without decoding
+ * and a granule position can be found with a binary search. Only the first logical stream of the file is indexed.
+ * Pages with a wrong checksum are skipped unless checking the checksums was turned off.
+ * The indexes of the last few files are cached as long as the size and the modification time of the file do not change.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class OggFile {
+
+	private static final int CACHE_SIZE = 64;
+	// "OggS" read in little endian byte order
+	private static final int CAPTURE_PATTERN = 0x5367674F;
+	private static final int HEADER_SIZE = 27;
+	private static final int[] CRC_TABLE = new int[256];
+	
+	private static final Map<Path, OggFile> FILES = new LinkedHashMap<Path, OggFile>(16, 0.75F, true) {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Path, OggFile> eldest) {
+			
+			return this.size() > CACHE_SIZE;
+		}
+	};
+	
+	private static volatile boolean checkCrc = true;
+	
+	static {
+		
+		for(int index = 0; index < CRC_TABLE.length; index++) {
+			
+			int remainder = index << 24;
+			
+			for(int bit = 0; bit < 8; bit++) {
+				
+				remainder = (remainder & 0x80000000) != 0 ? (remainder << 1) ^ 0x04C11DB7 : remainder << 1;
+			}
+			
+			CRC_TABLE[index] = remainder;
+		}
+	}
+	
+	private final long size;
+	private final long lastModified;
+	private final boolean checked;
+	private final ByteBuffer data;
+	private final int serialNumber;
+	private final String format;
+	private int pageCount;
+	private int[] positions = new int[64];
+	private long[] granules = new long[64];
+	
+	private OggFile(long size, long lastModified, ByteBuffer data, boolean checked) throws OggFormatException {
+		
+		this.size = size;
+		this.lastModified = lastModified;
+		this.data = data;
+		this.checked = checked;
+		int position = this.nextPageAt(0);
+		
+		if(position != 0) {
+			
+			throw new OggFormatException("Not an Ogg file");
+		}
+		
+		this.serialNumber = data.getInt(14);
+		this.format = OggFile.detectFormat(data, HEADER_SIZE + (data.get(26) & 0xFF));
+		
+		while(position != -1) {
+			
+			// pages of other logical streams and of chained files are not indexed
+			if(data.getInt(position + 14) == this.serialNumber) {
+				
+				this.add(position, data.getLong(position + 6));
+				
+				if((data.get(position + 5) & 0x04) != 0) {
+					
+					break;
+				}
+			}
+			
+			position = this.nextPageAt(position + this.getPageLength(position));
+		}
+	}
+	
+	/**
+	 * @param path the file
+	 * @return the index of the file or {@code null} if the file is not an Ogg file or too large to be mapped
+	 * @throws IOException if the file could not be read
+	 * @since 2.1.0
+	 */
+	public static OggFile get(Path path) throws IOException {
+		
+		Path key = path.toAbsolutePath().normalize();
+		long size = Files.size(key);
+		long lastModified = Files.getLastModifiedTime(key).toMillis();
+		boolean checked = OggFile.checkCrc;
+		
+		synchronized(FILES) {
+			
+			OggFile file = FILES.get(key);
+			
+			// an index that was created without checksums is not good enough if they are checked now
+			if(file != null && file.size == size && file.lastModified == lastModified && (file.checked || !checked)) {
+				
+				return file;
+			}
+		}
+		
+		if(size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+			
+			return null;
+		}
+		
+		OggFile file = null;
+		
+		try(FileChannel channel = FileChannel.open(key, StandardOpenOption.READ)) {
+			
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			file = new OggFile(size, lastModified, data.order(ByteOrder.LITTLE_ENDIAN), checked);
+			
+		} catch(OggFormatException exception) {
+			
+			file = null;
+		}
+		
+		synchronized(FILES) {
+			
+			if(file != null) {
+				
+				FILES.put(key, file);
+				
+			} else {
+				
+				FILES.remove(key);
+			}
+		}
+		
+		return file;
+	}
+	
+	/**
+	 * Checking the checksums reads every byte of a file while it is indexed. Turned on by default.
+	 * @param check {@code true} to skip pages with a wrong checksum, {@code false} to trust every page
+	 * @since 2.1.0
+	 */
+	public static void setCrcCheck(boolean check) {
+		
+		OggFile.checkCrc = check;
+	}
+	
+	/**
+	 * @return {@code true} if pages with a wrong checksum are skipped, else {@code false}
+	 * @since 2.1.0
+	 */
+	public static boolean isCrcCheck() {
+		
+		return OggFile.checkCrc;
+	}
+	
+	/**
+	 * Opens a decoder for the Vorbis stream in the file. The frame length comes from the index and skipping jumps to the right page.
+	 * @return the decoded data as 16 bit little endian PCM
+	 * @throws IOException if the file is not a valid Ogg/Vorbis file
+	 * @since 2.1.0
+	 */
+	public AudioInputStream openStream() throws IOException {
+		
+		if(!LogicalOggStream.FORMAT_VORBIS.equals(this.format)) {
+			
+			throw new OggFormatException("Not a plain Ogg/Vorbis audio file!");
+		}
+		
+		VorbisSource source = new VorbisSource();
+		return new AudioInputStream(source, source.format, this.getGranuleLength());
+	}
+	
+	/**
+	 * @return a new logical stream over the indexed pages
+	 * @since 2.1.0
+	 */
+	public LogicalOggStream openLogicalStream() {
+		
+		return new Stream();
+	}
+	
+	/**
+	 * @return the format of the first logical stream, one of the {@code FORMAT_} constants of {@linkplain LogicalOggStream}
+	 * @since 2.1.0
+	 */
+	public String getFormat() {
+		
+		return this.format;
+	}
+	
+	/**
+	 * @return number of indexed pages
+	 * @since 2.1.0
+	 */
+	public int getPageCount() {
+		
+		return this.pageCount;
+	}
+	
+	/**
+	 * @param page index of the page
+	 * @return position of the page in the file
+	 * @since 2.1.0
+	 */
+	public long getPagePosition(int page) {
+		
+		return this.positions[page];
+	}
+	
+	/**
+	 * @param page index of the page
+	 * @return the granule position of the page; pages on which no packet ends have the granule position of the page before them
+	 * @since 2.1.0
+	 */
+	public long getGranulePosition(int page) {
+		
+		return this.granules[page];
+	}
+	
+	/**
+	 * @return the granule position of the last page, which is the number of frames for Vorbis
+	 * @since 2.1.0
+	 */
+	public long getGranuleLength() {
+		
+		return this.pageCount > 0 ? this.granules[this.pageCount - 1] : 0;
+	}
+	
+	/**
+	 * @param granulePosition the granule position
+	 * @return index of the last page with a granule position that is smaller than or equal to the given one or {@code -1} if there is none
+	 * @since 2.1.0
+	 */
+	public int findPage(long granulePosition) {
+		
+		int low = 0;
+		int high = this.pageCount - 1;
+		int found = -1;
+		
+		while(low <= high) {
+			
+			int middle = (low + high) >>> 1;
+			
+			if(this.granules[middle] <= granulePosition) {
+				
+				found = middle;
+				low = middle + 1;
+				
+			} else {
+				
+				high = middle - 1;
+			}
+		}
+		
+		return found;
+	}
+	
+	private final void add(int position, long granule) {
+		
+		if(this.pageCount == this.positions.length) {
+			
+			this.positions = Arrays.copyOf(this.positions, this.pageCount * 2);
+			this.granules = Arrays.copyOf(this.granules, this.pageCount * 2);
+		}
+		
+		// -1 means that no packet ends on the page
+		this.positions[this.pageCount] = position;
+		this.granules[this.pageCount] = granule >= 0 ? granule : this.pageCount > 0 ? this.granules[this.pageCount - 1] : 0;
+		this.pageCount++;
+	}
+	
+	private final int getPageLength(int position) {
+		
+		int segments = this.data.get(position + 26) & 0xFF;
+		int length = HEADER_SIZE + segments;
+		
+		for(int index = 0; index < segments; index++) {
+			
+			length += this.data.get(position + HEADER_SIZE + index) & 0xFF;
+		}
+		
+		return length;
+	}
+	
+	// returns the position of the next valid page, broken data in between is skipped
+	private final int nextPageAt(int position) {
+		
+		int limit = (int)this.size - HEADER_SIZE;
+		
+		for(; position <= limit; position++) {
+			
+			if(this.data.getInt(position) == CAPTURE_PATTERN && this.data.get(position + 4) == 0) {
+				
+				if(position + HEADER_SIZE + (this.data.get(position + 26) & 0xFF) <= this.size) {
+					
+					int length = this.getPageLength(position);
+					
+					if(position + length <= this.size && (!this.checked || this.checkCrc(position, length))) {
+						
+						return position;
+					}
+				}
+			}
+		}
+		
+		return -1;
+	}
+	
+	private final boolean checkCrc(int position, int length) {
+		
+		int crc = 0;
+		
+		for(int index = 0; index < length; index++) {
+			
+			// the checksum itself is computed as zeros
+			int value = index >= 22 && index < 26 ? 0 : this.data.get(position + index) & 0xFF;
+			crc = (crc << 8) ^ CRC_TABLE[((crc >>> 24) & 0xFF) ^ value];
+		}
+		
+		return crc == this.data.getInt(position + 22);
+	}
+	
+	private static final String detectFormat(ByteBuffer data, int position) {
+		
+		if(position + 7 <= data.limit()) {
+			
+			int type = data.get(position) & 0xFF;
+			byte[] name = new byte[6];
+			
+			for(int index = 0; index < name.length; index++) {
+				
+				name[index] = data.get(position + 1 + index);
+			}
+			
+			String id = new String(name, StandardCharsets.US_ASCII);
+			
+			if(type == 0x01 && "vorbis".equals(id)) {
+				
+				return LogicalOggStream.FORMAT_VORBIS;
+				
+			} else if(type == 0x7F && id.startsWith("FLAC")) {
+				
+				return LogicalOggStream.FORMAT_FLAC;
+				
+			} else if(type == 0x80 && "theora".equals(id)) {
+				
+				return LogicalOggStream.FORMAT_THEORA;
+			}
+		}
+		
+		return LogicalOggStream.FORMAT_UNKNOWN;
+	}
+	
+	/**
+	 * Assembles the packets of the indexed pages. Every instance reads the mapped file on its own.
+	 */
+	private final class Stream implements LogicalOggStream {
+		
+		private final ByteBuffer data = OggFile.this.data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		private byte[] packet = new byte[4096];
+		private int page;
+		private int segment;
+		private int segments;
+		private int bodyPosition;
+		private boolean skipContinued;
+		private long time;
+		private boolean open = true;
+		
+		@Override
+		public OggPage getNextOggPage() throws OggFormatException, IOException {
+			
+			if(this.page >= OggFile.this.pageCount) {
+				
+				throw new EndOfOggStreamException();
+			}
+			
+			int position = OggFile.this.positions[this.page];
+			byte[] bytes = new byte[OggFile.this.getPageLength(position)];
+			this.data.position(position);
+			this.data.get(bytes);
+			this.time = OggFile.this.granules[this.page];
+			this.page++;
+			this.segment = this.segments = 0;
+			return OggPage.create(bytes);
+		}
+
+		@Override
+		public byte[] getNextOggPacket() throws OggFormatException, IOException {
+			
+			int length = 0;
+			
+			while(true) {
+				
+				if(this.segment == this.segments) {
+					
+					this.nextPage();
+				}
+				
+				int position = OggFile.this.positions[this.page - 1];
+				int lacing = this.data.get(position + HEADER_SIZE + this.segment++) & 0xFF;
+				
+				if(this.skipContinued) {
+					
+					// the rest of a packet that started before the page from which the reading started
+					this.bodyPosition += lacing;
+					this.skipContinued = lacing == 255;
+					continue;
+				}
+				
+				if(length + lacing > this.packet.length) {
+					
+					this.packet = Arrays.copyOf(this.packet, Math.max(this.packet.length * 2, length + lacing));
+				}
+				
+				this.data.position(this.bodyPosition);
+				this.data.get(this.packet, length, lacing);
+				this.bodyPosition += lacing;
+				length += lacing;
+				
+				if(lacing < 255) {
+					
+					return Arrays.copyOf(this.packet, length);
+				}
+			}
+		}
+		
+		@Override
+		public boolean isOpen() {
+			
+			return this.open;
+		}
+		
+		@Override
+		public void close() {
+			
+			this.open = false;
+		}
+		
+		@Override
+		public void reset() {
+			
+			this.setPage(0);
+		}
+		
+		@Override
+		public long getMaximumGranulePosition() {
+			
+			return OggFile.this.getGranuleLength();
+		}
+		
+		/**
+		 * Continues with the first packet that starts after the last page with a granule position that is smaller than or equal to the given one.
+		 * {@link #getTime()} returns the granule position of that page afterwards.
+		 */
+		@Override
+		public void setTime(long granulePosition) {
+			
+			this.setPage(OggFile.this.findPage(granulePosition) + 1);
+		}
+		
+		@Override
+		public long getTime() {
+			
+			return this.time;
+		}
+		
+		@Override
+		public String getFormat() {
+			
+			return OggFile.this.format;
+		}
+		
+		private final void setPage(int page) {
+			
+			this.page = page;
+			this.segment = this.segments = 0;
+			this.time = page > 0 ? OggFile.this.granules[page - 1] : 0;
+			this.skipContinued = page > 0;
+		}
+		
+		private final void nextPage() throws EndOfOggStreamException {
+			
+			if(this.page >= OggFile.this.pageCount) {
+				
+				throw new EndOfOggStreamException();
+			}
+			
+			int position = OggFile.this.positions[this.page];
+			
+			// only a continued page starts with the rest of a packet
+			this.skipContinued = this.skipContinued && (this.data.get(position + 5) & 0x01) != 0;
+			this.segments = this.data.get(position + 26) & 0xFF;
+			this.segment = 0;
+			this.bodyPosition = position + HEADER_SIZE + this.segments;
+			this.time = OggFile.this.granules[this.page];
+			this.page++;
+		}
+	}
+	
+	/**
+	 * Decodes the Vorbis stream. Skipping more than a second starts a new decoder a few packets in front of the target.
+	 */
+	private final class VorbisSource extends InputStream {
+		
+		private final Stream stream = new Stream();
+		private final AudioFormat format;
+		private final int frameSize;
+		private final int blockSize;
+		private VorbisInputStream decoder;
+		private long position;
+		private byte[] scratch = new byte[0];
+		private int scratchPosition;
+		private int scratchLimit;
+		
+		private VorbisSource() throws IOException {
+			
+			VorbisStream vorbis = new VorbisStream(this.stream);
+			this.decoder = new VorbisInputStream(vorbis, false);
+			this.format = this.decoder.getAudioFormat();
+			this.frameSize = this.format.getFrameSize();
+			this.blockSize = vorbis.getIdentificationHeader().getBlockSize1();
+		}
+		
+		@Override
+		public int read() throws IOException {
+			
+			byte[] buffer = new byte[1];
+			return this.read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xFF;
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			
+			int read = 0;
+			
+			// data that was decoded while seeking
+			if(this.scratchPosition < this.scratchLimit) {
+				
+				read = Math.min(length, this.scratchLimit - this.scratchPosition);
+				System.arraycopy(this.scratch, this.scratchPosition, buffer, offset, read);
+				this.scratchPosition += read;
+				
+			} else {
+				
+				read = this.decoder.read(buffer, offset, length);
+			}
+			
+			if(read > 0) {
+				
+				this.position += read;
+			}
+			
+			return read;
+		}
+		
+		@Override
+		public long skip(long bytes) throws IOException {
+			
+			if(bytes <= 0) {
+				
+				return 0;
+			}
+			
+			long start = this.position;
+			long target = start + bytes;
+			
+			if(bytes > (long)this.format.getFrameRate() * this.frameSize) {
+				
+				this.seek(target / this.frameSize);
+			}
+			
+			byte[] buffer = new byte[8192 - 8192 % this.frameSize];
+			
+			while(this.position < target) {
+				
+				if(this.read(buffer, 0, (int)Math.min(buffer.length, target - this.position)) == -1) {
+					
+					break;
+				}
+			}
+			
+			return this.position - start;
+		}
+		
+		@Override
+		public void close() {
+			
+			this.stream.close();
+		}
+		
+		private final void seek(long frame) throws IOException {
+			
+			// the headers are read again because the decoder can not continue at another position
+			this.stream.reset();
+			VorbisStream vorbis = new VorbisStream(this.stream);
+			
+			this.decoder = new VorbisInputStream(vorbis, false);
+			this.scratchLimit = 0;
+			this.position = 0;
+			
+			// the first packet after the page only primes the decoder and adds no samples, so the decoding starts one block earlier
+			int page = OggFile.this.findPage(frame - this.blockSize) + 1;
+			
+			// targets near the beginning are decoded from the first audio packet on
+			if(page <= this.stream.page) {
+				
+				return;
+			}
+			
+			this.stream.setTime(frame - this.blockSize);
+			long granule = this.stream.getTime();
+			
+			// a buffer of the size of a block gets all samples of the first packet, so the decoder knows how many samples the primer would have had
+			int length = this.blockSize * this.format.getChannels() * 2;
+			
+			if(this.scratch.length < length) {
+				
+				this.scratch = new byte[length];
+			}
+			
+			int read = this.decoder.read(this.scratch, 0, length);
+			this.scratchLimit = Math.max(0, read);
+			this.scratchPosition = 0;
+			this.position = (granule + vorbis.getCurrentGranulePosition()) * this.frameSize - this.scratchLimit;
+		}
+	}
+}
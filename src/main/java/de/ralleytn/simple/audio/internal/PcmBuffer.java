@@ -0,0 +1,245 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ralleytn.simple.audio.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Stores decoded PCM data in chunks, so that the length is not limited by the maximum size of an array.
+ * Data may be appended by one thread while other threads read what was already appended.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class PcmBuffer {
+
+	private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+	
+	private final AudioFormat format;
+	private final int frameSize;
+	private final int chunkSize;
+	private volatile ByteBuffer[] chunks;
+	private volatile long length;
+	private volatile boolean complete;
+	
+	/**
+	 * Creates an empty buffer to which data can be appended.
+	 * @param format the format of the PCM data
+	 * @since 2.1.0
+	 */
+	public PcmBuffer(AudioFormat format) {
+		
+		this.format = format;
+		this.frameSize = format.getFrameSize();
+		this.chunkSize = DEFAULT_CHUNK_SIZE - (DEFAULT_CHUNK_SIZE % this.frameSize);
+		this.chunks = new ByteBuffer[0];
+	}
+	
+	private PcmBuffer(AudioFormat format, int chunkSize, ByteBuffer[] chunks, long length) {
+		
+		this.format = format;
+		this.frameSize = format.getFrameSize();
+		this.chunkSize = chunkSize;
+		this.chunks = chunks;
+		this.length = length;
+		this.complete = true;
+	}
+	
+	/**
+	 * Creates a buffer from PCM data in a file by memory-mapping it. Nothing should be appended to the returned buffer.
+	 * @param channel the file
+	 * @param position position of the first byte of the PCM data in the file
+	 * @param length number of bytes of PCM data
+	 * @param format the format of the PCM data
+	 * @return the buffer
+	 * @throws IOException if the file could not be mapped
+	 * @since 2.1.0
+	 */
+	public static PcmBuffer map(FileChannel channel, long position, long length, AudioFormat format) throws IOException {
+		
+		int chunkSize = DEFAULT_CHUNK_SIZE - (DEFAULT_CHUNK_SIZE % format.getFrameSize());
+		ByteBuffer[] chunks = new ByteBuffer[(int)((length + chunkSize - 1) / chunkSize)];
+		
+		for(int index = 0; index < chunks.length; index++) {
+			
+			long offset = (long)index * chunkSize;
+			chunks[index] = channel.map(FileChannel.MapMode.READ_ONLY, position + offset, Math.min(chunkSize, length - offset));
+		}
+		
+		return new PcmBuffer(format, chunkSize, chunks, length);
+	}
+	
+	/**
+	 * Writes all the PCM data in this buffer to a channel.
+	 * @param channel the channel
+	 * @throws IOException if an I/O error occurs
+	 * @since 2.1.0
+	 */
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		
+		long remaining = this.length;
+		ByteBuffer[] chunks = this.chunks;
+		
+		for(int index = 0; remaining > 0; index++) {
+			
+			ByteBuffer view = chunks[index].duplicate();
+			view.clear();
+			view.limit((int)Math.min(remaining, this.chunkSize));
+			remaining -= view.remaining();
+			
+			while(view.hasRemaining()) {
+				
+				channel.write(view);
+			}
+		}
+	}
+	
+	/**
+	 * Appends PCM data to the end of this buffer.
+	 * @param data the array containing the data
+	 * @param offset index of the first byte
+	 * @param length number of bytes to append
+	 * @since 2.1.0
+	 */
+	public synchronized void append(byte[] data, int offset, int length) {
+		
+		long position = this.length;
+		int remaining = length;
+		
+		while(remaining > 0) {
+			
+			int chunkIndex = (int)(position / this.chunkSize);
+			int chunkPosition = (int)(position % this.chunkSize);
+			
+			if(chunkIndex == this.chunks.length) {
+				
+				ByteBuffer[] chunks = Arrays.copyOf(this.chunks, chunkIndex + 1);
+				chunks[chunkIndex] = ByteBuffer.allocate(this.chunkSize);
+				this.chunks = chunks;
+			}
+			
+			int count = Math.min(remaining, this.chunkSize - chunkPosition);
+			System.arraycopy(data, offset, this.chunks[chunkIndex].array(), chunkPosition, count);
+			offset += count;
+			remaining -= count;
+			position += count;
+		}
+		
+		// written last, so readers never see a length for which the data is not there yet
+		this.length = position;
+	}
+	
+	/**
+	 * Copies frames from this buffer into an array.
+	 * @param frame index of the first frame
+	 * @param target the array into which the frames are copied
+	 * @param offset index in the array at which the first frame is written
+	 * @param frames maximum number of frames to copy
+	 * @return the number of frames that were copied
+	 * @since 2.1.0
+	 */
+	public int read(long frame, byte[] target, int offset, int frames) {
+		
+		// the length is read first, append publishes it after the chunks that hold the data
+		long position = frame * this.frameSize;
+		long end = Math.min(this.length, position + (long)frames * this.frameSize);
+		ByteBuffer[] chunks = this.chunks;
+		int copied = 0;
+		
+		while(position < end) {
+			
+			ByteBuffer chunk = chunks[(int)(position / this.chunkSize)];
+			int chunkPosition = (int)(position % this.chunkSize);
+			int count = (int)Math.min(end - position, this.chunkSize - chunkPosition);
+			
+			if(chunk.hasArray()) {
+				
+				System.arraycopy(chunk.array(), chunk.arrayOffset() + chunkPosition, target, offset + copied, count);
+				
+			} else {
+				
+				ByteBuffer view = chunk.duplicate();
+				view.position(chunkPosition);
+				view.get(target, offset + copied, count);
+			}
+			
+			copied += count;
+			position += count;
+		}
+		
+		return copied / this.frameSize;
+	}
+	
+	/**
+	 * Marks this buffer as complete. Should be called once nothing more will be appended.
+	 * @since 2.1.0
+	 */
+	public void complete() {
+		
+		this.complete = true;
+	}
+	
+	/**
+	 * @return {@code true} if nothing more will be appended to this buffer, else {@code false}
+	 * @since 2.1.0
+	 */
+	public boolean isComplete() {
+		
+		return this.complete;
+	}
+	
+	/**
+	 * @return the format of the PCM data
+	 * @since 2.1.0
+	 */
+	public AudioFormat getFormat() {
+		
+		return this.format;
+	}
+	
+	/**
+	 * @return the number of frames in this buffer
+	 * @since 2.1.0
+	 */
+	public long getFrameLength() {
+		
+		return this.length / this.frameSize;
+	}
+	
+	/**
+	 * @return the number of bytes in this buffer
+	 * @since 2.1.0
+	 */
+	public long getByteLength() {
+		
+		return this.length;
+	}
+}
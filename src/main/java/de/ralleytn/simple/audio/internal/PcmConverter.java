@@ -0,0 +1,228 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Converts PCM data between byte orders, sample sizes (8, 16, 24 and 32 bit integers and 32 bit floats), signed and unsigned samples and numbers of channels.
+ * The sample rate is not changed. Channels are mixed down by averaging and mixed up by copying.
+ * The converter does not allocate any memory while converting.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class PcmConverter {
+
+	private static final float FLOAT_TO_INT = 2147483648.0F;
+	private static final float INT_TO_FLOAT = 1.0F / 2147483648.0F;
+	
+	private final int sourceBytes;
+	private final int targetBytes;
+	private final int sourceChannels;
+	private final int targetChannels;
+	private final int sourceFrameSize;
+	private final int targetFrameSize;
+	private final boolean sourceFloat;
+	private final boolean targetFloat;
+	private final boolean sourceBigEndian;
+	private final boolean targetBigEndian;
+	private final int sourceSign;
+	private final int targetSign;
+	private final boolean copy;
+	private final boolean swap;
+	private final int[][] channelMap;
+	private final int[] frame;
+	
+	/**
+	 * @param source format of the data that is converted
+	 * @param target format into which the data is converted
+	 * @throws IOException if one of the formats is not supported or the sample rates differ
+	 * @since 2.1.0
+	 */
+	public PcmConverter(AudioFormat source, AudioFormat target) throws IOException {
+		
+		if(!Samples.isSupported(source) || !Samples.isSupported(target)) {
+			
+			throw new IOException("Unsupported conversion from " + source + " to " + target);
+		}
+		
+		if(source.getSampleRate() != target.getSampleRate()) {
+			
+			throw new IOException("The sample rate can not be converted!");
+		}
+		
+		this.sourceBytes = source.getSampleSizeInBits() >> 3;
+		this.targetBytes = target.getSampleSizeInBits() >> 3;
+		this.sourceChannels = source.getChannels();
+		this.targetChannels = target.getChannels();
+		this.sourceFrameSize = this.sourceBytes * this.sourceChannels;
+		this.targetFrameSize = this.targetBytes * this.targetChannels;
+		this.sourceFloat = AudioFormat.Encoding.PCM_FLOAT.equals(source.getEncoding());
+		this.targetFloat = AudioFormat.Encoding.PCM_FLOAT.equals(target.getEncoding());
+		this.sourceBigEndian = this.sourceBytes > 1 && source.isBigEndian();
+		this.targetBigEndian = this.targetBytes > 1 && target.isBigEndian();
+		this.sourceSign = AudioFormat.Encoding.PCM_UNSIGNED.equals(source.getEncoding()) ? 0x80000000 : 0;
+		this.targetSign = AudioFormat.Encoding.PCM_UNSIGNED.equals(target.getEncoding()) ? 0x80000000 : 0;
+		
+		boolean sameSamples = this.sourceBytes == this.targetBytes && this.sourceFloat == this.targetFloat && this.sourceSign == this.targetSign && this.sourceChannels == this.targetChannels;
+		this.copy = sameSamples && this.sourceBigEndian == this.targetBigEndian;
+		this.swap = sameSamples && !this.copy && this.sourceBytes == 2;
+		this.frame = new int[this.sourceChannels];
+		this.channelMap = new int[this.targetChannels][];
+		
+		// every source channel goes into the target channel with the same index modulo the number of target channels,
+		// target channels without a source channel get a copy of one
+		for(int channel = 0; channel < this.targetChannels; channel++) {
+			
+			int count = 0;
+			
+			for(int sourceChannel = channel; sourceChannel < this.sourceChannels; sourceChannel += this.targetChannels) {
+				
+				count++;
+			}
+			
+			if(count == 0) {
+				
+				this.channelMap[channel] = new int[] {channel % this.sourceChannels};
+				
+			} else {
+				
+				this.channelMap[channel] = new int[count];
+				
+				for(int index = 0; index < count; index++) {
+					
+					this.channelMap[channel][index] = channel + index * this.targetChannels;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Converts whole frames.
+	 * @param source array with the source data
+	 * @param sourceOffset index of the first byte of the first source frame
+	 * @param target array into which the converted frames are written
+	 * @param targetOffset index at which the first converted frame is written
+	 * @param frames number of frames to convert
+	 * @since 2.1.0
+	 */
+	public void convert(byte[] source, int sourceOffset, byte[] target, int targetOffset, int frames) {
+		
+		if(this.copy) {
+			
+			System.arraycopy(source, sourceOffset, target, targetOffset, frames * this.sourceFrameSize);
+			
+		} else if(this.swap) {
+			
+			int end = sourceOffset + frames * this.sourceFrameSize;
+			
+			for(int position = sourceOffset, targetPosition = targetOffset; position < end; position += 2, targetPosition += 2) {
+				
+				byte first = source[position];
+				target[targetPosition] = source[position + 1];
+				target[targetPosition + 1] = first;
+			}
+			
+		} else {
+			
+			int position = sourceOffset;
+			int targetPosition = targetOffset;
+			
+			for(int index = 0; index < frames; index++) {
+				
+				for(int channel = 0; channel < this.sourceChannels; channel++) {
+					
+					this.frame[channel] = this.readSample(source, position);
+					position += this.sourceBytes;
+				}
+				
+				for(int channel = 0; channel < this.targetChannels; channel++) {
+					
+					int[] sources = this.channelMap[channel];
+					int sample = 0;
+					
+					if(sources.length == 1) {
+						
+						sample = this.frame[sources[0]];
+						
+					} else {
+						
+						long sum = 0;
+						
+						for(int sourceChannel : sources) {
+							
+							sum += this.frame[sourceChannel];
+						}
+						
+						sample = (int)(sum / sources.length);
+					}
+					
+					this.writeSample(target, targetPosition, sample);
+					targetPosition += this.targetBytes;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return the size of a source frame in bytes
+	 * @since 2.1.0
+	 */
+	public int getSourceFrameSize() {
+		
+		return this.sourceFrameSize;
+	}
+	
+	/**
+	 * @return the size of a target frame in bytes
+	 * @since 2.1.0
+	 */
+	public int getTargetFrameSize() {
+		
+		return this.targetFrameSize;
+	}
+	
+	private int readSample(byte[] source, int position) {
+		
+		int sample = Samples.getInt(source, position, this.sourceBytes, this.sourceBigEndian);
+		
+		// the cast saturates samples outside of -1.0 to 1.0
+		return this.sourceFloat ? (int)(Float.intBitsToFloat(sample) * FLOAT_TO_INT) : sample ^ this.sourceSign;
+	}
+	
+	private void writeSample(byte[] target, int position, int sample) {
+		
+		if(this.targetFloat) {
+			
+			Samples.putInt(target, position, 4, this.targetBigEndian, Float.floatToRawIntBits(sample * INT_TO_FLOAT));
+			
+		} else {
+			
+			Samples.putInt(target, position, this.targetBytes, this.targetBigEndian, sample ^ this.targetSign);
+		}
+	}
+}
@@ -0,0 +1,404 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+/**
+ * The layout of an uncompressed WAV, AIFF, AIFF-C or AU file.
+ * The header is parsed once and the samples are then read straight from the file, without the readers of the {@linkplain javax.sound.sampled.AudioSystem}.
+ * The layouts of the last few files are cached as long as the size and the modification time of the file do not change.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class PcmFile {
+
+	private static final int CACHE_SIZE = 64;
+	private static final int MAX_CHUNK_HEADER = 64;
+	
+	private static final Map<Path, PcmFile> FILES = new LinkedHashMap<Path, PcmFile>(16, 0.75F, true) {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Path, PcmFile> eldest) {
+			
+			return this.size() > CACHE_SIZE;
+		}
+	};
+	
+	private final Path path;
+	private final long size;
+	private final long lastModified;
+	private final AudioFormat format;
+	private final long dataPosition;
+	private final long dataLength;
+	
+	private PcmFile(Path path, long size, long lastModified, AudioFormat format, long dataPosition, long dataLength) {
+		
+		this.path = path;
+		this.size = size;
+		this.lastModified = lastModified;
+		this.format = format;
+		this.dataPosition = dataPosition;
+		
+		// a header may claim more data than the file has and the last frame may be cut off
+		long length = Math.max(0, Math.min(dataLength, size - dataPosition));
+		this.dataLength = length - length % format.getFrameSize();
+	}
+	
+	/**
+	 * @param path the file
+	 * @return the layout of the file or {@code null} if the file is not an uncompressed WAV, AIFF, AIFF-C or AU file
+	 * @throws IOException if the file could not be read
+	 * @since 2.1.0
+	 */
+	public static PcmFile get(Path path) throws IOException {
+		
+		Path key = path.toAbsolutePath().normalize();
+		long size = Files.size(key);
+		long lastModified = Files.getLastModifiedTime(key).toMillis();
+		
+		synchronized(FILES) {
+			
+			PcmFile file = FILES.get(key);
+			
+			if(file != null && file.size == size && file.lastModified == lastModified) {
+				
+				return file;
+			}
+		}
+		
+		PcmFile file = null;
+		
+		try(FileChannel channel = FileChannel.open(key, StandardOpenOption.READ)) {
+			
+			file = PcmFile.parse(key, channel, size, lastModified);
+		}
+		
+		synchronized(FILES) {
+			
+			if(file != null) {
+				
+				FILES.put(key, file);
+				
+			} else {
+				
+				FILES.remove(key);
+			}
+		}
+		
+		return file;
+	}
+	
+	/**
+	 * Opens a stream that reads the samples with positional reads. Skipping is done without reading.
+	 * @return the samples of the file
+	 * @throws IOException if the file could not be opened
+	 * @since 2.1.0
+	 */
+	public AudioInputStream openStream() throws IOException {
+		
+		FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ);
+		return new AudioInputStream(new ChannelInputStream(channel, this.dataPosition, this.dataLength), this.format, this.getFrameLength());
+	}
+	
+	/**
+	 * Maps the samples into the memory. The mapping stays valid after this method returned, the file itself is closed again.
+	 * @return the samples of the file
+	 * @throws IOException if the file could not be mapped
+	 * @since 2.1.0
+	 */
+	public PcmBuffer map() throws IOException {
+		
+		try(FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+			
+			return PcmBuffer.map(channel, this.dataPosition, this.dataLength, this.format);
+		}
+	}
+	
+	/**
+	 * @return the format of the samples
+	 * @since 2.1.0
+	 */
+	public AudioFormat getFormat() {
+		
+		return this.format;
+	}
+	
+	/**
+	 * @return position of the first sample in the file
+	 * @since 2.1.0
+	 */
+	public long getDataPosition() {
+		
+		return this.dataPosition;
+	}
+	
+	/**
+	 * @return number of bytes of samples
+	 * @since 2.1.0
+	 */
+	public long getDataLength() {
+		
+		return this.dataLength;
+	}
+	
+	/**
+	 * @return number of frames
+	 * @since 2.1.0
+	 */
+	public long getFrameLength() {
+		
+		return this.dataLength / this.format.getFrameSize();
+	}
+	
+	private static final PcmFile parse(Path path, FileChannel channel, long size, long lastModified) throws IOException {
+		
+		ByteBuffer header = PcmFile.read(channel, 0, 12, ByteOrder.BIG_ENDIAN);
+		
+		if(header.remaining() < 12) {
+			
+			return null;
+		}
+		
+		int magic = header.getInt(0);
+		int type = header.getInt(8);
+		
+		if(magic == 0x52494646 && type == 0x57415645) {
+			
+			return PcmFile.parseWAV(path, channel, size, lastModified);
+			
+		} else if(magic == 0x464F524D && (type == 0x41494646 || type == 0x41494643)) {
+			
+			return PcmFile.parseAIFF(path, channel, size, lastModified, type == 0x41494643);
+			
+		} else if(magic == 0x2E736E64) {
+			
+			return PcmFile.parseAU(path, channel, size, lastModified);
+		}
+		
+		return null;
+	}
+	
+	private static final PcmFile parseWAV(Path path, FileChannel channel, long size, long lastModified) throws IOException {
+		
+		AudioFormat format = null;
+		long position = 12;
+		
+		while(position + 8 <= size) {
+			
+			ByteBuffer chunk = PcmFile.read(channel, position, 8, ByteOrder.LITTLE_ENDIAN);
+			int id = chunk.order(ByteOrder.BIG_ENDIAN).getInt(0);
+			long length = chunk.order(ByteOrder.LITTLE_ENDIAN).getInt(4) & 0xFFFFFFFFL;
+			
+			if(id == 0x666D7420) {
+				
+				ByteBuffer fmt = PcmFile.read(channel, position + 8, (int)Math.min(length, 40), ByteOrder.LITTLE_ENDIAN);
+				
+				if(fmt.remaining() < 16) {
+					
+					return null;
+				}
+				
+				int tag = fmt.getShort(0) & 0xFFFF;
+				int channels = fmt.getShort(2) & 0xFFFF;
+				float sampleRate = fmt.getInt(4) & 0xFFFFFFFFL;
+				int frameSize = fmt.getShort(12) & 0xFFFF;
+				int sampleSize = fmt.getShort(14) & 0xFFFF;
+				
+				// WAVE_FORMAT_EXTENSIBLE keeps the actual format in the first two bytes of the sub format
+				if(tag == 0xFFFE && fmt.remaining() >= 26) {
+					
+					tag = fmt.getShort(24) & 0xFFFF;
+				}
+				
+				AudioFormat.Encoding encoding = tag == 1 ? (sampleSize == 8 ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED) :
+				                                tag == 3 ? AudioFormat.Encoding.PCM_FLOAT :
+				                                tag == 6 ? AudioFormat.Encoding.ALAW :
+				                                tag == 7 ? AudioFormat.Encoding.ULAW : null;
+				format = PcmFile.createFormat(encoding, sampleRate, sampleSize, channels, frameSize, false);
+				
+				if(format == null) {
+					
+					return null;
+				}
+				
+			} else if(id == 0x64617461) {
+				
+				// streaming tools write 0 or the maximum as the size if they did not know the length
+				long dataLength = length == 0 || length == 0xFFFFFFFFL ? size - position - 8 : length;
+				return format != null ? new PcmFile(path, size, lastModified, format, position + 8, dataLength) : null;
+			}
+			
+			// chunks are padded to an even size
+			position += 8 + length + (length & 1);
+		}
+		
+		return null;
+	}
+	
+	private static final PcmFile parseAIFF(Path path, FileChannel channel, long size, long lastModified, boolean compressed) throws IOException {
+		
+		AudioFormat format = null;
+		long frames = 0;
+		long position = 12;
+		
+		while(position + 8 <= size) {
+			
+			ByteBuffer chunk = PcmFile.read(channel, position, 8, ByteOrder.BIG_ENDIAN);
+			int id = chunk.getInt(0);
+			long length = chunk.getInt(4) & 0xFFFFFFFFL;
+			
+			if(id == 0x434F4D4D) {
+				
+				ByteBuffer comm = PcmFile.read(channel, position + 8, (int)Math.min(length, 22), ByteOrder.BIG_ENDIAN);
+				
+				if(comm.remaining() < 18 || (compressed && comm.remaining() < 22)) {
+					
+					return null;
+				}
+				
+				int channels = comm.getShort(0) & 0xFFFF;
+				frames = comm.getInt(2) & 0xFFFFFFFFL;
+				int sampleSize = comm.getShort(6) & 0xFFFF;
+				float sampleRate = (float)PcmFile.toDouble(comm, 8);
+				int compression = compressed ? comm.getInt(18) : 0x4E4F4E45;
+				boolean bigEndian = compression != 0x736F7774;
+				AudioFormat.Encoding encoding = compression == 0x4E4F4E45 || compression == 0x74776F73 || compression == 0x736F7774 ? AudioFormat.Encoding.PCM_SIGNED :
+				                                compression == 0x666C3332 || compression == 0x464C3332 ? AudioFormat.Encoding.PCM_FLOAT : null;
+				format = PcmFile.createFormat(encoding, sampleRate, sampleSize, channels, channels * ((sampleSize + 7) / 8), bigEndian);
+				
+				if(format == null) {
+					
+					return null;
+				}
+				
+			} else if(id == 0x53534E44) {
+				
+				if(format == null) {
+					
+					return null;
+				}
+				
+				long offset = PcmFile.read(channel, position + 8, 4, ByteOrder.BIG_ENDIAN).getInt(0) & 0xFFFFFFFFL;
+				long dataLength = Math.min(length - 8 - offset, frames * format.getFrameSize());
+				return new PcmFile(path, size, lastModified, format, position + 16 + offset, dataLength);
+			}
+			
+			position += 8 + length + (length & 1);
+		}
+		
+		return null;
+	}
+	
+	private static final PcmFile parseAU(Path path, FileChannel channel, long size, long lastModified) throws IOException {
+		
+		ByteBuffer header = PcmFile.read(channel, 0, 24, ByteOrder.BIG_ENDIAN);
+		
+		if(header.remaining() < 24) {
+			
+			return null;
+		}
+		
+		long offset = header.getInt(4) & 0xFFFFFFFFL;
+		long length = header.getInt(8) & 0xFFFFFFFFL;
+		int encoding = header.getInt(12);
+		float sampleRate = header.getInt(16) & 0xFFFFFFFFL;
+		int channels = header.getInt(20);
+		int sampleSize = encoding >= 2 && encoding <= 5 ? (encoding - 1) * 8 : encoding == 6 ? 32 : 8;
+		AudioFormat.Encoding type = encoding >= 2 && encoding <= 5 ? AudioFormat.Encoding.PCM_SIGNED :
+		                            encoding == 6 ? AudioFormat.Encoding.PCM_FLOAT :
+		                            encoding == 1 ? AudioFormat.Encoding.ULAW :
+		                            encoding == 27 ? AudioFormat.Encoding.ALAW : null;
+		AudioFormat format = PcmFile.createFormat(type, sampleRate, sampleSize, channels, channels * sampleSize / 8, true);
+		
+		// the length is optional
+		return format != null && offset >= 24 ? new PcmFile(path, size, lastModified, format, offset, length == 0xFFFFFFFFL ? size - offset : length) : null;
+	}
+	
+	private static final AudioFormat createFormat(AudioFormat.Encoding encoding, float sampleRate, int sampleSize, int channels, int frameSize, boolean bigEndian) {
+		
+		// odd sample sizes and padded frames are left to the readers of the AudioSystem
+		if(encoding == null || channels <= 0 || sampleRate <= 0 || sampleSize <= 0 || sampleSize % 8 != 0 || frameSize != channels * sampleSize / 8) {
+			
+			return null;
+		}
+		
+		if(AudioFormat.Encoding.PCM_FLOAT.equals(encoding) && sampleSize != 32) {
+			
+			return null;
+		}
+		
+		if((AudioFormat.Encoding.ULAW.equals(encoding) || AudioFormat.Encoding.ALAW.equals(encoding)) && sampleSize != 8) {
+			
+			return null;
+		}
+		
+		return new AudioFormat(encoding, sampleRate, sampleSize, channels, frameSize, sampleRate, bigEndian);
+	}
+	
+	// converts an 80 bit IEEE 754 extended precision number
+	private static final double toDouble(ByteBuffer buffer, int index) {
+		
+		int exponent = ((buffer.get(index) & 0x7F) << 8) | (buffer.get(index + 1) & 0xFF);
+		long mantissa = buffer.getLong(index + 2);
+		
+		if(exponent == 0 && mantissa == 0) {
+			
+			return 0.0;
+		}
+		
+		double value = Math.scalb((double)(mantissa >>> 1), exponent - 16383 - 62);
+		return (buffer.get(index) & 0x80) != 0 ? -value : value;
+	}
+	
+	private static final ByteBuffer read(FileChannel channel, long position, int length, ByteOrder order) throws IOException {
+		
+		ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, MAX_CHUNK_HEADER)).order(order);
+		
+		while(buffer.hasRemaining()) {
+			
+			if(channel.read(buffer, position + buffer.position()) <= 0) {
+				
+				break;
+			}
+		}
+		
+		buffer.flip();
+		return buffer;
+	}
+}
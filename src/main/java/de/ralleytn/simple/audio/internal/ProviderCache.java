@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import javax.sound.sampled.spi.AudioFileReader;
+import javax.sound.sampled.spi.FormatConversionProvider;
+
+/**
+ * Remembers which service provider was able to read a file format or to convert an encoding,
+ * so that the {@linkplain javax.sound.sampled.AudioSystem} does not have to ask every installed provider on every call.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class ProviderCache {
+
+	private static final Map<Object, AudioFileReader> READERS = new ConcurrentHashMap<>();
+	private static final Map<String, FormatConversionProvider> CONVERTERS = new ConcurrentHashMap<>();
+	private static volatile List<AudioFileReader> readers;
+	private static volatile List<FormatConversionProvider> converters;
+	
+	private ProviderCache() {}
+	
+	/**
+	 * Reads an {@linkplain AudioInputStream} with the provider that was last able to read the given format
+	 * and only asks the other providers if it fails.
+	 * @param inputStream the stream with the encoded data; has to support {@link InputStream#mark(int)}
+	 * @param format the key under which the provider is cached, usually the detected file format
+	 * @return the {@linkplain AudioInputStream}
+	 * @throws UnsupportedAudioFileException if no provider can read the stream
+	 * @throws IOException if an I/O error occurs
+	 * @since 2.1.0
+	 */
+	public static final AudioInputStream getAudioInputStream(InputStream inputStream, Object format) throws UnsupportedAudioFileException, IOException {
+		
+		AudioFileReader cached = READERS.get(format);
+		
+		if(cached != null) {
+			
+			try {
+				
+				return cached.getAudioInputStream(inputStream);
+				
+			} catch(UnsupportedAudioFileException exception) {}
+		}
+		
+		// same order as the AudioSystem would ask them
+		for(AudioFileReader reader : ProviderCache.getReaders()) {
+			
+			if(reader != cached) {
+				
+				try {
+					
+					AudioInputStream audioInputStream = reader.getAudioInputStream(inputStream);
+					READERS.put(format, reader);
+					return audioInputStream;
+					
+				} catch(UnsupportedAudioFileException exception) {}
+			}
+		}
+		
+		throw new UnsupportedAudioFileException("Stream of unsupported format");
+	}
+	
+	/**
+	 * Converts an {@linkplain AudioInputStream} with the provider that was last able to convert between the same encodings.
+	 * @param format the target format
+	 * @param audioInputStream the stream that should be converted
+	 * @return the converted stream
+	 * @throws IllegalArgumentException if no provider supports the conversion
+	 * @since 2.1.0
+	 */
+	public static final AudioInputStream convert(AudioFormat format, AudioInputStream audioInputStream) {
+		
+		AudioFormat source = audioInputStream.getFormat();
+		String key = source.getEncoding() + "/" + format.getEncoding();
+		FormatConversionProvider cached = CONVERTERS.get(key);
+		
+		if(cached != null && cached.isConversionSupported(format, source)) {
+			
+			return cached.getAudioInputStream(format, audioInputStream);
+		}
+		
+		for(FormatConversionProvider converter : ProviderCache.getConverters()) {
+			
+			if(converter.isConversionSupported(format, source)) {
+				
+				CONVERTERS.put(key, converter);
+				return converter.getAudioInputStream(format, audioInputStream);
+			}
+		}
+		
+		throw new IllegalArgumentException("Unsupported conversion: " + format + " from " + source);
+	}
+	
+	private static final List<AudioFileReader> getReaders() {
+		
+		if(ProviderCache.readers == null) {
+			
+			List<AudioFileReader> readers = new ArrayList<>();
+			ServiceLoader.load(AudioFileReader.class).forEach(readers::add);
+			ProviderCache.readers = readers;
+		}
+		
+		return ProviderCache.readers;
+	}
+	
+	private static final List<FormatConversionProvider> getConverters() {
+		
+		if(ProviderCache.converters == null) {
+			
+			List<FormatConversionProvider> converters = new ArrayList<>();
+			ServiceLoader.load(FormatConversionProvider.class).forEach(converters::add);
+			ProviderCache.converters = converters;
+		}
+		
+		return ProviderCache.converters;
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ralleytn.simple.audio.internal;
+
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+/**
+ * Contains the loops that convert raw PCM bytes into normalized samples.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class Samples {
+
+	private static final float SCALE = 1.0F / 2147483648.0F;
+	
+	private Samples() {}
+	
+	/**
+	 * @param format the {@linkplain AudioFormat} that should be checked
+	 * @return {@code true} if the given {@linkplain AudioFormat} can be read by the methods of this class, else {@code false}
+	 * @since 2.1.0
+	 */
+	public static final boolean isSupported(AudioFormat format) {
+		
+		AudioFormat.Encoding encoding = format.getEncoding();
+		int sampleSize = format.getSampleSizeInBits();
+		
+		if(AudioFormat.Encoding.PCM_FLOAT.equals(encoding)) {
+			
+			return sampleSize == 32;
+		}
+		
+		return (AudioFormat.Encoding.PCM_SIGNED.equals(encoding) || AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding)) &&
+			   (sampleSize == 8 || sampleSize == 16 || sampleSize == 24 || sampleSize == 32);
+	}
+	
+	/**
+	 * Converts a-law, u-law and other encodings into plain 16 bit PCM.
+	 * @param audioInputStream the {@linkplain AudioInputStream} that may have to be converted
+	 * @return the given {@linkplain AudioInputStream} if its format is already supported, else a converted one
+	 * @throws IOException if the format cannot be converted
+	 * @since 2.1.0
+	 */
+	public static final AudioInputStream toSupportedFormat(AudioInputStream audioInputStream) throws IOException {
+		
+		AudioFormat format = audioInputStream.getFormat();
+		
+		if(!Samples.isSupported(format)) {
+			
+			AudioFormat pcm = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, format.isBigEndian());
+			
+			try {
+				
+				return ProviderCache.convert(pcm, audioInputStream);
+				
+			} catch(IllegalArgumentException exception) {
+				
+				throw new IOException("Unsupported audio format: " + format);
+			}
+		}
+		
+		return audioInputStream;
+	}
+	
+	/**
+	 * Converts raw PCM samples to {@code float}s between {@code -1.0F} and {@code 1.0F}.
+	 * @param source the raw PCM data
+	 * @param offset index of the first byte of the first sample
+	 * @param stride distance in bytes between the beginnings of two samples
+	 * @param target the array in which the samples will be written
+	 * @param targetOffset index of the first sample in the target array
+	 * @param count number of samples to convert
+	 * @param format format of the raw PCM data
+	 * @since 2.1.0
+	 */
+	public static final void toFloat(byte[] source, int offset, int stride, float[] target, int targetOffset, int count, AudioFormat format) {
+		
+		int bytes = format.getSampleSizeInBits() >> 3;
+		boolean bigEndian = format.isBigEndian();
+		int end = targetOffset + count;
+		int position = offset;
+		
+		if(AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding())) {
+			
+			for(int index = targetOffset; index < end; index++, position += stride) {
+				
+				target[index] = Float.intBitsToFloat(Samples.getInt(source, position, 4, bigEndian));
+			}
+			
+		} else {
+			
+			int sign = AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding()) ? 0x80000000 : 0;
+			
+			for(int index = targetOffset; index < end; index++, position += stride) {
+				
+				target[index] = (Samples.getInt(source, position, bytes, bigEndian) ^ sign) * Samples.SCALE;
+			}
+		}
+	}
+	
+	/**
+	 * Converts raw PCM samples to signed 16 bit {@code short}s.
+	 * @param source the raw PCM data
+	 * @param offset index of the first byte of the first sample
+	 * @param stride distance in bytes between the beginnings of two samples
+	 * @param target the array in which the samples will be written
+	 * @param targetOffset index of the first sample in the target array
+	 * @param count number of samples to convert
+	 * @param format format of the raw PCM data
+	 * @since 2.1.0
+	 */
+	public static final void toShort(byte[] source, int offset, int stride, short[] target, int targetOffset, int count, AudioFormat format) {
+		
+		int bytes = format.getSampleSizeInBits() >> 3;
+		boolean bigEndian = format.isBigEndian();
+		int end = targetOffset + count;
+		int position = offset;
+		
+		if(AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding())) {
+			
+			for(int index = targetOffset; index < end; index++, position += stride) {
+				
+				float sample = Float.intBitsToFloat(Samples.getInt(source, position, 4, bigEndian)) * 32768.0F;
+				target[index] = (short)(sample >= 32767.0F ? 32767 : (sample <= -32768.0F ? -32768 : (int)sample));
+			}
+			
+		} else {
+			
+			int sign = AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding()) ? 0x80000000 : 0;
+			
+			for(int index = targetOffset; index < end; index++, position += stride) {
+				
+				target[index] = (short)((Samples.getInt(source, position, bytes, bigEndian) ^ sign) >> 16);
+			}
+		}
+	}
+	
+	/**
+	 * Reads a single sample and aligns it to the most significant bit of an {@code int}.
+	 * @param source the raw PCM data
+	 * @param position index of the first byte of the sample
+	 * @param bytes the size of the sample in bytes
+	 * @param bigEndian {@code true} if the sample is stored in big endian byte order
+	 * @return the sample
+	 * @since 2.1.0
+	 */
+	public static final int getInt(byte[] source, int position, int bytes, boolean bigEndian) {
+		
+		switch(bytes) {
+			case 1:
+				return source[position] << 24;
+			case 2:
+				return bigEndian ? (source[position] << 24) | ((source[position + 1] & 0xFF) << 16)
+								 : (source[position + 1] << 24) | ((source[position] & 0xFF) << 16);
+			case 3:
+				return bigEndian ? (source[position] << 24) | ((source[position + 1] & 0xFF) << 16) | ((source[position + 2] & 0xFF) << 8)
+								 : (source[position + 2] << 24) | ((source[position + 1] & 0xFF) << 16) | ((source[position] & 0xFF) << 8);
+			default:
+				return bigEndian ? (source[position] << 24) | ((source[position + 1] & 0xFF) << 16) | ((source[position + 2] & 0xFF) << 8) | (source[position + 3] & 0xFF)
+								 : (source[position + 3] << 24) | ((source[position + 2] & 0xFF) << 16) | ((source[position + 1] & 0xFF) << 8) | (source[position] & 0xFF);
+		}
+	}
+	
+	/**
+	 * Writes a single sample that is aligned to the most significant bit of an {@code int}. Bits that do not fit are cut off.
+	 * @param target the raw PCM data
+	 * @param position index of the first byte of the sample
+	 * @param bytes the size of the sample in bytes
+	 * @param bigEndian {@code true} if the sample should be stored in big endian byte order
+	 * @param sample the sample
+	 * @since 2.1.0
+	 */
+	public static final void putInt(byte[] target, int position, int bytes, boolean bigEndian, int sample) {
+		
+		if(bigEndian) {
+			
+			for(int index = 0; index < bytes; index++) {
+				
+				target[position + index] = (byte)(sample >> (24 - (index << 3)));
+			}
+			
+		} else {
+			
+			for(int index = 0; index < bytes; index++) {
+				
+				target[position + bytes - 1 - index] = (byte)(sample >> (24 - (index << 3)));
+			}
+		}
+	}
+	
+	/**
+	 * Converts an {@linkplain AudioInputStream} with the {@linkplain PcmConverter}.
+	 * @param audioInputStream the {@linkplain AudioInputStream} that should be converted
+	 * @param format the target format
+	 * @return the given {@linkplain AudioInputStream} if it already has the target format, else a converted one
+	 * @throws IOException if one of the formats is not supported by the {@linkplain PcmConverter}
+	 * @since 2.1.0
+	 */
+	public static final AudioInputStream convert(AudioInputStream audioInputStream, AudioFormat format) throws IOException {
+		
+		if(audioInputStream.getFormat().matches(format)) {
+			
+			return audioInputStream;
+		}
+		
+		PcmConverter converter = new PcmConverter(audioInputStream.getFormat(), format);
+		return new AudioInputStream(new ConvertingInputStream(audioInputStream, converter), format, audioInputStream.getFrameLength());
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ralleytn.simple.audio.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+
+import de.jarnbjo.ogg.LogicalOggStream;
+import de.jarnbjo.ogg.LogicalOggStreamImpl;
+import de.jarnbjo.ogg.OggFormatException;
+import de.jarnbjo.ogg.OggPage;
+import de.jarnbjo.ogg.PhysicalOggStream;
+
+/**
+ * Reads the pages of an Ogg stream one after another from an {@linkplain InputStream}.
+ * Replaces {@linkplain de.jarnbjo.ogg.BasicStream} which never stores the {@linkplain InputStream} it was given and fails after the first page.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class SequentialOggStream implements PhysicalOggStream {
+
+	private InputStream source;
+	private OggPage firstPage;
+	private LogicalOggStreamImpl logicalStream;
+	private boolean closed;
+	
+	/**
+	 * @param source the {@linkplain InputStream} containing the Ogg stream
+	 * @throws OggFormatException if the stream does not start with a valid Ogg page
+	 * @throws IOException if an I/O error occurs
+	 * @since 2.1.0
+	 */
+	public SequentialOggStream(InputStream source) throws OggFormatException, IOException {
+		
+		this.source = source;
+		this.firstPage = OggPage.create(source);
+		this.logicalStream = new LogicalOggStreamImpl(this, this.firstPage.getStreamSerialNumber());
+		this.logicalStream.checkFormat(this.firstPage);
+	}
+	
+	/**
+	 * @return the only logical stream of this physical stream
+	 * @since 2.1.0
+	 */
+	public LogicalOggStream getLogicalStream() {
+		
+		return this.logicalStream;
+	}
+	
+	@SuppressWarnings("rawtypes")
+	@Override
+	public Collection getLogicalStreams() {
+		
+		return Collections.singletonList(this.logicalStream);
+	}
+
+	@Override
+	public OggPage getOggPage(int index) throws IOException {
+		
+		if(this.firstPage != null) {
+			
+			OggPage page = this.firstPage;
+			this.firstPage = null;
+			return page;
+		}
+		
+		return OggPage.create(this.source);
+	}
+
+	@Override
+	public boolean isOpen() {
+		
+		return !this.closed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		
+		this.closed = true;
+		this.source.close();
+	}
+
+	@Override
+	public void setTime(long granulePosition) throws IOException {
+		
+		throw new UnsupportedOperationException("Method not supported by this class");
+	}
+
+	@Override
+	public boolean isSeekable() {
+		
+		return false;
+	}
+}
@@ -0,0 +1,299 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ralleytn.simple.audio.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Mixes all playing {@linkplain Voice}s with the same sample rate and number of channels into a single {@linkplain SourceDataLine}.
+ * The line is only taken while something is playing and is released again after a second of silence.
+ * If no line is available, the voices are mixed silently in real time so that positions and events still work.
+ * A block is mixed while the mixer is locked, so a voice that was removed is neither mixed nor ended afterwards.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class SoftwareMixer implements Runnable {
+
+	private static final Map<String, SoftwareMixer> MIXERS = new HashMap<>();
+	private static final int BLOCK_FRAMES = 1024;
+	private static final int BUFFERED_BLOCKS = 4;
+	private static final long IDLE_TIMEOUT = 1000000000L;
+	
+	private final AudioFormat format;
+	private final List<Voice> voices = new ArrayList<>();
+	private final List<Voice> ended = new ArrayList<>();
+	private final List<Voice> starving = new ArrayList<>();
+	private volatile SourceDataLine line;
+	private volatile long mixedFrames;
+	private Thread thread;
+	
+	private SoftwareMixer(float sampleRate, int channels) {
+		
+		this.format = new AudioFormat(sampleRate, 16, channels, true, false);
+	}
+	
+	/**
+	 * @param format the format of the audio that should be mixed
+	 * @return the shared mixer for the sample rate and number of channels of the given format
+	 * @since 2.1.0
+	 */
+	public static final synchronized SoftwareMixer get(AudioFormat format) {
+		
+		return MIXERS.computeIfAbsent(format.getSampleRate() + "/" + format.getChannels(), key -> new SoftwareMixer(format.getSampleRate(), format.getChannels()));
+	}
+	
+	/**
+	 * Starts mixing the given {@linkplain Voice}.
+	 * @param voice the voice
+	 * @since 2.1.0
+	 */
+	public synchronized void add(Voice voice) {
+		
+		if(!this.voices.contains(voice)) {
+			
+			this.voices.add(voice);
+			voice.setMixer(this);
+		}
+		
+		// a voice that was started again in the meantime has not ended
+		this.ended.remove(voice);
+		
+		if(this.thread == null) {
+			
+			this.thread = new Thread(this, "SimpleAudio-Mixer-" + (int)this.format.getSampleRate() + "-" + this.format.getChannels());
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+		
+		this.notifyAll();
+	}
+	
+	/**
+	 * Stops mixing the given {@linkplain Voice}. Waits for the block that is currently mixed, so the voice is not mixed anymore when this method returns.
+	 * If the voice reached its end in that block, it is not ended.
+	 * @param voice the voice
+	 * @since 2.1.0
+	 */
+	public synchronized void remove(Voice voice) {
+		
+		this.voices.remove(voice);
+		this.ended.remove(voice);
+		this.starving.remove(voice);
+		voice.setMixer(null);
+	}
+	
+	/**
+	 * @param voice the voice
+	 * @return {@code true} if the given {@linkplain Voice} is currently mixed, else {@code false}
+	 * @since 2.1.0
+	 */
+	public synchronized boolean contains(Voice voice) {
+		
+		return this.voices.contains(voice);
+	}
+	
+	/**
+	 * @return the number of mixed frames that have not been played by the line yet
+	 * @since 2.1.0
+	 */
+	public long getLatency() {
+		
+		SourceDataLine line = this.line;
+		
+		if(line == null) {
+			
+			return 0;
+		}
+		
+		// the frames that were mixed but not yet written are queued as well
+		return Math.max(0, this.mixedFrames - line.getLongFramePosition());
+	}
+	
+	/**
+	 * @return the format in which this mixer writes to the line
+	 * @since 2.1.0
+	 */
+	public AudioFormat getFormat() {
+		
+		return this.format;
+	}
+	
+	@Override
+	public void run() {
+		
+		int channels = this.format.getChannels();
+		float[] mix = new float[BLOCK_FRAMES * channels];
+		byte[] output = new byte[mix.length * 2];
+		long blockTime = (long)(BLOCK_FRAMES * 1000000000.0 / this.format.getSampleRate());
+		long idleSince = System.nanoTime();
+		long nextBlock = System.nanoTime();
+		SourceDataLine line = null;
+		
+		try {
+			
+			line = AudioSystem.getSourceDataLine(this.format);
+			line.open(this.format, output.length * BUFFERED_BLOCKS);
+			line.start();
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			line = null;
+		}
+		
+		this.line = line;
+		
+		while(true) {
+			
+			synchronized(this) {
+				
+				if(this.voices.isEmpty()) {
+					
+					if(System.nanoTime() - idleSince > IDLE_TIMEOUT) {
+						
+						// released while locked, so that a voice that is added now starts a new thread only after the line was closed
+						if(line != null) {
+							
+							line.drain();
+							line.close();
+						}
+						
+						this.line = null;
+						this.mixedFrames = 0;
+						this.thread = null;
+						return;
+					}
+					
+					try {
+						
+						this.wait(100);
+						
+					} catch(InterruptedException exception) {}
+					
+					nextBlock = System.nanoTime();
+					continue;
+				}
+				
+				Arrays.fill(mix, 0.0F);
+				
+				for(Iterator<Voice> iterator = this.voices.iterator(); iterator.hasNext();) {
+					
+					Voice voice = iterator.next();
+					boolean ended;
+					
+					try {
+						
+						ended = voice.mix(mix, BLOCK_FRAMES);
+						
+					} catch(RuntimeException exception) {
+						
+						// a broken voice is ended, so that it neither stops the other voices nor keeps failing
+						exception.printStackTrace();
+						ended = true;
+					}
+					
+					if(ended) {
+						
+						iterator.remove();
+						this.ended.add(voice);
+						
+					} else if(voice.pollStarvingChanged()) {
+						
+						this.starving.add(voice);
+					}
+				}
+				
+				this.mixedFrames += BLOCK_FRAMES;
+			}
+			
+			for(int index = 0; index < mix.length; index++) {
+				
+				float sample = mix[index] * 32768.0F;
+				int value = sample >= 32767.0F ? 32767 : (sample <= -32768.0F ? -32768 : (int)sample);
+				output[index * 2] = (byte)value;
+				output[index * 2 + 1] = (byte)(value >> 8);
+			}
+			
+			if(line != null) {
+				
+				line.write(output, 0, output.length);
+				
+			} else {
+				
+				nextBlock += blockTime;
+				long delay = nextBlock - System.nanoTime();
+				
+				if(delay > 0) {
+					
+					try {
+						
+						Thread.sleep(delay / 1000000, (int)(delay % 1000000));
+						
+					} catch(InterruptedException exception) {}
+				}
+			}
+			
+			// called after the mixing and without the lock, so listeners may add or remove voices without disturbing it
+			for(Voice voice = this.next(this.starving); voice != null; voice = this.next(this.starving)) {
+				
+				voice.notifyStarving();
+			}
+			
+			for(Voice voice = this.nextEnded(); voice != null; voice = this.nextEnded()) {
+				
+				voice.end();
+			}
+			
+			idleSince = System.nanoTime();
+		}
+	}
+	
+	private synchronized Voice next(List<Voice> voices) {
+		
+		return voices.isEmpty() ? null : voices.remove(0);
+	}
+	
+	private synchronized Voice nextEnded() {
+		
+		Voice voice = this.next(this.ended);
+		
+		if(voice != null) {
+			
+			voice.setMixer(null);
+		}
+		
+		return voice;
+	}
+}
@@ -24,17 +24,16 @@
 
 package de.ralleytn.simple.audio.internal;
 
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Contains some utility methods.
+ * None of the methods reads more bytes from a stream than it needs, so buffered streams should be used for bulk reading.
  * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
- * @version 2.0.1
+ * @version 2.1.0
  * @since 1.2.0
  */
 public final class Util {
@@ -43,6 +42,7 @@ public final class Util {
 	
 	/**
 	 * Skips bytes in an {@linkplain InputStream} until it finds the given sequence.
+	 * Uses the Knuth-Morris-Pratt algorithm, so every byte is only looked at once and nothing is stored.
 	 * @param inputStream the {@linkplain InputStream}
 	 * @param sequence the sequence that should be found
 	 * @throws IOException if something went wrong while reading from the {@linkplain InputStream}
@@ -50,37 +50,85 @@ public final class Util {
 	 */
 	public static final void readUntil(InputStream inputStream, int[] sequence) throws IOException {
 		
-		List<Integer> readBytes = new ArrayList<>();
+		byte[] pattern = Util.toByteArray(sequence);
+		int[] failure = Util.createFailureTable(pattern);
+		int matched = 0;
 		int readByte = -1;
 		
 		while((readByte = inputStream.read()) != -1) {
 			
-			if(readBytes.size() >= sequence.length - 1) {
+			while(matched > 0 && (byte)readByte != pattern[matched]) {
 				
-				boolean correct = true;
-				int current = 1;
+				matched = failure[matched - 1];
+			}
+			
+			if((byte)readByte == pattern[matched] && ++matched == pattern.length) {
 				
-				for(int index = sequence.length - 2; index >= 0; index--) {
-					
-					if(readBytes.get(readBytes.size() - current) != sequence[index]) {
-						
-						correct = false;
-						break;
-					}
-					
-					current++;
-				}
+				return;
+			}
+		}
+		
+		throw new IOException("Could not find the given sequence!");
+	}
+	
+	/**
+	 * Creates the table of the Knuth-Morris-Pratt algorithm for a pattern.
+	 * The table can be used for any number of searches with {@link #indexOf(byte[], int, int, byte[], int[])}.
+	 * @param pattern the pattern
+	 * @return the length of the longest proper prefix of the pattern that is also a suffix, for each length of the pattern
+	 * @since 2.1.0
+	 */
+	public static final int[] createFailureTable(byte[] pattern) {
+		
+		int[] failure = new int[pattern.length];
+		int length = 0;
+		
+		for(int index = 1; index < pattern.length; index++) {
+			
+			while(length > 0 && pattern[index] != pattern[length]) {
+				
+				length = failure[length - 1];
+			}
+			
+			if(pattern[index] == pattern[length]) {
 				
-				if(correct && readByte == sequence[sequence.length - 1]) {
-					
-					return;
-				}
+				length++;
 			}
 			
-			readBytes.add(readByte);
+			failure[index] = length;
 		}
 		
-		throw new IOException("Could not find the given sequence!");
+		return failure;
+	}
+	
+	/**
+	 * Searches a pattern with the Knuth-Morris-Pratt algorithm.
+	 * @param data the data that is searched
+	 * @param offset index of the first byte that is searched
+	 * @param length number of bytes that are searched
+	 * @param pattern the pattern
+	 * @param failure the table of the pattern from {@link #createFailureTable(byte[])}
+	 * @return index of the first occurrence of the pattern or {@code -1} if it was not found
+	 * @since 2.1.0
+	 */
+	public static final int indexOf(byte[] data, int offset, int length, byte[] pattern, int[] failure) {
+		
+		int matched = 0;
+		
+		for(int index = offset, end = offset + length; index < end; index++) {
+			
+			while(matched > 0 && data[index] != pattern[matched]) {
+				
+				matched = failure[matched - 1];
+			}
+			
+			if(data[index] == pattern[matched] && ++matched == pattern.length) {
+				
+				return index - pattern.length + 1;
+			}
+		}
+		
+		return -1;
 	}
 	
 	/**
@@ -89,61 +137,90 @@ public final class Util {
 	 * @param length the length of the {@linkplain String} in bytes
 	 * @param charset the charset of the {@linkplain String}
 	 * @return the read {@linkplain String}
-	 * @throws IOException if something went wrong while reading from the {@linkplain InputStream}
+	 * @throws IOException if something went wrong while reading from the {@linkplain InputStream} or the stream ended too early
 	 * @since 1.2.0
 	 */
 	public static final String readString(InputStream inputStream, int length, Charset charset) throws IOException {
 		
-		int[] octets = Util.read(inputStream, length);
-		return new String(Util.toByteArray(octets), charset.name());
+		return new String(Util.readFully(inputStream, length), charset);
 	}
 
 	/**
-	 * Reads an unsigned {@code int} from an {@linkplain InputStream}.
+	 * Reads an unsigned little endian {@code int} from an {@linkplain InputStream}.
 	 * @param inputStream the {@linkplain InputStream}
 	 * @return the read {@code int}
-	 * @throws IOException if something went wrong while reading from the {@linkplain InputStream}
+	 * @throws IOException if something went wrong while reading from the {@linkplain InputStream} or the stream ended too early
 	 * @since 1.2.0
 	 */
 	public static final long readUnsignedInt(InputStream inputStream) throws IOException {
 		
-		int[] octets = Util.read(inputStream, 4);
-		return Util.getUnsignedInteger(octets[3], octets[2], octets[1], octets[0]);
+		return Util.readSignedInt(inputStream) & 0xFFFFFFFFL;
 	}
 	
 	/**
-	 * Reads a signed {@code int} from an {@linkplain InputStream}.
+	 * Reads a signed little endian {@code int} from an {@linkplain InputStream}.
 	 * @param inputStream the {@linkplain InputStream}
 	 * @return the read {@code int}
-	 * @throws IOException if something went wrong while reading from the {@linkplain InputStream}
+	 * @throws IOException if something went wrong while reading from the {@linkplain InputStream} or the stream ended too early
 	 * @since 1.2.0
 	 */
 	public static final int readSignedInt(InputStream inputStream) throws IOException {
 		
-		int[] octets = Util.read(inputStream, 4);
-		return Util.getSignedInteger(octets[3], octets[2], octets[1], octets[0]);
+		int o4 = inputStream.read();
+		int o3 = inputStream.read();
+		int o2 = inputStream.read();
+		int o1 = inputStream.read();
+		
+		if((o1 | o2 | o3 | o4) < 0) {
+			
+			throw new EOFException();
+		}
+		
+		return Util.getSignedInteger(o1, o2, o3, o4);
 	}
 	
 	/**
 	 * Reads a certain amount of bytes from an {@linkplain InputStream}.
 	 * @param inputStream the {@linkplain InputStream}
 	 * @param length the amount of bytes that should be read
-	 * @return the read bytes as an {@code int} array
+	 * @return the read bytes as an {@code int} array; {@code -1} for every byte behind the end of the stream
 	 * @throws IOException if something went wrong while reading from the {@linkplain InputStream}
 	 * @since 1.2.0
 	 */
 	public static final int[] read(InputStream inputStream, int length) throws IOException {
 		
+		byte[] bytes = new byte[length];
+		int read = inputStream.readNBytes(bytes, 0, length);
 		int[] data = new int[length];
 		
 		for(int index = 0; index < data.length; index++) {
 			
-			data[index] = inputStream.read();
+			data[index] = index < read ? bytes[index] & 0xFF : -1;
 		}
 		
 		return data;
 	}
 	
+	/**
+	 * Reads a certain amount of bytes from an {@linkplain InputStream} with as few reads as possible.
+	 * @param inputStream the {@linkplain InputStream}
+	 * @param length the amount of bytes that should be read
+	 * @return the read bytes
+	 * @throws IOException if something went wrong while reading from the {@linkplain InputStream} or the stream ended too early
+	 * @since 2.1.0
+	 */
+	public static final byte[] readFully(InputStream inputStream, int length) throws IOException {
+		
+		byte[] bytes = new byte[length];
+		
+		if(inputStream.readNBytes(bytes, 0, length) < length) {
+			
+			throw new EOFException();
+		}
+		
+		return bytes;
+	}
+	
 	/**
 	 * Builds an unsigned {@code int} with 4 bytes.
 	 * @param o1 first byte
@@ -172,53 +249,6 @@ public final class Util {
 		return ((o1 & 0xFF) << 24) | ((o2 & 0xFF) << 16) | ((o3 & 0xFF) << 8) | (o4 & 0xFF);
 	}
 	
-	// ==== 17.03.2018 | Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
-	// Since this method is internal and no classes inside this library use it, it is dead code.
-	// ====
-	
-//	/**
-//	 * @param integer the bit chain
-//	 * @param position the position of the bit that you want (starting on the right at index 0)
-//	 * @return {@code true} = 1, {@code false} = 0
-//	 * @since 1.2.0
-//	 */
-//	public static final boolean getBit(int integer, int position) {
-//		
-//		return ((integer >> position) & 1) == 1;
-//	}
-	
-	// ==== 17.03.2018 | Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
-	// Since this method is internal and no classes inside this library use it, it is dead code.
-	// ====
-	
-//	/**
-//	 * Converts a list of {@code int}s into a {@code byte} array.
-//	 * @param integers the {@code int} list
-//	 * @return the resulting {@code byte} array
-//	 * @since 1.2.0
-//	 */
-//	public static final byte[] toByteArray(List<Integer> integers) {
-//		
-//		// ==== 15.03.2018 | Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
-//		// -	Made this method not throw a RuntimeException.
-//		// 		It will never happen anyway.
-//		// ====
-//		
-//		byte[] array = null;
-//		
-//		try(ByteArrayOutputStream buffer = new ByteArrayOutputStream()) {
-//			
-//			integers.forEach(buffer::write);
-//			array = buffer.toByteArray();
-//			
-//		} catch(IOException exception) {
-//			
-//			// DO NOTHING!
-//		}
-//		
-//		return array;
-//	}
-	
 	/**
 	 * Converts an array of {@code int}s into a {@code byte} array.
 	 * @param integers the {@code int} array
@@ -227,25 +257,11 @@ public final class Util {
 	 */
 	public static final byte[] toByteArray(int[] integers) {
 		
-		// ==== 15.03.2018 | Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
-		// -	Made this method not throw a RuntimeException.
-		// 		It will never happen anyway.
-		// ====
-		
-		byte[] array = null;
+		byte[] array = new byte[integers.length];
 		
-		try(ByteArrayOutputStream buffer = new ByteArrayOutputStream()) {
-			
-			for(int integer : integers) {
-				
-				buffer.write(integer);
-			}
-			
-			array = buffer.toByteArray();
-			
-		} catch(IOException exception) {
+		for(int index = 0; index < integers.length; index++) {
 			
-			// DO NOTHING!
+			array[index] = (byte)integers[index];
 		}
 		
 		return array;
@@ -0,0 +1,298 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ralleytn.simple.audio.internal;
+
+import java.util.function.Consumer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.BooleanControl;
+import javax.sound.sampled.Control;
+import javax.sound.sampled.FloatControl;
+
+/**
+ * The playback state of a {@linkplain PcmBuffer} that is mixed by a {@linkplain SoftwareMixer}.
+ * Holds its own gain, mute and balance controls, because there is no {@linkplain javax.sound.sampled.Line} that could provide them.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class Voice {
+
+	private final PcmBuffer buffer;
+	private final AudioFormat format;
+	private final int channels;
+	private final int bytesPerSample;
+	private final FloatControl gain;
+	private final BooleanControl mute;
+	private final FloatControl balance;
+	private final Runnable endAction;
+	private final Consumer<Boolean> starvingAction;
+	private volatile SoftwareMixer mixer;
+	private long position;
+	private int loops;
+	private boolean looped;
+	private boolean starving;
+	private boolean starvingChanged;
+	private volatile float level;
+	private byte[] bytes = new byte[0];
+	private float[] samples = new float[0];
+	
+	/**
+	 * @param buffer the PCM data to play
+	 * @param endAction is called on the mixing thread after the voice reached its end
+	 * @since 2.1.0
+	 */
+	public Voice(PcmBuffer buffer, Runnable endAction) {
+		
+		this(buffer, endAction, starving -> {});
+	}
+	
+	/**
+	 * @param buffer the PCM data to play
+	 * @param endAction is called on the mixing thread after the voice reached its end
+	 * @param starvingAction is called on the mixing thread with {@code true} when the voice reached the end of a buffer that is still being filled
+	 *        and with {@code false} when it can continue; in the meantime the voice is silent and its position does not move
+	 * @since 2.1.0
+	 */
+	public Voice(PcmBuffer buffer, Runnable endAction, Consumer<Boolean> starvingAction) {
+		
+		this.buffer = buffer;
+		this.format = buffer.getFormat();
+		this.channels = this.format.getChannels();
+		this.bytesPerSample = this.format.getSampleSizeInBits() >> 3;
+		this.endAction = endAction;
+		this.starvingAction = starvingAction;
+		this.gain = new FloatControl(FloatControl.Type.MASTER_GAIN, -80.0F, 6.0206F, 0.01F, -1, 0.0F, "dB") {};
+		this.mute = new BooleanControl(BooleanControl.Type.MUTE, false) {};
+		this.balance = new FloatControl(FloatControl.Type.BALANCE, -1.0F, 1.0F, 0.01F, -1, 0.0F, "") {};
+	}
+	
+	/**
+	 * @return the controls of this voice
+	 * @since 2.1.0
+	 */
+	public Control[] getControls() {
+		
+		return new Control[] {this.gain, this.mute, this.balance};
+	}
+	
+	/**
+	 * Adds the next frames of this voice to the mix.
+	 * @param target the mix; contains {@code frames * channels} interleaved samples
+	 * @param frames number of frames to mix
+	 * @return {@code true} if the end was reached, else {@code false}
+	 * @since 2.1.0
+	 */
+	public synchronized boolean mix(float[] target, int frames) {
+		
+		int samples = frames * this.channels;
+		
+		if(this.samples.length < samples) {
+			
+			this.samples = new float[samples];
+			this.bytes = new byte[frames * this.format.getFrameSize()];
+		}
+		
+		float volume = this.mute.getValue() ? 0.0F : (float)Math.pow(10.0, this.gain.getValue() / 20.0);
+		float balance = this.balance.getValue();
+		float left = this.channels == 2 && balance > 0.0F ? volume * (1.0F - balance) : volume;
+		float right = this.channels == 2 && balance < 0.0F ? volume * (1.0F + balance) : volume;
+		float peak = 0.0F;
+		long frameLength = this.buffer.getFrameLength();
+		boolean starving = false;
+		int mixed = 0;
+		
+		while(mixed < frames) {
+			
+			if(this.position >= frameLength) {
+				
+				// read in this order, so that the length is final if the buffer is complete
+				boolean complete = this.buffer.isComplete();
+				frameLength = this.buffer.getFrameLength();
+				
+				if(this.position < frameLength) {
+					
+					continue;
+				}
+				
+				if(!complete) {
+					
+					// the decoder has not caught up yet, the rest of the block stays silent
+					starving = true;
+					break;
+				}
+				
+				if(this.loops == 0 || frameLength == 0) {
+					
+					this.level = peak;
+					this.starving = false;
+					this.starvingChanged = false;
+					return true;
+				}
+				
+				if(this.loops > 0) {
+					
+					this.loops--;
+				}
+				
+				this.position = 0;
+				this.looped = true;
+			}
+			
+			int read = this.buffer.read(this.position, this.bytes, 0, frames - mixed);
+			int count = read * this.channels;
+			int offset = mixed * this.channels;
+			Samples.toFloat(this.bytes, 0, this.bytesPerSample, this.samples, 0, count, this.format);
+			
+			for(int index = 0; index < count; index++) {
+				
+				float sample = this.samples[index] * ((index & 1) == 0 ? left : right);
+				target[offset + index] += sample;
+				peak = Math.max(peak, Math.abs(sample));
+			}
+			
+			this.position += read;
+			mixed += read;
+		}
+		
+		this.level = peak;
+		
+		if(starving != this.starving) {
+			
+			this.starving = starving;
+			this.starvingChanged = !this.starvingChanged;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Is called by the {@linkplain SoftwareMixer} after mixing.
+	 * @return {@code true} if the voice started or stopped waiting for data since the last call, else {@code false}
+	 * @since 2.1.0
+	 */
+	public synchronized boolean pollStarvingChanged() {
+		
+		boolean changed = this.starvingChanged;
+		this.starvingChanged = false;
+		return changed;
+	}
+	
+	/**
+	 * Is called by the {@linkplain SoftwareMixer} if {@link #pollStarvingChanged()} returned {@code true}.
+	 * @since 2.1.0
+	 */
+	public void notifyStarving() {
+		
+		boolean starving;
+		
+		synchronized(this) {
+			
+			starving = this.starving;
+		}
+		
+		this.starvingAction.accept(starving);
+	}
+	
+	/**
+	 * @return {@code true} if the voice waits for the buffer to be filled, else {@code false}
+	 * @since 2.1.0
+	 */
+	public synchronized boolean isStarving() {
+		
+		return this.starving;
+	}
+	
+	/**
+	 * Is called by the {@linkplain SoftwareMixer} after the voice reached its end.
+	 * @since 2.1.0
+	 */
+	public void end() {
+		
+		this.endAction.run();
+	}
+	
+	/**
+	 * @param frame the frame at which the playback should continue
+	 * @since 2.1.0
+	 */
+	public synchronized void setFramePosition(long frame) {
+		
+		this.position = Math.max(0, Math.min(frame, this.buffer.getFrameLength()));
+		this.looped = false;
+	}
+	
+	/**
+	 * @return index of the frame that is currently heard; the frames that were mixed but are still queued in the line are not counted
+	 * @since 2.1.0
+	 */
+	public synchronized long getFramePosition() {
+		
+		SoftwareMixer mixer = this.mixer;
+		long position = this.position - (mixer != null ? mixer.getLatency() : 0);
+		
+		if(position < 0) {
+			
+			// the end of the previous loop is still heard
+			long frameLength = this.buffer.getFrameLength();
+			return this.looped && frameLength > 0 ? Math.floorMod(position, frameLength) : 0;
+		}
+		
+		return position;
+	}
+	
+	// set by the mixer while it mixes this voice
+	void setMixer(SoftwareMixer mixer) {
+		
+		this.mixer = mixer;
+	}
+	
+	/**
+	 * @param loops how often the voice should start over after reaching the end or {@code -1} to loop endlessly
+	 * @since 2.1.0
+	 */
+	public synchronized void setLoops(int loops) {
+		
+		this.loops = loops;
+	}
+	
+	/**
+	 * @return the peak level of the last mixed frames between {@code 0.0F} and {@code 1.0F}
+	 * @since 2.1.0
+	 */
+	public float getLevel() {
+		
+		return this.level;
+	}
+	
+	/**
+	 * @return the PCM data of this voice
+	 * @since 2.1.0
+	 */
+	public PcmBuffer getBuffer() {
+		
+		return this.buffer;
+	}
+}
@@ -34,21 +34,44 @@ import de.jarnbjo.vorbis.VorbisStream;
 
 /**
  * Wraps a {@linkplain VorbisStream}.
+ * The decoded data is 16 bit signed PCM in big or little endian byte order.
+ * None of the read methods allocates memory after the first call.
  * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
- * @version 2.0.0
+ * @version 2.1.0
  * @since 1.2.2
  */
 public class VorbisInputStream extends InputStream {
 
-	private VorbisStream source;
+	private static final float SCALE = 1.0F / 32768.0F;
+	
+	private final VorbisStream source;
+	private final AudioFormat format;
+	private final boolean bigEndian;
+	private final byte[] pending = new byte[2];
+	private int pendingPosition = 2;
+	private byte[] scratch = new byte[0];
+	private boolean ended;
 	
 	/**
+	 * Creates a stream that returns big endian PCM data.
 	 * @param source the instance of {@linkplain VorbisStream} to wrap
 	 * @since 1.2.2
 	 */
 	public VorbisInputStream(VorbisStream source) {
 		
+		this(source, true);
+	}
+	
+	/**
+	 * @param source the instance of {@linkplain VorbisStream} to wrap
+	 * @param bigEndian {@code true} for big endian PCM data, {@code false} for little endian PCM data
+	 * @since 2.1.0
+	 */
+	public VorbisInputStream(VorbisStream source, boolean bigEndian) {
+		
 		this.source = source;
+		this.bigEndian = bigEndian;
+		this.format = new AudioFormat(source.getIdentificationHeader().getSampleRate(), 16, source.getIdentificationHeader().getChannels(), true, bigEndian);
 	}
 	
 	@Override
@@ -59,21 +82,83 @@ public class VorbisInputStream extends InputStream {
 	
 	@Override
 	public int read(byte[] buffer, int offset, int length) throws IOException {
-
-		try {
+		
+		int read = 0;
+		
+		// a byte that is left over from a single byte read
+		while(this.pendingPosition < 2 && read < length) {
 			
-			return this.source.readPcm(buffer, offset, length);
+			buffer[offset + read++] = this.pending[this.pendingPosition++];
+		}
+		
+		int even = (length - read) & ~1;
+		
+		if(even > 0) {
+			
+			int decoded = this.decode(buffer, offset + read, even);
+			
+			if(decoded > 0) {
+				
+				read += decoded;
+			}
+			
+		} else if(read < length) {
 			
-		// catch is empty because this code was copied and throwing a RuntimeException could break it
-		} catch(EndOfOggStreamException exception) {}
+			// samples can not be split by the decoder
+			if(this.decode(this.pending, 0, 2) == 2) {
+				
+				this.pendingPosition = 0;
+				buffer[offset + read++] = this.pending[this.pendingPosition++];
+			}
+		}
 		
-		return -1;
+		return read == 0 && length > 0 ? -1 : read;
 	}
 	
 	@Override
 	public int read() throws IOException {
 		
-		return 0;
+		if(this.pendingPosition == 2) {
+			
+			if(this.decode(this.pending, 0, 2) != 2) {
+				
+				return -1;
+			}
+			
+			this.pendingPosition = 0;
+		}
+		
+		return this.pending[this.pendingPosition++] & 0xFF;
+	}
+	
+	/**
+	 * Reads interleaved samples as {@code float}s between {@code -1.0F} and {@code 1.0F}.
+	 * @param target the array in which the samples are written
+	 * @param offset index of the first sample in the array
+	 * @param samples maximum number of samples to read
+	 * @return the number of samples that were read or {@code -1} if the end of the stream was reached
+	 * @throws IOException if an I/O error occurs
+	 * @since 2.1.0
+	 */
+	public int read(float[] target, int offset, int samples) throws IOException {
+		
+		if(this.scratch.length < samples * 2) {
+			
+			this.scratch = new byte[samples * 2];
+		}
+		
+		int read = this.read(this.scratch, 0, samples * 2) >> 1;
+		int position = 0;
+		int high = this.bigEndian ? 0 : 1;
+		int low = 1 - high;
+		
+		for(int index = 0; index < read; index++) {
+			
+			target[offset + index] = (short)((this.scratch[position + high] << 8) | (this.scratch[position + low] & 0xFF)) * SCALE;
+			position += 2;
+		}
+		
+		return read < 0 ? -1 : read;
 	}
 	
 	/**
@@ -82,6 +167,43 @@ public class VorbisInputStream extends InputStream {
 	 */
 	public AudioFormat getAudioFormat() {
 		
-		return new AudioFormat(this.source.getIdentificationHeader().getSampleRate(), 16, this.source.getIdentificationHeader().getChannels(), true, true);
+		return this.format;
+	}
+	
+	private int decode(byte[] buffer, int offset, int length) throws IOException {
+		
+		if(this.ended) {
+			
+			return -1;
+		}
+		
+		int read = -1;
+		
+		try {
+			
+			do {
+				
+				read = this.source.readPcm(buffer, offset, length);
+				
+			} while(read == 0);
+			
+		// the decoder signals the end of the stream with an exception
+		} catch(EndOfOggStreamException exception) {
+			
+			this.ended = true;
+		}
+		
+		// the decoder only writes big endian data
+		if(!this.bigEndian) {
+			
+			for(int index = offset, end = offset + read - 1; index < end; index += 2) {
+				
+				byte high = buffer[index];
+				buffer[index] = buffer[index + 1];
+				buffer[index + 1] = high;
+			}
+		}
+		
+		return read;
 	}
 }
@@ -0,0 +1,724 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * A handle to an open zip file together with an index of its entries. The file and its index are shared: opening the same file again returns a new handle
+ * to the same index, so the central directory is only parsed once no matter how many entries are loaded from it.
+ * Each {@link #open(Path)} has to be followed by a {@link #close()}; closing a handle more than once has no effect. When the last user closed the archive, it stays open for an idle timeout
+ * before its file handle is released, so that loading entries one after the other does not reopen the file each time.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public final class ZipArchive implements Closeable {
+
+	private static final int END_OF_CENTRAL_DIRECTORY = 0x06054B50;
+	private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064B50;
+	private static final int ZIP64_LOCATOR = 0x07064B50;
+	private static final int CENTRAL_DIRECTORY_HEADER = 0x02014B50;
+	private static final int LOCAL_FILE_HEADER = 0x04034B50;
+	private static final int ZIP64_EXTRA = 0x0001;
+	private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+	private static final long MAGIC_32 = 0xFFFFFFFFL;
+	
+	private static final Map<Path, Index> ARCHIVES = new HashMap<>();
+	private static long idleTimeout = 30000;
+	private static ScheduledThreadPoolExecutor evictor;
+	
+	private final Index index;
+	private boolean closed;
+	
+	private ZipArchive(Index index) {
+		
+		this.index = index;
+	}
+	
+	/**
+	 * Opens a zip file or returns a new handle to the file that is already open. The returned archive has to be closed.
+	 * If the file was changed since it was opened, its index is read again.
+	 * @param path the zip file
+	 * @return the archive
+	 * @throws IOException if the file can not be read or is not a zip file
+	 * @since 2.1.0
+	 */
+	public static final ZipArchive open(Path path) throws IOException {
+		
+		Path key = path.toAbsolutePath().normalize();
+		long size = Files.size(key);
+		long lastModified = Files.getLastModifiedTime(key).toMillis();
+		
+		synchronized(ARCHIVES) {
+			
+			Index index = ARCHIVES.get(key);
+			
+			if(index != null && index.size == size && index.lastModified == lastModified) {
+				
+				index.acquire();
+				return new ZipArchive(index);
+			}
+		}
+		
+		// the central directory is read without the lock, so that other archives can be opened in the meantime
+		Index created = new Index(key);
+		
+		synchronized(ARCHIVES) {
+			
+			Index index = ARCHIVES.get(key);
+			
+			if(index != null && index.size == created.size && index.lastModified == created.lastModified) {
+				
+				// another thread opened the same version first
+				created.closeChannel();
+				
+			} else {
+				
+				if(index != null) {
+					
+					// users of the old version keep it until they close it
+					ARCHIVES.remove(key);
+					index.release();
+				}
+				
+				index = created;
+				index.references = 1;
+				ARCHIVES.put(key, index);
+			}
+			
+			index.acquire();
+			return new ZipArchive(index);
+		}
+	}
+	
+	/**
+	 * Sets how long an archive that is no longer used stays open. Only affects archives that become unused afterwards.
+	 * @param milliseconds the timeout in milliseconds; {@code 0} closes unused archives immediately
+	 * @since 2.1.0
+	 */
+	public static final void setIdleTimeout(long milliseconds) {
+		
+		synchronized(ARCHIVES) {
+			
+			ZipArchive.idleTimeout = milliseconds;
+		}
+	}
+	
+	/**
+	 * @return how long an archive that is no longer used stays open in milliseconds
+	 * @since 2.1.0
+	 */
+	public static final long getIdleTimeout() {
+		
+		synchronized(ARCHIVES) {
+			
+			return ZipArchive.idleTimeout;
+		}
+	}
+	
+	/**
+	 * Closes all archives that are not in use anymore.
+	 * @since 2.1.0
+	 */
+	public static final void evictIdle() {
+		
+		synchronized(ARCHIVES) {
+			
+			for(Index index : ARCHIVES.values().toArray(new Index[0])) {
+				
+				if(index.references == 1) {
+					
+					index.evict();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param name name of the entry
+	 * @return the entry or {@code null} if the archive does not contain it
+	 * @since 2.1.0
+	 */
+	public final Entry getEntry(String name) {
+		
+		return this.index.entries.get(name);
+	}
+	
+	/**
+	 * @return the number of entries
+	 * @since 2.1.0
+	 */
+	public final int size() {
+		
+		return this.index.entries.size();
+	}
+	
+	/**
+	 * @return the zip file
+	 * @since 2.1.0
+	 */
+	public final Path getPath() {
+		
+		return this.index.path;
+	}
+	
+	/**
+	 * @return the time the zip file was last modified when it was opened in milliseconds
+	 * @since 2.1.0
+	 */
+	public final long getLastModified() {
+		
+		return this.index.lastModified;
+	}
+	
+	/**
+	 * Opens an entry. Stored entries are memory-mapped and do not need the archive after this method returned;
+	 * streams of compressed entries keep the archive open until they are closed.
+	 * @param name name of the entry
+	 * @return the stream of the uncompressed data
+	 * @throws IOException if the archive does not contain the entry or the entry can not be read
+	 * @since 2.1.0
+	 */
+	public final InputStream openStream(String name) throws IOException {
+		
+		synchronized(this) {
+			
+			if(this.closed) {
+				
+				throw new IOException("Zip archive is closed: " + this.index.path);
+			}
+			
+			return this.index.openStream(name);
+		}
+	}
+	
+	@Override
+	public void close() {
+		
+		synchronized(this) {
+			
+			if(!this.closed) {
+				
+				this.closed = true;
+				this.index.release();
+			}
+		}
+	}
+	
+	private static final ScheduledThreadPoolExecutor getEvictor() {
+		
+		if(ZipArchive.evictor == null) {
+			
+			ZipArchive.evictor = new ScheduledThreadPoolExecutor(1, runnable -> {
+				
+				Thread thread = new Thread(runnable, "SimpleAudio-ZipArchive-Evictor");
+				thread.setDaemon(true);
+				return thread;
+			});
+			ZipArchive.evictor.setRemoveOnCancelPolicy(true);
+		}
+		
+		return ZipArchive.evictor;
+	}
+	
+	private static final void readZip64Extra(ByteBuffer directory, int offset, int length, Entry entry) {
+		
+		int position = offset;
+		
+		while(position + 4 <= offset + length) {
+			
+			int id = directory.getShort(position) & 0xFFFF;
+			int size = directory.getShort(position + 2) & 0xFFFF;
+			
+			if(id == ZIP64_EXTRA) {
+				
+				// only the values that did not fit into 32 bits are present, in this order; none of them may reach beyond the field
+				int field = position + 4;
+				int end = Math.min(field + size, offset + length);
+				
+				if(entry.size == MAGIC_32 && field + 8 <= end) {
+					
+					entry.size = directory.getLong(field);
+					field += 8;
+				}
+				
+				if(entry.compressedSize == MAGIC_32 && field + 8 <= end) {
+					
+					entry.compressedSize = directory.getLong(field);
+					field += 8;
+				}
+				
+				if(entry.headerOffset == MAGIC_32 && field + 8 <= end) {
+					
+					entry.headerOffset = directory.getLong(field);
+				}
+				
+				return;
+			}
+			
+			position += 4 + size;
+		}
+	}
+	
+	/**
+	 * An entry in the index of a {@linkplain ZipArchive}.
+	 * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+	 * @version 2.1.0
+	 * @since 2.1.0
+	 */
+	public static final class Entry {
+		
+		private final String name;
+		private int method;
+		private boolean encrypted;
+		private long crc;
+		private long size;
+		private long compressedSize;
+		private long headerOffset;
+		private long dataOffset = -1L;
+		private ByteBuffer data;
+		
+		private Entry(String name) {
+			
+			this.name = name;
+		}
+		
+		/**
+		 * @return the name of the entry
+		 * @since 2.1.0
+		 */
+		public String getName() {
+			
+			return this.name;
+		}
+		
+		/**
+		 * @return the compression method; {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+		 * @since 2.1.0
+		 */
+		public int getMethod() {
+			
+			return this.method;
+		}
+		
+		/**
+		 * @return the CRC-32 of the uncompressed data
+		 * @since 2.1.0
+		 */
+		public long getCrc() {
+			
+			return this.crc;
+		}
+		
+		/**
+		 * @return the size of the uncompressed data in bytes
+		 * @since 2.1.0
+		 */
+		public long getSize() {
+			
+			return this.size;
+		}
+		
+		/**
+		 * @return the size of the compressed data in bytes
+		 * @since 2.1.0
+		 */
+		public long getCompressedSize() {
+			
+			return this.compressedSize;
+		}
+	}
+	
+	// the open file and the index that are shared by all handles
+	private static final class Index {
+		
+		private final Path path;
+		private final long size;
+		private final long lastModified;
+		private final FileChannel channel;
+		private final Map<String, Entry> entries;
+		private int references;
+		private ScheduledFuture<?> eviction;
+		private boolean closed;
+		
+		private Index(Path path) throws IOException {
+			
+			this.path = path;
+			this.size = Files.size(path);
+			this.lastModified = Files.getLastModifiedTime(path).toMillis();
+			this.channel = FileChannel.open(path, StandardOpenOption.READ);
+			
+			try {
+				
+				this.entries = this.readIndex();
+				
+			} catch(IOException | RuntimeException exception) {
+				
+				this.channel.close();
+				throw exception;
+			}
+		}
+		
+		private final InputStream openStream(String name) throws IOException {
+			
+			Entry entry = this.entries.get(name);
+			
+			if(entry == null) {
+				
+				throw new FileNotFoundException(name + " in " + this.path);
+			}
+			
+			if(entry.encrypted) {
+				
+				throw new IOException("Encrypted entries are not supported: " + name);
+			}
+			
+			if(entry.method == ZipEntry.STORED) {
+				
+				return new ByteBufferInputStream(this.map(entry));
+			}
+			
+			if(entry.method != ZipEntry.DEFLATED) {
+				
+				throw new IOException("Unsupported compression method " + entry.method + ": " + name);
+			}
+			
+			this.acquire();
+			
+			try {
+				
+				return new EntryInputStream(this.getDataOffset(entry), entry.compressedSize);
+				
+			} catch(IOException | RuntimeException exception) {
+				
+				this.release();
+				throw exception;
+			}
+		}
+		
+		private final void acquire() {
+			
+			synchronized(ARCHIVES) {
+				
+				if(this.eviction != null) {
+					
+					this.eviction.cancel(false);
+					this.eviction = null;
+				}
+				
+				this.references++;
+			}
+		}
+		
+		private final void release() {
+			
+			synchronized(ARCHIVES) {
+				
+				this.references--;
+				
+				if(this.references == 0) {
+					
+					this.closeChannel();
+					
+				} else if(this.references == 1 && ARCHIVES.get(this.path) == this) {
+					
+					// only the reference of the cache itself is left
+					if(ZipArchive.idleTimeout <= 0) {
+						
+						this.evict();
+						
+					} else {
+						
+						this.eviction = ZipArchive.getEvictor().schedule(this::evictIfIdle, ZipArchive.idleTimeout, TimeUnit.MILLISECONDS);
+					}
+				}
+			}
+		}
+		
+		private final void evictIfIdle() {
+			
+			synchronized(ARCHIVES) {
+				
+				if(this.references == 1 && ARCHIVES.get(this.path) == this) {
+					
+					this.evict();
+				}
+			}
+		}
+		
+		private final void evict() {
+			
+			ARCHIVES.remove(this.path);
+			this.eviction = null;
+			this.release();
+		}
+		
+		private final void closeChannel() {
+			
+			if(!this.closed) {
+				
+				this.closed = true;
+				
+				try {
+					
+					this.channel.close();
+					
+				} catch(IOException exception) {
+					
+					exception.printStackTrace();
+				}
+			}
+		}
+		
+		private final ByteBuffer map(Entry entry) throws IOException {
+			
+			synchronized(entry) {
+				
+				if(entry.data == null) {
+					
+					// the mapping stays valid after the channel was closed
+					entry.data = this.channel.map(FileChannel.MapMode.READ_ONLY, this.getDataOffset(entry), entry.size);
+				}
+				
+				return entry.data;
+			}
+		}
+		
+		private final long getDataOffset(Entry entry) throws IOException {
+			
+			synchronized(entry) {
+				
+				if(entry.dataOffset < 0) {
+					
+					ByteBuffer header = this.read(entry.headerOffset, 30);
+					
+					if(header.getInt(0) != LOCAL_FILE_HEADER) {
+						
+						throw new IOException("Invalid local file header: " + entry.name);
+					}
+					
+					entry.dataOffset = entry.headerOffset + 30 + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+					
+					if(entry.dataOffset + entry.compressedSize > this.size) {
+						
+						throw new EOFException("Truncated entry: " + entry.name);
+					}
+				}
+				
+				return entry.dataOffset;
+			}
+		}
+		
+		private final Map<String, Entry> readIndex() throws IOException {
+			
+			int tailLength = (int)Math.min(this.size, 22 + MAX_COMMENT_LENGTH);
+			long tailOffset = this.size - tailLength;
+			ByteBuffer tail = this.read(tailOffset, tailLength);
+			int end = -1;
+			
+			for(int index = tailLength - 22; index >= 0; index--) {
+				
+				if(tail.getInt(index) == END_OF_CENTRAL_DIRECTORY) {
+					
+					end = index;
+					break;
+				}
+			}
+			
+			if(end == -1) {
+				
+				throw new IOException("Not a zip file: " + this.path);
+			}
+			
+			long count = tail.getShort(end + 10) & 0xFFFF;
+			long directoryLength = tail.getInt(end + 12) & MAGIC_32;
+			long directoryOffset = tail.getInt(end + 16) & MAGIC_32;
+			
+			if((count == 0xFFFF || directoryLength == MAGIC_32 || directoryOffset == MAGIC_32) && end >= 20 && tail.getInt(end - 20) == ZIP64_LOCATOR) {
+				
+				ByteBuffer record = this.read(tail.getLong(end - 12), 56);
+				
+				if(record.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY) {
+					
+					throw new IOException("Invalid ZIP64 end of central directory: " + this.path);
+				}
+				
+				count = record.getLong(32);
+				directoryLength = record.getLong(40);
+				directoryOffset = record.getLong(48);
+			}
+			
+			if(directoryLength > Integer.MAX_VALUE || directoryOffset + directoryLength > this.size) {
+				
+				throw new IOException("Invalid central directory: " + this.path);
+			}
+			
+			ByteBuffer directory = this.read(directoryOffset, (int)directoryLength);
+			Map<String, Entry> entries = new HashMap<>((int)Math.min(count, 1 << 20) * 4 / 3 + 1);
+			int position = 0;
+			
+			while(position + 46 <= directory.limit() && directory.getInt(position) == CENTRAL_DIRECTORY_HEADER) {
+				
+				int flags = directory.getShort(position + 8) & 0xFFFF;
+				int nameLength = directory.getShort(position + 28) & 0xFFFF;
+				int extraLength = directory.getShort(position + 30) & 0xFFFF;
+				int commentLength = directory.getShort(position + 32) & 0xFFFF;
+				
+				if(position + 46 + nameLength + extraLength > directory.limit()) {
+					
+					throw new IOException("Invalid central directory: " + this.path);
+				}
+				
+				byte[] name = new byte[nameLength];
+				directory.position(position + 46);
+				directory.get(name);
+				
+				Entry entry = new Entry(new String(name, StandardCharsets.UTF_8));
+				entry.method = directory.getShort(position + 10) & 0xFFFF;
+				entry.encrypted = (flags & 1) != 0;
+				entry.crc = directory.getInt(position + 16) & MAGIC_32;
+				entry.compressedSize = directory.getInt(position + 20) & MAGIC_32;
+				entry.size = directory.getInt(position + 24) & MAGIC_32;
+				entry.headerOffset = directory.getInt(position + 42) & MAGIC_32;
+				
+				if(entry.size == MAGIC_32 || entry.compressedSize == MAGIC_32 || entry.headerOffset == MAGIC_32) {
+					
+					ZipArchive.readZip64Extra(directory, position + 46 + nameLength, extraLength, entry);
+				}
+				
+				entries.put(entry.name, entry);
+				position += 46 + nameLength + extraLength + commentLength;
+			}
+			
+			return entries;
+		}
+		
+		private final ByteBuffer read(long position, int length) throws IOException {
+			
+			ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+			
+			while(buffer.hasRemaining()) {
+				
+				if(this.channel.read(buffer, position + buffer.position()) == -1) {
+					
+					throw new EOFException("Unexpected end of zip file: " + this.path);
+				}
+			}
+			
+			buffer.flip();
+			return buffer;
+		}
+		
+		// inflates the raw deflate data of an entry with positional reads, so that many entries can be read at the same time
+		private final class EntryInputStream extends InflaterInputStream {
+			
+			private long position;
+			private final long end;
+			private boolean eof;
+			private boolean closed;
+			
+			private EntryInputStream(long offset, long length) {
+				
+				// the data is read by fill(), the stream of the super class stays empty
+				super(new ByteArrayInputStream(new byte[0]), new Inflater(true), 8192);
+				this.position = offset;
+				this.end = offset + length;
+			}
+			
+			@Override
+			protected void fill() throws IOException {
+				
+				if(this.eof) {
+					
+					throw new EOFException("Unexpected end of zip entry");
+				}
+				
+				int length = (int)Math.min(this.buf.length, this.end - this.position);
+				
+				if(length <= 0) {
+					
+					// the inflater needs one dummy byte after the raw data
+					this.buf[0] = 0;
+					this.len = 1;
+					this.eof = true;
+					
+				} else {
+					
+					ByteBuffer buffer = ByteBuffer.wrap(this.buf, 0, length);
+					
+					while(buffer.hasRemaining()) {
+						
+						if(Index.this.channel.read(buffer, this.position + buffer.position()) == -1) {
+							
+							throw new EOFException("Unexpected end of zip file: " + Index.this.path);
+						}
+					}
+					
+					this.position += length;
+					this.len = length;
+				}
+				
+				this.inf.setInput(this.buf, 0, this.len);
+			}
+			
+			@Override
+			public int available() throws IOException {
+				
+				return this.closed || this.inf.finished() ? 0 : 1;
+			}
+			
+			@Override
+			public void close() throws IOException {
+				
+				if(!this.closed) {
+					
+					this.closed = true;
+					this.inf.end();
+					Index.this.release();
+				}
+			}
+		}
+	}
+}
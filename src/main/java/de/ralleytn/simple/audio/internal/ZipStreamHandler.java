@@ -0,0 +1,372 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.internal;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Serves an entry of a zip file under a {@code zip:} {@linkplain URL} without extracting it.
+ * Entries that are stored without compression are memory-mapped, compressed entries are inflated while they are read.
+ * The zip file is opened through the shared {@linkplain ZipArchive} cache.
+ * @author Ralph Niemitz/RalleYTN(ralph.niemitz@gmx.de)
+ * @version 2.1.0
+ * @since 2.1.0
+ */
+public class ZipStreamHandler extends URLStreamHandler {
+
+	/**
+	 * @since 2.1.0
+	 */
+	public static final String PROTOCOL = "zip";
+	
+	/**
+	 * @since 2.1.0
+	 */
+	public static final long DEFAULT_EXTRACTION_CACHE_SIZE = 256L * 1024L * 1024L;
+	
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static volatile long extractionCacheSize = DEFAULT_EXTRACTION_CACHE_SIZE;
+	
+	private final Path zip;
+	private final String entry;
+	
+	private ZipStreamHandler(Path zip, String entry) {
+		
+		this.zip = zip;
+		this.entry = entry;
+	}
+	
+	/**
+	 * @param zip the zip file
+	 * @param entry name of the entry
+	 * @return a URL that reads the entry
+	 * @throws IOException if the zip file can not be read or does not contain the entry
+	 * @since 2.1.0
+	 */
+	public static final URL createURL(Path zip, String entry) throws IOException {
+		
+		Path path = zip.toAbsolutePath();
+		
+		try(ZipArchive archive = ZipArchive.open(path)) {
+			
+			if(archive.getEntry(entry) == null) {
+				
+				throw new FileNotFoundException(entry + " in " + path);
+			}
+		}
+		
+		return new URL(PROTOCOL, null, -1, path.toUri().getPath() + "!/" + entry, new ZipStreamHandler(path, entry));
+	}
+	
+	/**
+	 * @param url a URL
+	 * @return {@code true} if the URL was created by this class, else {@code false}
+	 * @since 2.1.0
+	 */
+	public static final boolean isZipURL(URL url) {
+		
+		return PROTOCOL.equals(url.getProtocol());
+	}
+	
+	/**
+	 * Extracts the entry behind a URL that was created by this class into the extraction cache in {@code java.io.tmpdir}.
+	 * The file is named after a SHA-256 hash of the path and the modification time of the zip file and the name, the CRC-32 and the size of the entry,
+	 * so an entry is only extracted once and is shared between runs of the application. An existing file is only used if its CRC-32 matches the entry,
+	 * otherwise it is extracted again. The oldest files are deleted when the cache grows beyond {@linkplain #getExtractionCacheSize()}.
+	 * @param url a URL that was created by this class
+	 * @return the extracted file
+	 * @throws IOException if the entry could not be extracted or the URL was not created by this class
+	 * @since 2.1.0
+	 */
+	public static final Path extract(URL url) throws IOException {
+		
+		URLConnection connection = url.openConnection();
+		
+		if(!(connection instanceof ZipConnection)) {
+			
+			throw new IOException("Not a zip URL: " + url);
+		}
+		
+		ZipStreamHandler handler = ((ZipConnection)connection).getHandler();
+		
+		try(ZipArchive archive = ZipArchive.open(handler.zip)) {
+			
+			ZipArchive.Entry zipEntry = handler.getEntry(archive);
+			String name = handler.entry.substring(handler.entry.lastIndexOf('/') + 1);
+			String extension = name.lastIndexOf('.') != -1 ? name.substring(name.lastIndexOf('.')).toLowerCase(Locale.ROOT) : "";
+			Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "simple-audio-extracted");
+			String key = handler.zip + "\n" + archive.getLastModified() + "\n" + handler.entry + "\n" + zipEntry.getCrc() + "\n" + zipEntry.getSize();
+			Path extracted = directory.resolve(ZipStreamHandler.hash(key) + extension);
+			
+			if(Files.isRegularFile(extracted) && Files.size(extracted) == zipEntry.getSize() && ZipStreamHandler.getCrc(extracted) == zipEntry.getCrc()) {
+				
+				return extracted;
+			}
+			
+			Files.createDirectories(directory);
+			Path temp = Files.createTempFile(directory, "extract", TEMP_SUFFIX);
+			
+			try {
+				
+				CRC32 crc = new CRC32();
+				
+				try(InputStream input = new CheckedInputStream(archive.openStream(handler.entry), crc)) {
+					
+					Files.copy(input, temp, StandardCopyOption.REPLACE_EXISTING);
+				}
+				
+				if(crc.getValue() != zipEntry.getCrc()) {
+					
+					throw new IOException("CRC-32 mismatch in " + handler.entry + " in " + handler.zip);
+				}
+				
+				ZipStreamHandler.evict(directory, extracted, zipEntry.getSize());
+				
+				try {
+					
+					Files.move(temp, extracted, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+					
+				} catch(AtomicMoveNotSupportedException exception) {
+					
+					Files.move(temp, extracted, StandardCopyOption.REPLACE_EXISTING);
+				}
+				
+			} finally {
+				
+				Files.deleteIfExists(temp);
+			}
+			
+			return extracted;
+		}
+	}
+	
+	/**
+	 * Sets the number of bytes the extracted entries may use in {@code java.io.tmpdir}.
+	 * @param size the maximum size of the extraction cache in bytes
+	 * @since 2.1.0
+	 */
+	public static final void setExtractionCacheSize(long size) {
+		
+		ZipStreamHandler.extractionCacheSize = size;
+	}
+	
+	/**
+	 * @return the maximum size of the extraction cache in bytes
+	 * @since 2.1.0
+	 */
+	public static final long getExtractionCacheSize() {
+		
+		return ZipStreamHandler.extractionCacheSize;
+	}
+	
+	private static final String hash(String key) {
+		
+		try {
+			
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder name = new StringBuilder(hash.length * 2);
+			
+			for(byte value : hash) {
+				
+				name.append(Character.forDigit((value >> 4) & 0xF, 16));
+				name.append(Character.forDigit(value & 0xF, 16));
+			}
+			
+			return name.toString();
+			
+		} catch(NoSuchAlgorithmException exception) {
+			
+			// every Java platform has to support SHA-256
+			throw new IllegalStateException(exception);
+		}
+	}
+	
+	private static final long getCrc(Path file) throws IOException {
+		
+		CRC32 crc = new CRC32();
+		
+		try(InputStream input = new CheckedInputStream(Files.newInputStream(file), crc)) {
+			
+			byte[] buffer = new byte[8192];
+			while(input.read(buffer) != -1);
+		}
+		
+		return crc.getValue();
+	}
+	
+	private static final void evict(Path directory, Path replaced, long required) throws IOException {
+		
+		List<Path> files = new ArrayList<>();
+		long size = required;
+		
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			
+			for(Path file : stream) {
+				
+				// files that are still being extracted and the file that is replaced do not count
+				if(!file.getFileName().toString().endsWith(TEMP_SUFFIX) && !file.equals(replaced) && Files.isRegularFile(file)) {
+					
+					files.add(file);
+					size += Files.size(file);
+				}
+			}
+		}
+		
+		long maxSize = ZipStreamHandler.extractionCacheSize;
+		
+		if(size > maxSize) {
+			
+			files.sort((file1, file2) -> {
+				
+				try {
+					
+					return Files.getLastModifiedTime(file1).compareTo(Files.getLastModifiedTime(file2));
+					
+				} catch(IOException exception) {
+					
+					return 0;
+				}
+			});
+			
+			for(Path file : files) {
+				
+				if(size <= maxSize) {
+					
+					break;
+				}
+				
+				long fileSize = Files.size(file);
+				
+				try {
+					
+					Files.delete(file);
+					size -= fileSize;
+					
+				} catch(IOException exception) {
+					
+					// may still be opened by another audio on some systems
+				}
+			}
+		}
+	}
+	
+	@Override
+	protected URLConnection openConnection(URL url) {
+		
+		return new ZipConnection(url);
+	}
+	
+	private final ZipArchive.Entry getEntry(ZipArchive archive) throws IOException {
+		
+		ZipArchive.Entry zipEntry = archive.getEntry(this.entry);
+		
+		if(zipEntry == null) {
+			
+			throw new FileNotFoundException(this.entry + " in " + this.zip);
+		}
+		
+		return zipEntry;
+	}
+	
+	private final class ZipConnection extends URLConnection {
+		
+		private ZipConnection(URL url) {
+			
+			super(url);
+		}
+		
+		@Override
+		public void connect() {
+			
+			this.connected = true;
+		}
+		
+		@Override
+		public InputStream getInputStream() throws IOException {
+			
+			// streams of compressed entries hold their own reference to the archive
+			try(ZipArchive archive = ZipArchive.open(ZipStreamHandler.this.zip)) {
+				
+				return archive.openStream(ZipStreamHandler.this.entry);
+			}
+		}
+		
+		@Override
+		public long getContentLengthLong() {
+			
+			try(ZipArchive archive = ZipArchive.open(ZipStreamHandler.this.zip)) {
+				
+				return ZipStreamHandler.this.getEntry(archive).getSize();
+				
+			} catch(IOException exception) {
+				
+				return -1L;
+			}
+		}
+		
+		@Override
+		public int getContentLength() {
+			
+			long length = this.getContentLengthLong();
+			return length <= Integer.MAX_VALUE ? (int)length : -1;
+		}
+		
+		@Override
+		public long getLastModified() {
+			
+			try(ZipArchive archive = ZipArchive.open(ZipStreamHandler.this.zip)) {
+				
+				return archive.getLastModified();
+				
+			} catch(IOException exception) {
+				
+				return 0L;
+			}
+		}
+		
+		private ZipStreamHandler getHandler() {
+			
+			return ZipStreamHandler.this;
+		}
+	}
+}
@@ -7,4 +7,7 @@ module de.ralleytn.simple.audio {
 	requires org.tritonus.share;
 	
 	exports de.ralleytn.simple.audio;
+	
+	uses javax.sound.sampled.spi.AudioFileReader;
+	uses javax.sound.sampled.spi.FormatConversionProvider;
 }
\ No newline at end of file
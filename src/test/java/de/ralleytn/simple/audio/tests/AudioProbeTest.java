@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.AudioException;
+import de.ralleytn.simple.audio.AudioProbe;
+import de.ralleytn.simple.audio.FileFormat;
+
+class AudioProbeTest {
+
+	@Test
+	public void testProbe() {
+		
+		try {
+			
+			AudioProbe mp3 = AudioProbe.probe(Sources.getResource("audio.mp3"));
+			assertEquals(FileFormat.MP3, mp3.getFileFormat());
+			assertEquals(22050.0F, mp3.getAudioFormat().getSampleRate());
+			assertEquals(16, mp3.getAudioFormat().getSampleSizeInBits());
+			assertEquals(AudioFormat.Encoding.PCM_SIGNED, mp3.getAudioFormat().getEncoding());
+			assertTrue(mp3.getFrameLength() > 0 && mp3.getFrameLength() % 576 == 0);
+			assertEquals(mp3.getFrameLength() * 1000000L / 22050L, mp3.getDuration(), 1);
+			
+			AudioProbe ogg = AudioProbe.probe(Sources.getResource("audio.ogg"));
+			assertEquals(FileFormat.OGG, ogg.getFileFormat());
+			assertEquals(110464L, ogg.getFrameLength());
+			assertEquals(110464L * 1000000L / 22050L, ogg.getDuration(), 1);
+			
+			AudioProbe flac = AudioProbe.probe(Sources.getResource("audio.flac"));
+			assertEquals(FileFormat.FLAC, flac.getFileFormat());
+			assertEquals(110464L, flac.getFrameLength());
+			assertEquals(16, flac.getAudioFormat().getSampleSizeInBits());
+			
+			// the stored format and length of uncompressed files
+			AudioProbe wav = AudioProbe.probe(Paths.get(Sources.getResource("audio.wav").toURI()));
+			assertEquals(FileFormat.WAV, wav.getFileFormat());
+			
+			try(AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(Sources.getResource("audio.wav"))) {
+				
+				assertTrue(wav.getAudioFormat().matches(audioInputStream.getFormat()));
+				assertEquals(audioInputStream.getFrameLength(), wav.getFrameLength());
+			}
+			
+			assertThrows(AudioException.class, () -> AudioProbe.probe(Sources.getResource("audio.zip")));
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testCache() {
+		
+		Path path = null;
+		
+		try {
+			
+			path = Files.createTempFile("simple-audio", ".ogg");
+			Files.copy(Paths.get(Sources.getResource("audio.ogg").toURI()), path, StandardCopyOption.REPLACE_EXISTING);
+			AudioProbe probe = AudioProbe.probe(path);
+			assertSame(probe, AudioProbe.probe(path));
+			
+			// a changed file is read again
+			Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() - 60000));
+			AudioProbe changed = AudioProbe.probe(path);
+			assertNotSame(probe, changed);
+			assertEquals(probe.getFrameLength(), changed.getFrameLength());
+			
+			AudioProbe.clearCache();
+			assertNotSame(changed, AudioProbe.probe(path));
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			try {
+				
+				Files.deleteIfExists(path);
+				
+			} catch(Exception exception) {}
+		}
+	}
+	
+	@Test
+	public void testParallel() {
+		
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		
+		try {
+			
+			AudioProbe.clearCache();
+			List<Future<AudioProbe>> results = new ArrayList<>();
+			
+			for(int index = 0; index < 32; index++) {
+				
+				String name = index % 2 == 0 ? "audio.ogg" : "audio.flac";
+				results.add(executor.submit(() -> AudioProbe.probe(Sources.getResource(name))));
+			}
+			
+			for(Future<AudioProbe> result : results) {
+				
+				assertEquals(110464L, result.get().getFrameLength());
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			executor.shutdown();
+		}
+	}
+}
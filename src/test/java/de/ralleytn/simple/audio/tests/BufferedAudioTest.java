@@ -1,5 +1,397 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
 package de.ralleytn.simple.audio.tests;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.AbstractAudio;
+import de.ralleytn.simple.audio.Audio;
+import de.ralleytn.simple.audio.AudioEvent;
+import de.ralleytn.simple.audio.AudioException;
+import de.ralleytn.simple.audio.BufferedAudio;
+
 class BufferedAudioTest {
 
+	@Test
+	public void testFramePosition() {
+		
+		try {
+			
+			BufferedAudio audio = new BufferedAudio(Sources.getResource("audio.wav"));
+			audio.open();
+			
+			assertEquals(110464L, audio.getFrameLength());
+			assertEquals(5009L, audio.getLength());
+			assertEquals(0L, audio.getFramePosition());
+			
+			audio.setFramePosition(100000L);
+			assertEquals(100000L, audio.getFramePosition());
+			audio.setPosition(1000L);
+			assertEquals(22050L, audio.getFramePosition());
+			
+			audio.close();
+			assertFalse(audio.isOpen());
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testReachedEnd() {
+		
+		try {
+			
+			boolean[] reachedEnd = new boolean[1];
+			BufferedAudio audio = new BufferedAudio(Sources.getResource("audio.wav"));
+			audio.open();
+			audio.addAudioListener(event -> {
+				
+				if(event.getType() == AudioEvent.Type.REACHED_END) {
+					
+					reachedEnd[0] = true;
+				}
+			});
+			audio.setFramePosition(audio.getFrameLength() - 4410);
+			audio.resume();
+			assertTrue(audio.isPlaying());
+			Thread.sleep(1000);
+			assertTrue(reachedEnd[0]);
+			assertFalse(audio.isPlaying());
+			audio.close();
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testStop() {
+		
+		try {
+			
+			boolean[] reachedEnd = new boolean[1];
+			BufferedAudio audio = new BufferedAudio(Sources.getResource("audio.wav"));
+			audio.open();
+			audio.addAudioListener(event -> {
+				
+				if(event.getType() == AudioEvent.Type.REACHED_END) {
+					
+					reachedEnd[0] = true;
+				}
+			});
+			
+			// a stopped audio is neither mixed nor ended afterwards, even if it stops right at the end
+			for(int index = 0; index < 20; index++) {
+				
+				audio.setFramePosition(audio.getFrameLength() - 1024 * (index % 3));
+				audio.resume();
+				Thread.sleep(index % 4 * 10);
+				audio.stop();
+				reachedEnd[0] = false;
+				Thread.sleep(60);
+				assertEquals(0L, audio.getFramePosition());
+				assertFalse(reachedEnd[0]);
+			}
+			
+			audio.close();
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testOpenCloses() {
+		
+		// only Linux shows the open files of a process
+		File descriptors = new File("/proc/self/fd");
+		
+		if(!descriptors.isDirectory()) {
+			
+			return;
+		}
+		
+		Path broken = null;
+		
+		try {
+			
+			// a file that no decoder accepts
+			broken = Files.createTempFile("simple-audio", ".ogg");
+			Files.write(broken, Arrays.copyOf(Files.readAllBytes(Paths.get(Sources.getResource("audio.ogg").toURI())), 100));
+			
+			for(URL resource : new URL[] {Sources.getResource("audio.wav"), Sources.getResource("audio.ogg"), broken.toUri().toURL()}) {
+				
+				BufferedAudio audio = new BufferedAudio(resource);
+				int open = descriptors.list().length;
+				
+				for(int index = 0; index < 50; index++) {
+					
+					try {
+						
+						audio.open();
+						audio.close();
+						
+					} catch(AudioException exception) {}
+				}
+				
+				assertTrue(descriptors.list().length < open + 10);
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			try {
+				
+				Files.deleteIfExists(broken);
+				
+			} catch(Exception exception) {}
+		}
+	}
+	
+	@Test
+	public void testOpenAsync() {
+		
+		try {
+			
+			float[] progress = new float[1];
+			BufferedAudio audio = new BufferedAudio(Sources.getResource("audio.mp3"));
+			audio.addAudioListener(event -> {
+				
+				if(event.getType() == AudioEvent.Type.DECODING_PROGRESS) {
+					
+					assertTrue((float)event.getNewValue() > (float)event.getOldValue());
+					progress[0] = (float)event.getNewValue();
+				}
+			});
+			
+			Audio opened = audio.openAsync().get(10, TimeUnit.SECONDS);
+			assertTrue(opened == audio);
+			assertTrue(audio.isOpen());
+			assertTrue(progress[0] > 0.9F && progress[0] <= 1.0F);
+			audio.close();
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testCancelOpenAsync() {
+		
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		
+		try {
+			
+			CountDownLatch latch = new CountDownLatch(1);
+			AbstractAudio.setDecodeExecutor(executor);
+			executor.submit(() -> {
+				
+				latch.await();
+				return null;
+			});
+			
+			BufferedAudio audio = new BufferedAudio(Sources.getResource("audio.wav"));
+			CompletableFuture<Audio> future = audio.openAsync();
+			assertTrue(future.cancel(true));
+			latch.countDown();
+			executor.shutdown();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+			assertFalse(audio.isOpen());
+			
+			// times out while it is still waiting for the executor
+			ExecutorService blocked = Executors.newSingleThreadExecutor();
+			CountDownLatch timeoutLatch = new CountDownLatch(1);
+			AbstractAudio.setDecodeExecutor(blocked);
+			blocked.submit(() -> {
+				
+				timeoutLatch.await();
+				return null;
+			});
+			
+			BufferedAudio timedOut = new BufferedAudio(Sources.getResource("audio.wav"));
+			CompletableFuture<Audio> timeout = timedOut.openAsync().orTimeout(10, TimeUnit.MILLISECONDS);
+			
+			try {
+				
+				timeout.join();
+				fail("The opening should have timed out!");
+				
+			} catch(CompletionException exception) {
+				
+				assertTrue(exception.getCause() instanceof TimeoutException);
+			}
+			
+			timeoutLatch.countDown();
+			blocked.shutdown();
+			blocked.awaitTermination(10, TimeUnit.SECONDS);
+			assertFalse(timedOut.isOpen());
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			AbstractAudio.setDecodeExecutor(null);
+		}
+	}
+	
+	@Test
+	public void testProgressive() {
+		
+		try {
+			
+			BufferedAudio complete = new BufferedAudio(Sources.getResource("audio.ogg"));
+			complete.open();
+			assertTrue(complete.isDecoded());
+			long frameLength = complete.getFrameLength();
+			complete.close();
+			
+			BufferedAudio audio = new BufferedAudio(Sources.getResource("audio.ogg"));
+			audio.setProgressive(true);
+			audio.open();
+			assertTrue(audio.getFrameLength() >= (long)(audio.getAudioFormat().getFrameRate() * 0.3F));
+			audio.play();
+			
+			for(int index = 0; index < 100 && !audio.isDecoded(); index++) {
+				
+				Thread.sleep(50);
+			}
+			
+			assertTrue(audio.isDecoded());
+			assertTrue(audio.isPlaying());
+			assertEquals(frameLength, audio.getFrameLength());
+			audio.close();
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}	
+	@Test
+	public void testUnderrun() {
+		
+		ExecutorService delayed = Executors.newSingleThreadExecutor();
+		CountDownLatch decode = new CountDownLatch(1);
+		
+		try {
+			
+			List<AudioEvent.Type> events = new CopyOnWriteArrayList<>();
+			List<Object> buffering = new CopyOnWriteArrayList<>();
+			
+			// the remainder is only decoded after the playback caught up with the first part
+			AbstractAudio.setDecodeExecutor(delayed);
+			delayed.submit(() -> {
+				
+				decode.await();
+				return null;
+			});
+			
+			BufferedAudio audio = new BufferedAudio(Sources.getResource("audio.ogg"));
+			audio.setProgressive(true);
+			audio.addAudioListener(event -> {
+				
+				events.add(event.getType());
+				
+				if(event.getType() == AudioEvent.Type.BUFFERING) {
+					
+					buffering.add(event.getNewValue());
+				}
+			});
+			audio.open();
+			audio.play();
+			
+			for(int index = 0; index < 100 && buffering.isEmpty(); index++) {
+				
+				Thread.sleep(20);
+			}
+			
+			assertEquals(Arrays.asList(true), buffering);
+			long position = audio.getFramePosition();
+			Thread.sleep(100);
+			assertEquals(position, audio.getFramePosition());
+			assertTrue(audio.isPlaying());
+			
+			decode.countDown();
+			
+			for(int index = 0; index < 100 && buffering.size() < 2; index++) {
+				
+				Thread.sleep(20);
+			}
+			
+			assertEquals(Arrays.asList(true, false), buffering);
+			
+			// the progress of the remainder comes after the audio was opened
+			assertTrue(events.lastIndexOf(AudioEvent.Type.DECODING_PROGRESS) > events.indexOf(AudioEvent.Type.OPENED));
+			audio.close();
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			decode.countDown();
+			delayed.shutdown();
+			AbstractAudio.setDecodeExecutor(null);
+		}
+	}
 }
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.AudioDecoder;
+import de.ralleytn.simple.audio.BufferedAudio;
+import de.ralleytn.simple.audio.DecoderRegistry;
+import de.ralleytn.simple.audio.FileFormat;
+
+class DecoderRegistryTest {
+
+	@Test
+	public void testDefaults() {
+		
+		for(FileFormat fileFormat : FileFormat.values()) {
+			
+			assertNotNull(DecoderRegistry.getDecoder(fileFormat));
+			assertSame(DecoderRegistry.getDefaultDecoder(fileFormat), DecoderRegistry.getDecoder(fileFormat));
+		}
+	}
+	
+	@Test
+	public void testRegister() {
+		
+		AtomicInteger calls = new AtomicInteger();
+		AudioDecoder wav = DecoderRegistry.getDefaultDecoder(FileFormat.WAV);
+		
+		try {
+			
+			DecoderRegistry.register(FileFormat.WAV, inputStream -> {
+				
+				calls.incrementAndGet();
+				return wav.decode(inputStream);
+			});
+			
+			BufferedAudio audio = new BufferedAudio(Sources.getResource("audio.wav"));
+			audio.open();
+			assertEquals(110464L, audio.getFrameLength());
+			audio.close();
+			assertEquals(1, calls.get());
+			
+			DecoderRegistry.reset(FileFormat.WAV);
+			assertSame(wav, DecoderRegistry.getDecoder(FileFormat.WAV));
+			
+			audio.open();
+			audio.close();
+			assertEquals(1, calls.get());
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			DecoderRegistry.reset(FileFormat.WAV);
+		}
+	}
+}
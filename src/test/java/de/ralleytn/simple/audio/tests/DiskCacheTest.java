@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.AudioEvent;
+import de.ralleytn.simple.audio.BufferedAudio;
+import de.ralleytn.simple.audio.DiskCache;
+
+class DiskCacheTest {
+
+	@Test
+	public void testWarmStart() {
+		
+		try {
+			
+			Path directory = Files.createTempDirectory("simple-audio-cache");
+			DiskCache cache = new DiskCache(directory, Long.MAX_VALUE);
+			BufferedAudio.setDiskCache(cache);
+			
+			BufferedAudio cold = new BufferedAudio(Sources.getResource("audio.mp3"));
+			cold.open();
+			long frameLength = cold.getFrameLength();
+			String format = cold.getAudioFormat().toString();
+			cold.close();
+			assertTrue(cache.getSize() > frameLength * 2);
+			
+			boolean[] decoded = new boolean[1];
+			BufferedAudio warm = new BufferedAudio(Sources.getResource("audio.mp3"));
+			warm.addAudioListener(event -> {
+				
+				if(event.getType() == AudioEvent.Type.DECODING_PROGRESS) {
+					
+					decoded[0] = true;
+				}
+			});
+			warm.open();
+			assertFalse(decoded[0]);
+			assertEquals(frameLength, warm.getFrameLength());
+			assertEquals(format, warm.getAudioFormat().toString());
+			warm.close();
+			
+			cache.clear();
+			assertEquals(0L, cache.getSize());
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			BufferedAudio.setDiskCache(null);
+		}
+	}
+	
+	@Test
+	public void testCorruptFile() {
+		
+		try {
+			
+			Path directory = Files.createTempDirectory("simple-audio-cache");
+			DiskCache cache = new DiskCache(directory, Long.MAX_VALUE);
+			BufferedAudio.setDiskCache(cache);
+			
+			BufferedAudio audio = new BufferedAudio(Sources.getResource("audio.mp3"));
+			audio.open();
+			long frameLength = audio.getFrameLength();
+			audio.close();
+			
+			// a negative or huge header length and a truncated file are misses, the audio is decoded again
+			for(int corruption = 0; corruption < 3; corruption++) {
+				
+				try(Stream<Path> files = Files.list(directory)) {
+					
+					Path file = files.findFirst().get();
+					
+					try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+						
+						if(corruption == 2) {
+							
+							channel.truncate(20);
+							
+						} else {
+							
+							channel.write(ByteBuffer.allocate(4).putInt(0, corruption == 0 ? -1 : Integer.MAX_VALUE), 0);
+						}
+					}
+				}
+				
+				audio.open();
+				assertEquals(frameLength, audio.getFrameLength());
+				audio.close();
+			}
+			
+			cache.clear();
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			BufferedAudio.setDiskCache(null);
+		}
+	}
+	
+	@Test
+	public void testMaxSize() {
+		
+		try {
+			
+			Path directory = Files.createTempDirectory("simple-audio-cache");
+			
+			// room for one of the decoded files, but not for two
+			DiskCache cache = new DiskCache(directory, 300000L);
+			BufferedAudio.setDiskCache(cache);
+			
+			// uncompressed local files are mapped instead of cached, zip entries are decoded
+			File zip = new Sources("audio.wav").getZipFile();
+			
+			for(String file : new String[] {"audio.wav", "audio.au"}) {
+				
+				BufferedAudio audio = new BufferedAudio(zip, file);
+				audio.open();
+				audio.close();
+			}
+			
+			assertEquals(1, new File(directory.toFile(), ".").list().length);
+			assertTrue(cache.getSize() <= cache.getMaxSize());
+			cache.clear();
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			BufferedAudio.setDiskCache(null);
+		}
+	}
+}
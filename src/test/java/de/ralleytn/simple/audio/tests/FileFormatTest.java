@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import javax.sound.sampled.AudioInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.AbstractAudio;
+import de.ralleytn.simple.audio.Audio;
+import de.ralleytn.simple.audio.AudioException;
+import de.ralleytn.simple.audio.BufferedAudio;
+import de.ralleytn.simple.audio.FileFormat;
+
+class FileFormatTest {
+
+	@Test
+	public void testGetFormatByContent() {
+		
+		try {
+			
+			assertEquals(FileFormat.WAV, FileFormat.getFormatByContent(Sources.getResource("audio.wav")));
+			assertEquals(FileFormat.AIFF, FileFormat.getFormatByContent(Sources.getResource("audio.aiff")));
+			
+			// the test file with the .aifc extension is a plain AIFF file
+			assertEquals(FileFormat.AIFF, FileFormat.getFormatByContent(Sources.getResource("audio.aifc")));
+			assertEquals(FileFormat.AIFC, FileFormat.getFormatByContent(new byte[] {'F', 'O', 'R', 'M', 0, 0, 0, 0, 'A', 'I', 'F', 'C'}, 12));
+			assertEquals(FileFormat.AU, FileFormat.getFormatByContent(Sources.getResource("audio.au")));
+			assertEquals(FileFormat.AU, FileFormat.getFormatByContent(Sources.getResource("audio.snd")));
+			assertEquals(FileFormat.OGG, FileFormat.getFormatByContent(Sources.getResource("audio.ogg")));
+			assertEquals(FileFormat.MP3, FileFormat.getFormatByContent(Sources.getResource("audio.mp3")));
+			assertEquals(FileFormat.FLAC, FileFormat.getFormatByContent(Sources.getResource("audio.flac")));
+			assertNull(FileFormat.getFormatByContent(Sources.getResource("audio.wma")));
+			assertNull(FileFormat.getFormatByContent(new byte[] {'R', 'I', 'F'}, 3));
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testWithoutExtension() {
+		
+		this.testRenamed("audio.ogg", "audio-ogg");
+		this.testRenamed("audio.mp3", "audio-mp3");
+		this.testRenamed("audio.flac", "audio-flac");
+	}
+	
+	@Test
+	public void testWrongExtension() {
+		
+		this.testRenamed("audio.wav", "audio-wav.mp3");
+		this.testRenamed("audio.mp3", "audio-mp3.wav");
+		this.testRenamed("audio.ogg", "audio-ogg.flac");
+	}
+	
+	@Test
+	public void testDetectionOnFirstUse() {
+		
+		try {
+			
+			// the constructor must not touch the file, it does not exist yet
+			File directory = Files.createTempDirectory("simple-audio-test").toFile();
+			File file = new File(directory, "audio-ogg");
+			Audio audio = new BufferedAudio(file);
+			Audio missing = new BufferedAudio(new File(directory, "missing"));
+			
+			Files.move(Sources.copy("audio.ogg", directory).toPath(), file.toPath());
+			file.deleteOnExit();
+			assertEquals(FileFormat.OGG, audio.getFileFormat());
+			audio.open();
+			assertTrue(audio.getLength() > 0);
+			audio.close();
+			
+			assertNull(missing.getFileFormat());
+			assertThrows(AudioException.class, missing::open);
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	private void testRenamed(String resource, String name) {
+		
+		try {
+			
+			File original = Sources.copy(resource, Files.createTempDirectory("simple-audio-test").toFile());
+			File renamed = new File(original.getParentFile(), name);
+			Files.move(original.toPath(), renamed.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			renamed.deleteOnExit();
+			
+			try(AudioInputStream audioInputStream = AbstractAudio.getAudioInputStream(renamed.toURI().toURL())) {
+				
+				assertTrue(audioInputStream.read(new byte[4096]) > 0);
+			}
+			
+			Audio audio = new BufferedAudio(renamed);
+			audio.open();
+			assertTrue(audio.getLength() > 0);
+			audio.close();
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+}
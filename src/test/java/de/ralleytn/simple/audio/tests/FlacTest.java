@@ -0,0 +1,288 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.sound.sampled.AudioInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.AbstractAudio;
+import de.ralleytn.simple.audio.FileFormat;
+import de.ralleytn.simple.audio.internal.FlacInputStream;
+
+class FlacTest {
+
+	private static final byte[] readResource() throws IOException {
+		
+		try(InputStream input = Sources.getResource("audio.flac").openStream()) {
+			
+			return input.readAllBytes();
+		}
+	}
+	
+	// inserts a SEEKTABLE with a point for every frame behind the STREAMINFO of the test file
+	private static final byte[] addSeekTable(byte[] flac) {
+		
+		int firstFrame = 4;
+		boolean last = false;
+		
+		while(!last) {
+			
+			last = (flac[firstFrame] & 0x80) != 0;
+			firstFrame += 4 + (((flac[firstFrame + 1] & 0xFF) << 16) | ((flac[firstFrame + 2] & 0xFF) << 8) | (flac[firstFrame + 3] & 0xFF));
+		}
+		
+		// the frames of the test file have 2304 samples and frame numbers below 128, so each frame header is easy to find
+		ByteBuffer seekTable = ByteBuffer.allocate(4 + 48 * 18);
+		seekTable.put((byte)3).put((byte)0).put((byte)((48 * 18) >> 8)).put((byte)(48 * 18));
+		int frame = 0;
+		
+		for(int index = firstFrame; index < flac.length - 4 && frame < 48; index++) {
+			
+			if((flac[index] & 0xFF) == 0xFF && (flac[index + 1] & 0xFF) == 0xF8 && flac[index + 4] == frame) {
+				
+				seekTable.putLong(frame * 2304L).putLong(index - firstFrame).putShort((short)2304);
+				frame++;
+			}
+		}
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		output.write(flac, 0, 42);
+		output.write(seekTable.array(), 0, seekTable.position());
+		output.write(flac, 42, flac.length - 42);
+		return output.toByteArray();
+	}
+	
+	// replaces the VORBIS_COMMENT block of the test file with a block with the given content behind the STREAMINFO
+	private static final byte[] addComments(byte[] flac, byte[] comments) {
+		
+		flac = flac.clone();
+		boolean last = false;
+		
+		for(int block = 4; !last; block += 4 + (((flac[block + 1] & 0xFF) << 16) | ((flac[block + 2] & 0xFF) << 8) | (flac[block + 3] & 0xFF))) {
+			
+			last = (flac[block] & 0x80) != 0;
+			
+			// the old block becomes PADDING
+			if((flac[block] & 0x7F) == 4) {
+				
+				flac[block] = (byte)((flac[block] & 0x80) | 1);
+			}
+		}
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		output.write(flac, 0, 42);
+		output.write(new byte[] {4, (byte)(comments.length >> 16), (byte)(comments.length >> 8), (byte)comments.length}, 0, 4);
+		output.write(comments, 0, comments.length);
+		output.write(flac, 42, flac.length - 42);
+		return output.toByteArray();
+	}
+	
+	private static final byte[] getComments(int count, Object... entries) {
+		
+		ByteBuffer comments = ByteBuffer.allocate(1 << 18).order(ByteOrder.LITTLE_ENDIAN);
+		comments.putInt(4).put("test".getBytes(StandardCharsets.UTF_8)).putInt(count);
+		
+		// a string is written with its length, a number is written as a length without a string
+		for(Object entry : entries) {
+			
+			if(entry instanceof String) {
+				
+				byte[] comment = ((String)entry).getBytes(StandardCharsets.UTF_8);
+				comments.putInt(comment.length).put(comment);
+				
+			} else {
+				
+				comments.putInt((Integer)entry);
+			}
+		}
+		
+		return Arrays.copyOf(comments.array(), comments.position());
+	}
+	
+	@Test
+	public void testMD5() {
+		
+		try {
+			
+			AudioInputStream audioInputStream = AbstractAudio.getAudioInputStream(Sources.getResource("audio.flac"));
+			assertEquals(110464L, audioInputStream.getFrameLength());
+			
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			byte[] buffer = new byte[4096];
+			int read = 0;
+			long bytes = 0;
+			
+			while((read = audioInputStream.read(buffer)) != -1) {
+				
+				digest.update(buffer, 0, read);
+				bytes += read;
+			}
+			
+			audioInputStream.close();
+			assertEquals(110464L * 4, bytes);
+			
+			// the STREAMINFO contains the MD5 of the unencoded samples
+			assertEquals("24a6ee6793310fdedb502bbdf233d4de", String.format("%032x", new BigInteger(1, digest.digest())));
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testSeekTable() {
+		
+		try {
+			
+			byte[] flac = readResource();
+			byte[] pcm = AbstractAudio.getAudioInputStream(new ByteArrayInputStream(flac), FileFormat.FLAC).readAllBytes();
+			byte[] seekable = addSeekTable(flac);
+			long[] read = new long[1];
+			InputStream counted = new FilterInputStream(new ByteArrayInputStream(seekable)) {
+				
+				@Override
+				public int read(byte[] buffer, int offset, int length) throws IOException {
+					
+					int count = super.read(buffer, offset, length);
+					read[0] += Math.max(count, 0);
+					return count;
+				}
+			};
+			
+			AudioInputStream audioInputStream = AbstractAudio.getAudioInputStream(counted, FileFormat.FLAC);
+			long frame = 100000L;
+			assertEquals(frame * 4, audioInputStream.skip(frame * 4));
+			byte[] rest = audioInputStream.readAllBytes();
+			assertArrayEquals(Arrays.copyOfRange(pcm, (int)frame * 4, pcm.length), rest);
+			
+			// the skipped frames were jumped over instead of being read
+			assertTrue(read[0] < seekable.length / 2);
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}	
+	@Test
+	public void testFalseSync() {
+		
+		try {
+			
+			byte[] flac = readResource();
+			byte[] pcm = AbstractAudio.getAudioInputStream(new ByteArrayInputStream(flac), FileFormat.FLAC).readAllBytes();
+			int second = 0;
+			
+			for(int index = 42; index < flac.length - 4 && second == 0; index++) {
+				
+				if((flac[index] & 0xFF) == 0xFF && (flac[index + 1] & 0xFF) == 0xF8 && flac[index + 4] == 1) {
+					
+					second = index;
+				}
+			}
+			
+			// a sync code with a plausible header but a wrong CRC-8 in front of the second frame
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			output.write(flac, 0, second);
+			output.write(new byte[] {(byte)0xFF, (byte)0xF8, (byte)0xC9, 0x18, 0x00, 0x00, 0x12, 0x34});
+			output.write(flac, second, flac.length - second);
+			
+			byte[] decoded = AbstractAudio.getAudioInputStream(new ByteArrayInputStream(output.toByteArray()), FileFormat.FLAC).readAllBytes();
+			assertArrayEquals(pcm, decoded);
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testBrokenComments() {
+		
+		try {
+			
+			byte[] flac = readResource();
+			byte[] pcm = AbstractAudio.getAudioInputStream(new ByteArrayInputStream(flac), FileFormat.FLAC).readAllBytes();
+			char[] picture = new char[70000];
+			Arrays.fill(picture, 'x');
+			
+			// the length of the comments is larger than the block, negative or too large to be kept
+			byte[][] blocks = {
+				getComments(3, "TITLE=Title", 0x7FFFFFF0, "ARTIST=Artist"),
+				getComments(2, "TITLE=Title", -1),
+				getComments(-1, "METADATA_BLOCK_PICTURE=" + new String(picture), "TITLE=Title")
+			};
+			
+			for(byte[] block : blocks) {
+				
+				byte[] commented = addComments(flac, block);
+				
+				try(FlacInputStream input = new FlacInputStream(new ByteArrayInputStream(commented))) {
+					
+					assertEquals("test", input.getVendor());
+					assertEquals(Collections.singletonMap("title", "Title"), input.getComments());
+				}
+				
+				assertArrayEquals(pcm, AbstractAudio.getAudioInputStream(new ByteArrayInputStream(commented), FileFormat.FLAC).readAllBytes());
+			}
+			
+			// a vendor string longer than the block leaves the whole block out
+			ByteBuffer vendor = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(Integer.MAX_VALUE).putInt(0);
+			
+			try(FlacInputStream input = new FlacInputStream(new ByteArrayInputStream(addComments(flac, vendor.array())))) {
+				
+				assertNull(input.getVendor());
+				assertTrue(input.getComments().isEmpty());
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+}
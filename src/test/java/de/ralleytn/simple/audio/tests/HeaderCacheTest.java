@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.AbstractAudio;
+import de.ralleytn.simple.audio.HeaderCache;
+import de.ralleytn.simple.audio.StreamedAudio;
+
+class HeaderCacheTest {
+
+	@Test
+	public void testAudio() {
+		
+		try {
+			
+			StreamedAudio audio = new StreamedAudio(Sources.getResource("audio.ogg"));
+			Map<?, ?> headers = audio.getHeaders();
+			assertEquals(22050L, headers.get("ogg.audio_sample_rate"));
+			assertSame(headers, audio.getHeaders());
+			assertThrows(UnsupportedOperationException.class, headers::clear);
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testGlobalCache() {
+		
+		Path path = null;
+		
+		try {
+			
+			path = Files.createTempFile("simple-audio", ".mp3");
+			Files.copy(Paths.get(Sources.getResource("audio.mp3").toURI()), path, StandardCopyOption.REPLACE_EXISTING);
+			HeaderCache cache = new HeaderCache(1 << 20);
+			AbstractAudio.setHeaderCache(cache);
+			
+			// another audio for the same resource does not parse it again
+			Map<?, ?> headers = new StreamedAudio(path).getHeaders();
+			assertSame(headers, new StreamedAudio(path).getHeaders());
+			assertEquals(1, cache.getEntryCount());
+			assertTrue(cache.getSize() > 0 && cache.getSize() <= cache.getMaxSize());
+			
+			// a changed file is parsed again
+			StreamedAudio audio = new StreamedAudio(path);
+			Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() - 60000));
+			Map<?, ?> changed = audio.getHeaders();
+			assertNotSame(headers, changed);
+			assertEquals(headers.get("mp3.frequency.hz"), changed.get("mp3.frequency.hz"));
+			assertSame(changed, new StreamedAudio(path).getHeaders());
+			assertEquals(1, cache.getEntryCount());
+			
+			// headers that are bigger than the whole cache are not kept
+			HeaderCache small = new HeaderCache(64);
+			AbstractAudio.setHeaderCache(small);
+			new StreamedAudio(path).getHeaders();
+			assertEquals(0, small.getEntryCount());
+			assertEquals(0L, small.getSize());
+			
+			cache.clear();
+			assertEquals(0L, cache.getSize());
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			AbstractAudio.setHeaderCache(null);
+			
+			try {
+				
+				Files.deleteIfExists(path);
+				
+			} catch(Exception exception) {}
+		}
+	}
+}
@@ -27,7 +27,17 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.Map;
 
 import org.junit.jupiter.api.Test;
@@ -35,9 +45,32 @@ import org.junit.jupiter.api.Test;
 import de.ralleytn.simple.audio.Audio;
 import de.ralleytn.simple.audio.AudioException;
 import de.ralleytn.simple.audio.BufferedAudio;
+import de.ralleytn.simple.audio.OggHeadReader;
+import de.ralleytn.simple.audio.internal.Util;
 
 class HeaderTest {
 
+	// an Ogg page without a valid CRC, the head reader does not check it
+	private static final byte[] createPage(int serialNumber, long granulePosition, byte[] body, int offset, int length, boolean last) {
+		
+		int segments = last ? length / 255 + 1 : (length + 254) / 255;
+		ByteBuffer page = ByteBuffer.allocate(27 + segments + length).order(ByteOrder.LITTLE_ENDIAN);
+		page.put(new byte[] {'O', 'g', 'g', 'S', 0, 0});
+		page.putLong(granulePosition);
+		page.putInt(serialNumber);
+		page.putInt(0);
+		page.putInt(0);
+		page.put((byte)segments);
+		
+		for(int segment = 0; segment < segments; segment++) {
+			
+			page.put((byte)Math.min(255, length - segment * 255));
+		}
+		
+		page.put(body, offset, length);
+		return page.array();
+	}
+
 	private static final Map<?, ?> getHeaders(String name) {
 		
 		try {
@@ -124,4 +157,140 @@ class HeaderTest {
 		assertEquals(false, headers.get("ogg.framing_flag"));
 		assertEquals("Lavc58.13.100 libvorbis", headers.get("ogg.comment.encoder"));
 	}
+	
+	@Test
+	public void testOggHeadReader() throws IOException {
+		
+		OggHeadReader reader = new OggHeadReader();
+		URL resource = Sources.getResource("audio.ogg");
+		Map<String, Object> headers = new HashMap<>(reader.read(resource));
+		
+		// only the length of local files is known
+		assertEquals(110464L * 1000000L / 22050L, headers.remove("duration"));
+		assertEquals(110464L, headers.remove("ogg.total_samples"));
+		
+		try(InputStream inputStream = resource.openStream()) {
+			
+			// junk in front of the first page is skipped and the buffer of the reader is reused
+			byte[] file = inputStream.readAllBytes();
+			byte[] data = new byte[file.length + 20000];
+			System.arraycopy(file, 0, data, 20000, file.length);
+			data[10000] = 'O';
+			data[10001] = 'g';
+			data[10002] = 'g';
+			assertEquals(headers, reader.read(new ByteArrayInputStream(data)));
+		}
+		
+		assertEquals("Lavc58.13.100 libvorbis", headers.get("ogg.comment.encoder"));
+		
+		try {
+			
+			reader.read(new ByteArrayInputStream(new byte[100000]));
+			fail("not an Ogg stream");
+			
+		} catch(IOException exception) {}
+	}
+	
+	@Test
+	public void testOggLimits() throws IOException {
+		
+		OggHeadReader reader = new OggHeadReader();
+		byte[] file;
+		
+		try(InputStream inputStream = Sources.getResource("audio.ogg").openStream()) {
+			
+			file = inputStream.readAllBytes();
+		}
+		
+		int firstPage = 27 + file[26];
+		
+		for(int segment = 0; segment < file[26]; segment++) {
+			
+			firstPage += file[27 + segment] & 0xFF;
+		}
+		
+		int serialNumber = ByteBuffer.wrap(file, 14, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+		
+		// the reader stops at the limit of one MiB instead of reading the whole comment packet
+		ByteBuffer comments = ByteBuffer.allocate(3 * 1024 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+		comments.put(new byte[] {3, 'v', 'o', 'r', 'b', 'i', 's'});
+		comments.putInt(4).put("Test".getBytes(StandardCharsets.US_ASCII));
+		comments.putInt(1).putInt(9).put("title=Big".getBytes(StandardCharsets.US_ASCII));
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		output.write(file, 0, firstPage);
+		
+		for(int offset = 0; offset < comments.capacity(); offset += 255 * 255) {
+			
+			int length = Math.min(255 * 255, comments.capacity() - offset);
+			output.write(createPage(serialNumber, 0L, comments.array(), offset, length, offset + length == comments.capacity()));
+		}
+		
+		int[] read = new int[1];
+		InputStream counting = new ByteArrayInputStream(output.toByteArray()) {
+			
+			@Override
+			public synchronized int read(byte[] buffer, int offset, int length) {
+				
+				int count = super.read(buffer, offset, length);
+				read[0] += Math.max(0, count);
+				return count;
+			}
+		};
+		
+		Map<String, ?> headers = reader.read(counting);
+		assertEquals("Test", headers.get("ogg.vendor"));
+		assertEquals("Big", headers.get("ogg.comment.title"));
+		assertTrue(read[0] < 1024 * 1024 + 65536, "read " + read[0]);
+		
+		// a page of another stream at the end of the file does not change the duration
+		Path path = Files.createTempFile("simple-audio-test", ".ogg");
+		
+		try {
+			
+			output.reset();
+			output.write(file);
+			output.write(createPage(serialNumber + 1, 1000000000L, new byte[0], 0, 0, true));
+			Files.write(path, output.toByteArray());
+			assertEquals(110464L, reader.read(path.toUri().toURL()).get("ogg.total_samples"));
+			
+		} finally {
+			
+			Files.delete(path);
+		}
+	}
+	
+	@Test
+	public void testUtilSearch() throws IOException {
+		
+		byte[] pattern = "abab".getBytes(StandardCharsets.US_ASCII);
+		int[] table = Util.createFailureTable(pattern);
+		byte[] data = "aabaabababab".getBytes(StandardCharsets.US_ASCII);
+		
+		assertEquals(4, Util.indexOf(data, 0, data.length, pattern, table));
+		assertEquals(6, Util.indexOf(data, 5, data.length - 5, pattern, table));
+		assertEquals(-1, Util.indexOf(data, 0, 7, pattern, table));
+		
+		InputStream inputStream = new ByteArrayInputStream(data);
+		Util.readUntil(inputStream, new int[] {'a', 'b', 'a', 'b'});
+		assertEquals('a', inputStream.read());
+	}
+	
+	@Test
+	public void testFlacHeader() {
+		
+		Map<?, ?> headers = getHeaders("audio.flac");
+		
+		assertEquals(2304, headers.get("flac.min_blocksize"));
+		assertEquals(2304, headers.get("flac.max_blocksize"));
+		assertEquals(14, headers.get("flac.min_framesize"));
+		assertEquals(2613, headers.get("flac.max_framesize"));
+		assertEquals(22050, headers.get("flac.sample_rate"));
+		assertEquals(2, headers.get("flac.channels"));
+		assertEquals(16, headers.get("flac.bits_per_sample"));
+		assertEquals(110464L, headers.get("flac.total_samples"));
+		assertEquals("24a6ee6793310fdedb502bbdf233d4de", headers.get("flac.md5"));
+		assertEquals(0, headers.get("flac.seekpoints"));
+		assertEquals("Lavf58.10.100", headers.get("flac.vendor"));
+		assertEquals("Lavf58.10.100", headers.get("flac.comment.encoder"));
+	}
 }
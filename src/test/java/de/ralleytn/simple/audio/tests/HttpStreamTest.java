@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import de.ralleytn.simple.audio.AbstractAudio;
+import de.ralleytn.simple.audio.BufferedAudio;
+import de.ralleytn.simple.audio.SampleReader;
+
+class HttpStreamTest {
+
+	private static final byte[] read(String name) throws Exception {
+		
+		try(InputStream input = Sources.getResource(name).openStream()) {
+			
+			return input.readAllBytes();
+		}
+	}
+	
+	// serves the test files and counts the bytes that were sent
+	private static final HttpServer startServer(boolean ranges, AtomicLong sent) throws Exception {
+		
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			
+			try {
+				
+				byte[] data = read(exchange.getRequestURI().getPath().substring(1));
+				String range = exchange.getRequestHeaders().getFirst("Range");
+				
+				if(ranges && range != null) {
+					
+					String[] bounds = range.substring("bytes=".length()).split("-");
+					int start = Integer.parseInt(bounds[0]);
+					int end = Math.min(data.length - 1, Integer.parseInt(bounds[1]));
+					
+					if(start >= data.length) {
+						
+						exchange.sendResponseHeaders(416, -1);
+						return;
+					}
+					
+					exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+					data = Arrays.copyOfRange(data, start, end + 1);
+					exchange.sendResponseHeaders(206, data.length);
+					
+				} else {
+					
+					exchange.sendResponseHeaders(200, data.length);
+				}
+				
+				try(OutputStream output = exchange.getResponseBody()) {
+					
+					output.write(data);
+					sent.addAndGet(data.length);
+				}
+				
+			} catch(Exception exception) {
+				
+				exception.printStackTrace();
+				exchange.sendResponseHeaders(500, -1);
+				
+			} finally {
+				
+				exchange.close();
+			}
+		});
+		server.start();
+		return server;
+	}
+	
+	private static final URL getURL(HttpServer server, String name) throws Exception {
+		
+		return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/" + name);
+	}
+	
+	private static final void testNoDuplicates(boolean ranges) throws Exception {
+		
+		AtomicLong sent = new AtomicLong();
+		HttpServer server = startServer(ranges, sent);
+		
+		try {
+			
+			BufferedAudio audio = new BufferedAudio(getURL(server, "audio.ogg"));
+			audio.open();
+			assertEquals(110464L, audio.getFrameLength());
+			audio.close();
+			audio.open();
+			audio.close();
+			
+			try(SampleReader reader = new SampleReader(audio)) {
+				
+				assertTrue(reader.read(new float[4096], 0, 4096) > 0);
+			}
+			
+			assertEquals(17747L, sent.get());
+			
+		} finally {
+			
+			server.stop(0);
+		}
+	}
+	
+	@Test
+	public void testRanges() {
+		
+		try {
+			
+			testNoDuplicates(true);
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testWithoutRanges() {
+		
+		try {
+			
+			testNoDuplicates(false);
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testSeek() {
+		
+		int readAhead = AbstractAudio.getReadAhead();
+		AtomicLong sent = new AtomicLong();
+		HttpServer server = null;
+		
+		try {
+			
+			server = startServer(true, sent);
+			AbstractAudio.setReadAhead(32768);
+			byte[] expected = read("audio.wav");
+			BufferedAudio audio = new BufferedAudio(getURL(server, "audio.wav"));
+			
+			try(InputStream input = audio.getResource().openStream()) {
+				
+				// the data in front of the position is never downloaded
+				assertEquals(200000L, input.skip(200000L));
+				byte[] data = new byte[1000];
+				assertEquals(1000, input.readNBytes(data, 0, data.length));
+				assertArrayEquals(Arrays.copyOfRange(expected, 200000, 201000), data);
+				assertTrue(sent.get() <= 65536L, "sent " + sent.get());
+			}
+			
+			try(InputStream input = audio.getResource().openStream()) {
+				
+				assertArrayEquals(expected, input.readAllBytes());
+			}
+			
+			assertEquals(expected.length, audio.getResource().openConnection().getContentLengthLong());
+			assertEquals((long)expected.length, sent.get());
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			AbstractAudio.setReadAhead(readAhead);
+			
+			if(server != null) {
+				
+				server.stop(0);
+			}
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.FileFormat;
+import de.ralleytn.simple.audio.LibraryEntry;
+import de.ralleytn.simple.audio.LibraryScanner;
+
+class LibraryScannerTest {
+
+	private static final Path createLibrary() throws Exception {
+		
+		Path library = Files.createTempDirectory("simple-audio-library");
+		Files.createDirectories(library.resolve("a/b"));
+		Files.copy(Paths.get(Sources.getResource("audio.mp3").toURI()), library.resolve("a/audio.mp3"));
+		Files.copy(Paths.get(Sources.getResource("audio.ogg").toURI()), library.resolve("a/b/audio.ogg"));
+		Files.copy(Paths.get(Sources.getResource("audio.flac").toURI()), library.resolve("audio.flac"));
+		Files.copy(Paths.get(Sources.getResource("audio.wav").toURI()), library.resolve("audio.wav"));
+		Files.write(library.resolve("readme.txt"), new byte[] {1, 2, 3});
+		Files.write(library.resolve("broken.mp3"), new byte[100]);
+		return library;
+	}
+	
+	private static final void delete(Path directory) throws Exception {
+		
+		try(Stream<Path> files = Files.walk(directory)) {
+			
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+	
+	@Test
+	public void testScan() throws Exception {
+		
+		Path library = createLibrary();
+		Path index = library.resolve("index/library.idx");
+		
+		try {
+			
+			LibraryScanner scanner = new LibraryScanner(index, 4);
+			List<LibraryEntry> entries = scanner.scan(library);
+			
+			assertEquals(5, entries.size());
+			assertEquals(5, scanner.getLastReadCount());
+			assertEquals(library.resolve("a/audio.mp3"), entries.get(0).getPath());
+			
+			LibraryEntry mp3 = scanner.getEntry(library.resolve("a/audio.mp3"));
+			assertEquals(FileFormat.MP3, mp3.getFileFormat());
+			assertEquals(5068000L, mp3.getDuration());
+			assertEquals(22050, mp3.getHeaders().get("mp3.frequency.hz"));
+			assertEquals(38.28125F, mp3.getHeaders().get("mp3.framerate.fps"));
+			assertEquals(false, mp3.getHeaders().get("mp3.vbr"));
+			assertEquals(110464L * 1000000L / 22050L, scanner.getEntry(library.resolve("a/b/audio.ogg")).getDuration());
+			assertEquals("Lavc58.13.100 libvorbis", scanner.getEntry(library.resolve("a/b/audio.ogg")).getHeaders().get("ogg.comment.encoder"));
+			assertEquals(110464L * 1000000L / 22050L, scanner.getEntry(library.resolve("audio.flac")).getDuration());
+			assertTrue(scanner.getEntry(library.resolve("audio.wav")).getDuration() > 0);
+			assertTrue(scanner.getEntry(library.resolve("broken.mp3")).getHeaders().isEmpty());
+			assertNull(scanner.getEntry(library.resolve("readme.txt")));
+			
+			// a new scanner reads the index and only the changed files
+			Files.setLastModifiedTime(library.resolve("audio.flac"), FileTime.fromMillis(System.currentTimeMillis() - 60000));
+			Files.delete(library.resolve("audio.wav"));
+			LibraryScanner rescanner = new LibraryScanner(index);
+			assertEquals(mp3.getHeaders(), rescanner.getEntry(library.resolve("a/audio.mp3")).getHeaders());
+			assertEquals(mp3.getDuration(), rescanner.getEntry(library.resolve("a/audio.mp3")).getDuration());
+			assertEquals(FileFormat.MP3, rescanner.getEntry(library.resolve("a/audio.mp3")).getFileFormat());
+			assertEquals(FileFormat.OGG, rescanner.getEntry(library.resolve("a/b/audio.ogg")).getFileFormat());
+			entries = rescanner.scan(library);
+			assertEquals(4, entries.size());
+			assertEquals(1, rescanner.getLastReadCount());
+			assertEquals(4, new LibraryScanner(index).getEntries().size());
+			
+			// a broken index is built again
+			byte[] data = Files.readAllBytes(index);
+			data[data.length / 2] ^= 0x55;
+			Files.write(index, data);
+			LibraryScanner broken = new LibraryScanner(index);
+			assertTrue(broken.getEntries().isEmpty());
+			assertEquals(4, broken.scan(library).size());
+			assertEquals(4, broken.getLastReadCount());
+			
+		} finally {
+			
+			delete(library);
+		}
+	}
+}
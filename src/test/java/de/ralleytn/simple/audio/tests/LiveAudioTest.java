@@ -0,0 +1,337 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sound.sampled.AudioInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import de.ralleytn.simple.audio.AudioEvent;
+import de.ralleytn.simple.audio.AudioException;
+import de.ralleytn.simple.audio.LiveAudio;
+import de.ralleytn.simple.audio.internal.IcyInputStream;
+import de.ralleytn.simple.audio.internal.JitterBuffer;
+
+class LiveAudioTest {
+
+	private static final int INTERVAL = 4096;
+	
+	// there is no audio line in a test environment, so the decoded stream is read directly
+	private static final class TestAudio extends LiveAudio {
+		
+		TestAudio(URL url) throws AudioException {
+			
+			super(url);
+		}
+		
+		AudioInputStream openStream() throws AudioException {
+			
+			return this.createAudioInputStream();
+		}
+	}
+	
+	private static final byte[] createBlock(String title) {
+		
+		byte[] text = ("StreamTitle='" + title + "';").getBytes(StandardCharsets.UTF_8);
+		byte[] block = new byte[1 + (text.length + 15) / 16 * 16];
+		block[0] = (byte)((block.length - 1) / 16);
+		System.arraycopy(text, 0, block, 1, text.length);
+		return block;
+	}
+	
+	// a radio station that plays the first bytes of the test file once per connection and then drops the connection
+	private static final HttpServer startServer(AtomicInteger connections, int limit) throws Exception {
+		
+		byte[] data;
+		
+		try(InputStream input = Sources.getResource("audio.mp3").openStream()) {
+			
+			data = input.readAllBytes();
+		}
+		
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/stream", exchange -> {
+			
+			int connection = connections.incrementAndGet();
+			boolean metadata = "1".equals(exchange.getRequestHeaders().getFirst("Icy-MetaData"));
+			
+			try {
+				
+				exchange.getResponseHeaders().set("Content-Type", "audio/mpeg");
+				exchange.getResponseHeaders().set("icy-name", "Test Radio");
+				
+				if(metadata) {
+					
+					exchange.getResponseHeaders().set("icy-metaint", String.valueOf(INTERVAL));
+				}
+				
+				exchange.sendResponseHeaders(200, 0);
+				
+				try(OutputStream output = exchange.getResponseBody()) {
+					
+					for(int position = 0; position < Math.min(limit, data.length); position += INTERVAL) {
+						
+						int length = Math.min(INTERVAL, data.length - position);
+						output.write(data, position, length);
+						
+						if(metadata && length == INTERVAL) {
+							
+							output.write(position == 0 ? createBlock("Song " + connection) : new byte[1]);
+						}
+					}
+				}
+				
+			} catch(Exception exception) {
+				
+				// the client closed the connection
+				
+			} finally {
+				
+				exchange.close();
+			}
+		});
+		server.start();
+		return server;
+	}
+	
+	@Test
+	public void testReconnect() {
+		
+		AtomicInteger connections = new AtomicInteger();
+		HttpServer server = null;
+		
+		try {
+			
+			server = startServer(connections, Integer.MAX_VALUE);
+			TestAudio audio = new TestAudio(new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/stream"));
+			audio.setBufferSize(100, 1000);
+			List<String> titles = new ArrayList<>();
+			audio.addAudioListener(event -> {
+				
+				if(event.getType() == AudioEvent.Type.METADATA) {
+					
+					synchronized(titles) {
+						
+						titles.add(((Map<?, ?>)event.getNewValue()).get("StreamTitle").toString());
+					}
+				}
+			});
+			
+			assertEquals(-1L, audio.getLength());
+			
+			try(AudioInputStream stream = audio.openStream()) {
+				
+				assertEquals(22050.0F, stream.getFormat().getSampleRate());
+				assertEquals("Test Radio", audio.getHeaders().get("icy-name"));
+				
+				// the test file has about five seconds, reading twelve seconds requires two reconnects
+				byte[] buffer = new byte[8192];
+				long total = 0;
+				
+				while(total < 12 * 44100) {
+					
+					int read = stream.read(buffer);
+					assertTrue(read > 0);
+					total += read;
+				}
+				
+				assertTrue(connections.get() >= 3, "connections " + connections.get());
+				assertTrue(audio.getReconnects() >= 2);
+				assertTrue(audio.getMetadata().get("StreamTitle").startsWith("Song "));
+				
+				synchronized(titles) {
+					
+					assertEquals("Song 1", titles.get(0));
+					assertEquals("Song 2", titles.get(1));
+				}
+			}
+			
+			// the receiver stops with the stream
+			int count = connections.get();
+			Thread.sleep(1500);
+			assertEquals(count, connections.get());
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			if(server != null) {
+				
+				server.stop(0);
+			}
+		}
+	}
+	
+	@Test
+	public void testReconnectDelay() {
+		
+		AtomicInteger connections = new AtomicInteger();
+		HttpServer server = null;
+		
+		try {
+			
+			// every connection delivers a little audio and breaks right after it
+			server = startServer(connections, 3 * INTERVAL);
+			TestAudio audio = new TestAudio(new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/stream"));
+			audio.setBufferSize(100, 1000);
+			
+			try(AudioInputStream stream = audio.openStream()) {
+				
+				byte[] buffer = new byte[8192];
+				long end = System.currentTimeMillis() + 2000;
+				
+				while(System.currentTimeMillis() < end && stream.read(buffer) > 0);
+			}
+			
+			// the minimum delay of half a second allows five connections in two seconds
+			assertTrue(connections.get() >= 2, "connections " + connections.get());
+			assertTrue(connections.get() <= 6, "connections " + connections.get());
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			if(server != null) {
+				
+				server.stop(0);
+			}
+		}
+	}
+	
+	@Test
+	public void testIcyInputStream() {
+		
+		try {
+			
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] audio = new byte[10];
+			
+			for(int index = 0; index < audio.length; index++) {
+				
+				audio[index] = (byte)index;
+			}
+			
+			output.write(audio, 0, 4);
+			output.write(createBlock("It's a 'Test'"));
+			output.write(audio, 4, 4);
+			output.write(0);
+			output.write(audio, 8, 2);
+			List<Map<String, String>> blocks = new ArrayList<>();
+			
+			try(InputStream input = new IcyInputStream(new ByteArrayInputStream(output.toByteArray()), 4, blocks::add)) {
+				
+				byte[] data = input.readAllBytes();
+				assertEquals(audio.length, data.length);
+				
+				for(int index = 0; index < audio.length; index++) {
+					
+					assertEquals(audio[index], data[index]);
+				}
+			}
+			
+			assertEquals(1, blocks.size());
+			assertEquals("It's a 'Test'", blocks.get(0).get("StreamTitle"));
+			
+			Map<String, String> entries = IcyInputStream.parse("StreamTitle='A - B';StreamUrl='http://x';");
+			assertEquals("A - B", entries.get("StreamTitle"));
+			assertEquals("http://x", entries.get("StreamUrl"));
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testJitterBuffer() {
+		
+		try {
+			
+			JitterBuffer buffer = new JitterBuffer(64, 8, 2);
+			assertTrue(buffer.write(new byte[6], 0, 6));
+			assertTrue(buffer.isBuffering());
+			assertEquals(0, buffer.available());
+			assertTrue(buffer.write(new byte[2], 0, 2));
+			assertFalse(buffer.isBuffering());
+			
+			// only whole frames are handed out
+			assertEquals(8, buffer.read(new byte[9], 0, 9));
+			
+			// running empty doubles the target
+			Thread writer = new Thread(() -> {
+				
+				try {
+					
+					Thread.sleep(200);
+					buffer.write(new byte[100], 0, 100);
+					
+				} catch(Exception exception) {}
+			});
+			writer.start();
+			assertEquals(32, buffer.read(new byte[32], 0, 32));
+			assertEquals(1, buffer.getUnderruns());
+			assertEquals(16, buffer.getTarget());
+			
+			// the writer waits while the buffer is full, its memory never grows
+			Thread.sleep(200);
+			assertTrue(writer.isAlive());
+			assertEquals(64, buffer.size());
+			buffer.close();
+			writer.join(1000);
+			assertFalse(writer.isAlive());
+			assertEquals(-1, buffer.read(new byte[2], 0, 2));
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+}
@@ -227,7 +227,7 @@ class LoadingTest {
 		test("audio.snd", false);
 		test("audio.aac", true);
 		test("audio.wma", true);
-		test("audio.flac", true);
+		test("audio.flac", false);
 		
 		System.out.println("==========");
 		System.out.println();
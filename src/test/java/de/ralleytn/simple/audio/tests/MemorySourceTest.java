@@ -0,0 +1,186 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.AudioException;
+import de.ralleytn.simple.audio.BufferedAudio;
+import de.ralleytn.simple.audio.FileFormat;
+import de.ralleytn.simple.audio.SampleReader;
+import de.ralleytn.simple.audio.StreamedAudio;
+
+class MemorySourceTest {
+
+	private static final byte[] read(String name) throws Exception {
+		
+		try(InputStream input = Sources.getResource(name).openStream()) {
+			
+			return input.readAllBytes();
+		}
+	}
+	
+	@Test
+	public void testByteArray() {
+		
+		try {
+			
+			for(String name : new String[] {"audio.wav", "audio.mp3", "audio.ogg", "audio.flac"}) {
+				
+				BufferedAudio audio = new BufferedAudio(read(name), null);
+				audio.open();
+				BufferedAudio reference = new BufferedAudio(Sources.getResource(name));
+				reference.open();
+				assertEquals(reference.getFrameLength(), audio.getFrameLength(), name);
+				audio.close();
+				reference.close();
+			}
+			
+			// the hint is used for the file format, the decoder still looks at the content
+			assertEquals(FileFormat.WAV, new BufferedAudio(read("audio.wav"), FileFormat.WAV).getFileFormat());
+			assertThrows(AudioException.class, () -> new BufferedAudio(new byte[] {1, 2, 3, 4}, null));
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testByteBuffer() {
+		
+		try {
+			
+			byte[] data = read("audio.wav");
+			ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 10);
+			direct.position(10);
+			direct.put(data);
+			direct.position(10);
+			
+			BufferedAudio audio = new BufferedAudio(direct, null);
+			audio.open();
+			assertEquals(110464L, audio.getFrameLength());
+			audio.close();
+			assertEquals(10, direct.position());
+			
+			File file = Sources.copy("audio.flac", new File(System.getProperty("java.io.tmpdir")));
+			
+			try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				
+				audio = new BufferedAudio(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), null);
+				audio.open();
+				assertEquals(110464L, audio.getFrameLength());
+				audio.close();
+			}
+			
+			// the same data can be opened any number of times
+			try(SampleReader reader = new SampleReader(audio)) {
+				
+				float[] samples = new float[4096];
+				long frames = 0;
+				int read = 0;
+				
+				while((read = reader.read(samples, 0, samples.length / reader.getChannels())) != -1) {
+					
+					frames += read;
+				}
+				
+				assertEquals(110464L, frames);
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testInputStream() {
+		
+		try {
+			
+			BufferedAudio audio = new BufferedAudio(new ByteArrayInputStream(read("audio.ogg")), null);
+			assertEquals(FileFormat.OGG, audio.getFileFormat());
+			audio.open();
+			assertEquals(110464L, audio.getFrameLength());
+			audio.close();
+			
+			// a stream can not be read twice
+			assertThrows(AudioException.class, audio::open);
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testStreamedInputStream() {
+		
+		for(String name : new String[] {"audio.ogg", "audio.mp3"}) {
+			
+			try {
+				
+				// neither decoder knows the length, it must not be measured by reading the stream a second time
+				StreamedAudio audio = new StreamedAudio(new ByteArrayInputStream(read(name)), null);
+				
+				try {
+					
+					audio.open();
+					assertEquals(-1L, audio.getLength(), name);
+					audio.close();
+					
+				} catch(AudioException exception) {
+					
+					// a test environment may have no audio line; the stream itself must not have been read twice
+					for(Throwable cause = exception; cause != null; cause = cause.getCause()) {
+						
+						assertFalse(cause instanceof IOException || String.valueOf(cause.getMessage()).contains("already been read"), name + ": " + cause);
+					}
+				}
+				
+			} catch(Exception exception) {
+				
+				exception.printStackTrace();
+				fail(exception.getMessage());
+			}
+		}
+	}
+}
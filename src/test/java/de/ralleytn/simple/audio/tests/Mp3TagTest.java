@@ -0,0 +1,287 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.EmbeddedPicture;
+import de.ralleytn.simple.audio.Mp3HeadReader;
+
+class Mp3TagTest {
+
+	private static final byte[] PICTURE = {1, 2, (byte)0xFF, (byte)0xE0, (byte)0xFF, 0, 3};
+	
+	private static final byte[] frame(String id, int flags, byte[]... parts) throws IOException {
+		
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		
+		for(byte[] part : parts) {
+			
+			body.write(part);
+		}
+		
+		ByteBuffer frame = ByteBuffer.allocate(10 + body.size());
+		frame.put(id.getBytes(StandardCharsets.US_ASCII));
+		frame.put(synchsafe(body.size()));
+		frame.putShort((short)flags);
+		frame.put(body.toByteArray());
+		return frame.array();
+	}
+	
+	private static final byte[] synchsafe(int value) {
+		
+		return new byte[] {(byte)((value >> 21) & 0x7F), (byte)((value >> 14) & 0x7F), (byte)((value >> 7) & 0x7F), (byte)(value & 0x7F)};
+	}
+	
+	private static final byte[] bytes(String text) {
+		
+		return text.getBytes(StandardCharsets.ISO_8859_1);
+	}
+	
+	private static final byte[] unsynchronize(byte[] data) {
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		
+		for(int index = 0; index < data.length; index++) {
+			
+			output.write(data[index]);
+			
+			if(data[index] == (byte)0xFF && (index + 1 == data.length || (data[index + 1] & 0xE0) == 0xE0 || data[index + 1] == 0)) {
+				
+				output.write(0);
+			}
+		}
+		
+		return output.toByteArray();
+	}
+	
+	private static final byte[] createFile() throws Exception {
+		
+		ByteArrayOutputStream frames = new ByteArrayOutputStream();
+		frames.write(frame("TIT2", 0, new byte[] {0}, bytes("Title")));
+		frames.write(frame("TPE1", 0, new byte[] {1}, "\uFEFFÄrtist".getBytes(StandardCharsets.UTF_16BE)));
+		frames.write(frame("TCON", 0, new byte[] {0}, bytes("(17)")));
+		frames.write(frame("COMM", 0, new byte[] {0}, bytes("eng"), new byte[] {0}, bytes("Hello")));
+		frames.write(frame("APIC", 0x0002, unsynchronize(concat(new byte[] {0}, bytes("image/png"), new byte[] {0, 3}, bytes("cover"), new byte[] {0}, PICTURE))));
+		frames.write(new byte[32]);
+		
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		file.write(bytes("ID3"));
+		file.write(new byte[] {4, 0, 0});
+		file.write(synchsafe(frames.size()));
+		frames.writeTo(file);
+		file.write(Files.readAllBytes(Paths.get(Sources.getResource("audio.mp3").toURI())));
+		
+		// APEv2 with a text item and a cover
+		ByteArrayOutputStream items = new ByteArrayOutputStream();
+		items.write(apeItem("Album", 0, bytes("APE Album")));
+		items.write(apeItem("Title", 0, bytes("APE Title")));
+		items.write(apeItem("Cover Art (Front)", 2, concat(bytes("front.jpg"), new byte[] {0}, PICTURE)));
+		ByteBuffer footer = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+		footer.put(bytes("APETAGEX")).putInt(2000).putInt(items.size() + 32).putInt(3).putInt(0);
+		items.writeTo(file);
+		file.write(footer.array());
+		
+		byte[] id3v1 = new byte[128];
+		System.arraycopy(bytes("TAG"), 0, id3v1, 0, 3);
+		System.arraycopy(bytes("V1 Title"), 0, id3v1, 3, 8);
+		System.arraycopy(bytes("V1 Album"), 0, id3v1, 63, 8);
+		System.arraycopy(bytes("2001"), 0, id3v1, 93, 4);
+		id3v1[126] = 7;
+		id3v1[127] = 8;
+		file.write(id3v1);
+		return file.toByteArray();
+	}
+	
+	private static final byte[] apeItem(String key, int flags, byte[] value) throws IOException {
+		
+		ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(value.length).putInt(flags);
+		return concat(header.array(), bytes(key), new byte[] {0}, value);
+	}
+	
+	private static final byte[] concat(byte[]... parts) throws IOException {
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		
+		for(byte[] part : parts) {
+			
+			output.write(part);
+		}
+		
+		return output.toByteArray();
+	}
+	
+	@Test
+	public void testTags() throws Exception {
+		
+		byte[] data = createFile();
+		Path file = Files.createTempFile("simple-audio", ".mp3");
+		
+		try {
+			
+			Files.write(file, data);
+			Map<String, ?> headers = new Mp3HeadReader().read(file.toUri().toURL());
+			
+			assertEquals("Title", headers.get("title"));
+			assertEquals("Ärtist", headers.get("author"));
+			assertEquals("APE Album", headers.get("album"));
+			assertEquals("2001", headers.get("date"));
+			assertEquals("Hello", headers.get("comment"));
+			assertEquals("Rock", headers.get("mp3.id3tag.genre"));
+			assertEquals("7", headers.get("mp3.id3tag.track"));
+			assertEquals("APE Title", headers.get("mp3.ape.title"));
+			assertEquals("4", headers.get("mp3.id3tag.v2.version"));
+			
+			// the audio data is found behind the tag and the trailing tags are not counted
+			Map<?, ?> plain = new Mp3HeadReader().read(Sources.getResource("audio.mp3"));
+			int position = 0;
+			
+			while(data[position] != (byte)0xFF || data[position + 1] != (byte)0xF3 || data[position + 2] != (byte)0x82) {
+				
+				position++;
+			}
+			
+			assertEquals(position, headers.get("mp3.header.pos"));
+			assertEquals(plain.get("mp3.length.frames"), headers.get("mp3.length.frames"));
+			assertEquals(5068000L, plain.get("duration"));
+			assertEquals(plain.get("duration"), headers.get("duration"));
+			assertEquals(plain.get("mp3.bitrate.nominal.bps"), headers.get("mp3.bitrate.nominal.bps"));
+			
+			List<?> pictures = (List<?>)headers.get("mp3.pictures");
+			assertEquals(2, pictures.size());
+			EmbeddedPicture cover = (EmbeddedPicture)pictures.get(0);
+			assertEquals("image/png", cover.getMimeType());
+			assertEquals(EmbeddedPicture.TYPE_FRONT_COVER, cover.getType());
+			assertEquals("cover", cover.getDescription());
+			assertArrayEquals(PICTURE, cover.getData());
+			EmbeddedPicture apeCover = (EmbeddedPicture)pictures.get(1);
+			assertEquals("image/jpeg", apeCover.getMimeType());
+			assertEquals("front.jpg", apeCover.getDescription());
+			assertArrayEquals(PICTURE, apeCover.getData());
+			
+		} finally {
+			
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void testUnsynchronizedTag() throws Exception {
+		
+		// ID3v2.3 unsynchronizes the frame headers too; a title of 254 characters gives a frame size of 0xFF followed by the zero flags
+		StringBuilder title = new StringBuilder();
+		
+		for(int index = 0; index < 254; index++) {
+			
+			title.append((char)('a' + index % 26));
+		}
+		
+		byte[] text = concat(new byte[] {0}, bytes(title.toString()));
+		byte[] picture = concat(new byte[] {0}, bytes("image/png"), new byte[] {0, 3}, bytes("cover"), new byte[] {0}, PICTURE);
+		ByteArrayOutputStream frames = new ByteArrayOutputStream();
+		frames.write(ByteBuffer.allocate(10).put(bytes("TIT2")).putInt(text.length).array());
+		frames.write(text);
+		frames.write(ByteBuffer.allocate(10).put(bytes("APIC")).putInt(picture.length).array());
+		frames.write(picture);
+		byte[] tag = unsynchronize(frames.toByteArray());
+		
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		file.write(bytes("ID3"));
+		file.write(new byte[] {3, 0, (byte)0x80});
+		file.write(synchsafe(tag.length));
+		file.write(tag);
+		file.write(Files.readAllBytes(Paths.get(Sources.getResource("audio.mp3").toURI())));
+		Path path = Files.createTempFile("simple-audio", ".mp3");
+		
+		try {
+			
+			Files.write(path, file.toByteArray());
+			Map<String, ?> headers = new Mp3HeadReader().read(path.toUri().toURL());
+			assertEquals(title.toString(), headers.get("title"));
+			EmbeddedPicture cover = (EmbeddedPicture)((List<?>)headers.get("mp3.pictures")).get(0);
+			assertEquals("cover", cover.getDescription());
+			assertArrayEquals(PICTURE, cover.getData());
+			
+			// a picture is not read from a file that was changed after the headers were read
+			cover = (EmbeddedPicture)((List<?>)new Mp3HeadReader().read(path.toUri().toURL()).get("mp3.pictures")).get(0);
+			Files.write(path, new byte[1], StandardOpenOption.APPEND);
+			assertThrows(IOException.class, cover::getData);
+			
+		} finally {
+			
+			Files.delete(path);
+		}
+	}
+	
+	@Test
+	public void testStream() throws Exception {
+		
+		byte[] data = createFile();
+		URL resource = new URL(null, "test:audio.mp3", new URLStreamHandler() {
+			
+			@Override
+			protected URLConnection openConnection(URL url) {
+				
+				return new URLConnection(url) {
+					
+					@Override public void connect() {}
+					@Override public InputStream getInputStream() {
+						
+						return new ByteArrayInputStream(data);
+					}
+				};
+			}
+		});
+		
+		// without a length only the tag at the beginning can be read
+		Map<String, ?> headers = new Mp3HeadReader().read(resource);
+		assertEquals("Title", headers.get("title"));
+		assertFalse(headers.containsKey("album"));
+		assertFalse(headers.containsKey("duration"));
+		assertEquals(22050, headers.get("mp3.frequency.hz"));
+		assertArrayEquals(PICTURE, ((EmbeddedPicture)((List<?>)headers.get("mp3.pictures")).get(0)).getData());
+	}
+}
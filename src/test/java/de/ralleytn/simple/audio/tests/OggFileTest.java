@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import de.jarnbjo.ogg.LogicalOggStream;
+import de.ralleytn.simple.audio.AbstractAudio;
+import de.ralleytn.simple.audio.FileFormat;
+import de.ralleytn.simple.audio.internal.OggFile;
+
+class OggFileTest {
+
+	private static final Path getPath(String name) throws Exception {
+		
+		return Paths.get(Sources.getResource(name).toURI());
+	}
+	
+	// decodes the file without the index
+	private static final byte[] decodeSequential() throws Exception {
+		
+		try(AudioInputStream input = AbstractAudio.getAudioInputStream(new ByteArrayInputStream(Files.readAllBytes(getPath("audio.ogg"))), FileFormat.OGG)) {
+			
+			return input.readAllBytes();
+		}
+	}
+	
+	@Test
+	public void testIndex() {
+		
+		try {
+			
+			OggFile file = OggFile.get(getPath("audio.ogg"));
+			assertNotNull(file);
+			assertEquals(LogicalOggStream.FORMAT_VORBIS, file.getFormat());
+			assertEquals(7, file.getPageCount());
+			assertEquals(110464L, file.getGranuleLength());
+			assertEquals(22016L, file.getGranulePosition(2));
+			assertEquals(2, file.findPage(30000));
+			assertEquals(-1, file.findPage(-1));
+			assertEquals(6, file.findPage(Long.MAX_VALUE));
+			assertNull(OggFile.get(getPath("audio.wav")));
+			
+			LogicalOggStream stream = file.openLogicalStream();
+			byte[] packet = stream.getNextOggPacket();
+			assertEquals(1, packet[0]);
+			assertEquals("vorbis", new String(packet, 1, 6, "US-ASCII"));
+			stream.setTime(50000);
+			assertEquals(file.getGranulePosition(file.findPage(50000)), stream.getTime());
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testDecode() {
+		
+		try {
+			
+			byte[] expected = decodeSequential();
+			
+			// the length is known before anything was decoded
+			try(AudioInputStream input = AbstractAudio.getAudioInputStream(Sources.getResource("audio.ogg"))) {
+				
+				assertEquals(110464L, input.getFrameLength());
+				assertArrayEquals(expected, input.readAllBytes());
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testSeek() {
+		
+		try {
+			
+			byte[] expected = decodeSequential();
+			OggFile file = OggFile.get(getPath("audio.ogg"));
+			
+			for(int frame : new int[] {1000, 23000, 30000, 50000, 70000, 100000}) {
+				
+				try(InputStream input = file.openStream()) {
+					
+					// the samples behind the target are the same as if everything in front of it had been decoded
+					assertEquals(frame * 2L, input.skip(frame * 2L));
+					byte[] data = new byte[Math.min(4000, expected.length - frame * 2)];
+					assertEquals(data.length, input.readNBytes(data, 0, data.length));
+					assertArrayEquals(Arrays.copyOfRange(expected, frame * 2, frame * 2 + data.length), data, "frame " + frame);
+					
+					// and the stream still ends where the file ends
+					assertEquals(expected.length - frame * 2 - data.length, input.readAllBytes().length);
+				}
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testCrc() {
+		
+		boolean check = AbstractAudio.isOggCrcCheck();
+		
+		try {
+			
+			// breaks a byte in the body of the fourth page
+			byte[] data = Files.readAllBytes(getPath("audio.ogg"));
+			data[8000] ^= 0x55;
+			Path path = Files.createTempFile("simple-audio", ".ogg");
+			Files.write(path, data);
+			
+			AbstractAudio.setOggCrcCheck(false);
+			assertEquals(7, OggFile.get(path).getPageCount());
+			
+			AbstractAudio.setOggCrcCheck(true);
+			OggFile file = OggFile.get(path);
+			assertEquals(6, file.getPageCount());
+			assertEquals(22016L, file.getGranulePosition(2));
+			assertEquals(66688L, file.getGranulePosition(3));
+			Files.delete(path);
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			AbstractAudio.setOggCrcCheck(check);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sound.sampled.AudioFormat;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.internal.PcmBuffer;
+
+class PcmBufferTest {
+
+	@Test
+	public void testConcurrentAppend() {
+		
+		try {
+			
+			PcmBuffer buffer = new PcmBuffer(new AudioFormat(44100, 16, 2, true, false));
+			AtomicReference<Throwable> error = new AtomicReference<>();
+			
+			// reads the end of the buffer while it grows over many chunks
+			Thread reader = new Thread(() -> {
+				
+				try {
+					
+					byte[] target = new byte[4096];
+					
+					while(!buffer.isComplete()) {
+						
+						long frame = Math.max(0, buffer.getFrameLength() - 512);
+						int frames = buffer.read(frame, target, 0, 1024);
+						
+						for(int index = 0; index < frames * 4; index++) {
+							
+							if(target[index] != (byte)((frame * 4 + index) % 251)) {
+								
+								throw new AssertionError("wrong data at byte " + (frame * 4 + index));
+							}
+						}
+					}
+					
+				} catch(Throwable throwable) {
+					
+					error.set(throwable);
+				}
+			});
+			
+			reader.start();
+			byte[] data = new byte[4000];
+			long position = 0;
+			
+			for(int block = 0; block < 4000; block++) {
+				
+				for(int index = 0; index < data.length; index++) {
+					
+					data[index] = (byte)((position + index) % 251);
+				}
+				
+				buffer.append(data, 0, data.length);
+				position += data.length;
+			}
+			
+			buffer.complete();
+			reader.join();
+			assertNull(error.get(), String.valueOf(error.get()));
+			assertEquals(position, buffer.getByteLength());
+			assertEquals(position / 4, buffer.getFrameLength());
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+}
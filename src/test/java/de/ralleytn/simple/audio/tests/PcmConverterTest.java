@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.AbstractAudio;
+import de.ralleytn.simple.audio.internal.PcmConverter;
+import de.ralleytn.simple.audio.internal.Samples;
+
+class PcmConverterTest {
+
+	private static final byte[] convert(byte[] data, AudioFormat source, AudioFormat target) throws Exception {
+		
+		AudioInputStream audioInputStream = new AudioInputStream(new ByteArrayInputStream(data), source, data.length / source.getFrameSize());
+		return Samples.convert(audioInputStream, target).readAllBytes();
+	}
+	
+	@Test
+	public void testRoundTrip() {
+		
+		try {
+			
+			AudioInputStream audioInputStream = AbstractAudio.getAudioInputStream(Sources.getResource("audio.wav"));
+			AudioFormat format = audioInputStream.getFormat();
+			byte[] original = audioInputStream.readAllBytes();
+			AudioFormat[] formats = {
+				new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, true),
+				new AudioFormat(format.getSampleRate(), 24, format.getChannels(), true, false),
+				new AudioFormat(format.getSampleRate(), 32, format.getChannels(), false, true),
+				new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, format.getSampleRate(), 32, format.getChannels(), format.getChannels() * 4, format.getSampleRate(), false),
+				new AudioFormat(format.getSampleRate(), 24, 2, true, true)
+			};
+			
+			// none of these formats loses information of 16 bit samples, mixing two equal channels down neither
+			for(AudioFormat target : formats) {
+				
+				byte[] converted = convert(original, format, target);
+				assertEquals(original.length / format.getFrameSize() * target.getFrameSize(), converted.length);
+				assertArrayEquals(original, convert(converted, target, format));
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testAudioSystemEquality() {
+		
+		try {
+			
+			AudioInputStream audioInputStream = AbstractAudio.getAudioInputStream(Sources.getResource("audio.wav"));
+			AudioFormat format = audioInputStream.getFormat();
+			byte[] original = audioInputStream.readAllBytes();
+			AudioFormat target = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, true);
+			AudioInputStream expected = AudioSystem.getAudioInputStream(target, new AudioInputStream(new ByteArrayInputStream(original), format, original.length / format.getFrameSize()));
+			assertArrayEquals(expected.readAllBytes(), convert(original, format, target));
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testDownMix() {
+		
+		try {
+			
+			AudioFormat stereo = new AudioFormat(44100, 16, 2, true, false);
+			AudioFormat mono = new AudioFormat(44100, 16, 1, true, false);
+			PcmConverter converter = new PcmConverter(stereo, mono);
+			byte[] source = {(byte)0xE8, 0x03, (byte)0xD0, 0x07, 0x00, (byte)0x80, 0x00, (byte)0x80};
+			byte[] target = new byte[4];
+			converter.convert(source, 0, target, 0, 2);
+			
+			// (1000 + 2000) / 2 and (-32768 + -32768) / 2
+			assertArrayEquals(new byte[] {(byte)0xDC, 0x05, 0x00, (byte)0x80}, target);
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.BufferedAudio;
+import de.ralleytn.simple.audio.SampleReader;
+import de.ralleytn.simple.audio.internal.PcmFile;
+
+class PcmFileTest {
+
+	private static final String[] NAMES = {"audio.wav", "audio.aiff", "audio.aifc", "audio.au", "audio.snd"};
+	
+	private static final Path getPath(String name) throws Exception {
+		
+		return Paths.get(Sources.getResource(name).toURI());
+	}
+	
+	@Test
+	public void testLayout() {
+		
+		try {
+			
+			for(String name : NAMES) {
+				
+				PcmFile file = PcmFile.get(getPath(name));
+				assertNotNull(file, name);
+				
+				// the same samples as the readers of the AudioSystem
+				try(AudioInputStream expected = AudioSystem.getAudioInputStream(getPath(name).toFile()); AudioInputStream actual = file.openStream()) {
+					
+					assertTrue(expected.getFormat().matches(actual.getFormat()), name + ": " + actual.getFormat());
+					assertEquals(expected.getFrameLength(), actual.getFrameLength(), name);
+					assertArrayEquals(expected.readAllBytes(), actual.readAllBytes(), name);
+				}
+				
+				// the header is only parsed once
+				assertSame(file, PcmFile.get(getPath(name)));
+			}
+			
+			assertNull(PcmFile.get(getPath("audio.mp3")));
+			assertNull(PcmFile.get(getPath("audio.ogg")));
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testSeek() {
+		
+		try {
+			
+			PcmFile file = PcmFile.get(getPath("audio.wav"));
+			byte[] all;
+			
+			try(InputStream input = file.openStream()) {
+				
+				all = input.readAllBytes();
+			}
+			
+			try(AudioInputStream input = file.openStream()) {
+				
+				int frameSize = input.getFormat().getFrameSize();
+				long position = (file.getFrameLength() / 2) * frameSize;
+				
+				// skipping only moves the position
+				assertEquals(position, input.skip(position));
+				byte[] data = new byte[1000 * frameSize];
+				assertEquals(data.length, input.readNBytes(data, 0, data.length));
+				assertArrayEquals(Arrays.copyOfRange(all, (int)position, (int)position + data.length), data);
+				
+				// the next frame comes from the block that was already read
+				byte[] frame = new byte[frameSize];
+				assertEquals(frameSize, input.read(frame));
+				assertArrayEquals(Arrays.copyOfRange(all, (int)position + data.length, (int)position + data.length + frameSize), frame);
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testMapped() {
+		
+		try {
+			
+			for(String name : NAMES) {
+				
+				BufferedAudio audio = new BufferedAudio(getPath(name));
+				audio.open();
+				
+				try(InputStream input = Sources.getResource(name).openStream()) {
+					
+					// the data from the memory goes through the readers of the AudioSystem
+					BufferedAudio reference = new BufferedAudio(input.readAllBytes(), null);
+					reference.open();
+					assertEquals(reference.getFrameLength(), audio.getFrameLength(), name);
+					
+					try(SampleReader actual = new SampleReader(audio); SampleReader expected = new SampleReader(reference)) {
+						
+						float[] actualSamples = new float[4096];
+						float[] expectedSamples = new float[4096];
+						assertEquals(expected.read(expectedSamples, 0, 4096), actual.read(actualSamples, 0, 4096), name);
+						assertArrayEquals(expectedSamples, actualSamples, name);
+					}
+					
+					reference.close();
+				}
+				
+				audio.close();
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+}
@@ -35,6 +35,7 @@ import de.ralleytn.simple.audio.Audio;
 import de.ralleytn.simple.audio.AudioEvent;
 import de.ralleytn.simple.audio.AudioException;
 import de.ralleytn.simple.audio.BufferedAudio;
+import de.ralleytn.simple.audio.CompressedAudio;
 import de.ralleytn.simple.audio.StreamedAudio;
 
 class PlayTest {
@@ -71,6 +72,7 @@ class PlayTest {
 			URL resource = Sources.getResource(name);
 			testAudio(new BufferedAudio(resource));
 			testAudio(new StreamedAudio(resource));
+			testAudio(new CompressedAudio(resource));
 			
 		} catch(AudioException exception) {
 			
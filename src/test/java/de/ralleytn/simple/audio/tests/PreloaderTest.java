@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.Audio;
+import de.ralleytn.simple.audio.AudioException;
+import de.ralleytn.simple.audio.BufferedAudio;
+import de.ralleytn.simple.audio.Preloader;
+
+class PreloaderTest {
+
+	private static final String[] FILES = {"audio.wav", "audio.aiff", "audio.aifc", "audio.au", "audio.snd", "audio.mp3", "audio.ogg"};
+	
+	@Test
+	public void testLoad() {
+		
+		try {
+			
+			double[] progress = new double[1];
+			Preloader preloader = new Preloader(4, 2);
+			
+			for(String file : FILES) {
+				
+				preloader.add(new BufferedAudio(Sources.getResource(file)));
+			}
+			
+			preloader.setProgressListener(value -> {
+				
+				assertTrue(value >= progress[0]);
+				progress[0] = value;
+			});
+			
+			List<Audio> audios = preloader.load();
+			assertEquals(FILES.length, audios.size());
+			assertEquals(1.0F, preloader.getProgress(), 0.0001F);
+			assertEquals(1.0, progress[0], 0.0001);
+			
+			for(Audio audio : audios) {
+				
+				assertTrue(audio.isOpen());
+				assertTrue(audio.getFrameLength() > 0);
+				audio.close();
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testPriority() {
+		
+		try {
+			
+			List<String> order = Collections.synchronizedList(new ArrayList<>());
+			AtomicInteger opening = new AtomicInteger();
+			AtomicInteger maxOpening = new AtomicInteger();
+			Preloader preloader = new Preloader(4, 2);
+			
+			for(int index = 0; index < FILES.length; index++) {
+				
+				String file = FILES[index];
+				BufferedAudio audio = new BufferedAudio(Sources.getResource(file)) {
+					
+					@Override
+					public void open() throws AudioException {
+						
+						maxOpening.accumulateAndGet(opening.incrementAndGet(), Math::max);
+						order.add(file);
+						
+						try {
+							
+							super.open();
+							
+						} finally {
+							
+							opening.decrementAndGet();
+						}
+					}
+				};
+				
+				preloader.add(audio, file.equals("audio.ogg") ? 10 : file.equals("audio.mp3") ? 5 : 0);
+			}
+			
+			List<Audio> audios = preloader.load();
+			assertEquals(FILES.length, audios.size());
+			
+			// the two audios with the highest priority are opened first, at the same time
+			assertTrue(order.indexOf("audio.ogg") < 2);
+			assertTrue(order.indexOf("audio.mp3") < 2);
+			assertTrue(maxOpening.get() <= 2);
+			
+			for(Audio audio : audios) {
+				
+				audio.close();
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testFailure() {
+		
+		try {
+			
+			Preloader preloader = new Preloader();
+			BufferedAudio audio = new BufferedAudio(Sources.getResource("audio.wav"));
+			preloader.add(audio);
+			preloader.add(new BufferedAudio(new File("does-not-exist.wav")));
+			assertThrows(AudioException.class, preloader::load);
+			assertFalse(audio.isOpen());
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+}
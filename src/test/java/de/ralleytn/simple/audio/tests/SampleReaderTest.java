@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.SampleReader;
+
+class SampleReaderTest {
+
+	private static final short[] readAll(String name) {
+		
+		try(SampleReader reader = new SampleReader(Sources.getResource(name))) {
+			
+			short[] buffer = new short[1024];
+			short[] samples = new short[0];
+			int read = 0;
+			
+			while((read = reader.read(buffer, 0, buffer.length / reader.getChannels())) != -1) {
+				
+				int length = samples.length;
+				samples = Arrays.copyOf(samples, length + read * reader.getChannels());
+				System.arraycopy(buffer, 0, samples, length, read * reader.getChannels());
+			}
+			
+			return samples;
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+		
+		return null;
+	}
+	
+	@Test
+	public void testByteOrder() {
+		
+		// WAV is little endian, AIFF and AU are big endian
+		short[] wav = readAll("audio.wav");
+		assertArrayEquals(wav, readAll("audio.aiff"));
+		assertArrayEquals(wav, readAll("audio.au"));
+	}
+	
+	@Test
+	public void testFloat() {
+		
+		for(String name : new String[] {"audio.wav", "audio.mp3", "audio.ogg"}) {
+			
+			try(SampleReader reader = new SampleReader(Sources.getResource(name))) {
+				
+				float[] interleaved = new float[512 * reader.getChannels()];
+				int read = 0;
+				boolean silent = true;
+				
+				while((read = reader.read(interleaved, 0, 512)) != -1) {
+					
+					for(int index = 0; index < read * reader.getChannels(); index++) {
+						
+						assertTrue(interleaved[index] >= -1.0F && interleaved[index] < 1.0F);
+						silent &= interleaved[index] == 0.0F;
+					}
+				}
+				
+				assertTrue(!silent);
+				
+			} catch(Exception exception) {
+				
+				exception.printStackTrace();
+				fail(exception.getMessage());
+			}
+		}
+	}
+	
+	@Test
+	public void testPlanar() {
+		
+		short[] interleaved = readAll("audio.ogg");
+		
+		try(SampleReader reader = new SampleReader(Sources.getResource("audio.ogg"))) {
+			
+			short[][] planar = new short[reader.getChannels()][256];
+			int position = 0;
+			int read = 0;
+			
+			while((read = reader.read(planar, 0, 256)) != -1) {
+				
+				for(int frame = 0; frame < read; frame++) {
+					
+					for(int channel = 0; channel < planar.length; channel++) {
+						
+						assertEquals(interleaved[position++], planar[channel][frame]);
+					}
+				}
+			}
+			
+			assertEquals(interleaved.length, position);
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+}
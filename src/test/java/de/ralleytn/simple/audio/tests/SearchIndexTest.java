@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.Audio;
+import de.ralleytn.simple.audio.LibraryEntry;
+import de.ralleytn.simple.audio.LibraryScanner;
+import de.ralleytn.simple.audio.Playlist;
+import de.ralleytn.simple.audio.SearchIndex;
+import de.ralleytn.simple.audio.StreamedAudio;
+
+class SearchIndexTest {
+
+	// the audio with an ID3v1 tag
+	private static final void write(Path file, byte[] audio, String title, String artist, String album, int genre) throws Exception {
+		
+		byte[] data = new byte[audio.length + 128];
+		System.arraycopy(audio, 0, data, 0, audio.length);
+		int tag = audio.length;
+		System.arraycopy("TAG".getBytes(StandardCharsets.ISO_8859_1), 0, data, tag, 3);
+		byte[][] fields = {title.getBytes(StandardCharsets.ISO_8859_1), artist.getBytes(StandardCharsets.ISO_8859_1), album.getBytes(StandardCharsets.ISO_8859_1)};
+		
+		for(int field = 0; field < fields.length; field++) {
+			
+			System.arraycopy(fields[field], 0, data, tag + 3 + field * 30, fields[field].length);
+		}
+		
+		data[tag + 127] = (byte)genre;
+		Files.write(file, data);
+	}
+	
+	private static final List<String> titles(List<LibraryEntry> entries) {
+		
+		return entries.stream().map(LibraryEntry::getTitle).collect(Collectors.toList());
+	}
+	
+	@Test
+	public void testSearch() throws Exception {
+		
+		Path library = Files.createTempDirectory("simple-audio-search");
+		
+		try {
+			
+			byte[] audio = Files.readAllBytes(Paths.get(Sources.getResource("audio.mp3").toURI()));
+			write(library.resolve("1.mp3"), audio, "Bohemian Rhapsody", "Queen", "A Night at the Opera", 17);
+			write(library.resolve("2.mp3"), audio, "Go with the Flow", "Queens of the Stone Age", "Songs for the Deaf", 17);
+			write(library.resolve("3.mp3"), audio, "Crème Queen", "Someone", "Desserts", 13);
+			write(library.resolve("4.mp3"), audio, "Opera Night", "Other", "Queen Tribute", 8);
+			
+			List<LibraryEntry> entries = new LibraryScanner(library.resolve("library.idx")).scan(library);
+			SearchIndex index = new SearchIndex(entries);
+			assertEquals(4, index.size());
+			
+			// the title is ranked before the artist and the album and a rare word that starts with the query still counts
+			assertEquals(List.of("Crème Queen", "Bohemian Rhapsody", "Go with the Flow", "Opera Night"), titles(index.find("queen", 10)));
+			assertEquals(List.of("Crème Queen"), titles(index.find("creme", 10)));
+			assertEquals(List.of("Go with the Flow", "Bohemian Rhapsody"), titles(index.find("artist:que", 10)));
+			assertEquals(List.of("Opera Night", "Bohemian Rhapsody"), titles(index.find("opera night", 10)));
+			assertEquals(List.of("Bohemian Rhapsody", "Go with the Flow"), titles(index.find("genre:rock", 10)));
+			assertEquals(1, index.find("queen", 1).size());
+			assertTrue(index.find("queen metal", 10).isEmpty());
+			assertEquals(4, index.find("", 10).size());
+			
+			Playlist playlist = index.filter(SearchIndex.Field.ARTIST, "Queen");
+			assertEquals(1, playlist.getNumberOfTracks());
+			Audio track = playlist.getTrack(0);
+			assertTrue(track instanceof StreamedAudio);
+			assertEquals(library.resolve("1.mp3").toUri().toURL(), track.getResource());
+			assertFalse(track.isOpen());
+			
+			Playlist result = index.search("queen");
+			assertEquals(4, result.getNumberOfTracks());
+			
+			// tracks that were never used are removed without creating their audio
+			result.remove(1);
+			assertEquals(3, result.getNumberOfTracks());
+			assertNull(result.getTracks().remove(0));
+			assertEquals(2, result.getNumberOfTracks());
+			result.close();
+			
+		} finally {
+			
+			try(Stream<Path> files = Files.walk(library)) {
+				
+				files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+			}
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import de.jarnbjo.ogg.LogicalOggStream;
+import de.jarnbjo.ogg.OnDemandUrlStream;
+import de.jarnbjo.vorbis.VorbisStream;
+import de.ralleytn.simple.audio.internal.VorbisInputStream;
+
+class VorbisInputStreamTest {
+
+	private static final VorbisInputStream open(boolean bigEndian) throws Exception {
+		
+		LogicalOggStream stream = (LogicalOggStream)new OnDemandUrlStream(Sources.getResource("audio.ogg")).getLogicalStreams().iterator().next();
+		return new VorbisInputStream(new VorbisStream(stream), bigEndian);
+	}
+	
+	private static final byte[] readAll(VorbisInputStream inputStream) throws IOException {
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4095];
+		int read = 0;
+		
+		while((read = inputStream.read(buffer)) != -1) {
+			
+			output.write(buffer, 0, read);
+		}
+		
+		return output.toByteArray();
+	}
+	
+	@Test
+	public void testByteOrder() {
+		
+		try {
+			
+			VorbisInputStream bigEndian = open(true);
+			VorbisInputStream littleEndian = open(false);
+			assertTrue(bigEndian.getAudioFormat().isBigEndian());
+			assertFalse(littleEndian.getAudioFormat().isBigEndian());
+			assertTrue(littleEndian.getAudioFormat() == littleEndian.getAudioFormat());
+			
+			byte[] big = readAll(bigEndian);
+			byte[] little = readAll(littleEndian);
+			assertEquals(220928, big.length);
+			assertEquals(big.length, little.length);
+			
+			for(int index = 0; index < big.length; index += 2) {
+				
+				assertEquals(big[index], little[index + 1]);
+				assertEquals(big[index + 1], little[index]);
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testSingleByteRead() {
+		
+		try {
+			
+			byte[] expected = readAll(open(false));
+			VorbisInputStream inputStream = open(false);
+			byte[] buffer = new byte[3];
+			int position = 0;
+			
+			// mixes single byte reads with odd sized reads
+			while(position < expected.length) {
+				
+				int value = inputStream.read();
+				assertEquals(expected[position++] & 0xFF, value);
+				int read = inputStream.read(buffer, 0, buffer.length);
+				
+				for(int index = 0; index < read; index++) {
+					
+					assertEquals(expected[position++], buffer[index]);
+				}
+			}
+			
+			assertEquals(-1, inputStream.read());
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testFloat() {
+		
+		try {
+			
+			byte[] expected = readAll(open(true));
+			VorbisInputStream inputStream = open(true);
+			float[] samples = new float[1000];
+			int position = 0;
+			int read = 0;
+			
+			while((read = inputStream.read(samples, 0, samples.length)) != -1) {
+				
+				for(int index = 0; index < read; index++) {
+					
+					short sample = (short)((expected[position] << 8) | (expected[position + 1] & 0xFF));
+					assertEquals(sample / 32768.0F, samples[index]);
+					position += 2;
+				}
+			}
+			
+			assertEquals(expected.length, position);
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+}
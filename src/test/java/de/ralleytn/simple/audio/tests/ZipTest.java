@@ -0,0 +1,294 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2017 Ralph Niemitz
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package de.ralleytn.simple.audio.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.sound.sampled.AudioInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import de.ralleytn.simple.audio.AbstractAudio;
+import de.ralleytn.simple.audio.AudioDecoder;
+import de.ralleytn.simple.audio.AudioException;
+import de.ralleytn.simple.audio.BufferedAudio;
+import de.ralleytn.simple.audio.DecoderRegistry;
+import de.ralleytn.simple.audio.FileFormat;
+import de.ralleytn.simple.audio.internal.ZipArchive;
+import de.ralleytn.simple.audio.internal.ZipStreamHandler;
+
+class ZipTest {
+
+	private static final Path createStoredZip() throws Exception {
+		
+		byte[] data;
+		
+		try(InputStream input = Sources.getResource("audio.wav").openStream()) {
+			
+			data = input.readAllBytes();
+		}
+		
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		Path zip = Files.createTempFile("simple-audio-stored", ".zip");
+		zip.toFile().deleteOnExit();
+		
+		try(OutputStream output = Files.newOutputStream(zip);
+			ZipOutputStream zipOutput = new ZipOutputStream(output)) {
+			
+			// a compressed entry in front moves the stored one away from the beginning of the file
+			zipOutput.putNextEntry(new ZipEntry("readme.txt"));
+			zipOutput.write("simple-audio".getBytes());
+			zipOutput.closeEntry();
+			
+			ZipEntry entry = new ZipEntry("sounds/audio.wav");
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(data.length);
+			entry.setCrc(crc.getValue());
+			zipOutput.putNextEntry(entry);
+			zipOutput.write(data);
+			zipOutput.closeEntry();
+		}
+		
+		return zip;
+	}
+	
+	@Test
+	public void testDeflated() {
+		
+		try {
+			
+			Sources sources = new Sources("audio.wav");
+			File zip = sources.getZipFile();
+			BufferedAudio audio = new BufferedAudio(zip, "audio.wav");
+			assertEquals("zip", audio.getResource().getProtocol());
+			audio.open();
+			assertEquals(110464L, audio.getFrameLength());
+			audio.close();
+			
+			audio = new BufferedAudio(zip, "audio.ogg");
+			audio.open();
+			assertEquals(110464L, audio.getFrameLength());
+			audio.close();
+			
+			assertThrows(AudioException.class, () -> new BufferedAudio(zip, "missing.wav"));
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testStored() {
+		
+		try {
+			
+			BufferedAudio audio = new BufferedAudio(createStoredZip(), "sounds/audio.wav");
+			assertEquals(FileFormat.WAV, audio.getFileFormat());
+			assertEquals(220972, audio.getResource().openConnection().getContentLength());
+			audio.open();
+			assertEquals(110464L, audio.getFrameLength());
+			audio.close();
+			
+			try(InputStream input = audio.getResource().openStream()) {
+				
+				// mapped entries can be marked without a buffer
+				assertTrue(input.markSupported());
+				assertEquals(220972, input.available());
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+		}
+	}
+	
+	@Test
+	public void testRandomAccess() {
+		
+		AudioDecoder wav = DecoderRegistry.getDefaultDecoder(FileFormat.WAV);
+		
+		try {
+			
+			DecoderRegistry.register(FileFormat.WAV, new AudioDecoder() {
+				
+				@Override
+				public AudioInputStream decode(InputStream inputStream) throws Exception {
+					
+					return wav.decode(inputStream);
+				}
+				
+				@Override
+				public boolean needsRandomAccess() {
+					
+					return true;
+				}
+			});
+			
+			BufferedAudio audio = new BufferedAudio(new Sources("audio.wav").getZipFile(), "audio.wav");
+			Path zip = new Sources("audio.wav").getZipPath();
+			Path extracted = ZipStreamHandler.extract(ZipStreamHandler.createURL(zip, "audio.wav"));
+			Files.delete(extracted);
+			
+			// the same entry in another zip file is extracted into another file
+			Path copy = Files.createTempFile("simple-audio", ".zip");
+			Files.copy(zip, copy, StandardCopyOption.REPLACE_EXISTING);
+			Path other = ZipStreamHandler.extract(ZipStreamHandler.createURL(copy, "audio.wav"));
+			assertNotEquals(extracted, other);
+			Files.delete(other);
+			Files.delete(copy);
+			
+			audio.open();
+			assertEquals(110464L, audio.getFrameLength());
+			audio.close();
+			assertTrue(Files.isRegularFile(extracted));
+			long modified = Files.getLastModifiedTime(extracted).toMillis();
+			
+			// the second open uses the file that was already extracted
+			audio.open();
+			audio.close();
+			assertEquals(modified, Files.getLastModifiedTime(extracted).toMillis());
+			
+			// a damaged file with the right size is extracted again
+			Path original = Paths.get(Sources.getResource("audio.wav").toURI());
+			Files.write(extracted, new byte[(int)Files.size(extracted)]);
+			audio.open();
+			assertEquals(110464L, audio.getFrameLength());
+			audio.close();
+			assertArrayEquals(Files.readAllBytes(original), Files.readAllBytes(extracted));
+			
+			// the oldest files are deleted when the cache becomes too large
+			Path old = extracted.resolveSibling("old.wav");
+			Files.write(old, new byte[1048576]);
+			Files.setLastModifiedTime(old, FileTime.fromMillis(0L));
+			Files.delete(extracted);
+			AbstractAudio.setZipExtractionCacheSize(Files.size(original) + 1024L);
+			audio.open();
+			audio.close();
+			assertTrue(Files.isRegularFile(extracted));
+			assertFalse(Files.exists(old));
+			Files.delete(extracted);
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			AbstractAudio.setZipExtractionCacheSize(ZipStreamHandler.DEFAULT_EXTRACTION_CACHE_SIZE);
+			DecoderRegistry.reset(FileFormat.WAV);
+		}
+	}
+	
+	@Test
+	public void testArchiveCache() {
+		
+		long timeout = ZipArchive.getIdleTimeout();
+		
+		try {
+			
+			Path zip = new Sources("audio.wav").getZipPath();
+			new Sources("audio.wav").getZipFile();
+			ZipArchive.evictIdle();
+			ZipArchive archive = ZipArchive.open(zip);
+			assertEquals(10, archive.size());
+			
+			// every entry is read from the same archive and inflated correctly
+			for(String name : new String[] {"audio.wav", "audio.ogg", "audio.mp3", "audio.flac", "audio.aiff", "audio.au"}) {
+				
+				try(ZipArchive same = ZipArchive.open(zip);
+					InputStream input = same.openStream(name);
+					InputStream expected = Sources.getResource(name).openStream()) {
+					
+					assertSame(archive.getEntry(name), same.getEntry(name));
+					assertArrayEquals(expected.readAllBytes(), input.readAllBytes(), name);
+				}
+			}
+			
+			archive.close();
+			
+			// the archive stays open while it is idle
+			try(ZipArchive same = ZipArchive.open(zip)) {
+				
+				assertSame(archive.getEntry("audio.wav"), same.getEntry("audio.wav"));
+			}
+			
+			ZipArchive.setIdleTimeout(0);
+			ZipArchive used = ZipArchive.open(zip);
+			
+			// a handle that is closed twice only gives up its own reference
+			ZipArchive twice = ZipArchive.open(zip);
+			twice.close();
+			twice.close();
+			assertThrows(IOException.class, () -> twice.openStream("audio.wav"));
+			
+			try(ZipArchive same = ZipArchive.open(zip)) {
+				
+				assertSame(used.getEntry("audio.wav"), same.getEntry("audio.wav"));
+			}
+			
+			used.close();
+			
+			// closed immediately without an idle timeout
+			try(ZipArchive other = ZipArchive.open(zip)) {
+				
+				assertNotSame(used.getEntry("audio.wav"), other.getEntry("audio.wav"));
+			}
+			
+		} catch(Exception exception) {
+			
+			exception.printStackTrace();
+			fail(exception.getMessage());
+			
+		} finally {
+			
+			ZipArchive.setIdleTimeout(timeout);
+		}
+	}
+}